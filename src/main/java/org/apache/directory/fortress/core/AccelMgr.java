@@ -224,6 +224,23 @@ public interface AccelMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * Perform user RBAC authorization of many permissions in one call.  The checks are sent to the accelerator together,
+     * on one connection, so a caller that needs to check several permissions, i.e. to render a page, pays for about
+     * one round trip instead of one per permission.
+     *
+     * @param session This object must be instantiated by calling {@link #createSession} method before passing
+     * into the method.  No variables need to be set by client after returned from createSession.
+     * @param perms   each must contain the object, Permission#objName, and operation, Permission#opName, of a
+     * permission User is trying to access.
+     * @return List of results, in the order of the permissions, true if user has access, false otherwise.
+     * @throws SecurityException
+     *          in the event of data validation failure, security policy violation or DAO error.
+     */
+    List<Boolean> checkAccess( Session session, List<Permission> perms )
+        throws SecurityException;
+
+
     /**
      * This function returns the permissions of the session, i.e., the permissions assigned
      * to its authorized roles. The function is valid if and only if the session is a valid Fortress session.
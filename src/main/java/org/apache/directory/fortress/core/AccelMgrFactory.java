@@ -24,6 +24,7 @@ import org.apache.directory.fortress.core.impl.AccelMgrImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the AccelMgr object.
@@ -73,6 +74,6 @@ public final class AccelMgrFactory
         }
 
         accelMgr.setContextId(contextId);
-        return accelMgr;
+        return Tracer.wrap( AccelMgr.class, accelMgr, contextId );
     }
 }
@@ -293,6 +293,22 @@ public interface AccessMgr extends Manageable
     boolean checkAccess( Session session, Permission perm )
         throws SecurityException;
 
+    /**
+     * Same as {@link #checkAccess(Session, Permission)} for a session passed in as a token, i.e. by a service that
+     * received the token from the one that created the session.  The user and role temporal constraints are checked
+     * again, the session is not created again and the user is not read.
+     *
+     * @param token   verified token returned by {@link SessionToken#decode(String)}, issued for this tenant.
+     * @param perm    must contain the object, {@link Permission#objName}, and operation, {@link Permission#opName}, of
+     * permission User is trying to access.
+     * @return True if user has access, false otherwise.
+     * @throws SecurityException
+     *          if the token has expired or was issued for another tenant, in the event of data validation failure,
+     *          security policy violation or DAO error.
+     */
+    boolean checkAccess( SessionToken token, Permission perm )
+        throws SecurityException;
+
     /**
      * Combine createSession and checkAccess into a single method.
      * This function returns a Boolean value meaning whether the User is allowed or not to perform a given operation on a given object.
@@ -400,6 +416,31 @@ public interface AccessMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * This function brings a long-lived session up to date with the user entry in the directory, without the cost of
+     * creating a new session.  It reads only the version marker of the user entry, {@link User#getVersion()}, and
+     * compares it with the one captured when the session was created or last refreshed:
+     * <ul>
+     *   <li>
+     *     if unchanged, the user and role temporal constraints are checked again, roles outside of their time window are
+     *     removed from the session.
+     *   </li>
+     *   <li>
+     *     if changed, the user entry is read again.  The session keeps its active roles that are still assigned to the
+     *     user, with their latest constraints, and is checked again for temporal constraints and Dynamic Separation of
+     *     Duty.  Roles assigned since are not activated, use {@link #addActiveRole(Session, UserRole)}.
+     *   </li>
+     * </ul>
+     * A group session is only checked again for role temporal constraints.
+     *
+     * @param session object contains the user's returned RBAC session from the createSession method, updated in place.
+     * @throws SecurityException is thrown if the user was removed or locked, fails its temporal constraints or runtime
+     * error occurs with system.
+     */
+    void refreshSession( Session session )
+        throws SecurityException;
+
+
     /**
      * This function returns the userId value that is contained within the session object.
      * The function is valid if and only if the session object contains a valid Fortress session.
@@ -25,6 +25,7 @@ import org.apache.directory.fortress.core.rest.AccessMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the AccessMgr object.
@@ -85,6 +86,6 @@ public final class AccessMgrFactory
 
         accessMgr.setContextId(contextId);
         
-        return accessMgr;
+        return Tracer.wrap( AccessMgr.class, accessMgr, contextId );
     }
 }
@@ -20,6 +20,10 @@
 package org.apache.directory.fortress.core;
 
 
+import java.util.List;
+
+import org.apache.directory.fortress.core.model.BatchResult;
+import org.apache.directory.fortress.core.model.PermGrant;
 import org.apache.directory.fortress.core.model.PermObj;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.PermissionAttribute;
@@ -123,6 +127,29 @@ public interface AdminMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * This command adds a batch of new users to the RBAC database.  Each user is validated and added as described in
+     * {@link #addUser(User)}, but the entries are written over a single connection using pipelined requests which
+     * avoids one network round trip per user.
+     * <p>
+     * A failure on one user does not stop the others from being processed.  The outcome of each is returned as a
+     * BatchResult, in the same order as the input, which carries the error id that {@link #addUser(User)} would have
+     * thrown.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>User#userId - maps to INetOrgPerson uid</li>
+     *   <li>User#ou - contains the name of an already existing User OU node</li>
+     * </ul>
+     *
+     * @param users List of User entities, each must contain User#userId and User#ou.
+     * @return List of BatchResult, one for each user.
+     * @throws SecurityException thrown in the event the caller is not authorized or system error.
+     */
+    List<BatchResult> addUsers( List<User> users )
+        throws SecurityException;
+
+
     /**
      * This command deletes an existing user from the RBAC database. The command is valid
      * if and only if the user to be deleted is a member of the USERS data set. The USERS and
@@ -436,6 +463,28 @@ public interface AdminMgr extends Manageable
     void assignUser( UserRole uRole )
         throws SecurityException;
 
+
+    /**
+     * This command assigns a batch of users to roles.  Each assignment is checked and performed as described in
+     * {@link #assignUser(UserRole)}.  Assignments targeting the same user are combined into a single update of the
+     * user entry, and the updates are written over a single connection using pipelined requests.
+     * <p>
+     * A failure on one assignment does not stop the others from being processed.  The outcome of each is returned as
+     * a BatchResult, in the same order as the input.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>UserRole#name - contains the name for already existing Role to be assigned</li>
+     *   <li>UserRole#userId - contains the userId for existing User</li>
+     * </ul>
+     *
+     * @param uRoles List of UserRole entities, each must contain UserRole#name and UserRole#userId.
+     * @return List of BatchResult, one for each assignment.
+     * @throws SecurityException thrown in the event the caller is not authorized or system error.
+     */
+    List<BatchResult> assignUsers( List<UserRole> uRoles )
+        throws SecurityException;
+
     /**
      * This method enables a role to be constrained by attributes.
      * <h4>required parameters</h4>
@@ -877,6 +926,30 @@ public interface AdminMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * This command grants a batch of permissions to roles and users.  Each grant is checked and performed as described
+     * in {@link #grantPermission(Permission, Role)} if PermGrant#roleNm is set, otherwise as described in
+     * {@link #grantPermission(Permission, User)}.  Grants targeting the same permission are combined into a single
+     * update, and the updates are written over a single connection using pipelined requests.
+     * <p>
+     * A failure on one grant does not stop the others from being processed.  The outcome of each is returned as a
+     * BatchResult, in the same order as the input.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>PermGrant#objName - contains the object name</li>
+     *   <li>PermGrant#opName - contains the operation name</li>
+     *   <li>PermGrant#roleNm or PermGrant#userId - contains the grantee</li>
+     * </ul>
+     *
+     * @param permGrants List of PermGrant entities.
+     * @return List of BatchResult, one for each grant.
+     * @throws SecurityException thrown in the event the caller is not authorized or system error.
+     */
+    List<BatchResult> grantPermissions( List<PermGrant> permGrants )
+        throws SecurityException;
+
+
     /**
      * This command revokes the permission to perform an operation on an object from the set
      * of permissions assigned to a user. The command is implemented by setting the access control
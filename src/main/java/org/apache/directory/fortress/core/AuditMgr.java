@@ -20,6 +20,8 @@
 package org.apache.directory.fortress.core;
 
 
+import org.apache.directory.fortress.core.model.AuditAggregate;
+import org.apache.directory.fortress.core.model.AuditCount;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.UserAudit;
@@ -94,6 +96,15 @@ import java.util.List;
  *     {@link AuditMgr#searchAdminMods(org.apache.directory.fortress.core.model.UserAudit)} </code>
  *   </li>
  * </ul>
+ * <h4>
+ *   The following report is supported using search input: {@link org.apache.directory.fortress.core.model.AuditAggregate}
+ * </h4>
+ * <ul>
+ *   <li>
+ *     Event Counts:             <code>List&lt;{@link org.apache.directory.fortress.core.model.AuditCount}&gt;
+ *     {@link AuditMgr#aggregate(org.apache.directory.fortress.core.model.AuditAggregate)} </code>
+ *   </li>
+ * </ul>
  * <p>
  * This interface's implementer will NOT be thread safe if parent instance variables ({@link Manageable#setContextId(String)} 
  * or {@link Manageable#setAdmin(org.apache.directory.fortress.core.model.Session)}) are set.
@@ -253,4 +264,33 @@ public interface AuditMgr extends Manageable
      */
     List<AuthZ> searchInvalidUsers( UserAudit uAudit )
         throws SecurityException;
+
+
+    /**
+     * This method counts the authentication or authorization events of a time window per time bucket and per
+     * distinct value of the grouped fields, i.e. the failed binds per user per hour or the denied authorizations per
+     * permission per day.  The access log is read in parallel time slices with paged searches and the events are
+     * folded into counters as they are read, so only the counts are returned, not the events.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>{@link AuditAggregate#getEvent()} - contains the kind of events counted, binds or authorizations</li>
+     *   <li>{@link AuditAggregate#getBeginDate()} - contains the start of the window, inclusive</li>
+     * </ul>
+     * <h4>optional parameters</h4>
+     * <ul>
+     *   <li>{@link AuditAggregate#getEndDate()} - contains the end of the window, exclusive, defaults to now</li>
+     *   <li>{@link AuditAggregate#getBucketSeconds()} - contains the bucket size, 0 for one bucket</li>
+     *   <li>{@link AuditAggregate#getGroupBy()} - contains the fields counted separately: user, object, operation, result</li>
+     *   <li>{@link AuditAggregate#getUserId()} - limits the events to one user</li>
+     *   <li>{@link AuditAggregate#getObjName()}, {@link AuditAggregate#getOpName()} - limit the authorizations to a permission</li>
+     *   <li>{@link AuditAggregate#isFailedOnly()} - if set to 'true', count only failed events</li>
+     * </ul>
+     *
+     * @param query This entity is instantiated and populated before invocation.
+     * @return a List of objects of type AuditCount, ordered by bucket, buckets without events are missing.
+     * @throws SecurityException if the criteria are invalid or a runtime system error occurs.
+     */
+    List<AuditCount> aggregate( AuditAggregate query )
+        throws SecurityException;
 }
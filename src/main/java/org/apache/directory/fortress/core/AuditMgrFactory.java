@@ -26,6 +26,7 @@ import org.apache.directory.fortress.core.rest.AuditMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the AuditMgr object.
@@ -85,7 +86,7 @@ public final class AuditMgrFactory
         }
 
         auditMgr.setContextId(contextId);
-        return auditMgr;
+        return Tracer.wrap( AuditMgr.class, auditMgr, contextId );
     }
 
     /**
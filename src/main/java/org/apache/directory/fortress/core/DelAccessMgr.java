@@ -68,6 +68,25 @@ public interface DelAccessMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * This function will determine, for every pair of user and role, if the user contains an AdminRole that is
+     * authorized assignment control over the User-Role Assignment (URA), same as
+     * {@link #canAssign(Session, User, Role)}.  It is meant for consoles rendering a grid of users and roles, the users
+     * are read with a single search and the admin roles of the session are evaluated once.
+     *
+     * @param session This object must be instantiated by calling
+     * {@link AccessMgr#createSession(org.apache.directory.fortress.core.model.User, boolean)} before passing into the method.  No variables need to be set by client after returned from createSession.
+     * @param users   contains User entities, each requires only valid userId attribute set.
+     * @param roles   contains Role entities, each requires only valid role name attribute set.
+     * @return matrix of boolean values, {@code result[i][j]} is true if the user at index i may be assigned the role
+     * at index j.
+     * @throws SecurityException
+     *          In the event of data validation error (i.e. invalid userId or role name) or system error.
+     */
+    boolean[][] canAssign( Session session, List<User> users, List<Role> roles )
+        throws SecurityException;
+
+
     /**
      * This function will determine if the user contains an AdminRole that is authorized revoke control over
      * User-Role Assignment (URA).  This adheres to the ARBAC02 functional specification for can-revoke URA.
@@ -100,6 +119,26 @@ public interface DelAccessMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * This function will determine, for every pair of role and permission, if the user contains an AdminRole that is
+     * authorized assignment control over the Permission-Role Assignment (PRA), same as
+     * {@link #canGrant(Session, Role, Permission)}.  It is meant for consoles rendering a grid of roles and
+     * permissions, the permission objects are read with a single search and the admin roles of the session are
+     * evaluated once.
+     *
+     * @param session This object must be instantiated by calling {@link AccessMgr#createSession} method before passing
+     * into the method.  No variables need to be set by client after returned from createSession.
+     * @param roles   contains Role entities, each requires only valid role name attribute set.
+     * @param perms   contains Permission entities, each requires valid object name attribute set.
+     * @return matrix of boolean values, {@code result[i][j]} is true if the role at index i may be granted the
+     * permission at index j.
+     * @throws SecurityException
+     *          In the event of data validation error (i.e. invalid perm or role name) or system error.
+     */
+    boolean[][] canGrant( Session session, List<Role> roles, List<Permission> perms )
+        throws SecurityException;
+
+
     /**
      * This function will determine if the user contains an AdminRole that is authorized revoke control over
      * Permission-Role Assignment (PRA).  This adheres to the ARBAC02 functional specification for can-revoke-p PRA.
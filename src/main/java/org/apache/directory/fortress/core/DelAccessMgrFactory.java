@@ -26,6 +26,7 @@ import org.apache.directory.fortress.core.rest.DelAccessMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the DelAccessMgr object.
@@ -85,7 +86,7 @@ public final class DelAccessMgrFactory
         }
 
         accessMgr.setContextId(contextId);
-        return accessMgr;
+        return Tracer.wrap( DelAccessMgr.class, accessMgr, contextId );
     }
 
 
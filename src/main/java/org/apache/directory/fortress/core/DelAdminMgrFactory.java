@@ -26,6 +26,7 @@ import org.apache.directory.fortress.core.rest.DelAdminMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the DelAdminMgr object.
@@ -86,7 +87,7 @@ public final class DelAdminMgrFactory
         }
 
         delAdminMgr.setContextId(contextId);
-        return delAdminMgr;
+        return Tracer.wrap( DelAdminMgr.class, delAdminMgr, contextId );
     }
 
     /**
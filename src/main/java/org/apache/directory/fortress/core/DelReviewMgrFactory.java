@@ -26,6 +26,7 @@ import org.apache.directory.fortress.core.rest.DelReviewMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the DelReviewMgr object.
@@ -83,7 +84,7 @@ public final class DelReviewMgrFactory
         }
 
         delReviewMgr.setContextId(contextId);
-        return delReviewMgr;
+        return Tracer.wrap( DelReviewMgr.class, delReviewMgr, contextId );
     }
 
     /**
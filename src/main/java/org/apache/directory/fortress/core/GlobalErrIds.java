@@ -191,6 +191,16 @@ public final class GlobalErrIds
      */
     public static final int FT_CONFIG_JSSE_TRUSTSTORE_NULL = 136;
 
+    /**
+     * One of the startup tasks launched by {@link org.apache.directory.fortress.core.impl.Bootstrap} failed.
+     */
+    public static final int FT_BOOTSTRAP_FAILED = 137;
+
+    /**
+     * The startup tasks launched by {@link org.apache.directory.fortress.core.impl.Bootstrap} did not complete in time.
+     */
+    public static final int FT_BOOTSTRAP_TIMEOUT = 138;
+
     /**
      * 1000's - User Entity Rule and LDAP Errors
      */
@@ -405,6 +415,16 @@ public final class GlobalErrIds
      */
     public static final int USER_OU_NULL = 1041;
 
+    /**
+     * The session token is malformed, its signature does not match or it was issued for another tenant.
+     */
+    public static final int USER_SESS_TOKEN_INVALID = 1042;
+
+    /**
+     * The session token has expired.
+     */
+    public static final int USER_SESS_TOKEN_EXPIRED = 1043;
+
     /**
      * 2000's User-Role assignments
      */
@@ -718,6 +738,11 @@ public final class GlobalErrIds
      * The supplied Permission Attribute update failed
      */
     public static final int PERM_ATTRIBUTE_UPDATE_FAILED = 3038;
+    /**
+     * The entitlement export of {@link org.apache.directory.fortress.core.impl.EntitlementExport} could not be written
+     * or was interrupted.
+     */
+    public static final int PERM_EXPORT_FAILED = 3039;
     
     /**
      * 4000's - Password Policy Entity
@@ -1226,6 +1251,17 @@ public final class GlobalErrIds
      */
     public static final int AUDT_AUTHN_INVALID_FAILED = 7005;
 
+    /**
+     * The Audit aggregation requires an event type and a begin date before its end date, and a bucket size that is
+     * not negative.
+     */
+    public static final int AUDT_AGGREGATE_INVALID = 7006;
+
+    /**
+     * The Audit aggregation failed or was interrupted.
+     */
+    public static final int AUDT_AGGREGATE_FAILED = 7007;
+
 
     /**
      * 8000's Organizational Unit Rule and System errors
@@ -455,6 +455,15 @@ public final class GlobalIds
     public static final String LDAP_LOG_POOL_TEST_IDLE = "log.conn.test.idle";
     public static final String LDAP_LOG_POOL_EVICT_RUN_MILLIS = "log.conn.evict.run.millis";
 
+    /**
+     * Used for ldap connection pool of RBAC Accelerator clients, bound with the admin user's credentials.  The timeout
+     * bounds the wait for each extended operation's response.
+     */
+    public static final String LDAP_ACCEL_POOL_MIN = "min.accel.conn";
+    public static final String LDAP_ACCEL_POOL_MAX = "max.accel.conn";
+    public static final String LDAP_ACCEL_POOL_EVICT_RUN_MILLIS = "accel.conn.evict.run.millis";
+    public static final String LDAP_ACCEL_TIMEOUT = "accel.timeout.millis";
+
     /**
      * Applies to all pools, connection validated on retrieval with dummy ldapsearch.
      */
@@ -509,6 +518,12 @@ public final class GlobalIds
      */
     public static final String CONFIG_GID_NUMBER = "config.gid.number";
 
+    /**
+     * Number of uidNumber or gidNumber values each process reserves from the config node at a time, 20 by default.
+     * Values reserved but not handed out before the process stops are skipped.
+     */
+    public static final String POSIX_ID_BLOCK_SIZE = "posix.id.block.size";
+
     /**
      * Fortress stores name-value pairs within multivalued attributes in ldap.  Usually a separator of ':' is used
      * format: {@code name:value},
@@ -525,6 +540,135 @@ public final class GlobalIds
      */
     public static final String CONFIG_LDAP_MAX_BATCH_SIZE = "ldap.search.max.batch.size";
 
+    /**
+     * Comma separated list of tenants whose hierarchies and policies are preloaded by
+     * {@link org.apache.directory.fortress.core.impl.Bootstrap}, defaults to {@link #HOME}.
+     */
+    public static final String BOOTSTRAP_TENANTS = "bootstrap.tenants";
+
+    /**
+     * System property containing the number of threads used by {@link org.apache.directory.fortress.core.impl.Bootstrap}
+     * to run the startup tasks.  It is read before the config has been loaded.
+     */
+    public static final String BOOTSTRAP_THREADS = "bootstrap.threads";
+
+    /**
+     * Parameter containing the number of threads removing the entries of a subtree when the server does not support
+     * the tree delete control, defaults to 4.  Each thread borrows an admin connection.
+     */
+    public static final String SUBTREE_DELETE_THREADS = "subtree.delete.threads";
+
+    /**
+     * Parameter containing the number of entries read per page by the searches of
+     * {@link org.apache.directory.fortress.core.impl.EntitlementExport}, defaults to 1000.
+     */
+    public static final String EXPORT_PAGE_SIZE = "export.page.size";
+
+    /**
+     * Parameter containing the number of threads writing the rows of
+     * {@link org.apache.directory.fortress.core.impl.EntitlementExport}, defaults to 4.
+     */
+    public static final String EXPORT_THREADS = "export.threads";
+
+    /**
+     * Parameter that enables the in memory index of the users assigned to each RBAC role, used by
+     * {@link org.apache.directory.fortress.core.ReviewMgr#authorizedUsers} and
+     * {@link org.apache.directory.fortress.core.ReviewMgr#authorizedPermissionUsers}, defaults to false.
+     */
+    public static final String ROLE_USER_INDEX = "role.user.index";
+
+    /**
+     * Parameter containing the age in seconds after which the role user index is rebuilt when the server does not
+     * support persistent searches, defaults to 600.  Zero keeps the index until the process stops.
+     */
+    public static final String ROLE_USER_INDEX_REFRESH = "role.user.index.refresh.seconds";
+
+    /**
+     * Parameter containing the number of threads that read the time slices of an audit aggregation in parallel, each
+     * borrowing a log connection, defaults to 4.
+     */
+    public static final String AUDIT_AGGREGATE_THREADS = "audit.aggregate.threads";
+
+    /**
+     * Parameter containing the number of access log entries read per page by an audit aggregation, defaults to 1000.
+     */
+    public static final String AUDIT_AGGREGATE_PAGE_SIZE = "audit.aggregate.page.size";
+
+    /**
+     * Parameter containing the age in seconds after which a role, admin role or ou hierarchy is built from scratch when
+     * its cache entry expires, defaults to 3600.  Until then only the nodes changed since the last load are read.  Zero
+     * builds the hierarchy from scratch every time.
+     */
+    public static final String HIER_FULL_RELOAD = "hier.full.reload.seconds";
+
+    /**
+     * Set to true to cache the trusted sessions created by the stateless checkAccess(User,..) and isUserInRole calls,
+     * disabled by default.  The time to live and size are set on the fortress.sessions region in ehcache.xml.
+     */
+    public static final String SESSION_CACHE = "session.cache.enabled";
+
+    /**
+     * Name of the operational attribute used by AccessMgr.refreshSession to tell if a user entry changed, defaults to
+     * entryCSN on OpenLDAP and ApacheDS and modifyTimestamp on other servers.
+     */
+    public static final String USER_VERSION_ATTR = "user.version.attribute";
+
+    /**
+     * Base64 encoded key, at least 32 bytes long, used to sign and verify session tokens.  Must be the same on every
+     * service that creates or checks the tokens.
+     */
+    public static final String SESSION_TOKEN_KEY = "session.token.key";
+
+    /**
+     * Number of seconds a session token is valid for, 300 by default.
+     */
+    public static final String SESSION_TOKEN_TTL = "session.token.ttl";
+
+    /**
+     * Set to false to turn off the cache of permissions not found by checkAccess, enabled by default.
+     */
+    public static final String PERM_NOTFOUND_CACHE = "perm.notfound.cache.enabled";
+
+    /**
+     * Controls the audit records stored for checks on permissions already known not to exist, one of
+     * {@link #PERM_NOTFOUND_AUDIT_ALL} (default), {@link #PERM_NOTFOUND_AUDIT_INTERVAL} or {@link #NONE}.
+     */
+    public static final String PERM_NOTFOUND_AUDIT = "perm.notfound.audit";
+
+    /**
+     * Store an audit record for every check on a permission not found.
+     */
+    public static final String PERM_NOTFOUND_AUDIT_ALL = "all";
+
+    /**
+     * Store at most one audit record per permission not found every {@link #PERM_NOTFOUND_AUDIT_SECONDS}, the number
+     * of checks skipped is logged.
+     */
+    public static final String PERM_NOTFOUND_AUDIT_INTERVAL = "interval";
+
+    /**
+     * Number of seconds between audit records of the same permission not found, defaults to 60.
+     */
+    public static final String PERM_NOTFOUND_AUDIT_SECONDS = "perm.notfound.audit.interval";
+
+    /**
+     * Class name of the {@link org.apache.directory.fortress.core.util.trace.TraceListener} that receives the spans of
+     * manager calls and ldap operations.  Tracing is off when not set, i.e.
+     * org.apache.directory.fortress.core.util.trace.SlowOperationLogger.  When set, the manager factories return a
+     * proxy of the manager interface, see {@link org.apache.directory.fortress.core.util.trace.Tracer#wrap}.
+     */
+    public static final String TRACE_LISTENER = "trace.listener";
+
+    /**
+     * Number of milliseconds a manager call must take to be logged by the slow operation logger, 500 by default.
+     */
+    public static final String TRACE_SLOW_MILLIS = "trace.slow.millis";
+
+    /**
+     * Fraction, between 0 and 1, of the slow manager calls logged by the slow operation logger, 1 by default.
+     */
+    public static final String TRACE_SAMPLE_RATE = "trace.sample.rate";
+
     /**
      * Attribute is used in Fortress time/date constraints as default which will always pass.  i.e. values stored as beginDate=none or beginTime=none will turn the date and time constraints off
      * for a particular entity..
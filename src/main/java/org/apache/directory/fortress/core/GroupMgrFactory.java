@@ -26,6 +26,7 @@ import org.apache.directory.fortress.core.rest.GroupMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the ConfigMgr object.
@@ -91,7 +92,7 @@ public final class GroupMgrFactory
         }
 
         groupMgr.setContextId(contextId);
-        return groupMgr;
+        return Tracer.wrap( GroupMgr.class, groupMgr, contextId );
     }
 
     /**
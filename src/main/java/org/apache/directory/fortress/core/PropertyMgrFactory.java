@@ -25,6 +25,7 @@ import org.apache.directory.fortress.core.rest.PropertyMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 public class PropertyMgrFactory
 {
@@ -76,7 +77,7 @@ public class PropertyMgrFactory
         }
 
         propertyMgr.setContextId(contextId);
-        return propertyMgr;
+        return Tracer.wrap( PropertyMgr.class, propertyMgr, contextId );
     }
 
     /**
@@ -26,6 +26,7 @@ import org.apache.directory.fortress.core.rest.PwPolicyMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the PwPolicyMgr object.
@@ -84,7 +85,7 @@ public final class PwPolicyMgrFactory
         }
 
         policyMgr.setContextId(contextId);
-        return policyMgr;
+        return Tracer.wrap( PwPolicyMgr.class, policyMgr, contextId );
     }
 
     /**
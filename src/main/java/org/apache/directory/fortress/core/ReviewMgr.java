@@ -263,6 +263,26 @@ public interface ReviewMgr extends Manageable
         throws SecurityException;
 
 
+    /**
+     * Method returns matching User entity that is contained within the people container in the directory, holding
+     * only the attributes of the given profile.  Callers that need the roles of a user but none of its contact data
+     * or photo should pass {@link User.Profile#SESSION}.
+     * <h3></h3>
+     * <h4>required parameters</h4>
+     * <ul>
+     *   <li>User#userId - contains the userId associated with the User object targeted for read.</li>
+     * </ul>
+     *
+     * @param user entity contains a value User#userId that matches record in the directory.  userId is globally
+     * unique in people container.
+     * @param profile names the attributes to read.  The REST implementation always reads {@link User.Profile#FULL}.
+     * @return entity containing matching user data.
+     * @throws SecurityException if record not found or system error occurs.
+     */
+    User readUser( User user, User.Profile profile )
+        throws SecurityException;
+
+
     /**
      * Return a list of type User of all users in the people container that match all or part of the User#userId
      * field passed in User entity.
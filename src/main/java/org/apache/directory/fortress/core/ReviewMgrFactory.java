@@ -26,6 +26,7 @@ import org.apache.directory.fortress.core.rest.ReviewMgrRestImpl;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 /**
  * Creates an instance of the ReviewMgr object.
@@ -84,7 +85,7 @@ public final class ReviewMgrFactory
         }
 
         reviewMgr.setContextId(contextId);
-        return reviewMgr;
+        return Tracer.wrap( ReviewMgr.class, reviewMgr, contextId );
     }
 
     /**
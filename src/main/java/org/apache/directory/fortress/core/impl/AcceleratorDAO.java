@@ -21,20 +21,31 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.ExtendedRequest;
+import org.apache.directory.api.ldap.model.message.ExtendedResponse;
+import org.apache.directory.api.ldap.model.message.Response;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.ldap.client.api.LdapAsyncConnection;
 import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapConnectionConfig;
+import org.apache.directory.ldap.client.api.Wrapper;
+import org.apache.directory.ldap.client.api.future.ExtendedFuture;
 import org.openldap.accelerator.api.addRole.RbacAddRoleRequest;
 import org.openldap.accelerator.api.addRole.RbacAddRoleRequestImpl;
 import org.openldap.accelerator.api.addRole.RbacAddRoleResponse;
@@ -61,7 +72,10 @@ import org.slf4j.LoggerFactory;
  * Data access class for invoking RBAC Accelerator server-side operations.  This class utilizes the openldap accelerator component for LDAPv3 extended operations.
  * This class follows the pattern of {@link org.apache.directory.fortress.core.AccessMgr} except policy decisions are session state are made/stored on server-side and not client-side.
  * Its methods are not intended to be invoked by outside clients that should instead use {@link org.apache.directory.fortress.core.impl.AccelMgrImpl}.
- *
+ * <p>
+ * The operations are sent on connections of the accelerator pool, not the admin pool, and are sent asynchronously so
+ * a batch, i.e. {@link #checkAccess(Session, List)}, has all of its requests in flight on one connection at once.
+ * <p>
  * This class is thread safe.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -69,6 +83,8 @@ import org.slf4j.LoggerFactory;
 final class AcceleratorDAO extends LdapDataProvider
 {
     private static final Logger LOG = LoggerFactory.getLogger( AcceleratorDAO.class.getName() );
+    private static final long TIMEOUT = Config.getInstance().getInt( GlobalIds.LDAP_ACCEL_TIMEOUT,
+        ( int ) LdapConnectionConfig.DEFAULT_TIMEOUT );
 
     public AcceleratorDAO()
     {
@@ -93,12 +109,9 @@ final class AcceleratorDAO extends LdapDataProvider
     Session createSession( User user ) throws SecurityException
     {
         Session session = null;
-        LdapConnection ld = null;
 
         try
         {
-            ld = getAdminConnection();
-            ld.setTimeOut( 0 );
             // Create a new RBAC session
             RbacCreateSessionRequest rbacCreateSessionRequest = new RbacCreateSessionRequestImpl();
             //rbacCreateSessionRequest.setTenantId( "jts" );
@@ -115,7 +128,7 @@ final class AcceleratorDAO extends LdapDataProvider
             }
 
             // Send the request
-            RbacCreateSessionResponse rbacCreateSessionResponse = ( RbacCreateSessionResponse ) ld.extended(
+            RbacCreateSessionResponse rbacCreateSessionResponse = ( RbacCreateSessionResponse ) extended(
                 rbacCreateSessionRequest );
             LOG.debug( "createSession userId: {}, sessionId: {}, resultCode: {}",
                 user.getUserId(), rbacCreateSessionResponse.getSessionId(),
@@ -141,10 +154,6 @@ final class AcceleratorDAO extends LdapDataProvider
                 .getMessage();
             throw new SecurityException( GlobalErrIds.ACEL_CREATE_SESSION_ERR, error, e );
         }
-        finally
-        {
-            closeAdminConnection( ld );
-        }
 
         return session;
     }
@@ -168,25 +177,12 @@ final class AcceleratorDAO extends LdapDataProvider
     boolean checkAccess( Session session, Permission perm ) throws SecurityException
     {
         boolean result = false;
-        LdapConnection ld = null;
 
         try
         {
-            ld = getAdminConnection();
-            RbacCheckAccessRequest rbacCheckAccessRequest = new RbacCheckAccessRequestImpl();
-            rbacCheckAccessRequest.setSessionId( session.getSessionId() );
-            rbacCheckAccessRequest.setObject( perm.getObjName() );
-
-            // objectId is optional
-            if ( StringUtils.isNotEmpty( perm.getObjId() ) )
-            {
-                rbacCheckAccessRequest.setObjectId( perm.getObjId() );
-            }
-
-            rbacCheckAccessRequest.setOperation( perm.getOpName() );
             // Send the request
-            RbacCheckAccessResponse rbacCheckAccessResponse = ( RbacCheckAccessResponse ) ld.extended(
-                rbacCheckAccessRequest );
+            RbacCheckAccessResponse rbacCheckAccessResponse = ( RbacCheckAccessResponse ) extended(
+                newCheckAccessRequest( session, perm ) );
             LOG.debug( "checkAccess result: {}", rbacCheckAccessResponse.getLdapResult().getResultCode() );
 
             result = rbacCheckAccessResponse.getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS;
@@ -198,12 +194,64 @@ final class AcceleratorDAO extends LdapDataProvider
                     .getMessage();
             throw new SecurityException( GlobalErrIds.ACEL_CHECK_ACCESS_ERR, error, e );
         }
-        finally
+
+        return result;
+    }
+
+
+    /**
+     * Perform user impl authorization of many permissions at once.  The requests are all sent on one connection before
+     * the first response is read, so the accelerator works on them concurrently and the call costs about one round
+     * trip.  Each result is the same as the one returned by {@link #checkAccess(Session, Permission)}.
+     *
+     * @param session contains a valid sessionId captured from accelerator createSession method.
+     * @param perms   each must contain the object and operation of a permission User is trying to access.
+     * @return List of results, in the order of the permissions, true if user has access, false otherwise.
+     * @throws SecurityException rethrows {@code LdapException} with {@code GlobalErrIds.ACEL_CHECK_ACCESS_ERR}.
+     */
+    List<Boolean> checkAccess( Session session, List<Permission> perms ) throws SecurityException
+    {
+        List<Boolean> results = new ArrayList<>( perms.size() );
+
+        try
         {
-            closeAdminConnection( ld );
+            List<ExtendedRequest> requests = new ArrayList<>( perms.size() );
+            for ( Permission perm : perms )
+            {
+                requests.add( newCheckAccessRequest( session, perm ) );
+            }
+            // Send the requests
+            for ( ExtendedResponse response : extended( requests ) )
+            {
+                results.add( response.getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS );
+            }
+            LOG.debug( "checkAccess batch size: {}, results: {}", perms.size(), results );
+        }
+        catch ( LdapException e )
+        {
+            String error = "checkAccess batch size [" + perms.size() + "] caught LDAPException=" + " msg=" + e
+                .getMessage();
+            throw new SecurityException( GlobalErrIds.ACEL_CHECK_ACCESS_ERR, error, e );
         }
 
-        return result;
+        return results;
+    }
+
+
+    private RbacCheckAccessRequest newCheckAccessRequest( Session session, Permission perm )
+    {
+        RbacCheckAccessRequest rbacCheckAccessRequest = new RbacCheckAccessRequestImpl();
+        rbacCheckAccessRequest.setSessionId( session.getSessionId() );
+        rbacCheckAccessRequest.setObject( perm.getObjName() );
+
+        // objectId is optional
+        if ( StringUtils.isNotEmpty( perm.getObjId() ) )
+        {
+            rbacCheckAccessRequest.setObjectId( perm.getObjId() );
+        }
+
+        rbacCheckAccessRequest.setOperation( perm.getOpName() );
+        return rbacCheckAccessRequest;
     }
 
 
@@ -219,17 +267,15 @@ final class AcceleratorDAO extends LdapDataProvider
      */
     void dropActiveRole( Session session, UserRole userRole ) throws SecurityException
     {
-        LdapConnection ld = null;
 
         try
         {
-            ld = getAdminConnection();
             RbacDropRoleRequest dropRoleRequest = new RbacDropRoleRequestImpl();
             dropRoleRequest.setSessionId( session.getSessionId() );
             dropRoleRequest.setRole( userRole.getName() );
             dropRoleRequest.setUserIdentity( userRole.getUserId() );
             // Send the request
-            RbacDropRoleResponse rbacDropRoleResponse = ( RbacDropRoleResponse ) ld.extended(
+            RbacDropRoleResponse rbacDropRoleResponse = ( RbacDropRoleResponse ) extended(
                 dropRoleRequest );
             LOG.debug( "dropActiveRole result: {}", rbacDropRoleResponse.getLdapResult().getResultCode() );
 
@@ -246,10 +292,6 @@ final class AcceleratorDAO extends LdapDataProvider
                 .getMessage();
             throw new SecurityException( GlobalErrIds.ACEL_DROP_ROLE_ERR, error, e );
         }
-        finally
-        {
-            closeAdminConnection( ld );
-        }
     }
 
 
@@ -265,17 +307,15 @@ final class AcceleratorDAO extends LdapDataProvider
      */
     void addActiveRole( Session session, UserRole userRole ) throws SecurityException
     {
-        LdapConnection ld = null;
 
         try
         {
-            ld = getAdminConnection();
             RbacAddRoleRequest addRoleRequest = new RbacAddRoleRequestImpl();
             addRoleRequest.setSessionId( session.getSessionId() );
             addRoleRequest.setRole( userRole.getName() );
             addRoleRequest.setUserIdentity( userRole.getUserId() );
             // Send the request
-            RbacAddRoleResponse rbacAddRoleResponse = ( RbacAddRoleResponse ) ld.extended(
+            RbacAddRoleResponse rbacAddRoleResponse = ( RbacAddRoleResponse ) extended(
                 addRoleRequest );
             LOG.debug( "addActiveRole result: {}", rbacAddRoleResponse.getLdapResult().getResultCode() );
 
@@ -306,10 +346,6 @@ final class AcceleratorDAO extends LdapDataProvider
                 .getMessage();
             throw new SecurityException( GlobalErrIds.ACEL_ADD_ROLE_ERR, error, e );
         }
-        finally
-        {
-            closeAdminConnection( ld );
-        }
     }
 
 
@@ -322,16 +358,14 @@ final class AcceleratorDAO extends LdapDataProvider
      */
     void deleteSession( Session session ) throws SecurityException
     {
-        LdapConnection ld = null;
 
         try
         {
-            ld = getAdminConnection();
             RbacDeleteSessionRequest deleteSessionRequest = new RbacDeleteSessionRequestImpl();
             deleteSessionRequest.setSessionId( session.getSessionId() );
             deleteSessionRequest.setUserIdentity( session.getUserId() );
             // Send the request
-            RbacDeleteSessionResponse deleteSessionResponse = ( RbacDeleteSessionResponse ) ld.extended(
+            RbacDeleteSessionResponse deleteSessionResponse = ( RbacDeleteSessionResponse ) extended(
                 deleteSessionRequest );
             LOG.debug( "deleteSession result: {}", deleteSessionResponse.getLdapResult().getResultCode() );
         }
@@ -341,10 +375,6 @@ final class AcceleratorDAO extends LdapDataProvider
                 .getMessage();
             throw new SecurityException( GlobalErrIds.ACEL_DELETE_SESSION_ERR, error, e );
         }
-        finally
-        {
-            closeAdminConnection( ld );
-        }
     }
 
 
@@ -360,17 +390,15 @@ final class AcceleratorDAO extends LdapDataProvider
      */
     List<UserRole> sessionRoles( Session session ) throws SecurityException
     {
-        LdapConnection ld = null;
         List<UserRole> userRoleList = null;
 
         try
         {
-            ld = getAdminConnection();
             RbacSessionRolesRequest sessionRolesRequest = new RbacSessionRolesRequestImpl();
             sessionRolesRequest.setSessionId( session.getSessionId() );
             sessionRolesRequest.setUserIdentity( session.getUserId() );
             // Send the request
-            RbacSessionRolesResponse sessionRolesResponse = ( RbacSessionRolesResponse ) ld.extended(
+            RbacSessionRolesResponse sessionRolesResponse = ( RbacSessionRolesResponse ) extended(
                 sessionRolesRequest );
             LOG.debug( "sessionRoles result: {}", sessionRolesResponse.getLdapResult().getResultCode().getResultCode() );
 
@@ -391,11 +419,89 @@ final class AcceleratorDAO extends LdapDataProvider
                 .getMessage();
             throw new SecurityException( GlobalErrIds.ACEL_SESSION_ROLES_ERR, error, e );
         }
+
+        return userRoleList;
+    }
+
+
+    /**
+     * Send one extended operation on an accelerator connection and wait for its response.
+     */
+    private ExtendedResponse extended( ExtendedRequest request ) throws LdapException
+    {
+        return extended( Collections.singletonList( request ) ).get( 0 );
+    }
+
+
+    /**
+     * Send the extended operations on one accelerator connection without waiting for each response, so they are all in
+     * flight at once, then wait for their responses.  The accelerator pool's timeout bounds the whole wait, the
+     * operations still pending when it expires are abandoned.
+     *
+     * @param requests contains the extended operations to send.
+     * @return List of responses, in the order of the requests.
+     * @throws LdapException in the event a request could not be sent, or the responses did not come back in time.
+     */
+    private List<ExtendedResponse> extended( List<? extends ExtendedRequest> requests ) throws LdapException
+    {
+        List<ExtendedResponse> responses = new ArrayList<>( requests.size() );
+        List<ExtendedFuture> futures = new ArrayList<>( requests.size() );
+        LdapConnection ld = null;
+
+        try
+        {
+            ld = getAccelConnection();
+            LdapAsyncConnection asyncLd = getAsyncConnection( ld );
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( TIMEOUT );
+            for ( ExtendedRequest request : requests )
+            {
+                futures.add( asyncLd.extendedAsync( request ) );
+            }
+            for ( ExtendedFuture future : futures )
+            {
+                Response response = future.get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+                if ( response == null )
+                {
+                    throw new LdapException( "extended operation timed out, batch size [" + requests.size() + "]" );
+                }
+                responses.add( ( ExtendedResponse ) response );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new LdapException( "extended operation interrupted", e );
+        }
         finally
         {
-            closeAdminConnection( ld );
+            // requests not answered must not leave their response futures behind on a pooled connection:
+            for ( int i = responses.size(); i < futures.size(); i++ )
+            {
+                ld.abandon( requests.get( i ).getMessageId() );
+            }
+            closeAccelConnection( ld );
         }
 
-        return userRoleList;
+        return responses;
+    }
+
+
+    /**
+     * The pooled connections wrap the network connection that sends the asynchronous operations.
+     */
+    @SuppressWarnings("unchecked")
+    private LdapAsyncConnection getAsyncConnection( LdapConnection ld ) throws LdapException
+    {
+        LdapConnection connection = ld;
+        while ( !( connection instanceof LdapAsyncConnection ) && connection instanceof Wrapper )
+        {
+            connection = ( ( Wrapper<LdapConnection> ) connection ).wrapped();
+        }
+        if ( !( connection instanceof LdapAsyncConnection ) )
+        {
+            throw new LdapException( "accelerator connection does not support asynchronous operations ["
+                + ld.getClass().getName() + "]" );
+        }
+        return ( LdapAsyncConnection ) connection;
     }
 }
@@ -24,11 +24,12 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Set;
 
-import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.fortress.annotation.AdminPermissionOperation;
 import org.apache.directory.fortress.core.AccessMgr;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.model.*;
 import org.apache.directory.fortress.core.util.VUtil;
 
@@ -164,6 +165,31 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean checkAccess( SessionToken token, Permission perm )
+        throws SecurityException
+    {
+        String methodName = "checkAccess";
+        VUtil.assertNotNull( token, GlobalErrIds.USER_SESS_NULL, getFullMethodName( CLS_NM, methodName ) );
+        if ( !StringUtils.equals( token.getContextId(), this.contextId ) )
+        {
+            String info = getFullMethodName( CLS_NM, methodName ) + " token for userId [" + token.getUserId()
+                + "] issued for another tenant";
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, info );
+        }
+        if ( token.isExpired() )
+        {
+            String info = getFullMethodName( CLS_NM, methodName ) + " token for userId [" + token.getUserId()
+                + "] expired";
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_EXPIRED, info );
+        }
+        return checkAccess( token.toSession(), perm );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -172,7 +198,7 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
     public boolean checkAccess( User user, Permission perm, boolean isTrusted )
         throws SecurityException
     {
-        Session session = createSession( user, isTrusted );
+        Session session = createStatelessSession( user, isTrusted );
         return checkAccess( session, perm );
     }
 
@@ -188,7 +214,7 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
         VUtil.assertNotNullOrEmpty( role.getName(), GlobalErrIds.ROLE_NM_NULL,
             getFullMethodName( CLS_NM, methodName ) );
         boolean result = false;
-        Session session = createSession( user, isTrusted );
+        Session session = createStatelessSession( user, isTrusted );
         List<UserRole> sRoles = session.getRoles();
         UserRole uRole = new UserRole( user.getUserId(), role.getName() );
         // If session has role activated:
@@ -301,12 +327,12 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
         {
             User inUser = new User(session.getUserId());
             inUser.setContextId(this.contextId);
-            User ue = userP.read(inUser, true);
+            User ue = userP.read(inUser, User.Profile.SESSION);
             assignedRoles = ue.getRoles();
         }
-        int indx;
+        UserRole assignedRole = RoleList.find( assignedRoles, role.getName() );
         // Is the user has not been assigned the role:
-        if ( CollectionUtils.isEmpty( assignedRoles ) || ( ( indx = assignedRoles.indexOf( role ) ) == -1 ) )
+        if ( assignedRole == null )
         {
             String info = getFullMethodName(CLS_NM, methodName) + " Role [" + role.getName() + "] Entity ["
                         + entityId + "] role not authorized for entity.";
@@ -317,7 +343,7 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
         SDUtil.getInstance().validateDSD( session, role );
 
         // set the role to the session:
-        session.setRole( assignedRoles.get( indx ) );
+        session.setRole( assignedRole );
 
         // Check role temporal constraints, not DSD, performed earlier:
         VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.ROLE, false );
@@ -347,12 +373,7 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
         role.setUserId(entityId);
         List<UserRole> activatedRoles = session.getRoles();
         VUtil.assertNotNull( activatedRoles, GlobalErrIds.URLE_DEACTIVE_FAILED, CLS_NM + getFullMethodName( CLS_NM, methodName ) );
-        int indx = activatedRoles.indexOf( role );
-        if ( indx != -1 )
-        {
-            activatedRoles.remove( role );
-        }
-        else
+        if ( !activatedRoles.remove( role ) )
         {
             String info = getFullMethodName( CLS_NM, methodName ) + " Role [" + role.getName() + "] Entity ["
                 + session.getUserId() + "], not previously activated";
@@ -361,6 +382,24 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void refreshSession( Session session )
+        throws SecurityException
+    {
+        String methodName = "refreshSession";
+        assertContext( CLS_NM, methodName, session, GlobalErrIds.USER_SESS_NULL );
+        if ( !session.isGroupSession() )
+        {
+            VUtil.assertNotNull( session.getUser(), GlobalErrIds.USER_NULL, CLS_NM + "." + methodName );
+            session.getUser().setContextId( this.contextId );
+        }
+        userP.refreshSession( session );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -384,4 +423,25 @@ public class AccessMgrImpl extends Manageable implements AccessMgr, Serializable
 
         return session.getUser();
     }
+
+
+    /**
+     * Create the session of a stateless call, taken from the session cache if the session is trusted and the cache is
+     * enabled, see {@link SessionUtil}.
+     *
+     * @param user      contains the userId and optionally the roles requested for activation.
+     * @param isTrusted if true password is not required.
+     * @return session owned by the caller.
+     * @throws SecurityException in the event the session cannot be created.
+     */
+    private Session createStatelessSession( User user, boolean isTrusted ) throws SecurityException
+    {
+        String methodName = "createSession";
+        assertContext( CLS_NM, methodName, user, GlobalErrIds.USER_NULL );
+        if ( isTrusted && SessionUtil.isCacheable( user ) )
+        {
+            return SessionUtil.getSession( user, userP );
+        }
+        return createSession( user, isTrusted );
+    }
 }
@@ -21,11 +21,17 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.fortress.annotation.AdminPermissionOperation;
 import org.apache.directory.fortress.core.AdminMgr;
 import org.apache.directory.fortress.core.FinderException;
@@ -111,6 +117,44 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @AdminPermissionOperation
+    public List<BatchResult> addUsers( List<User> users ) throws SecurityException
+    {
+        String methodName = "addUsers";
+        VUtil.assertNotNull( users, GlobalErrIds.USER_NULL, CLS_NM + methodName );
+        // Authorize the batch once, delegated admin checks are still performed for every user:
+        checkAccess( CLS_NM, methodName );
+        BatchResult[] results = new BatchResult[users.size()];
+        List<User> validUsers = new ArrayList<>( users.size() );
+        List<Integer> validIdxs = new ArrayList<>( users.size() );
+        for ( int i = 0; i < users.size(); i++ )
+        {
+            User user = users.get( i );
+            try
+            {
+                assertContext( CLS_NM, methodName, user, GlobalErrIds.USER_NULL );
+                setAdminData( CLS_NM, methodName, user );
+                AdminUtil.canDo( adminSess, user, contextId, true );
+                validUsers.add( user );
+                validIdxs.add( i );
+            }
+            catch ( SecurityException se )
+            {
+                results[i] = new BatchResult( user, se.getErrorId(), se.getMessage() );
+            }
+        }
+        if ( !validUsers.isEmpty() )
+        {
+            merge( results, validIdxs, userP.add( validUsers ) );
+        }
+        return Arrays.asList( results );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -394,6 +438,100 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @AdminPermissionOperation
+    public List<BatchResult> assignUsers( List<UserRole> uRoles ) throws SecurityException
+    {
+        String methodName = "assignUsers";
+        VUtil.assertNotNull( uRoles, GlobalErrIds.URLE_NULL, CLS_NM + methodName );
+        // Authorize the batch once, delegated admin checks are still performed for every assignment:
+        checkAccess( CLS_NM, methodName );
+        BatchResult[] results = new BatchResult[uRoles.size()];
+        List<UserRole> validRoles = new ArrayList<>( uRoles.size() );
+        List<Integer> validIdxs = new ArrayList<>( uRoles.size() );
+        // Role constraints are read once per distinct role in the batch:
+        Map<String, Role> validRoleCache = new HashMap<>();
+        // Roles accepted per user earlier in the batch, not stored yet so SSD must check them along with stored ones:
+        Map<String, List<UserRole>> acceptedRoles = new HashMap<>();
+        for ( int i = 0; i < uRoles.size(); i++ )
+        {
+            UserRole uRole = uRoles.get( i );
+            try
+            {
+                assertContext( CLS_NM, methodName, uRole, GlobalErrIds.URLE_NULL );
+                VUtil.assertNotNull( uRole.getName(), GlobalErrIds.ROLE_NM_NULL, CLS_NM + methodName );
+                VUtil.assertNotNull( uRole.getUserId(), GlobalErrIds.USER_ID_NULL, CLS_NM + methodName );
+                Role role = new Role( uRole.getName() );
+                role.setContextId( contextId );
+                User user = new User( uRole.getUserId() );
+                user.setContextId( contextId );
+                setAdminData( CLS_NM, methodName, uRole );
+                AdminUtil.canAssign( uRole.getAdminSession(), user, role, contextId );
+                List<UserRole> accepted = acceptedRoles.computeIfAbsent( uRole.getUserId().toLowerCase(),
+                    k -> new ArrayList<>() );
+                SDUtil.getInstance().validateSSD( user, role, accepted );
+                Role validRole = validRoleCache.get( role.getName() );
+                if ( validRole == null )
+                {
+                    validRole = roleP.readConstraints( role );
+                    validRoleCache.put( role.getName(), validRole );
+                }
+                ConstraintUtil.validateOrCopy( validRole, uRole );
+                accepted.add( uRole );
+                validRoles.add( uRole );
+                validIdxs.add( i );
+            }
+            catch ( SecurityException se )
+            {
+                results[i] = new BatchResult( uRole, se.getErrorId(), se.getMessage() );
+            }
+        }
+        if ( validRoles.isEmpty() )
+        {
+            return Arrays.asList( results );
+        }
+        merge( results, validIdxs, userP.assign( validRoles ) );
+
+        // If user membership associated with role, set it here with one update per role:
+        if( Config.getInstance().isRoleOccupant() )
+        {
+            Map<String, List<Integer>> occupants = new LinkedHashMap<>();
+            for ( int idx : validIdxs )
+            {
+                if ( results[idx].isSuccess() )
+                {
+                    occupants.computeIfAbsent( uRoles.get( idx ).getName(), k -> new ArrayList<>() ).add( idx );
+                }
+            }
+            for ( Map.Entry<String, List<Integer>> occupant : occupants.entrySet() )
+            {
+                Role role = new Role( occupant.getKey() );
+                setAdminData( CLS_NM, methodName, role );
+                List<String> userDns = new ArrayList<>( occupant.getValue().size() );
+                for ( int idx : occupant.getValue() )
+                {
+                    userDns.add( userP.getDn( uRoles.get( idx ) ) );
+                }
+                List<BatchResult> roleResults = roleP.assign( role, userDns );
+                for ( int i = 0; i < roleResults.size(); i++ )
+                {
+                    BatchResult roleResult = roleResults.get( i );
+                    if ( !roleResult.isSuccess() )
+                    {
+                        int idx = occupant.getValue().get( i );
+                        results[idx] = new BatchResult( uRoles.get( idx ), roleResult.getErrorCode(),
+                            roleResult.getErrorMessage() );
+                    }
+                }
+            }
+        }
+        return Arrays.asList( results );
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -466,7 +604,7 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
             // This constraint type requires a global config parameter keyed by RC$tenant$role:constraint:
             String propKey = Config.getInstance().getConstraintKey( uRole.getName(), contextId );
             VUtil.assertNotNull( propKey, GlobalErrIds.ROLE_CONSTRAINT_NOT_ENABLED, CLS_NM + methodName );
-            String propValue = Config.getInstance().getProperty( propKey );
+            String propValue = Config.getInstance().getRoleConstraint( uRole.getName(), contextId );
             VUtil.assertNotNull( propValue, GlobalErrIds.ROLE_CONSTRAINT_NOT_ENABLED, CLS_NM + methodName );
             String userKey = roleConstraint.getKey();
             if ( !userKey.equalsIgnoreCase( propValue ))
@@ -530,7 +668,7 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
         boolean found = false;
         User user = new User(uRole.getUserId());
         user.setContextId( contextId );
-        List<UserRole> userRoles = userP.read( user, true ).getRoles();
+        List<UserRole> userRoles = userP.read( user, User.Profile.SESSION ).getRoles();
         for( UserRole ur : userRoles ){
             // find matching name
             if( ur.getName().equals( uRole.getName() ) ){
@@ -791,6 +929,112 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @AdminPermissionOperation
+    public List<BatchResult> grantPermissions( List<PermGrant> permGrants ) throws SecurityException
+    {
+        String methodName = "grantPermissions";
+        VUtil.assertNotNull( permGrants, GlobalErrIds.PERM_OPERATION_NULL, CLS_NM + methodName );
+        // Authorize the batch once, delegated admin checks are still performed for every grant:
+        checkAccess( CLS_NM, methodName );
+        BatchResult[] results = new BatchResult[permGrants.size()];
+        List<PermGrant> validGrants = new ArrayList<>( permGrants.size() );
+        List<Integer> validIdxs = new ArrayList<>( permGrants.size() );
+        // Grantees are verified once per distinct name in the batch, the error of a missing one fails every repeat:
+        Map<String, SecurityException> grantees = new HashMap<>();
+        for ( int i = 0; i < permGrants.size(); i++ )
+        {
+            PermGrant permGrant = permGrants.get( i );
+            try
+            {
+                assertContext( CLS_NM, methodName, permGrant, GlobalErrIds.PERM_OPERATION_NULL );
+                VUtil.assertNotNull( permGrant.getObjName(), GlobalErrIds.PERM_OBJECT_NULL, CLS_NM + methodName );
+                VUtil.assertNotNull( permGrant.getOpName(), GlobalErrIds.PERM_OPERATION_NULL, CLS_NM + methodName );
+                setAdminData( CLS_NM, methodName, permGrant );
+                if ( StringUtils.isNotEmpty( permGrant.getRoleNm() ) )
+                {
+                    Role role = new Role( permGrant.getRoleNm() );
+                    role.setContextId( contextId );
+                    if ( permGrant.isAdmin() )
+                    {
+                        AdminRole adminRole = new AdminRole( role.getName() );
+                        adminRole.setContextId( this.contextId );
+                        checkGrantee( grantees, "A:" + role.getName(), () -> adminP.read( adminRole ) );
+                    }
+                    else
+                    {
+                        Permission perm = new Permission( permGrant.getObjName(), permGrant.getOpName(),
+                            permGrant.getObjId() );
+                        perm.setContextId( contextId );
+                        AdminUtil.canGrant( permGrant.getAdminSession(), role, perm, contextId );
+                        checkGrantee( grantees, "R:" + role.getName(), () -> roleP.readConstraints( role ) );
+                    }
+                }
+                else
+                {
+                    VUtil.assertNotNull( permGrant.getUserId(), GlobalErrIds.USER_ID_NULL, CLS_NM + methodName );
+                    // Ensure the user entity exists:
+                    User user = new User( permGrant.getUserId() );
+                    user.setContextId( contextId );
+                    checkGrantee( grantees, "U:" + permGrant.getUserId(), () -> userP.read( user, false ) );
+                }
+                validGrants.add( permGrant );
+                validIdxs.add( i );
+            }
+            catch ( SecurityException se )
+            {
+                results[i] = new BatchResult( permGrant, se.getErrorId(), se.getMessage() );
+            }
+        }
+        if ( !validGrants.isEmpty() )
+        {
+            merge( results, validIdxs, permP.grant( validGrants ) );
+        }
+        return Arrays.asList( results );
+    }
+
+
+    /**
+     * Read a grantee the first time it is named in a batch and remember the outcome, so a repeat of a missing grantee
+     * fails with the same error instead of being granted unchecked.
+     */
+    private static void checkGrantee( Map<String, SecurityException> grantees, String key, GranteeRead read )
+        throws SecurityException
+    {
+        if ( grantees.containsKey( key ) )
+        {
+            SecurityException se = grantees.get( key );
+            if ( se != null )
+            {
+                throw se;
+            }
+            return;
+        }
+        try
+        {
+            read.read();
+            grantees.put( key, null );
+        }
+        catch ( SecurityException se )
+        {
+            grantees.put( key, se );
+            throw se;
+        }
+    }
+
+
+    /**
+     * Reads a grantee, throwing if it does not exist.
+     */
+    private interface GranteeRead
+    {
+        void read() throws SecurityException;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -1208,4 +1452,20 @@ public final class AdminMgrImpl extends Manageable implements AdminMgr, Serializ
     {
         SDUtil.getInstance().clearDsdCacheEntry( dsdSet.getName(), contextId );
     }
+
+
+    /**
+     * Copy the results of the items that were passed to the processor layer back into their original positions.
+     *
+     * @param results contains one slot per item of the original batch.
+     * @param idxs contains the original position of each item sent to the processor layer.
+     * @param subResults contains the processor layer results, in the same order as idxs.
+     */
+    private static void merge( BatchResult[] results, List<Integer> idxs, List<BatchResult> subResults )
+    {
+        for ( int i = 0; i < idxs.size(); i++ )
+        {
+            results[idxs.get( i )] = subResults.get( i );
+        }
+    }
 }
@@ -477,7 +477,7 @@ final class AdminRoleDAO extends LdapDataProvider implements PropertyProvider<Ad
                 + ROLE_NM + "=" + searchVal + "*))";
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, roleRoot, SearchScope.ONELEVEL, filter, ROLE_ATRS, false,
-                    Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                    Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while (searchResults.next())
@@ -578,7 +578,7 @@ final class AdminRoleDAO extends LdapDataProvider implements PropertyProvider<Ad
             filter += "(" + ROLE_OCCUPANT + "=" + userDn + "))";
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, roleRoot,
-                SearchScope.ONELEVEL, filter, ROLE_NM_ATR, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, ROLE_NM_ATR, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 while ( searchResults.next() )
                 {
@@ -610,48 +610,76 @@ final class AdminRoleDAO extends LdapDataProvider implements PropertyProvider<Ad
 
 
     /**
-      *
-      * @param contextId
-      * @return
-      * @throws FinderException
-      */
+     * Read every node of the hierarchy that has parents, see {@link #getDescendants(String, String)}.
+     *
+     * @param contextId
+     * @return
+     * @throws FinderException
+     */
     List<Graphable> getAllDescendants( String contextId )
         throws FinderException
+    {
+        return getDescendants( contextId, null ).getDescendants();
+    }
+
+
+    /**
+     * Read the nodes of the hierarchy along with the latest {@code modifyTimestamp} found on them.
+     *
+     * @param contextId
+     * @param since contains a high-water mark returned by an earlier read, only the nodes changed since then are read,
+     *              with or without parents.  If null every node that has parents is read.
+     * @return the nodes read and the new high-water mark.
+     * @throws FinderException
+     */
+    HierDelta getDescendants( String contextId, String since )
+        throws FinderException
     {
         String[] DESC_ATRS =
-            { ROLE_NM, GlobalIds.PARENT_NODES };
-        List<Graphable> descendants = new ArrayList<>();
+            { ROLE_NM, GlobalIds.PARENT_NODES, SchemaConstants.MODIFY_TIMESTAMP_AT };
+        HierDelta descendants = new HierDelta( since );
         LdapConnection ld = null;
         String roleRoot = getRootDn( contextId, GlobalIds.ADMIN_ROLE_ROOT );
         String filter = null;
         try
         {
-            filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
-                + GlobalIds.PARENT_NODES + "=*))";
+            if ( since == null )
+            {
+                filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
+                    + GlobalIds.PARENT_NODES + "=*))";
+            }
+            else
+            {
+                // nodes changed since, including those whose last parent was removed:
+                filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
+                    + SchemaConstants.MODIFY_TIMESTAMP_AT + ">=" + since + "))";
+            }
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, roleRoot,
-                SearchScope.ONELEVEL, filter, DESC_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, DESC_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
                 {
-                    descendants.add( unloadDescendants( searchResults.getEntry(), sequence++ ) );
+                    Entry entry = searchResults.getEntry();
+                    descendants.add( unloadDescendants( entry, sequence++ ), getAttribute( entry,
+                        SchemaConstants.MODIFY_TIMESTAMP_AT ) );
                 }
             }
             catch ( IOException i )
             {
-                String error = "getAllDescendants filter [" + filter + "] caught IOException=" + i.getMessage();
+                String error = "getDescendants filter [" + filter + "] caught IOException=" + i.getMessage();
                 throw new FinderException( GlobalErrIds.ARLE_SEARCH_FAILED, error, i );
             }
             catch ( CursorException e )
             {
-                String error = "getAllDescendants filter [" + filter + "] caught CursorException=" + e.getMessage();
+                String error = "getDescendants filter [" + filter + "] caught CursorException=" + e.getMessage();
                 throw new FinderException( GlobalErrIds.ARLE_SEARCH_FAILED, error, e );
             }
         }
         catch ( LdapException e )
         {
-            String error = "getAllDescendants filter [" + filter + "] caught LdapException=" + e;
+            String error = "getDescendants filter [" + filter + "] caught LdapException=" + e;
             throw new FinderException( GlobalErrIds.ARLE_SEARCH_FAILED, error, e );
         }
         finally
@@ -121,6 +121,21 @@ final class AdminRoleP
     }
 
 
+    /**
+     * Return the AdminRoles changed since a high-water mark, or all AdminRoles that have a parent assignment if there is no mark yet.
+     * This used for reloading hierarchies.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param since contains the high-water mark of an earlier call, may be null.
+     * @return the AdminRoles read, with their parents, and the new high-water mark.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    HierDelta getDescendants( String contextId, String since ) throws SecurityException
+    {
+        return rDao.getDescendants( contextId, since );
+    }
+
+
     /**
      * Adds a new Admin Role entity to directory.  The Role entity input object will be validated to ensure that:
      * role name is present, and reasonability checks on all of the other populated values.
@@ -149,6 +164,7 @@ final class AdminRoleP
     {
         validate( entity );
         AdminRole updateEntity = rDao.update( entity );
+        AdminScopeIndex.getInstance().clear( entity.getContextId() );
         return read( updateEntity );
     }
 
@@ -283,6 +299,7 @@ final class AdminRoleP
         try
         {
             rDao.remove( entity );
+            AdminScopeIndex.getInstance().clear( entity.getContextId() );
         }
         catch ( RemoveException re )
         {
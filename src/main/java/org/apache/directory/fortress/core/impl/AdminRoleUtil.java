@@ -30,7 +30,6 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.model.AdminRole;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Hier;
 import org.apache.directory.fortress.core.model.Relationship;
 import org.apache.directory.fortress.core.model.UserAdminRole;
@@ -43,7 +42,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This utility wraps {@link org.apache.directory.fortress.core.impl.HierUtil} methods to provide hierarchical functionality for the {@link org.apache.directory.fortress.core.model.AdminRole} data set.
- * The child to parent relationships are stored within a data cache, {@link #adminRoleCache}, contained within this class.  The parent-child edges are contained in LDAP,
+ * The child to parent relationships are stored within a data cache, {@link #getCache(String)}, contained within this class.  The parent-child edges are contained in LDAP,
  * in {@code ftParents} attribute.  The ldap data is retrieved {@link org.apache.directory.fortress.core.impl.AdminRoleP#getAllDescendants(String)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
  * The graph...
  * <ol>
@@ -63,21 +62,12 @@ import org.slf4j.LoggerFactory;
  */
 final class AdminRoleUtil
 {
-    private static final Cache adminRoleCache;
+    private static final String FORTRESS_ADMIN_ROLES = "fortress.admin.roles";
     private static final AdminRoleP adminRoleP = new AdminRoleP();
+    private static final HierLoader LOADER = new HierLoader( HierUtil.Type.ARLE, adminRoleP::getDescendants );
     private static final String CLS_NM = AdminRoleUtil.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
 
-    /**
-     * Initialize the AdminRole hierarchies.  This will read the {@link org.apache.directory.fortress.core.model.Hier} data set from ldap and load into
-     * the JGraphT simple digraph that referenced statically within this class.
-     */
-    static
-    {
-        CacheMgr cacheMgr = CacheMgr.getInstance();
-        adminRoleCache = cacheMgr.getCache( "fortress.admin.roles" );
-    }
-
     /**
      * Private constructor
      *
@@ -234,6 +224,7 @@ final class AdminRoleUtil
     static void updateHier( String contextId, Relationship relationship, Hier.Op op ) throws SecurityException
     {
         HierUtil.updateHier( getGraph( contextId ), relationship, op );
+        SessionUtil.flush( contextId );
     }
 
 
@@ -246,27 +237,22 @@ final class AdminRoleUtil
      */
     private static synchronized SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
     {
-        Hier inHier = new Hier( Hier.Type.ROLE );
-        inHier.setContextId( contextId );
-        LOG.info( "loadGraph initializing ADMIN ROLE context [{}]", inHier.getContextId() );
-        List<Graphable> descendants = null;
+        SimpleDirectedGraph<String, Relationship> graph = LOADER.load( getKey( contextId ), contextId );
+        getCache( contextId ).put( getKey( contextId ), graph );
 
-        try
-        {
-            descendants = adminRoleP.getAllDescendants( inHier.getContextId() );
-        }
-        catch ( SecurityException se )
-        {
-            LOG.info( "loadGraph caught SecurityException={}", se );
-        }
-
-        Hier hier = HierUtil.loadHier( contextId, descendants );
-        SimpleDirectedGraph<String, Relationship> graph;
+        return graph;
+    }
 
-        graph = HierUtil.buildGraph( hier );
-        adminRoleCache.put( getKey( contextId ), graph );
 
-        return graph;
+    /**
+     * Load the admin role hierarchy of the tenant into the cache unless it is already present.  Called during startup
+     * so the first request does not pay for reading the hierarchy from ldap.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    static void preload( String contextId )
+    {
+        getGraph( contextId );
     }
 
 
@@ -282,7 +268,7 @@ final class AdminRoleUtil
         String key = getKey( contextId );        
         LOG.debug("Getting graph for key " + contextId);
          
-        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) adminRoleCache
+        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) getCache( contextId )
                  .get( key );
              
         if(graph == null){
@@ -310,4 +296,14 @@ final class AdminRoleUtil
         }
         return key;
     }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return this tenant's region of the admin role cache.
+     */
+    private static Cache getCache( String contextId )
+    {
+        return CacheMgr.getInstance().getCache( FORTRESS_ADMIN_ROLES, contextId );
+    }
 }
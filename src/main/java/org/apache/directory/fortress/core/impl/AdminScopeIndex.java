@@ -0,0 +1,270 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.model.UserAdminRole;
+
+
+/**
+ * Holds the scope of the ARBAC administrative roles, compiled once per tenant and used by {@link DelAccessMgrImpl} to
+ * answer canAssign, canGrant, canAdd and canEdit without walking the hierarchies on every call.
+ * <p>
+ * The scope of an admin role is the set of user ous named by its OS-U with their descendants, the set of perm ous
+ * named by its OS-P with their descendants, and the set of roles contained in its role range.  Scopes are keyed by
+ * those attributes, not by the role name, so a session holding an older copy of an admin role gets the scope of that
+ * copy.  A tenant's scopes are dropped when its user ou, perm ou or role hierarchy is loaded or updated, which is
+ * tracked with the stamps of {@link UsoUtil}, {@link PsoUtil} and {@link RoleUtil}, and when one of its admin roles is
+ * updated or removed.
+ * <p>
+ * This class contains singleton that can be updated but is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class AdminScopeIndex
+{
+    private static volatile AdminScopeIndex sINSTANCE = null;
+    private final Map<String, TenantScopes> tenants = new ConcurrentHashMap<>();
+
+
+    static AdminScopeIndex getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( AdminScopeIndex.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    sINSTANCE = new AdminScopeIndex();
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    private AdminScopeIndex()
+    {
+    }
+
+
+    /**
+     * Return the scope of an admin role, compiling it if the tenant's hierarchies changed since it was last used.
+     *
+     * @param uaRole    contains the admin role activated in the session.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return scope of the admin role.
+     */
+    Scope getScope( UserAdminRole uaRole, String contextId )
+    {
+        // the stamps are read before the hierarchies so a scope is never kept under a newer stamp than it was built from:
+        long usoStamp = UsoUtil.getInstance().getStamp( contextId );
+        long psoStamp = PsoUtil.getInstance().getStamp( contextId );
+        long roleStamp = RoleUtil.getInstance().getStamp( contextId );
+        String key = getKey( contextId );
+        TenantScopes tenant = tenants.get( key );
+        if ( tenant == null || !tenant.isCurrent( usoStamp, psoStamp, roleStamp ) )
+        {
+            tenant = new TenantScopes( usoStamp, psoStamp, roleStamp );
+            tenants.put( key, tenant );
+        }
+        String signature = getSignature( uaRole );
+        Scope scope = tenant.scopes.get( signature );
+        if ( scope == null )
+        {
+            scope = compile( uaRole, contextId );
+            tenant.scopes.putIfAbsent( signature, scope );
+        }
+        return scope;
+    }
+
+
+    /**
+     * Drop the scopes of a tenant, called when one of its admin roles is updated or removed.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void clear( String contextId )
+    {
+        tenants.remove( getKey( contextId ) );
+    }
+
+
+    private Scope compile( UserAdminRole uaRole, String contextId )
+    {
+        Set<String> userOus = new HashSet<>();
+        if ( CollectionUtils.isNotEmpty( uaRole.getOsUSet() ) )
+        {
+            for ( String osU : uaRole.getOsUSet() )
+            {
+                userOus.add( osU.toLowerCase() );
+                addAll( userOus, UsoUtil.getInstance().getDescendants( osU, contextId ) );
+            }
+        }
+        Set<String> permOus = new HashSet<>();
+        if ( CollectionUtils.isNotEmpty( uaRole.getOsPSet() ) )
+        {
+            for ( String osP : uaRole.getOsPSet() )
+            {
+                permOus.add( osP.toLowerCase() );
+                addAll( permOus, PsoUtil.getInstance().getDescendants( osP, contextId ) );
+            }
+        }
+        Set<String> roles = new HashSet<>();
+        String beginRange = uaRole.getBeginRange();
+        String endRange = uaRole.getEndRange();
+        if ( beginRange != null && endRange != null && !beginRange.equalsIgnoreCase( endRange ) )
+        {
+            addAll( roles, RoleUtil.getInstance().getAscendants( beginRange, endRange, uaRole.isEndInclusive(),
+                contextId ) );
+            if ( uaRole.isBeginInclusive() )
+            {
+                roles.add( beginRange.toLowerCase() );
+            }
+        }
+        else if ( beginRange != null )
+        {
+            roles.add( beginRange.toLowerCase() );
+        }
+        return new Scope( userOus, permOus, roles );
+    }
+
+
+    private static void addAll( Set<String> target, Set<String> names )
+    {
+        if ( names != null )
+        {
+            for ( String name : names )
+            {
+                target.add( name.toLowerCase() );
+            }
+        }
+    }
+
+
+    private static String getSignature( UserAdminRole uaRole )
+    {
+        StringBuilder sb = new StringBuilder();
+        if ( uaRole.getOsUSet() != null )
+        {
+            sb.append( String.join( ",", uaRole.getOsUSet() ) );
+        }
+        sb.append( '|' );
+        if ( uaRole.getOsPSet() != null )
+        {
+            sb.append( String.join( ",", uaRole.getOsPSet() ) );
+        }
+        sb.append( '|' ).append( uaRole.getBeginRange() ).append( '|' ).append( uaRole.getEndRange() ).append( '|' )
+            .append( uaRole.isBeginInclusive() ).append( '|' ).append( uaRole.isEndInclusive() );
+        return sb.toString().toLowerCase();
+    }
+
+
+    private static String getKey( String contextId )
+    {
+        String key = StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) ? contextId
+            : GlobalIds.HOME;
+        return key.toLowerCase();
+    }
+
+
+    /**
+     * The scopes compiled for one tenant, valid while the stamps of its hierarchies are unchanged.
+     */
+    private static final class TenantScopes
+    {
+        private final long usoStamp;
+        private final long psoStamp;
+        private final long roleStamp;
+        private final Map<String, Scope> scopes = new ConcurrentHashMap<>();
+
+
+        private TenantScopes( long usoStamp, long psoStamp, long roleStamp )
+        {
+            this.usoStamp = usoStamp;
+            this.psoStamp = psoStamp;
+            this.roleStamp = roleStamp;
+        }
+
+
+        private boolean isCurrent( long usoStamp, long psoStamp, long roleStamp )
+        {
+            return this.usoStamp == usoStamp && this.psoStamp == psoStamp && this.roleStamp == roleStamp;
+        }
+    }
+
+
+    /**
+     * Compiled scope of one admin role.  Names are compared ignoring case.  This class is immutable and thread safe.
+     */
+    static final class Scope
+    {
+        private final Set<String> userOus;
+        private final Set<String> permOus;
+        private final Set<String> roles;
+
+
+        private Scope( Set<String> userOus, Set<String> permOus, Set<String> roles )
+        {
+            this.userOus = Collections.unmodifiableSet( userOus );
+            this.permOus = Collections.unmodifiableSet( permOus );
+            this.roles = Collections.unmodifiableSet( roles );
+        }
+
+
+        /**
+         * @param ou contains the name of a user ou.
+         * @return true if the ou is one of the admin role's OS-U or one of their descendants.
+         */
+        boolean hasUserOu( String ou )
+        {
+            return ou != null && userOus.contains( ou.toLowerCase() );
+        }
+
+
+        /**
+         * @param ou contains the name of a perm ou.
+         * @return true if the ou is one of the admin role's OS-P or one of their descendants.
+         */
+        boolean hasPermOu( String ou )
+        {
+            return ou != null && permOus.contains( ou.toLowerCase() );
+        }
+
+
+        /**
+         * @param role contains the name of an RBAC role.
+         * @return true if the role is within the admin role's role range.
+         */
+        boolean hasRole( String role )
+        {
+            return role != null && roles.contains( role.toLowerCase() );
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.directory.fortress.core.model.AuditAggregate;
+import org.apache.directory.fortress.core.model.AuditCount;
+
+
+/**
+ * Folds access log events into counts per time bucket and per distinct value of the grouped fields, for
+ * {@link AuditP#aggregate(AuditAggregate)}.  Only the counts are kept, never the events.  Grouped values are compared
+ * ignoring case, the first spelling met is returned.
+ * <p>
+ * This class is not thread safe, each slice of the time window is counted by its own instance and the instances are
+ * merged once the slices complete.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class AuditCounter
+{
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst( String.CASE_INSENSITIVE_ORDER );
+    private final long begin;
+    private final long bucketMillis;
+    private final boolean byUser;
+    private final boolean byObject;
+    private final boolean byOperation;
+    private final boolean byResult;
+    private final String objName;
+    private final String opName;
+    private final Map<Key, Count> counts = new HashMap<>();
+    private long events;
+
+
+    /**
+     * @param query        contains the grouped fields and the optional object and operation names counted.
+     * @param begin        contains the start of the window, in milliseconds, the first bucket starts there.
+     * @param bucketMillis contains the size of the buckets, 0 for a single bucket.
+     */
+    AuditCounter( AuditAggregate query, long begin, long bucketMillis )
+    {
+        this.begin = begin;
+        this.bucketMillis = bucketMillis;
+        this.byUser = query.getGroupBy().contains( AuditAggregate.GroupBy.USER );
+        this.byObject = query.getGroupBy().contains( AuditAggregate.GroupBy.OBJECT );
+        this.byOperation = query.getGroupBy().contains( AuditAggregate.GroupBy.OPERATION );
+        this.byResult = query.getGroupBy().contains( AuditAggregate.GroupBy.RESULT );
+        this.objName = query.getObjName();
+        this.opName = query.getOpName();
+    }
+
+
+    /**
+     * Count one event, unless its object or operation name differs from the one requested.
+     *
+     * @param time    contains the time of the event, in milliseconds.
+     * @param userId  contains the userId, may be null.
+     * @param objName contains the permission object name, null for binds.
+     * @param opName  contains the permission operation name, null for binds.
+     * @param result  contains the ldap result code.
+     */
+    void add( long time, String userId, String objName, String opName, String result )
+    {
+        if ( ( this.objName != null && !this.objName.equalsIgnoreCase( objName ) ) || ( this.opName != null
+            && !this.opName.equalsIgnoreCase( opName ) ) )
+        {
+            return;
+        }
+        long bucket = bucketMillis > 0 ? begin + ( time - begin ) / bucketMillis * bucketMillis : begin;
+        Key key = new Key( bucket, byUser ? userId : null, byObject ? objName : null, byOperation ? opName : null,
+            byResult ? result : null );
+        Count count = counts.get( key );
+        if ( count == null )
+        {
+            count = new Count( key );
+            counts.put( key, count );
+        }
+        count.value++;
+        events++;
+    }
+
+
+    /**
+     * Add the counts of another slice to this one.
+     *
+     * @param other contains the counts of another slice of the same query.
+     */
+    void merge( AuditCounter other )
+    {
+        for ( Map.Entry<Key, Count> entry : other.counts.entrySet() )
+        {
+            Count count = counts.get( entry.getKey() );
+            if ( count == null )
+            {
+                counts.put( entry.getKey(), entry.getValue() );
+            }
+            else
+            {
+                count.value += entry.getValue().value;
+            }
+        }
+        events += other.events;
+    }
+
+
+    /**
+     * @return number of events counted.
+     */
+    long getEvents()
+    {
+        return events;
+    }
+
+
+    /**
+     * @return the counts, ordered by bucket then by user, object, operation and result.
+     */
+    List<AuditCount> getRows()
+    {
+        List<Count> sorted = new ArrayList<>( counts.values() );
+        sorted.sort( Comparator.<Count>comparingLong( c -> c.key.bucket ).thenComparing( c -> c.key.userId,
+            NULLS_FIRST ).thenComparing( c -> c.key.objName, NULLS_FIRST ).thenComparing( c -> c.key.opName,
+                NULLS_FIRST ).thenComparing( c -> c.key.result, NULLS_FIRST ) );
+        List<AuditCount> rows = new ArrayList<>( sorted.size() );
+        for ( Count count : sorted )
+        {
+            rows.add( new AuditCount( new Date( count.key.bucket ), count.key.userId, count.key.objName,
+                count.key.opName, count.key.result, count.value ) );
+        }
+        return rows;
+    }
+
+
+    /**
+     * One combination of bucket and grouped values, the values keep their spelling but compare ignoring case.
+     */
+    private static final class Key
+    {
+        private final long bucket;
+        private final String userId;
+        private final String objName;
+        private final String opName;
+        private final String result;
+        private final int hash;
+
+
+        private Key( long bucket, String userId, String objName, String opName, String result )
+        {
+            this.bucket = bucket;
+            this.userId = userId;
+            this.objName = objName;
+            this.opName = opName;
+            this.result = result;
+            this.hash = Objects.hash( bucket, lower( userId ), lower( objName ), lower( opName ), result );
+        }
+
+
+        private static String lower( String value )
+        {
+            return value != null ? value.toLowerCase() : null;
+        }
+
+
+        private static boolean same( String a, String b )
+        {
+            return a == null ? b == null : a.equalsIgnoreCase( b );
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof Key ) )
+            {
+                return false;
+            }
+            Key other = ( Key ) o;
+            return bucket == other.bucket && hash == other.hash && same( userId, other.userId ) && same( objName,
+                other.objName ) && same( opName, other.opName ) && Objects.equals( result, other.result );
+        }
+    }
+
+
+    private static final class Count
+    {
+        private final Key key;
+        private long value;
+
+
+        private Count( Key key )
+        {
+            this.key = key;
+        }
+    }
+}
@@ -21,7 +21,11 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -31,11 +35,15 @@ import org.apache.directory.api.ldap.model.cursor.SearchCursor;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.name.Rdn;
 import org.apache.directory.api.ldap.model.message.SearchScope;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
+import org.apache.directory.fortress.core.ldap.LdapFilter;
+import org.apache.directory.fortress.core.model.AuditAggregate;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.Mod;
@@ -177,6 +185,11 @@ final class AuditDAO extends LdapDataProvider
             REQSESSION, REQSTART, REQTYPE, REQVERSION, STRUCTURALOBJECTCLASS, SUBSCHEMAENTRY
     };
 
+    private static final String[] AUDIT_COUNT_ATRS =
+        {
+            REQSTART, REQDN, REQUAUTHZID, REQRESULT
+    };
+
     private static final String[] AUDIT_MOD_ATRS =
         {
             OBJECTCLASS, REQUAUTHZID, REQDN, REQEND, REQRESULT, REQSESSION, REQSTART, REQTYPE, REQMOD
@@ -275,7 +288,7 @@ final class AuditDAO extends LdapDataProvider
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             try ( SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -331,7 +344,7 @@ final class AuditDAO extends LdapDataProvider
         try
         {
             String reqDn = PermDAO.getOpRdn( audit.getOpName(), audit.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
-                + audit.getObjName() + "," + permRoot;
+                + Rdn.escapeValue( audit.getObjName() ) + "," + permRoot;
             String filter = GlobalIds.FILTER_PREFIX + ACCESS_AUTHZ_CLASS_NM + ")(" + REQDN + "=" +
                 reqDn + ")(" + REQUAUTHZID + "=" + SchemaConstants.UID_AT + "=" + audit.getUserId() + "," + userRoot
                 + ")";
@@ -351,7 +364,7 @@ final class AuditDAO extends LdapDataProvider
             //System.out.println("filter=" + filter);
             ld = getLogConnection();
             try ( SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -384,6 +397,147 @@ final class AuditDAO extends LdapDataProvider
     }
 
 
+    /**
+     * Count the binds or authorizations that started within one slice of an aggregation's time window, reading the
+     * access log with paged searches so only the counts are held in memory.
+     *
+     * @param query     contains the kind of events and the optional userId and failedOnly criteria.
+     * @param begin     contains the start of the slice in milliseconds, inclusive.
+     * @param end       contains the end of the slice in milliseconds, exclusive.
+     * @param pageSize  contains the number of entries requested per page.
+     * @param counter   receives the events.
+     * @return number of entries read.
+     * @throws FinderException in the event system error occurs.
+     */
+    long countEvents( AuditAggregate query, long begin, long end, int pageSize, AuditCounter counter )
+        throws FinderException
+    {
+        boolean isBind = query.getEvent() == AuditAggregate.Event.BIND;
+        int errorId = isBind ? GlobalErrIds.AUDT_BIND_SEARCH_FAILED : GlobalErrIds.AUDT_AUTHZ_SEARCH_FAILED;
+        LdapConnection ld = null;
+        String auditRoot = Config.getInstance().getProperty( AUDIT_ROOT );
+        String userRoot = getRootDn( query.getContextId(), GlobalIds.USER_ROOT );
+        String permRoot = getRootDn( query.isAdmin(), query.getContextId() );
+        String manager = "cn=Manager," + Config.getInstance().getProperty( GlobalIds.SUFFIX );
+
+        try
+        {
+            List<ExprNode> nodes = new ArrayList<>();
+            nodes.add( LdapFilter.objectClass( isBind ? ACCESS_BIND_CLASS_NM : ACCESS_AUTHZ_CLASS_NM ) );
+            nodes.add( LdapFilter.greaterOrEqual( REQSTART, TUtil.encodeGeneralizedTime( new Date( begin ) ) ) );
+            nodes.add( LdapFilter.not( LdapFilter.greaterOrEqual( REQSTART, TUtil.encodeGeneralizedTime( new Date(
+                end ) ) ) ) );
+            if ( StringUtils.isNotEmpty( query.getUserId() ) )
+            {
+                nodes.add( LdapFilter.equal( isBind ? REQDN : REQUAUTHZID, SchemaConstants.UID_AT + "=" + query
+                    .getUserId() + "," + userRoot ) );
+            }
+            if ( query.isFailedOnly() )
+            {
+                nodes.add( isBind ? LdapFilter.greaterOrEqual( REQRESULT, "1" ) : LdapFilter.equal( REQRESULT, String
+                    .valueOf( GlobalIds.AUTHZ_COMPARE_FAILURE_FLAG ) ) );
+            }
+            ld = getLogConnection();
+            return searchPaged( ld, auditRoot, SearchScope.ONELEVEL, LdapFilter.and( nodes.toArray(
+                new ExprNode[0] ) ), AUDIT_COUNT_ATRS, pageSize, entry -> {
+                    long time = parseTime( getAttribute( entry, REQSTART ) );
+                    String reqDn = getAttribute( entry, REQDN );
+                    if ( time < 0 || reqDn == null )
+                    {
+                        return;
+                    }
+                    if ( isBind )
+                    {
+                        counter.add( time, AuditUtil.getAuthZId( reqDn ), null, null, getAttribute( entry,
+                            REQRESULT ) );
+                    }
+                    else
+                    {
+                        // compares by the admin or on entries other than permissions are not authorizations:
+                        String authzId = getAttribute( entry, REQUAUTHZID );
+                        if ( authzId != null && !authzId.equalsIgnoreCase( manager ) && StringUtils.endsWithIgnoreCase(
+                            reqDn, permRoot ) )
+                        {
+                            counter.add( time, AuditUtil.getAuthZId( authzId ), getRdnValue( reqDn,
+                                GlobalIds.POBJ_NAME ), getRdnValue( reqDn, GlobalIds.POP_NAME ), getAttribute( entry,
+                                    REQRESULT ) );
+                        }
+                    }
+                } );
+        }
+        catch ( CursorException e )
+        {
+            String error = "countEvents caught CursorException=" + e.getMessage();
+            throw new FinderException( errorId, error, e );
+        }
+        catch ( LdapException e )
+        {
+            String error = "countEvents caught LdapException=" + e;
+            throw new FinderException( errorId, error, e );
+        }
+        finally
+        {
+            closeLogConnection( ld );
+        }
+    }
+
+
+    /**
+     * Return the value of the first attribute of the given type among the leading rdns of a dn, i.e. the object name
+     * of ftOpNm=read+ftObjId=1,ftObjNm=Customer,ou=Permissions.  Escaped separators are not expected in these rdns.
+     */
+    private static String getRdnValue( String dn, String type )
+    {
+        int start = 0;
+        while ( start < dn.length() )
+        {
+            int end = start;
+            while ( end < dn.length() && dn.charAt( end ) != ',' && dn.charAt( end ) != '+' )
+            {
+                end++;
+            }
+            if ( dn.regionMatches( true, start, type, 0, type.length() ) && start + type.length() < end && dn.charAt(
+                start + type.length() ) == '=' )
+            {
+                return dn.substring( start + type.length() + 1, end );
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+
+    /**
+     * Parse the generalized time of the access log, i.e. 20101014235402.000000Z, without the cost of a date format.
+     *
+     * @return time in milliseconds, -1 if the value is not in that form.
+     */
+    private static long parseTime( String value )
+    {
+        if ( value == null || value.length() < 15 || value.charAt( value.length() - 1 ) != 'Z' )
+        {
+            return -1;
+        }
+        try
+        {
+            LocalDateTime dateTime = LocalDateTime.of( Integer.parseInt( value.substring( 0, 4 ) ), Integer.parseInt(
+                value.substring( 4, 6 ) ), Integer.parseInt( value.substring( 6, 8 ) ), Integer.parseInt( value
+                    .substring( 8, 10 ) ), Integer.parseInt( value.substring( 10, 12 ) ), Integer.parseInt( value
+                        .substring( 12, 14 ) ) );
+            long millis = dateTime.toEpochSecond( ZoneOffset.UTC ) * 1000;
+            if ( value.charAt( 14 ) == '.' && value.length() > 18 )
+            {
+                millis += Integer.parseInt( value.substring( 15, 18 ) );
+            }
+            return millis;
+        }
+        catch ( NumberFormatException | DateTimeException e )
+        {
+            return -1;
+        }
+    }
+
+
     private String getRootDn( boolean isAdmin, String contextId )
     {
         String dn;
@@ -445,7 +599,7 @@ final class AuditDAO extends LdapDataProvider
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             try ( SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, AUDIT_AUTHZ_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -534,7 +688,7 @@ final class AuditDAO extends LdapDataProvider
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             try ( SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_BIND_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, AUDIT_BIND_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -595,7 +749,7 @@ final class AuditDAO extends LdapDataProvider
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             try ( SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_MOD_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, AUDIT_MOD_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -691,7 +845,7 @@ final class AuditDAO extends LdapDataProvider
             //log.warn("filter=" + filter);
             ld = getLogConnection();
             try ( SearchCursor searchResults = search( ld, auditRoot,
-                SearchScope.ONELEVEL, filter, AUDIT_MOD_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, AUDIT_MOD_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
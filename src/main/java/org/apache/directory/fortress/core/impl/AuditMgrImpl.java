@@ -29,6 +29,8 @@ import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.ReviewMgrFactory;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.AuditAggregate;
+import org.apache.directory.fortress.core.model.AuditCount;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.Mod;
@@ -204,4 +206,19 @@ public class AuditMgrImpl extends Manageable implements AuditMgr, Serializable
         checkAccess(CLS_NM, methodName);
         return auditP.searchInvalidAuthNs(uAudit);
     }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @AdminPermissionOperation
+    public List<AuditCount> aggregate(AuditAggregate query)
+        throws SecurityException
+    {
+        String methodName = "aggregate";
+        assertContext(CLS_NM, methodName, query, GlobalErrIds.AUDT_INPUT_NULL);
+        checkAccess(CLS_NM, methodName);
+        return auditP.aggregate(query);
+    }
 }
@@ -20,13 +20,27 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.ValidationException;
+import org.apache.directory.fortress.core.model.AuditAggregate;
+import org.apache.directory.fortress.core.model.AuditCount;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.Mod;
 import org.apache.directory.fortress.core.model.UserAudit;
+import org.apache.directory.fortress.core.util.Config;
 
 
 /**
@@ -50,6 +64,12 @@ import org.apache.directory.fortress.core.model.UserAudit;
  */
 final class AuditP
 {
+    private static final String CLS_NM = AuditP.class.getName();
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    // slices per thread, so a thread that finishes a quiet slice early picks up another one:
+    private static final int SLICES_PER_THREAD = 4;
+    private static final long MIN_SLICE_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
     private AuditDAO aDao = new AuditDAO();
 
 
@@ -142,4 +162,96 @@ final class AuditP
     {
         return aDao.searchInvalidAuthNs( uAudit );
     }
+
+
+    /**
+     * Count the binds or authorizations of a time window per bucket and per grouped field.  The window is cut into
+     * slices that are read in parallel, each with paged searches, so the access log entries are folded into the
+     * counts as they are read and never held in memory.  The number of threads and the page size are set with
+     * {@link GlobalIds#AUDIT_AGGREGATE_THREADS} and {@link GlobalIds#AUDIT_AGGREGATE_PAGE_SIZE}.
+     *
+     * @param query contains the kind of events, the time window, the bucket size and the grouped fields.
+     * @return List of counts ordered by bucket then by the grouped fields, buckets without events are missing.
+     * @throws SecurityException in the event of invalid criteria or a system error.
+     */
+    List<AuditCount> aggregate( AuditAggregate query ) throws SecurityException
+    {
+        long begin = query.getBeginDate() != null ? query.getBeginDate().getTime() : 0;
+        long end = query.getEndDate() != null ? query.getEndDate().getTime() : System.currentTimeMillis();
+        if ( query.getEvent() == null || query.getBeginDate() == null || begin >= end || query.getBucketSeconds() < 0 )
+        {
+            String error = "aggregate invalid criteria " + query.getEvent() + " [" + query.getBeginDate() + ", "
+                + query.getEndDate() + ") bucketSeconds [" + query.getBucketSeconds() + "]";
+            throw new ValidationException( GlobalErrIds.AUDT_AGGREGATE_INVALID, error );
+        }
+        long bucketMillis = TimeUnit.SECONDS.toMillis( query.getBucketSeconds() );
+        int threads = Math.max( 1, Config.getInstance().getInt( GlobalIds.AUDIT_AGGREGATE_THREADS, DEFAULT_THREADS ) );
+        int pageSize = Math.max( 1, Config.getInstance().getInt( GlobalIds.AUDIT_AGGREGATE_PAGE_SIZE,
+            DEFAULT_PAGE_SIZE ) );
+        int slices = ( int ) Math.max( 1, Math.min( threads * SLICES_PER_THREAD, ( end - begin ) / MIN_SLICE_MILLIS ) );
+        AuditCounter total = new AuditCounter( query, begin, bucketMillis );
+        if ( threads == 1 || slices == 1 )
+        {
+            aDao.countEvents( query, begin, end, pageSize, total );
+            return total.getRows();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads, slices ),
+            new AggregateThreadFactory() );
+        try
+        {
+            List<Future<AuditCounter>> futures = new ArrayList<>( slices );
+            for ( int i = 0; i < slices; i++ )
+            {
+                long sliceBegin = begin + ( end - begin ) * i / slices;
+                long sliceEnd = begin + ( end - begin ) * ( i + 1 ) / slices;
+                futures.add( executor.submit( () -> {
+                    AuditCounter counter = new AuditCounter( query, begin, bucketMillis );
+                    aDao.countEvents( query, sliceBegin, sliceEnd, pageSize, counter );
+                    return counter;
+                } ) );
+            }
+            for ( Future<AuditCounter> future : futures )
+            {
+                total.merge( future.get() );
+            }
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof SecurityException )
+            {
+                throw ( SecurityException ) e.getCause();
+            }
+            String error = CLS_NM + ".aggregate caught " + e.getCause();
+            throw new SecurityException( GlobalErrIds.AUDT_AGGREGATE_FAILED, error, e );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            String error = CLS_NM + ".aggregate interrupted";
+            throw new SecurityException( GlobalErrIds.AUDT_AGGREGATE_FAILED, error, e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return total.getRows();
+    }
+
+
+    /**
+     * Names the aggregation threads and marks them as daemons so they never hold up jvm shutdown.
+     */
+    private static final class AggregateThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+
+        @Override
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, "fortress-audit-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
 }
@@ -0,0 +1,290 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.fortress.core.CfgException;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.ldap.LdapConnectionProvider;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Starts the Fortress runtime ahead of the first request.  Without it, the singletons are initialized lazily, one after
+ * the other, by whichever request touches them first, and each hierarchy is read from ldap on first use.
+ * <p>
+ * {@link #start()} runs the startup in stages, each one in parallel on a small pool of daemon threads:
+ * <ol>
+ *   <li>Load the local and remote config.</li>
+ *   <li>Open the minimum idle connections of every ldap pool, load the cache manager and the validators.</li>
+ *   <li>For every tenant listed in {@link GlobalIds#BOOTSTRAP_TENANTS}, load the role, admin role, user ou and perm ou
+ *   hierarchies and the set of password policies.</li>
+ * </ol>
+ * The caller may continue while the startup runs and use {@link #isReady()} or {@link #awaitReady(long, TimeUnit)}
+ * to report readiness, i.e. from a container readiness probe.
+ * <p>
+ * This class is thread safe.  Startup is only performed once, later calls to {@link #start()} return the same future,
+ * unless it failed, i.e. because ldap was down, in which case the next call starts it again.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class Bootstrap
+{
+    private static final String CLS_NM = Bootstrap.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final int DEFAULT_THREADS = 4;
+    private static CompletableFuture<Void> startup;
+    // the tenants startup was called with, null for those of the config:
+    private static List<String> startupTenants;
+
+
+    private Bootstrap()
+    {
+    }
+
+
+    /**
+     * Start the Fortress runtime for the tenants listed in {@link GlobalIds#BOOTSTRAP_TENANTS}.
+     *
+     * @return future that completes when every startup task has finished.  It completes exceptionally if one failed.
+     */
+    public static CompletableFuture<Void> start()
+    {
+        return start( null );
+    }
+
+
+    /**
+     * Start the Fortress runtime for the given tenants.
+     *
+     * @param contextIds contains the tenants to preload, if null the tenants listed in
+     * {@link GlobalIds#BOOTSTRAP_TENANTS} are used.  Ignored, with a warning, if startup is already running or done
+     * for other tenants.
+     * @return future that completes when every startup task has finished.  It completes exceptionally if one failed.
+     */
+    public static synchronized CompletableFuture<Void> start( List<String> contextIds )
+    {
+        if ( startup != null && startup.isCompletedExceptionally() )
+        {
+            LOG.info( "start retrying after a failed startup" );
+            startup = null;
+        }
+        if ( startup != null )
+        {
+            if ( contextIds != null && !contextIds.equals( startupTenants ) )
+            {
+                LOG.warn( "start already called for tenants [{}], tenants [{}] ignored", startupTenants != null
+                    ? startupTenants : GlobalIds.BOOTSTRAP_TENANTS, contextIds );
+            }
+        }
+        else
+        {
+            startupTenants = contextIds != null ? new ArrayList<>( contextIds ) : null;
+            long begin = System.currentTimeMillis();
+            ExecutorService executor = Executors.newFixedThreadPool( getThreads(), new BootstrapThreadFactory() );
+            startup = CompletableFuture
+                .runAsync( () -> run( "config", Config::getInstance ), executor )
+                .thenCompose( v -> CompletableFuture.allOf(
+                    runAsync( "ldap pools", () -> warmUpPools(), executor ),
+                    runAsync( "cache", CacheMgr::getInstance, executor ),
+                    runAsync( "validators", VUtil::getInstance, executor ) ) )
+                .thenCompose( v -> preload( contextIds != null ? contextIds : getTenants(), executor ) )
+                .whenComplete( ( v, t ) ->
+                {
+                    executor.shutdown();
+                    if ( t == null )
+                    {
+                        LOG.info( "start complete in [{}] ms", System.currentTimeMillis() - begin );
+                    }
+                    else
+                    {
+                        LOG.error( "start failed after [{}] ms, exception={}", System.currentTimeMillis() - begin,
+                            t.getMessage() );
+                    }
+                } );
+        }
+        return startup;
+    }
+
+
+    /**
+     * Return true if {@link #start()} has been called and all of its tasks completed successfully.
+     *
+     * @return boolean true if ready to serve requests without startup delays.
+     */
+    public static synchronized boolean isReady()
+    {
+        return startup != null && startup.isDone() && !startup.isCompletedExceptionally();
+    }
+
+
+    /**
+     * Wait for the startup launched by {@link #start()} to complete, launching it if not already started.
+     *
+     * @param timeout maximum time to wait.
+     * @param unit    of the timeout.
+     * @throws CfgException with {@link GlobalErrIds#FT_BOOTSTRAP_FAILED} if a task failed or
+     * {@link GlobalErrIds#FT_BOOTSTRAP_TIMEOUT} if the tasks did not complete in time.
+     */
+    public static void awaitReady( long timeout, TimeUnit unit ) throws CfgException
+    {
+        try
+        {
+            start().get( timeout, unit );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new CfgException( GlobalErrIds.FT_BOOTSTRAP_TIMEOUT, CLS_NM + ".awaitReady interrupted", e );
+        }
+        catch ( TimeoutException e )
+        {
+            throw new CfgException( GlobalErrIds.FT_BOOTSTRAP_TIMEOUT, CLS_NM + ".awaitReady timed out after ["
+                + timeout + "] " + unit, e );
+        }
+        catch ( ExecutionException e )
+        {
+            Exception cause = e.getCause() instanceof Exception ? ( Exception ) e.getCause() : e;
+            throw new CfgException( GlobalErrIds.FT_BOOTSTRAP_FAILED, CLS_NM + ".awaitReady startup failed, exception="
+                + cause.getMessage(), cause );
+        }
+    }
+
+
+    /**
+     * Load the hierarchies and policies of every tenant in parallel.
+     */
+    private static CompletableFuture<Void> preload( List<String> contextIds, ExecutorService executor )
+    {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        PolicyP policyP = new PolicyP();
+        for ( String contextId : contextIds )
+        {
+            tasks.add( runAsync( "role graph " + contextId, () -> RoleUtil.getInstance().preload( contextId ), executor ) );
+            tasks.add( runAsync( "admin role graph " + contextId, () -> AdminRoleUtil.preload( contextId ), executor ) );
+            tasks.add( runAsync( "uso graph " + contextId, () -> UsoUtil.getInstance().preload( contextId ), executor ) );
+            tasks.add( runAsync( "pso graph " + contextId, () -> PsoUtil.getInstance().preload( contextId ), executor ) );
+            tasks.add( runAsync( "pw policies " + contextId, () -> policyP.preload( contextId ), executor ) );
+        }
+        return CompletableFuture.allOf( tasks.toArray( new CompletableFuture[0] ) );
+    }
+
+
+    private static void warmUpPools()
+    {
+        try
+        {
+            LdapConnectionProvider.getInstance().warmUp();
+        }
+        catch ( LdapException e )
+        {
+            throw new CompletionException( e );
+        }
+    }
+
+
+    private static CompletableFuture<Void> runAsync( String name, Runnable task, ExecutorService executor )
+    {
+        return CompletableFuture.runAsync( () -> run( name, task ), executor );
+    }
+
+
+    private static void run( String name, Runnable task )
+    {
+        long begin = System.currentTimeMillis();
+        task.run();
+        LOG.info( "start task [{}] complete in [{}] ms", name, System.currentTimeMillis() - begin );
+    }
+
+
+    private static List<String> getTenants()
+    {
+        List<String> contextIds = new ArrayList<>();
+        String tenants = Config.getInstance().getProperty( GlobalIds.BOOTSTRAP_TENANTS );
+        if ( StringUtils.isNotEmpty( tenants ) )
+        {
+            for ( String contextId : tenants.split( "," ) )
+            {
+                if ( StringUtils.isNotBlank( contextId ) )
+                {
+                    contextIds.add( contextId.trim() );
+                }
+            }
+        }
+        if ( contextIds.isEmpty() )
+        {
+            contextIds.add( GlobalIds.HOME );
+        }
+        return contextIds;
+    }
+
+
+    private static int getThreads()
+    {
+        String threads = System.getProperty( GlobalIds.BOOTSTRAP_THREADS );
+        try
+        {
+            return threads != null ? Math.max( 1, Integer.parseInt( threads ) ) : DEFAULT_THREADS;
+        }
+        catch ( NumberFormatException nfe )
+        {
+            LOG.warn( "getThreads invalid value [{}] for [{}], using default [{}]", threads,
+                GlobalIds.BOOTSTRAP_THREADS, DEFAULT_THREADS );
+            return DEFAULT_THREADS;
+        }
+    }
+
+
+    /**
+     * Names the startup threads and marks them as daemons so they never hold up jvm shutdown.
+     */
+    private static final class BootstrapThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+
+        @Override
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, "fortress-bootstrap-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
@@ -27,9 +27,13 @@ import java.util.Properties;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.api.ldap.model.entry.*;
+import org.apache.directory.api.ldap.model.exception.LdapAttributeInUseException;
 import org.apache.directory.api.ldap.model.exception.LdapEntryAlreadyExistsException;
 import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
+import org.apache.directory.api.ldap.model.exception.LdapNoSuchAttributeException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.fortress.core.CreateException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
@@ -395,6 +399,62 @@ final class ConfigDAO extends LdapDataProvider
     }
 
 
+    /**
+     * Advance one of the posix id sequences stored on the config node, provided it still holds the expected value.  The
+     * old value is removed and the new one added in a single modify request, which the server applies atomically, so
+     * two processes reserving ids at once cannot both succeed.
+     *
+     * @param name     of the config node, mostly likely 'DEFAULT'.
+     * @param sequence contains the attribute name, {@link #UID_NUMBER_SEQUENCE} or {@link #GID_NUMBER_SEQUENCE}.
+     * @param expected contains the value last read, null if the attribute was not present.
+     * @param value    contains the new value.
+     * @return true if the sequence was advanced, false if another process changed it first.
+     * @throws UpdateException in the event of ldap error.
+     */
+    boolean advancePosixId( String name, String sequence, String expected, String value ) throws UpdateException
+    {
+        LdapConnection ld = null;
+        String dn = getDn( name );
+        LOG.debug( "advancePosixId dn [{}], sequence [{}], expected [{}], value [{}]", dn, sequence, expected, value );
+        try
+        {
+            List<Modification> mods = new ArrayList<>();
+            if ( expected != null )
+            {
+                mods.add( new DefaultModification( ModificationOperation.REMOVE_ATTRIBUTE, sequence, expected ) );
+            }
+            mods.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE, sequence, value ) );
+            ld = getAdminConnection();
+            modify( ld, dn, mods );
+            return true;
+        }
+        catch ( LdapNoSuchAttributeException | LdapAttributeInUseException e )
+        {
+            // the sequence no longer holds the expected value:
+            return false;
+        }
+        catch ( LdapInvalidAttributeValueException e )
+        {
+            // the attribute is single valued, another process set the first value since it was read as absent:
+            if ( expected == null && e.getResultCode() == ResultCodeEnum.CONSTRAINT_VIOLATION )
+            {
+                return false;
+            }
+            String error = "advancePosixId dn [" + dn + "] sequence [" + sequence + "] caught LdapException=" + e;
+            throw new UpdateException( GlobalErrIds.FT_CONFIG_UPDATE_FAILED, error, e );
+        }
+        catch ( LdapException e )
+        {
+            String error = "advancePosixId dn [" + dn + "] sequence [" + sequence + "] caught LdapException=" + e;
+            throw new UpdateException( GlobalErrIds.FT_CONFIG_UPDATE_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
     /**
      *
      * @param name
@@ -28,6 +28,7 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.model.Configuration;
+import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -94,7 +95,13 @@ final class ConfigP
     {
         validate( cfg.getName(), cfg.getProperties(), true );
         ConfigDAO cfgDao = new ConfigDAO();
-        return cfgDao.update( cfg );
+        Configuration outCfg = cfgDao.update( cfg );
+        if ( isActiveRealm( cfg.getName() ) && cfg.getProperties() != null && !cfg.getProperties().isEmpty() )
+        {
+            // keep the in-memory copy of the realm this runtime is bound to current:
+            Config.getInstance().setProperties( cfg.getProperties() );
+        }
+        return outCfg;
     }
 
 
@@ -157,6 +164,24 @@ final class ConfigP
         validate( name, inProps, false );
         ConfigDAO cfgDao = new ConfigDAO();
         cfgDao.remove( name, inProps );
+        if ( isActiveRealm( name ) )
+        {
+            // keep the in-memory copy of the realm this runtime is bound to current:
+            Config.getInstance().clearProperties( inProps );
+        }
+    }
+
+
+    /**
+     * Return true if the named cfg node is the one this runtime loaded its properties from during bootstrap.
+     *
+     * @param name of the config node.
+     * @return true if name matches {@link GlobalIds#CONFIG_REALM}.
+     */
+    private boolean isActiveRealm( String name )
+    {
+        String realmName = Config.getInstance().getProperty( GlobalIds.CONFIG_REALM );
+        return realmName != null && realmName.equals( name );
     }
 
 
@@ -192,6 +217,25 @@ final class ConfigP
     }
 
 
+    /**
+     * Advance one of the posix id sequences on the cfg node, provided it still holds the expected value.  Used by
+     * {@link PosixIdAllocator} to reserve a block of ids.
+     *
+     * @param name     attribute is required and maps to 'cn' attribute in 'device' object class.
+     * @param sequence contains the attribute name of the sequence, i.e. ftUidNumber.
+     * @param expected contains the value last read, null if the attribute was not present.
+     * @param value    contains the new value.
+     * @return true if the sequence was advanced, false if another process changed it first.
+     * @throws SecurityException in the event of system error.
+     */
+    boolean advancePosixId( String name, String sequence, String expected, String value )
+        throws SecurityException
+    {
+        ConfigDAO cfgDao = new ConfigDAO();
+        return cfgDao.advancePosixId( name, sequence, expected, value );
+    }
+
+
     /**
      * Method will perform simple validations to ensure the integrity of the {@link Properties} entity targeted for insertion
      * or deletion in directory.
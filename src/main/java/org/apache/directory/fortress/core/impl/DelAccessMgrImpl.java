@@ -20,9 +20,12 @@
 package org.apache.directory.fortress.core.impl;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.directory.fortress.annotation.AdminPermissionOperation;
@@ -94,6 +97,29 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
         return checkUserRole(session, user, role);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean[][] canAssign(Session session, List<User> users, List<Role> roles)
+        throws SecurityException
+    {
+        String methodName = "canAssign";
+        assertContext(CLS_NM, methodName, session, GlobalErrIds.USER_SESS_NULL);
+        VUtil.assertNotNull(users, GlobalErrIds.USER_NULL, getFullMethodName(CLS_NM, methodName));
+        VUtil.assertNotNull(roles, GlobalErrIds.ROLE_NULL, getFullMethodName(CLS_NM, methodName));
+        for(User user : users)
+        {
+            assertContext(CLS_NM, methodName, user, GlobalErrIds.USER_NULL);
+            VUtil.assertNotNullOrEmpty(user.getUserId(), GlobalErrIds.USER_ID_NULL, getFullMethodName(CLS_NM, methodName));
+        }
+        for(Role role : roles)
+        {
+            assertContext(CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL);
+        }
+        return checkUserRoles(session, users, roles);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -122,6 +148,29 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
         return checkRolePermission(session, role, perm);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean[][] canGrant(Session session, List<Role> roles, List<Permission> perms)
+        throws SecurityException
+    {
+        String methodName = "canGrant";
+        assertContext(CLS_NM, methodName, session, GlobalErrIds.USER_SESS_NULL);
+        VUtil.assertNotNull(roles, GlobalErrIds.ROLE_NULL, getFullMethodName(CLS_NM, methodName));
+        VUtil.assertNotNull(perms, GlobalErrIds.PERM_OBJECT_NULL, getFullMethodName(CLS_NM, methodName));
+        for(Role role : roles)
+        {
+            assertContext(CLS_NM, methodName, role, GlobalErrIds.ROLE_NULL);
+        }
+        for(Permission perm : perms)
+        {
+            assertContext(CLS_NM, methodName, perm, GlobalErrIds.PERM_OBJECT_NULL);
+            VUtil.assertNotNullOrEmpty(perm.getObjName(), GlobalErrIds.PERM_OBJECT_NM_NULL, getFullMethodName(CLS_NM, methodName));
+        }
+        return checkRolePermissions(session, roles, perms);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -200,7 +249,7 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
             throw new SecurityException(GlobalErrIds.ARLE_ALREADY_ACTIVE, info);
         }
 
-        User ue = userP.read(session.getUser(), true);
+        User ue = userP.read(session.getUser(), User.Profile.SESSION);
         List<UserAdminRole> uRoles = ue.getAdminRoles();
         int indx;
         // Is the admin role activation target valid for this user?
@@ -317,24 +366,11 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
                     result = true;
                     break;
                 }
-                Set<String> osUs = uaRole.getOsUSet();
-                if(CollectionUtils.isNotEmpty( osUs ))
+                // does the admin role have authority over the user object?
+                if(AdminScopeIndex.getInstance().getScope(uaRole, this.contextId).hasUserOu(ue.getOu()))
                 {
-                    // create Set with case insensitive comparator:
-                    Set<String> osUsFinal = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-                    for(String osU : osUs)
-                    {
-                        // Add osU children to the set:
-                        osUsFinal.add(osU);
-                        Set<String> children = UsoUtil.getInstance().getDescendants( osU, this.contextId );
-                        osUsFinal.addAll(children);
-                    }
-                    // does the admin role have authority over the user object?
-                    if(osUsFinal.contains(ue.getOu()))
-                    {
-                        result = true;
-                        break;
-                    }
+                    result = true;
+                    break;
                 }
             }
         }
@@ -365,53 +401,13 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
                     result = true;
                     break;
                 }
-                Set<String> osUs = uaRole.getOsUSet();
-                if(CollectionUtils.isNotEmpty( osUs ))
+                AdminScopeIndex.Scope scope = AdminScopeIndex.getInstance().getScope(uaRole, this.contextId);
+                // does the admin role have authority over the user object and a role contained within its role range?
+                if(scope.hasUserOu(ue.getOu())
+                    && (uaRole.getName().equalsIgnoreCase(REST_ADMIN) || scope.hasRole(role.getName())))
                 {
-                    // create Set with case insensitive comparator:
-                    Set<String> osUsFinal = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-                    for(String osU : osUs)
-                    {
-                        // Add osU children to the set:
-                        osUsFinal.add(osU);
-                        Set<String> children = UsoUtil.getInstance().getDescendants( osU, this.contextId );
-                        osUsFinal.addAll(children);
-                    }
-                    // does the admin role have authority over the user object?
-                    if(osUsFinal.contains(ue.getOu()))
-                    {
-                        // Get the Role range for admin role:
-                        Set<String> range;
-                        if(uaRole.getName().equalsIgnoreCase(REST_ADMIN))
-                        {
-                            result = true;
-                            break;
-                        }
-                        else if(uaRole.getBeginRange() != null && uaRole.getEndRange() != null && !uaRole.getBeginRange().equalsIgnoreCase(uaRole.getEndRange()))
-                        {
-                            range = RoleUtil.getInstance().getAscendants( uaRole.getBeginRange(), uaRole.getEndRange(),
-                                uaRole.isEndInclusive(), this.contextId );
-                            if(uaRole.isBeginInclusive())
-                            {
-                                range.add(uaRole.getBeginRange());
-                            }
-                            if(CollectionUtils.isNotEmpty( range ))
-                            {
-                                // Does admin role have authority over a role contained with the allowable role range?
-                                if(range.contains(role.getName()))
-                                {
-                                    result = true;
-                                    break;
-                                }
-                            }
-                        }
-                        // Does admin role have authority over the role?
-                        else if(uaRole.getBeginRange() != null && uaRole.getBeginRange().equalsIgnoreCase(role.getName()))
-                        {
-                            result = true;
-                            break;
-                        }
-                    }
+                    result = true;
+                    break;
                 }
             }
         }
@@ -444,55 +440,136 @@ public class DelAccessMgrImpl extends AccessMgrImpl implements DelAccessMgr, Ser
                     result = true;
                     break;
                 }
-                Set<String> osPs = uaRole.getOsPSet();
-                if(CollectionUtils.isNotEmpty( osPs ))
+                AdminScopeIndex.Scope scope = AdminScopeIndex.getInstance().getScope(uaRole, this.contextId);
+                // does the admin role have authority over the perm object and a role contained within its role range?
+                if(scope.hasPermOu(pObj.getOu())
+                    && (uaRole.getName().equalsIgnoreCase(REST_ADMIN) || scope.hasRole(role.getName())))
                 {
-                    // create Set with case insensitive comparator:
-                    Set<String> osPsFinal = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-                    for(String osP : osPs)
-                    {
-                        // Add osU children to the set:
-                        osPsFinal.add(osP);
-                        Set<String> children = PsoUtil.getInstance().getDescendants( osP, this.contextId );
-                        osPsFinal.addAll(children);
-                    }
-                    // does the admin role have authority over the perm object?
-                    if(osPsFinal.contains(pObj.getOu()))
-                    {
-                        // Get the Role range for admin role:
-                        Set<String> range;
-                        if(uaRole.getName().equalsIgnoreCase(REST_ADMIN))
-                        {
-                            result = true;
-                            break;
-                        }
-                        else if(uaRole.getBeginRange() != null && uaRole.getEndRange() != null && !uaRole.getBeginRange().equalsIgnoreCase(uaRole.getEndRange()))
-                        {
-                            range = RoleUtil.getInstance().getAscendants(uaRole.getBeginRange(), uaRole.getEndRange(), uaRole.isEndInclusive(), this.contextId);
-                            if(uaRole.isBeginInclusive())
-                            {
-                                range.add(uaRole.getBeginRange());
-                            }
-                            if( CollectionUtils.isNotEmpty( range ))
-                            {
-                                // Does admin role have authority over a role contained with the allowable role range?
-                                if(range.contains(role.getName()))
-                                {
-                                    result = true;
-                                    break;
-                                }
-                            }
-                        }
-                        // Does admin role have authority over the role?
-                        else if(uaRole.getBeginRange() != null && uaRole.getBeginRange().equalsIgnoreCase(role.getName()))
-                        {
-                            result = true;
-                            break;
-                        }
-                    }
+                    result = true;
+                    break;
                 }
             }
         }
         return result;
     }
+
+    /**
+     * This helper function processes ARBAC URA "can assign" for every pair of user and role.  The users' ous are read
+     * with one search and the scopes of the admin roles are looked up once.
+     * @param session
+     * @param users
+     * @param roles
+     * @return boolean[][]
+     * @throws SecurityException
+     */
+    private boolean[][] checkUserRoles(Session session, List<User> users, List<Role> roles)
+        throws SecurityException
+    {
+        boolean[][] results = new boolean[users.size()][roles.size()];
+        List<UserAdminRole> uaRoles = session.getAdminRoles();
+        if(CollectionUtils.isNotEmpty( uaRoles ) && !users.isEmpty() && !roles.isEmpty())
+        {
+            // validate users and retrieve their ous:
+            Set<String> userIds = new LinkedHashSet<>();
+            for(User user : users)
+            {
+                userIds.add(user.getUserId());
+            }
+            Map<String, String> ous = userP.readOus(userIds, this.contextId);
+            List<AdminScopeIndex.Scope> scopes = new ArrayList<>(uaRoles.size());
+            List<Boolean> restAdmins = new ArrayList<>(uaRoles.size());
+            for(UserAdminRole uaRole : uaRoles)
+            {
+                if(uaRole.getName().equalsIgnoreCase(SUPER_ADMIN))
+                {
+                    fill(results);
+                    return results;
+                }
+                scopes.add(AdminScopeIndex.getInstance().getScope(uaRole, this.contextId));
+                restAdmins.add(uaRole.getName().equalsIgnoreCase(REST_ADMIN));
+            }
+            for(int i = 0; i < users.size(); i++)
+            {
+                String ou = ous.get(users.get(i).getUserId().toLowerCase());
+                for(int j = 0; j < roles.size(); j++)
+                {
+                    results[i][j] = inScope(scopes, restAdmins, ou, roles.get(j).getName(), true);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * This helper function processes ARBAC PRA "can assign" for every pair of role and permission.  The permission
+     * objects' ous are read with one search and the scopes of the admin roles are looked up once.
+     * @param session
+     * @param roles
+     * @param perms
+     * @return boolean[][]
+     * @throws SecurityException
+     */
+    private boolean[][] checkRolePermissions(Session session, List<Role> roles, List<Permission> perms)
+        throws SecurityException
+    {
+        boolean[][] results = new boolean[roles.size()][perms.size()];
+        List<UserAdminRole> uaRoles = session.getAdminRoles();
+        if(CollectionUtils.isNotEmpty( uaRoles ) && !roles.isEmpty() && !perms.isEmpty())
+        {
+            // validate perms and retrieve their objects' ous:
+            Set<String> objNames = new LinkedHashSet<>();
+            for(Permission perm : perms)
+            {
+                objNames.add(perm.getObjName());
+            }
+            Map<String, String> ous = permP.readOus(objNames, this.contextId);
+            List<AdminScopeIndex.Scope> scopes = new ArrayList<>(uaRoles.size());
+            List<Boolean> restAdmins = new ArrayList<>(uaRoles.size());
+            for(UserAdminRole uaRole : uaRoles)
+            {
+                if(uaRole.getName().equalsIgnoreCase(SUPER_ADMIN))
+                {
+                    fill(results);
+                    return results;
+                }
+                scopes.add(AdminScopeIndex.getInstance().getScope(uaRole, this.contextId));
+                restAdmins.add(uaRole.getName().equalsIgnoreCase(REST_ADMIN));
+            }
+            for(int j = 0; j < perms.size(); j++)
+            {
+                String ou = ous.get(perms.get(j).getObjName().toLowerCase());
+                for(int i = 0; i < roles.size(); i++)
+                {
+                    results[i][j] = inScope(scopes, restAdmins, ou, roles.get(i).getName(), false);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Does one of the admin roles have authority over the ou and the role?
+     */
+    private static boolean inScope(List<AdminScopeIndex.Scope> scopes, List<Boolean> restAdmins, String ou,
+        String roleName, boolean isUserOu)
+    {
+        for(int k = 0; k < scopes.size(); k++)
+        {
+            AdminScopeIndex.Scope scope = scopes.get(k);
+            if((isUserOu ? scope.hasUserOu(ou) : scope.hasPermOu(ou))
+                && (restAdmins.get(k) || scope.hasRole(roleName)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void fill(boolean[][] results)
+    {
+        for(boolean[] row : results)
+        {
+            Arrays.fill(row, true);
+        }
+    }
 }
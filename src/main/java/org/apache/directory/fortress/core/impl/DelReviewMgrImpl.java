@@ -110,7 +110,7 @@ public class DelReviewMgrImpl extends Manageable implements DelReviewMgr, Serial
         String methodName = "assignedRoles";
         assertContext(CLS_NM, methodName, user, GlobalErrIds.USER_NULL);
         checkAccess(CLS_NM, methodName);
-        User ue = userP.read(user, true);
+        User ue = userP.read(user, User.Profile.SESSION);
         return ue.getAdminRoles();
     }
 
@@ -0,0 +1,430 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Exports the effective permissions of every user of a tenant, i.e. for access certification, without calling
+ * {@link org.apache.directory.fortress.core.ReviewMgr#userPermissions} once per user.
+ * <p>
+ * The permissions are read with one paged pass and indexed by the roles and users they are granted to.  The users are
+ * then read with a second paged pass, and each page is joined to the index through the role hierarchy by a pool of
+ * threads.  Only the permission index and the pages in flight are held in memory, the rows are written as soon as a
+ * page is joined.
+ * <p>
+ * The rows are written in csv format, preceded by a header line:
+ * <pre>
+ * userId,rolePath,objName,opName,objId
+ * </pre>
+ * The role path lists the role assigned to the user, followed by the roles it inherits, up to the role the permission
+ * is granted to, separated by {@code >}.  It is empty for a permission granted to the user directly.  A permission
+ * reachable through more than one role is listed once per user, the first path found is kept.  Rows of different
+ * users may be interleaved between pages but the rows of one page are written together.
+ * <p>
+ * Sizes are set with {@link GlobalIds#EXPORT_PAGE_SIZE} and {@link GlobalIds#EXPORT_THREADS}.
+ * <p>
+ * This class is thread safe, an instance may run several exports at once.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class EntitlementExport
+{
+    private static final String CLS_NM = EntitlementExport.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    static final String HEADER = "userId,rolePath,objName,opName,objId\n";
+    private static final char PATH_SEPARATOR = '>';
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int DEFAULT_THREADS = 4;
+    private final String contextId;
+    private final Hierarchy hierarchy;
+    private final UserP userP = new UserP();
+    private final PermP permP = new PermP();
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    public EntitlementExport( String contextId )
+    {
+        this( contextId, role -> RoleUtil.getInstance().getParents( role, contextId ) );
+    }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param hierarchy returns the parents of a role.
+     */
+    EntitlementExport( String contextId, Hierarchy hierarchy )
+    {
+        this.contextId = contextId;
+        this.hierarchy = hierarchy;
+    }
+
+
+    /**
+     * Write the effective permissions of every user of the tenant.  The writer is flushed but not closed.
+     *
+     * @param writer receives the rows, it is only called by one thread at a time.
+     * @return number of rows written, header excluded.
+     * @throws SecurityException in the event of DAO search error, or with {@link GlobalErrIds#PERM_EXPORT_FAILED} if
+     * the writer fails, a page fails to be joined or the export is interrupted.
+     */
+    public long export( Writer writer ) throws SecurityException
+    {
+        long begin = System.currentTimeMillis();
+        int pageSize = Math.max( 1, Config.getInstance().getInt( GlobalIds.EXPORT_PAGE_SIZE, DEFAULT_PAGE_SIZE ) );
+        int threads = Math.max( 1, Config.getInstance().getInt( GlobalIds.EXPORT_THREADS, DEFAULT_THREADS ) );
+        Index index = new Index();
+        long perms = permP.scanPermissions( contextId, pageSize, index::add );
+        LOG.info( "export contextId [{}] indexed [{}] permissions granted to [{}] roles in [{}] ms", contextId, perms,
+            index.rolePerms.size(), System.currentTimeMillis() - begin );
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads, new ExportThreadFactory() );
+        // bounds the pages held in memory while the users are read faster than they are written:
+        Semaphore inFlight = new Semaphore( threads * 2 );
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong rows = new AtomicLong();
+        List<UserRoles> page = new ArrayList<>( pageSize );
+        try
+        {
+            writer.write( HEADER );
+            long users = userP.scanUserRoles( contextId, pageSize, ( userId, roles ) ->
+            {
+                page.add( new UserRoles( userId, roles ) );
+                if ( page.size() == pageSize )
+                {
+                    submit( executor, inFlight, index, new ArrayList<>( page ), writer, rows, failure );
+                    page.clear();
+                }
+            } );
+            submit( executor, inFlight, index, new ArrayList<>( page ), writer, rows, failure );
+            executor.shutdown();
+            while ( !executor.awaitTermination( 1, TimeUnit.MINUTES ) )
+            {
+                LOG.info( "export contextId [{}] waiting, [{}] rows written", contextId, rows.get() );
+            }
+            if ( failure.get() != null )
+            {
+                throw exportFailed( failure.get() );
+            }
+            writer.flush();
+            LOG.info( "export contextId [{}] wrote [{}] rows for [{}] users in [{}] ms", contextId, rows.get(), users,
+                System.currentTimeMillis() - begin );
+            return rows.get();
+        }
+        catch ( IOException e )
+        {
+            throw exportFailed( e );
+        }
+        catch ( CancellationException e )
+        {
+            throw exportFailed( failure.get() );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            String error = "export contextId [" + contextId + "] interrupted";
+            throw new SecurityException( GlobalErrIds.PERM_EXPORT_FAILED, error, e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private SecurityException exportFailed( Throwable cause )
+    {
+        String error = "export contextId [" + contextId + "] caught " + cause.getClass().getSimpleName() + "="
+            + cause.getMessage();
+        // an error thrown by a page, i.e. OutOfMemoryError, is kept as the cause of a wrapper:
+        Exception previous = cause instanceof Exception ? ( Exception ) cause : new ExecutionException( cause );
+        return new SecurityException( GlobalErrIds.PERM_EXPORT_FAILED, error, previous );
+    }
+
+
+    /**
+     * Hand a page of users to the pool, waiting for a slot if too many pages are in flight.  Called by the thread
+     * reading the users, so it stops the read by throwing once a page failed to be joined or written.
+     */
+    private void submit( ExecutorService executor, Semaphore inFlight, Index index, List<UserRoles> page,
+        Writer writer, AtomicLong rows, AtomicReference<Throwable> failure )
+    {
+        if ( failure.get() != null )
+        {
+            throw new CancellationException( "export stopped, a page failed" );
+        }
+        if ( page.isEmpty() )
+        {
+            return;
+        }
+        inFlight.acquireUninterruptibly();
+        executor.execute( () ->
+        {
+            try
+            {
+                StringBuilder chunk = new StringBuilder();
+                long count = 0;
+                for ( UserRoles user : page )
+                {
+                    count += join( index, user, chunk );
+                }
+                synchronized ( writer )
+                {
+                    writer.write( chunk.toString() );
+                }
+                rows.addAndGet( count );
+            }
+            catch ( Throwable t )
+            {
+                // any failure, not only the writer's, must fail the export rather than silently drop the page:
+                failure.compareAndSet( null, t );
+            }
+            finally
+            {
+                inFlight.release();
+            }
+        } );
+    }
+
+
+    /**
+     * Append the rows of one user to the chunk.
+     *
+     * @return number of rows appended.
+     */
+    long join( Index index, UserRoles user, StringBuilder chunk )
+    {
+        String prefix = csv( user.userId ) + ",";
+        Set<String> seen = new HashSet<>();
+        long count = 0;
+        List<String> direct = index.userPerms.get( user.userId.toLowerCase() );
+        if ( direct != null )
+        {
+            for ( String perm : direct )
+            {
+                if ( seen.add( perm ) )
+                {
+                    // the role path column is empty:
+                    chunk.append( prefix ).append( ',' ).append( perm );
+                    count++;
+                }
+            }
+        }
+        for ( String role : user.roles )
+        {
+            for ( Map.Entry<String, String> reach : index.getReach( role ).entrySet() )
+            {
+                String path = csv( reach.getValue() ) + ",";
+                for ( String perm : index.rolePerms.get( reach.getKey() ) )
+                {
+                    if ( seen.add( perm ) )
+                    {
+                        chunk.append( prefix ).append( path ).append( perm );
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Quote a csv field if it holds a separator, a quote or a line break.
+     */
+    private static String csv( String value )
+    {
+        if ( value == null )
+        {
+            return "";
+        }
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == ',' || c == '"' || c == '\n' || c == '\r' )
+            {
+                return "\"" + value.replace( "\"", "\"\"" ) + "\"";
+            }
+        }
+        return value;
+    }
+
+
+    /**
+     * The permissions of the tenant, as the end of their csv rows, by the lower case name of the role or user they are
+     * granted to, and the roles reachable from each assigned role.  Filled by one thread, then only read.
+     */
+    final class Index
+    {
+        private final Map<String, List<String>> rolePerms = new HashMap<>();
+        private final Map<String, List<String>> userPerms = new HashMap<>();
+        // the name of each role as granted, the hierarchy holds them in upper case:
+        private final Map<String, String> roleNames = new HashMap<>();
+        private final Map<String, Map<String, String>> reaches = new ConcurrentHashMap<>();
+
+
+        void add( Permission perm )
+        {
+            String row = csv( perm.getObjName() ) + "," + csv( perm.getOpName() ) + "," + csv( perm.getObjId() )
+                + "\n";
+            if ( CollectionUtils.isNotEmpty( perm.getRoles() ) )
+            {
+                for ( String role : perm.getRoles() )
+                {
+                    rolePerms.computeIfAbsent( role.toLowerCase(), k -> new ArrayList<>() ).add( row );
+                    roleNames.putIfAbsent( role.toLowerCase(), role );
+                }
+            }
+            if ( CollectionUtils.isNotEmpty( perm.getUsers() ) )
+            {
+                for ( String userId : perm.getUsers() )
+                {
+                    userPerms.computeIfAbsent( userId.toLowerCase(), k -> new ArrayList<>() ).add( row );
+                }
+            }
+        }
+
+
+        /**
+         * @return the roles holding permissions that are reachable from the assigned role, itself included, each with
+         * the path leading to it, nearest first.
+         */
+        private Map<String, String> getReach( String assigned )
+        {
+            return reaches.computeIfAbsent( assigned.toLowerCase(), k -> walk( assigned ) );
+        }
+
+
+        private Map<String, String> walk( String assigned )
+        {
+            Map<String, String> paths = new LinkedHashMap<>();
+            Map<String, String> reach = new LinkedHashMap<>();
+            Deque<String> queue = new ArrayDeque<>();
+            paths.put( assigned.toLowerCase(), assigned );
+            queue.add( assigned );
+            while ( !queue.isEmpty() )
+            {
+                String role = queue.poll();
+                String path = paths.get( role.toLowerCase() );
+                if ( rolePerms.containsKey( role.toLowerCase() ) )
+                {
+                    reach.put( role.toLowerCase(), path );
+                }
+                Set<String> parents = hierarchy.getParents( role );
+                if ( parents != null )
+                {
+                    for ( String parent : parents )
+                    {
+                        String key = parent.toLowerCase();
+                        if ( !paths.containsKey( key ) )
+                        {
+                            paths.put( key, path + PATH_SEPARATOR + roleNames.getOrDefault( key, parent ) );
+                            queue.add( parent );
+                        }
+                    }
+                }
+            }
+            return reach.isEmpty() ? Collections.emptyMap() : reach;
+        }
+    }
+
+
+    /**
+     * A user and the names of the roles assigned to it.
+     */
+    static final class UserRoles
+    {
+        private final String userId;
+        private final List<String> roles;
+
+
+        UserRoles( String userId, List<String> roles )
+        {
+            this.userId = userId;
+            this.roles = roles != null ? roles : Collections.emptyList();
+        }
+    }
+
+
+    /**
+     * Role hierarchy the paths are walked through.
+     */
+    interface Hierarchy
+    {
+        /**
+         * @param role name of a role.
+         * @return names of the role's parents, null if it has none.
+         */
+        Set<String> getParents( String role );
+    }
+
+
+    /**
+     * Names the export threads and marks them as daemons so they never hold up jvm shutdown.
+     */
+    private static final class ExportThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+
+        @Override
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, "fortress-export-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
@@ -407,7 +407,7 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
                 + "*))";
             ld = getAdminConnection();
             try( SearchCursor searchResults = search( ld, groupRoot, SearchScope.ONELEVEL, filter, GROUP_ATRS, false,
-                Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -460,7 +460,7 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
                 + user.getDn() + "))";
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, groupRoot, SearchScope.ONELEVEL, filter, GROUP_ATRS, false,
-                Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -512,7 +512,7 @@ final class GroupDAO extends LdapDataProvider implements PropertyProvider<Group>
                     + role.getDn() + "))";
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, groupRoot, SearchScope.ONELEVEL, filter, GROUP_ATRS, false,
-                    Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                    Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
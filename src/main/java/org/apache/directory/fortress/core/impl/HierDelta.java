@@ -0,0 +1,108 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.util.GeneralizedTime;
+import org.apache.directory.fortress.core.model.Graphable;
+
+
+/**
+ * The hierarchy nodes read from ldap by one load of a hierarchy, along with the latest {@code modifyTimestamp} found
+ * on them.  That timestamp is the high-water mark the next load starts from to read only the nodes changed since.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class HierDelta
+{
+    private final List<Graphable> descendants = new ArrayList<>();
+    private String highWaterMark;
+    private GeneralizedTime highWaterTime;
+
+
+    /**
+     * @param since contains the high-water mark the nodes were read from, null if all nodes were read.
+     */
+    HierDelta( String since )
+    {
+        if ( since != null )
+        {
+            setHighWaterMark( since );
+        }
+    }
+
+
+    /**
+     * Add a node read from ldap, moving the high-water mark forward if the node was changed later.
+     *
+     * @param descendant contains the name and parents of the node.
+     * @param modifyTimestamp contains the generalized time the node was last changed, may be null.
+     */
+    void add( Graphable descendant, String modifyTimestamp )
+    {
+        descendants.add( descendant );
+        if ( modifyTimestamp != null )
+        {
+            setHighWaterMark( modifyTimestamp );
+        }
+    }
+
+
+    /**
+     * @return the nodes read from ldap.
+     */
+    List<Graphable> getDescendants()
+    {
+        return descendants;
+    }
+
+
+    /**
+     * @return the latest modifyTimestamp of the nodes, or the mark they were read from, null if unknown.
+     */
+    String getHighWaterMark()
+    {
+        return highWaterMark;
+    }
+
+
+    private void setHighWaterMark( String timestamp )
+    {
+        try
+        {
+            GeneralizedTime time = new GeneralizedTime( timestamp );
+            if ( highWaterTime == null || time.compareTo( highWaterTime ) > 0 )
+            {
+                highWaterTime = time;
+                highWaterMark = timestamp;
+            }
+        }
+        catch ( ParseException e )
+        {
+            // a timestamp that cannot be parsed cannot be searched on either, so it is not used as mark.
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.apache.directory.fortress.core.util.Config;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Loads the hierarchy graphs of one type, {@link RoleUtil}, {@link AdminRoleUtil}, {@link UsoUtil} or {@link PsoUtil},
+ * for the caches of those classes.
+ * <p>
+ * The first load of a tenant reads every node that has parents and builds the graph.  The graph is kept here along with
+ * the latest {@code modifyTimestamp} of its nodes, so when the cache entry expires or is evicted the next load reads
+ * only the nodes changed since and applies them onto the kept graph, see
+ * {@link HierUtil#applyDelta(SimpleDirectedGraph, java.util.List)}.  Deleted nodes cannot be found that way, so the
+ * graph is built from scratch again once older than {@link GlobalIds#HIER_FULL_RELOAD}.
+ * <p>
+ * This class is thread safe as long as the loads of a type are serialized by its caller.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class HierLoader
+{
+    private static final String CLS_NM = HierLoader.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final int DEFAULT_FULL_RELOAD_SECONDS = 3600;
+
+    /**
+     * Reads the nodes of a tenant's hierarchy.
+     */
+    interface Source
+    {
+        /**
+         * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+         * @param since     contains the high-water mark of the last load, null to read every node that has parents.
+         * @return the nodes changed since the mark, with or without parents, or every node that has parents.
+         * @throws SecurityException in the event of a system error.
+         */
+        HierDelta getDescendants( String contextId, String since ) throws SecurityException;
+    }
+
+    private final HierUtil.Type type;
+    private final Source source;
+    private final long fullReloadMillis;
+    // cache key -> last graph loaded for the tenant:
+    private final Map<String, Loaded> loaded = new ConcurrentHashMap<>();
+
+
+    /**
+     * @param type   of the hierarchies, used for logging.
+     * @param source reads the nodes of the hierarchies.
+     */
+    HierLoader( HierUtil.Type type, Source source )
+    {
+        this.type = type;
+        this.source = source;
+        this.fullReloadMillis = TimeUnit.SECONDS.toMillis( Config.getInstance().getInt( GlobalIds.HIER_FULL_RELOAD,
+            DEFAULT_FULL_RELOAD_SECONDS ) );
+    }
+
+
+    /**
+     * Return the up to date graph of a tenant, either the graph of the last load with the changes since applied or a
+     * new one.
+     *
+     * @param key       contains the cache key of the tenant's hierarchy.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return handle to simple digraph containing the hierarchy.
+     */
+    SimpleDirectedGraph<String, Relationship> load( String key, String contextId )
+    {
+        Loaded last = loaded.get( key );
+        if ( last != null && last.highWaterMark != null && fullReloadMillis > 0
+            && System.currentTimeMillis() - last.builtAt < fullReloadMillis )
+        {
+            try
+            {
+                HierDelta delta = source.getDescendants( contextId, last.highWaterMark );
+                boolean changed = HierUtil.applyDelta( last.graph, delta.getDescendants() );
+                last.highWaterMark = delta.getHighWaterMark();
+                LOG.debug( "load {} context [{}] applied {} nodes changed since [{}], graph changed={}", type,
+                    contextId, delta.getDescendants().size(), last.highWaterMark, changed );
+                return last.graph;
+            }
+            catch ( SecurityException se )
+            {
+                LOG.info( "load {} context [{}] caught SecurityException reading changes, rebuilding={}", type,
+                    contextId, se );
+            }
+        }
+
+        LOG.info( "loadGraph initializing {} context [{}]", type, contextId );
+        long builtAt = System.currentTimeMillis();
+        HierDelta all = null;
+        try
+        {
+            all = source.getDescendants( contextId, null );
+        }
+        catch ( SecurityException se )
+        {
+            LOG.info( "loadGraph caught SecurityException={}", se );
+        }
+
+        SimpleDirectedGraph<String, Relationship> graph = HierUtil.buildGraph( HierUtil.loadHier( contextId,
+            all != null ? all.getDescendants() : null ) );
+        if ( all != null )
+        {
+            loaded.put( key, new Loaded( graph, all.getHighWaterMark(), builtAt ) );
+        }
+        else
+        {
+            loaded.remove( key );
+        }
+        return graph;
+    }
+
+
+    /**
+     * The graph of a tenant's last load and the high-water mark it is current to.
+     */
+    private static final class Loaded
+    {
+        private final SimpleDirectedGraph<String, Relationship> graph;
+        private final long builtAt;
+        private volatile String highWaterMark;
+
+
+        private Loaded( SimpleDirectedGraph<String, Relationship> graph, String highWaterMark, long builtAt )
+        {
+            this.graph = graph;
+            this.highWaterMark = highWaterMark;
+            this.builtAt = builtAt;
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -639,6 +640,65 @@ final class HierUtil
     }
 
 
+    /**
+     * This method is synchronized and applies nodes changed in ldap onto a graph built earlier: the parent edges of each
+     * node are replaced by the parents it has now, a node without parents loses all of its parent edges.
+     *
+     * @param graph synchronized parameter contains a reference to simple digraph {@code org.jgrapht.graph.SimpleDirectedGraph}.
+     * @param changed contains the nodes changed since the graph was built, with their current parents.
+     * @return true if an edge was added or removed.
+     */
+    static boolean applyDelta( SimpleDirectedGraph<String, Relationship> graph, List<Graphable> changed )
+    {
+        boolean result = false;
+        synchronized ( graph )
+        {
+            for ( Graphable node : changed )
+            {
+                String child = node.getName().toUpperCase();
+                Set<String> parents = new HashSet<>();
+                if ( CollectionUtils.isNotEmpty( node.getParents() ) )
+                {
+                    for ( String parent : node.getParents() )
+                    {
+                        parents.add( parent.toUpperCase() );
+                    }
+                }
+
+                if ( graph.containsVertex( child ) )
+                {
+                    for ( Relationship edge : new ArrayList<>( graph.outgoingEdgesOf( child ) ) )
+                    {
+                        // parents left in the set after this loop are the new ones:
+                        if ( !parents.remove( graph.getEdgeTarget( edge ) ) )
+                        {
+                            graph.removeEdge( edge );
+                            result = true;
+                        }
+                    }
+                }
+
+                for ( String parent : parents )
+                {
+                    try
+                    {
+                        graph.addVertex( child );
+                        graph.addVertex( parent );
+                        graph.addEdge( child, parent, new Relationship( child, parent ) );
+                        result = true;
+                    }
+                    catch ( java.lang.IllegalArgumentException e )
+                    {
+                        String error = "applyDelta child: " + child + " parent: " + parent + " caught IllegalArgumentException=" + e;
+                        LOG.error( error );
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+
     /**
      * Method instantiates a new digraph, {@code org.jgrapht.graph.SimpleDirectedGraph}, using data passed in via
      * {@link Hier} entity.
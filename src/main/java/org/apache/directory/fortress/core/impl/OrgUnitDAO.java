@@ -417,7 +417,7 @@ final class OrgUnitDAO extends LdapDataProvider
                 + SchemaConstants.OU_AT + "=" + searchVal + "*))";
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, orgUnitRoot,
-                SearchScope.ONELEVEL, filter, ORGUNIT_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, ORGUNIT_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -497,7 +497,7 @@ final class OrgUnitDAO extends LdapDataProvider
             String filter = "(objectclass=" + ORGUNIT_OBJECT_CLASS_NM + ")";
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, orgUnitRoot,
-                SearchScope.ONELEVEL, filter, ORGUNIT_ATR, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, ORGUNIT_ATR, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 while ( searchResults.next() )
                 {
@@ -566,51 +566,79 @@ final class OrgUnitDAO extends LdapDataProvider
 
 
     /**
-      *
-      * @param orgUnit
-      * @return
-      * @throws FinderException
-      */
-    List<Graphable> getAllDescendants( OrgUnit orgUnit ) throws FinderException
+     * Read every node of the hierarchy that has parents, see {@link #getDescendants(OrgUnit, String)}.
+     *
+     * @param orgUnit
+     * @return
+     * @throws FinderException
+     */
+    List<Graphable> getAllDescendants( OrgUnit orgUnit )
+        throws FinderException
+    {
+        return getDescendants( orgUnit, null ).getDescendants();
+    }
+
+
+    /**
+     * Read the nodes of the hierarchy along with the latest {@code modifyTimestamp} found on them.
+     *
+     * @param orgUnit
+     * @param since contains a high-water mark returned by an earlier read, only the nodes changed since then are read,
+     *              with or without parents.  If null every node that has parents is read.
+     * @return the nodes read and the new high-water mark.
+     * @throws FinderException
+     */
+    HierDelta getDescendants( OrgUnit orgUnit, String since ) throws FinderException
     {
         String orgUnitRoot = getOrgRoot( orgUnit );
         String[] DESC_ATRS =
-            { SchemaConstants.OU_AT, GlobalIds.PARENT_NODES };
-        List<Graphable> descendants = new ArrayList<>();
+            { SchemaConstants.OU_AT, GlobalIds.PARENT_NODES, SchemaConstants.MODIFY_TIMESTAMP_AT };
+        HierDelta descendants = new HierDelta( since );
         LdapConnection ld = null;
         String filter = null;
 
         try
         {
-            filter = GlobalIds.FILTER_PREFIX + ORGUNIT_OBJECT_CLASS_NM + ")("
-                + GlobalIds.PARENT_NODES + "=*))";
+            if ( since == null )
+            {
+                filter = GlobalIds.FILTER_PREFIX + ORGUNIT_OBJECT_CLASS_NM + ")("
+                    + GlobalIds.PARENT_NODES + "=*))";
+            }
+            else
+            {
+                // nodes changed since, including those whose last parent was removed:
+                filter = GlobalIds.FILTER_PREFIX + ORGUNIT_OBJECT_CLASS_NM + ")("
+                    + SchemaConstants.MODIFY_TIMESTAMP_AT + ">=" + since + "))";
+            }
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, orgUnitRoot,
-                SearchScope.ONELEVEL, filter, DESC_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, DESC_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
 
                 while ( searchResults.next() )
                 {
-                    descendants.add( unloadDescendants( searchResults.getEntry(), sequence++, orgUnit.getContextId() ) );
+                    Entry entry = searchResults.getEntry();
+                    descendants.add( unloadDescendants( entry, sequence++, orgUnit.getContextId() ),
+                        getAttribute( entry, SchemaConstants.MODIFY_TIMESTAMP_AT ) );
                 }
             }
             catch ( IOException i )
             {
-                String error = "getAllDescendants filter [" + filter + "] caught IOException="
+                String error = "getDescendants filter [" + filter + "] caught IOException="
                         + i.getMessage();
                 throw new FinderException( GlobalErrIds.ARLE_SEARCH_FAILED, error, i );
             }
             catch ( CursorException e )
             {
-                String error = "getAllDescendants filter [" + filter + "] caught CursorException="
+                String error = "getDescendants filter [" + filter + "] caught CursorException="
                         + e.getMessage();
                 throw new FinderException( GlobalErrIds.ARLE_SEARCH_FAILED, error, e );
             }
         }
         catch ( LdapException e )
         {
-            String error = "getAllDescendants filter [" + filter + "] caught LdapException="
+            String error = "getDescendants filter [" + filter + "] caught LdapException="
                 + e;
             throw new FinderException( GlobalErrIds.ARLE_SEARCH_FAILED, error, e );
         }
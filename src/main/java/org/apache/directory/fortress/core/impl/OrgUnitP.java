@@ -54,7 +54,7 @@ import org.slf4j.LoggerFactory;
  *  or {@link org.apache.directory.fortress.core.ValidationException} as {@link SecurityException}s with appropriate
  * error id from {@link GlobalErrIds}.
  * <p>
- * This class uses synchronized data sets ({@link #ouCache} but is thread safe.
+ * This class uses synchronized data sets ({@link #getCache(String)} but is thread safe.
 
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -67,7 +67,6 @@ final class OrgUnitP
     // these fields are used to synchronize access to the above static pools:
     private static final ReadWriteLock userPoolLock = new ReentrantReadWriteLock();
     private static final ReadWriteLock permPoolLock = new ReentrantReadWriteLock();
-    private static Cache ouCache;
 
     // DAO class for OU data sets must be initializer before the other statics:
     private OrgUnitDAO oDao = new OrgUnitDAO();
@@ -75,19 +74,11 @@ final class OrgUnitP
     private static final String PERM_OUS = "perm.ous";
     private static final String FORTRESS_OUS = "fortress.ous";
 
-    private void init()
-    {
-        CacheMgr cacheMgr = CacheMgr.getInstance();
-        OrgUnitP.ouCache = cacheMgr.getCache( FORTRESS_OUS );
-    }
-
-
     /**
      * Package private constructor.
      */
     OrgUnitP()
     {
-        init();
     }
 
 
@@ -158,7 +149,7 @@ final class OrgUnitP
             LOG.info( warning, se );
         }
 
-        ouCache.put( getKey( USER_OUS, orgUnit.getContextId() ), ouUserSet );
+        getCache( orgUnit.getContextId() ).put( getKey( USER_OUS, orgUnit.getContextId() ), ouUserSet );
 
         return ouUserSet;
     }
@@ -183,7 +174,7 @@ final class OrgUnitP
             LOG.info( warning, se );
         }
 
-        ouCache.put( getKey( PERM_OUS, orgUnit.getContextId() ), ouPermSet );
+        getCache( orgUnit.getContextId() ).put( getKey( PERM_OUS, orgUnit.getContextId() ), ouPermSet );
 
         return ouPermSet;
     }
@@ -197,7 +188,7 @@ final class OrgUnitP
     private Set<String> getPermSet( OrgUnit orgUnit )
     {
         @SuppressWarnings("unchecked")
-        Set<String> permSet = ( Set<String> ) ouCache.get( getKey( PERM_OUS, orgUnit.getContextId() ) );
+        Set<String> permSet = ( Set<String> ) getCache( orgUnit.getContextId() ).get( getKey( PERM_OUS, orgUnit.getContextId() ) );
 
         if ( permSet == null )
         {
@@ -216,7 +207,7 @@ final class OrgUnitP
     private Set<String> getUserSet( OrgUnit orgUnit )
     {
         @SuppressWarnings("unchecked")
-        Set<String> userSet = ( Set<String> ) ouCache.get( getKey( USER_OUS, orgUnit.getContextId() ) );
+        Set<String> userSet = ( Set<String> ) getCache( orgUnit.getContextId() ).get( getKey( USER_OUS, orgUnit.getContextId() ) );
 
         if ( userSet == null )
         {
@@ -411,6 +402,21 @@ final class OrgUnitP
     }
 
 
+    /**
+     * Return the OrgUnits changed since a high-water mark, or all OrgUnits that have a parent assignment if there is no mark yet.
+     * This used for reloading hierarchies.
+     *
+     * @param orgUnit will either be a User or Perm OU.
+     * @param since contains the high-water mark of an earlier call, may be null.
+     * @return the OrgUnits read, with their parents, and the new high-water mark.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    HierDelta getDescendants( OrgUnit orgUnit, String since ) throws SecurityException
+    {
+        return oDao.getDescendants( orgUnit, since );
+    }
+
+
     /**
      * Method will perform simple validations to ensure the integrity of the OrgUnit entity targeted for insertion
      * or updating in directory.  This method will ensure the name and type enum are specified.  It will also perform
@@ -456,4 +462,14 @@ final class OrgUnitP
 
         return key;
     }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return this tenant's region of the ou cache.
+     */
+    private static Cache getCache( String contextId )
+    {
+        return CacheMgr.getInstance().getCache( FORTRESS_OUS, contextId );
+    }
 }
@@ -23,9 +23,16 @@ package org.apache.directory.fortress.core.impl;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -41,9 +48,15 @@ import org.apache.directory.api.ldap.model.entry.ModificationOperation;
 import org.apache.directory.api.ldap.model.exception.LdapAttributeInUseException;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchAttributeException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.message.LdapResult;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
 import org.apache.directory.fortress.core.CreateException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
@@ -51,9 +64,12 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.RemoveException;
 import org.apache.directory.fortress.core.UpdateException;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
+import org.apache.directory.fortress.core.ldap.LdapFilter;
 import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.BatchResult;
 import org.apache.directory.fortress.core.model.ObjectFactory;
 import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermGrant;
 import org.apache.directory.fortress.core.model.PermObj;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.PermissionAttribute;
@@ -228,6 +244,8 @@ class PermDAO extends LdapDataProvider
             GlobalIds.FT_IID, GlobalIds.POBJ_NAME, SchemaConstants.DESCRIPTION_AT, SchemaConstants.OU_AT, GlobalIds.TYPE,
             GlobalIds.PROPS
     };
+
+    private static final String[] PERM_OBJ_OU_ATRS = { GlobalIds.POBJ_NAME, SchemaConstants.OU_AT };
     
     private static final String[] PERMISION_ATTRIBUTE_SET_ATRS =
     {
@@ -248,6 +266,11 @@ class PermDAO extends LdapDataProvider
         GlobalIds.FT_PERMISSION_ATTRIBUTE_VALID_VALUES
     };
 
+    // read by the single search that loads the sets with their attributes, objectClass tells them apart:
+    private static final String[] PERMISION_ATTRIBUTE_SET_ALL_ATRS = Stream.of( new String[]
+        { SchemaConstants.OBJECT_CLASS_AT }, PERMISION_ATTRIBUTE_SET_ATRS, PERMISION_ATTRIBUTE_ATRS )
+        .flatMap( Arrays::stream ).distinct().toArray( String[]::new );
+
     /**
      * @param entity
      * @return
@@ -786,8 +809,7 @@ class PermDAO extends LdapDataProvider
     void deleteOperation( Permission entity ) throws RemoveException
     {
         LdapConnection ld = null;
-        String dn = getOpRdn( entity.getOpName(), entity.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
-            + entity.getObjName() + "," + getRootDn( entity.isAdmin(), entity.getContextId() );
+        String dn = getDn( entity, entity.getContextId() );
 
         try
         {
@@ -921,6 +943,85 @@ class PermDAO extends LdapDataProvider
     }
 
 
+    /**
+     * Grant a batch of permissions to roles and/or users.  Grants that target the same permission operation are grouped
+     * into a single modify and the modifies are sent over one connection using pipelined requests.
+     *
+     * @param permGrants contains the permission and either the roleNm or userId of each grant.
+     * @return List of results, one per input grant, in the same order as the input.
+     * @throws UpdateException in the event of system error obtaining the connection.
+     */
+    List<BatchResult> grant( List<PermGrant> permGrants ) throws UpdateException
+    {
+        List<String> dns = new ArrayList<>( permGrants.size() );
+        List<List<Modification>> mods = new ArrayList<>( permGrants.size() );
+        for ( PermGrant permGrant : permGrants )
+        {
+            List<Modification> grantMods = new ArrayList<Modification>();
+            if ( StringUtils.isNotEmpty( permGrant.getRoleNm() ) )
+            {
+                grantMods.add( new DefaultModification(
+                    ModificationOperation.ADD_ATTRIBUTE, ROLES, permGrant.getRoleNm() ) );
+            }
+            else
+            {
+                grantMods.add( new DefaultModification(
+                    ModificationOperation.ADD_ATTRIBUTE, USERS, permGrant.getUserId() ) );
+            }
+            dns.add( getOpRdn( permGrant.getOpName(), permGrant.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
+                + Rdn.escapeValue( permGrant.getObjName() ) + "," + getRootDn( permGrant.isAdmin(),
+                permGrant.getContextId() ) );
+            mods.add( grantMods );
+        }
+        List<BatchResult> results = new ArrayList<>( permGrants.size() );
+        LdapConnection ld = null;
+        try
+        {
+            ld = getAdminConnection();
+            List<LdapResult> ldapResults = modifyBatch( ld, dns, mods, permGrants );
+            for ( int i = 0; i < permGrants.size(); i++ )
+            {
+                PermGrant permGrant = permGrants.get( i );
+                boolean isRole = StringUtils.isNotEmpty( permGrant.getRoleNm() );
+                LdapResult ldapResult = ldapResults.get( i );
+                String warning = "grant perm object [" + permGrant.getObjName() + "] operation ["
+                    + permGrant.getOpName() + "] " + ( isRole ? "role [" + permGrant.getRoleNm() : "userId ["
+                    + permGrant.getUserId() ) + "] ";
+                if ( ldapResult.getResultCode() == ResultCodeEnum.SUCCESS )
+                {
+                    results.add( new BatchResult( permGrant ) );
+                }
+                else if ( ldapResult.getResultCode() == ResultCodeEnum.ATTRIBUTE_OR_VALUE_EXISTS )
+                {
+                    results.add( new BatchResult( permGrant, isRole ? GlobalErrIds.PERM_ROLE_EXIST
+                        : GlobalErrIds.PERM_USER_EXIST, warning + "assignment already exists" ) );
+                }
+                else if ( ldapResult.getResultCode() == ResultCodeEnum.NO_SUCH_OBJECT )
+                {
+                    results.add( new BatchResult( permGrant, GlobalErrIds.PERM_OP_NOT_FOUND, warning
+                        + "perm not found" ) );
+                }
+                else
+                {
+                    results.add( new BatchResult( permGrant, isRole ? GlobalErrIds.PERM_GRANT_FAILED
+                        : GlobalErrIds.PERM_GRANT_USER_FAILED, warning + "failed, result code ["
+                        + ldapResult.getResultCode() + "] msg [" + ldapResult.getDiagnosticMessage() + "]" ) );
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            String error = "grant permissions caught LdapException=" + e;
+            throw new UpdateException( GlobalErrIds.PERM_GRANT_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+        return results;
+    }
+
+
     /**
      * @param pOp
      * @param role
@@ -1068,11 +1169,11 @@ class PermDAO extends LdapDataProvider
     {
         Permission entity = null;
         LdapConnection ld = null;
-        String dn = getOpRdn( permission.getOpName(), permission.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
-            + permission.getObjName() + "," + getRootDn( permission.isAdmin(), permission.getContextId() );
+        Dn dn = null;
 
         try
         {
+            dn = getOpDn( permission, permission.getContextId() );
             ld = getAdminConnection();
             Entry findEntry = read( ld, dn, PERMISSION_OP_ATRS );
             if ( findEntry == null )
@@ -1111,8 +1212,7 @@ class PermDAO extends LdapDataProvider
     {
         PermObj entity = null;
         LdapConnection ld = null;
-        String dn = GlobalIds.POBJ_NAME + "=" + permObj.getObjName() + ","
-            + getRootDn( permObj.isAdmin(), permObj.getContextId() );
+        String dn = getDn( permObj, permObj.getContextId() );
 
         try
         {
@@ -1202,7 +1302,7 @@ class PermDAO extends LdapDataProvider
             filterbuf.append(  "))" );
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISION_ATTRIBUTE_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.SUBTREE, filterbuf.toString(), PERMISION_ATTRIBUTE_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1233,6 +1333,80 @@ class PermDAO extends LdapDataProvider
         return paList;
     }
 
+
+    /**
+     * Read every permission attribute set of a tenant, with their permission attributes, in a single search of the
+     * container that holds them.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type PermissionAttributeSet containing fully populated sets.
+     * @throws FinderException in the event system error occurs.
+     */
+    List<PermissionAttributeSet> getPermAttributeSets( String contextId )
+        throws FinderException
+    {
+        Map<String, PermissionAttributeSet> paSets = new LinkedHashMap<>();
+        Map<String, Set<PermissionAttribute>> paLists = new HashMap<>();
+        LdapConnection ld = null;
+        String paSetRoot = getRootDn( contextId, GlobalIds.SD_ROOT );
+
+        try
+        {
+            ExprNode filter = LdapFilter.or( LdapFilter.objectClass( PERMISSION_ATTRIBUTE_SET_OBJECT_CLASS_NAME ),
+                LdapFilter.objectClass( PERMISSION_ATTRIBUTE_OBJECT_CLASS_NAME ) );
+            ld = getAdminConnection();
+            try ( SearchCursor searchResults = search( ld, paSetRoot,
+                SearchScope.SUBTREE, filter, PERMISION_ATTRIBUTE_SET_ALL_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
+            {
+                long sequence = 0;
+                while ( searchResults.next() )
+                {
+                    Entry entry = searchResults.getEntry();
+                    if ( entry.hasObjectClass( PERMISSION_ATTRIBUTE_SET_OBJECT_CLASS_NAME ) )
+                    {
+                        PermissionAttributeSet paSet = unloadPASetLdapEntry( entry, sequence++ );
+                        paSets.put( paSet.getName().toLowerCase(), paSet );
+                    }
+                    else
+                    {
+                        // attributes name their set, they may be returned before it:
+                        String paSetName = getAttribute( entry, GlobalIds.FT_PERMISSION_ATTRIBUTE_SET );
+                        if ( paSetName != null )
+                        {
+                            paLists.computeIfAbsent( paSetName.toLowerCase(), k -> new HashSet<>() )
+                                .add( unloadPALdapEntry( entry, sequence++ ) );
+                        }
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                String error = "getPermAttributeSets caught IOException=" + e.getMessage();
+                throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+            }
+            catch ( CursorException e )
+            {
+                String error = "getPermAttributeSets caught CursorException=" + e.getMessage();
+                throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+            }
+        }
+        catch ( LdapException e )
+        {
+            String error = "getPermAttributeSets caught LdapException=" + e;
+            throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+        for ( Map.Entry<String, PermissionAttributeSet> paSet : paSets.entrySet() )
+        {
+            Set<PermissionAttribute> paList = paLists.get( paSet.getKey() );
+            paSet.getValue().setAttributes( paList != null ? paList : new HashSet<PermissionAttribute>() );
+        }
+        return new ArrayList<>( paSets.values() );
+    }
+
     /**
      * This method performs fortress authorization using data passed in (session) and stored on ldap server (permission).  It has been recently changed to use ldap compare operations in order to trigger slapd access log updates in directory.
      * It performs ldap operations:  read and (optionally) compare.  The first is to pull back the permission to see if user has access or not.  The second is to trigger audit
@@ -1246,13 +1420,30 @@ class PermDAO extends LdapDataProvider
      */
     boolean checkPermission( Session session, Permission inPerm ) throws FinderException
     {
-        boolean isAuthZd = false;
+        return Boolean.TRUE.equals( checkPermission( session, inPerm, true ) );
+    }
+
+
+    /**
+     * Same as {@link #checkPermission(Session, Permission)} but tells the caller when the permission does not exist so
+     * the miss may be remembered.
+     *
+     * @param session contains the user and the activated roles.
+     * @param inPerm  must contain required attributes {@link Permission#objName} and {@link Permission#opName}.
+     * @param auditMiss if true an audit record is stored when the permission does not exist.
+     * @return Boolean containing result of check or null if the permission does not exist.
+     * @throws org.apache.directory.fortress.core.FinderException
+     *          In the event system error occurs looking up data on ldap server.
+     */
+    Boolean checkPermission( Session session, Permission inPerm, boolean auditMiss ) throws FinderException
+    {
+        Boolean isAuthZd = false;
         LdapConnection ld = null;
-        String dn = getOpRdn( inPerm.getOpName(), inPerm.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
-            + inPerm.getObjName() + "," + getRootDn( inPerm.isAdmin(), inPerm.getContextId() );
+        Dn dn = null;
 
         try
         {
+            dn = getOpDn( inPerm, inPerm.getContextId() );
             ld = getAdminConnection();
 
             // LDAP Operation #1: Read the targeted permission from ldap server
@@ -1310,8 +1501,9 @@ class PermDAO extends LdapDataProvider
                 throw new FinderException(GlobalErrIds.PERM_READ_OP_FAILED, error, e);
             }
 
+            isAuthZd = null;
             // There is a switch in fortress config to disable the audit ops.
-            if (!session.isGroupSession())
+            if ( auditMiss && !session.isGroupSession() )
             {
                 addAuthZAudit(ld, dn, session.getUser().getDn(), "AuthZ Invalid");
             }
@@ -1325,6 +1517,38 @@ class PermDAO extends LdapDataProvider
     }
 
 
+    /**
+     * Store the audit record of a check on a permission that is already known not to exist, without reading it again.
+     *
+     * @param session contains the user.
+     * @param inPerm  contains the objName, opName and optional objId of the permission that does not exist.
+     * @throws FinderException in the event ldap system exception occurs.
+     */
+    void auditMiss( Session session, Permission inPerm ) throws FinderException
+    {
+        if ( session.isGroupSession() || !Config.getInstance().isOpenldap() || !Config.getInstance().isAuditEnabled() )
+        {
+            return;
+        }
+        LdapConnection ld = null;
+        try
+        {
+            Dn dn = getOpDn( inPerm, inPerm.getContextId() );
+            ld = getAdminConnection();
+            addAuthZAudit( ld, dn, session.getUser().getDn(), "AuthZ Invalid" );
+        }
+        catch ( LdapException e )
+        {
+            String error = "auditMiss caught LdapException=" + e;
+            throw new FinderException( GlobalErrIds.PERM_COMPARE_OP_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
     /**
      * Perform LDAP compare operation here to associate audit record with user authorization event.
      *
@@ -1334,7 +1558,7 @@ class PermDAO extends LdapDataProvider
      * @param attributeValue string value will be associated with the 'audit' record stored in ldap.
      * @throws FinderException in the event ldap system exception occurs.
      */
-    private void addAuthZAudit( LdapConnection ld, String permDn, String userDn, String attributeValue )
+    private void addAuthZAudit( LdapConnection ld, Dn permDn, String userDn, String attributeValue )
         throws FinderException
     {
         // Audit can be turned off here with fortress config param: 'enable.audit=false'
@@ -1407,7 +1631,7 @@ class PermDAO extends LdapDataProvider
             else
             {
                 // RBAC Permission check include's User's inherited roles:
-                Set<String> activatedRoles = RoleUtil.getInstance().getInheritedRoles( session.getRoles(), permission.getContextId() );
+                Set<String> activatedRoles = RoleUtil.getInstance().getInheritedRoles( session, permission.getContextId() );
 
                 for ( String role : roles )
                 {
@@ -1533,23 +1757,12 @@ class PermDAO extends LdapDataProvider
 
         try
         {
-            String permObjVal = encodeSafeText( permission.getObjName(), GlobalIds.PERM_LEN );
-            String permOpVal = encodeSafeText( permission.getOpName(), GlobalIds.PERM_LEN );
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( PERM_OP_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(" );
-            filterbuf.append( GlobalIds.POBJ_NAME );
-            filterbuf.append( "=" );
-            filterbuf.append( permObjVal );
-            filterbuf.append( "*)(" );
-            filterbuf.append( GlobalIds.POP_NAME );
-            filterbuf.append( "=" );
-            filterbuf.append( permOpVal );
-            filterbuf.append(  "*))" );
+            ExprNode filter = LdapFilter.and( LdapFilter.objectClass( PERM_OP_OBJECT_CLASS_NAME ),
+                LdapFilter.startsWith( GlobalIds.POBJ_NAME, checkSafeText( permission.getObjName(), GlobalIds.PERM_LEN ) ),
+                LdapFilter.startsWith( GlobalIds.POP_NAME, checkSafeText( permission.getOpName(), GlobalIds.PERM_LEN ) ) );
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.SUBTREE, filter, PERMISSION_OP_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1600,7 +1813,7 @@ class PermDAO extends LdapDataProvider
                 filterbuf.append(  "))" );
                 ld = getAdminConnection();
                 try( SearchCursor searchResults = search( ld, permRoot,
-                    SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                    SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
                 {
                     long sequence = 0;
                     while ( searchResults.next() )
@@ -1676,7 +1889,7 @@ class PermDAO extends LdapDataProvider
                 filterbuf.append("))");
                 ld = getAdminConnection();
                 try ( SearchCursor searchResults = search( ld, permRoot,
-                    SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                    SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
                 {
                     long sequence = 0;
                     while ( searchResults.next() )
@@ -1734,7 +1947,7 @@ class PermDAO extends LdapDataProvider
             filterbuf.append( "*))" );
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISION_OBJ_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.SUBTREE, filterbuf.toString(), PERMISION_OBJ_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1767,6 +1980,105 @@ class PermDAO extends LdapDataProvider
     }
 
 
+    /**
+     * Read every permission operation of a tenant with paged searches, handing each one to the handler as it is read
+     * so the permissions are never all held at once.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param pageSize  contains the number of entries requested per page.
+     * @param handler   called with each permission, holding its object name, operation name, object id, roles and
+     *                  users.
+     * @return number of permissions read.
+     * @throws FinderException in the event system error occurs.
+     */
+    long scanPermissions( String contextId, int pageSize, Consumer<Permission> handler ) throws FinderException
+    {
+        LdapConnection ld = null;
+        String permRoot = getRootDn( false, contextId );
+        long[] sequence = { 0 };
+
+        try
+        {
+            ld = getAdminConnection();
+            return searchPaged( ld, permRoot, SearchScope.SUBTREE, LdapFilter.objectClass( PERM_OP_OBJECT_CLASS_NAME ),
+                PERMISSION_OP_ATRS, pageSize, entry -> handler.accept( unloadPopLdapEntry( entry, sequence[0]++,
+                    false ) ) );
+        }
+        catch ( CursorException e )
+        {
+            String error = "scanPermissions caught CursorException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+        }
+        catch ( LdapException e )
+        {
+            String error = "scanPermissions caught LdapException=" + e;
+            throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
+    /**
+     * Read the ou of each of the given permission objects with a single search.
+     *
+     * @param objNames  contains the permission object names, not empty.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return Map of lower case object name to ou, objects not found are missing.
+     * @throws FinderException in the event system error occurs.
+     */
+    Map<String, String> getObjOus( Collection<String> objNames, String contextId ) throws FinderException
+    {
+        Map<String, String> ous = new HashMap<>();
+        LdapConnection ld = null;
+        String permRoot = getRootDn( false, contextId );
+
+        try
+        {
+            for ( String objName : objNames )
+            {
+                checkSafeText( objName, GlobalIds.PERM_LEN );
+            }
+            ExprNode filter = LdapFilter.and( LdapFilter.objectClass( PERM_OBJ_OBJECT_CLASS_NAME ),
+                LdapFilter.anyOf( GlobalIds.POBJ_NAME, objNames ) );
+            ld = getAdminConnection();
+            try ( SearchCursor searchResults = search( ld, permRoot, SearchScope.ONELEVEL, filter, PERM_OBJ_OU_ATRS,
+                false, objNames.size() ) )
+            {
+                while ( searchResults.next() )
+                {
+                    Entry entry = searchResults.getEntry();
+                    ous.put( getAttribute( entry, GlobalIds.POBJ_NAME ).toLowerCase(), getAttribute( entry,
+                        SchemaConstants.OU_AT ) );
+                }
+            }
+            catch ( IOException e )
+            {
+                String error = "getObjOus caught IOException=" + e.getMessage();
+                throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+            }
+            catch ( CursorException e )
+            {
+                String error = "getObjOus caught CursorException=" + e.getMessage();
+                throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+            }
+        }
+        catch ( LdapException e )
+        {
+            String error = "getObjOus caught LdapException=" + e;
+            throw new FinderException( GlobalErrIds.PERM_SEARCH_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+
+        return ous;
+    }
+
+
     /**
      * @param ou
      * @return
@@ -1863,11 +2175,7 @@ class PermDAO extends LdapDataProvider
         }
         try
         {
-            String roleVal = encodeSafeText( role.getName(), GlobalIds.ROLE_LEN );
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( PERM_OP_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(" );
+            String roleVal = checkSafeText( role.getName(), GlobalIds.ROLE_LEN );
             Set<String> roles = null;
             if( !noInheritance )
             {
@@ -1880,35 +2188,11 @@ class PermDAO extends LdapDataProvider
                     roles = RoleUtil.getInstance().getAscendants( role.getName(), role.getContextId() );
                 }
             }
-            if ( CollectionUtils.isNotEmpty( roles ) )
-            {
-                filterbuf.append( "|(" );
-                filterbuf.append( ROLES );
-                filterbuf.append( "=" );
-                filterbuf.append( roleVal );
-                filterbuf.append( ")" );
-                for ( String uRole : roles )
-                {
-                    filterbuf.append( "(" );
-                    filterbuf.append( ROLES );
-                    filterbuf.append( "=" );
-                    filterbuf.append( uRole );
-                    filterbuf.append( ")" );
-                }
-                filterbuf.append( ")" );
-            }
-            else
-            {
-                filterbuf.append( ROLES );
-                filterbuf.append( "=" );
-                filterbuf.append( roleVal );
-                filterbuf.append( ")" );
-            }
-
-            filterbuf.append( ")" );
+            ExprNode filter = LdapFilter.and( LdapFilter.objectClass( PERM_OP_OBJECT_CLASS_NAME ),
+                LdapFilter.anyOf( ROLES, roleVal, roles ) );
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.SUBTREE, filter, PERMISSION_OP_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1955,32 +2239,23 @@ class PermDAO extends LdapDataProvider
 
         try
         {
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( PERM_OP_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(|" );
             Set<String> roles = RoleUtil.getInstance().getInheritedRoles( user.getRoles(), user.getContextId() );
+            List<ExprNode> grantees = new ArrayList<>();
 
             if ( CollectionUtils.isNotEmpty( roles ) )
             {
                 for ( String uRole : roles )
                 {
-                    filterbuf.append( "(" );
-                    filterbuf.append( ROLES );
-                    filterbuf.append( "=" );
-                    filterbuf.append( encodeSafeText( uRole, GlobalIds.ROLE_LEN ) );
-                    filterbuf.append( ")" );
+                    grantees.add( LdapFilter.equal( ROLES, checkSafeText( uRole, GlobalIds.ROLE_LEN ) ) );
                 }
             }
 
-            filterbuf.append( "(" );
-            filterbuf.append( USERS );
-            filterbuf.append( "=" );
-            filterbuf.append( user.getUserId() );
-            filterbuf.append( ")))" );
+            grantees.add( LdapFilter.equal( USERS, user.getUserId() ) );
+            ExprNode filter = LdapFilter.and( LdapFilter.objectClass( PERM_OP_OBJECT_CLASS_NAME ),
+                LdapFilter.or( grantees.toArray( new ExprNode[0] ) ) );
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.SUBTREE, filter, PERMISSION_OP_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -2040,7 +2315,7 @@ class PermDAO extends LdapDataProvider
             filterbuf.append( "))" );
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -2086,21 +2361,14 @@ class PermDAO extends LdapDataProvider
     {
         List<Permission> permList = new ArrayList<>();
         LdapConnection ld = null;
-        String permRoot = getRootDn( isAdmin, session.getContextId() );
 
         try
         {
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( PERM_OP_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(|" );
+            Dn permRoot = getRootDnName( isAdmin, session.getContextId() );
+            List<ExprNode> grantees = new ArrayList<>();
             if (!session.isGroupSession())
             {
-                filterbuf.append("(");
-                filterbuf.append(USERS);
-                filterbuf.append("=");
-                filterbuf.append(session.getUserId());
-                filterbuf.append(")");
+                grantees.add( LdapFilter.equal( USERS, session.getUserId() ) );
             }
             Set<String> roles;
             if ( isAdmin )
@@ -2109,24 +2377,21 @@ class PermDAO extends LdapDataProvider
             }
             else
             {
-                roles = RoleUtil.getInstance().getInheritedRoles( session.getRoles(), session.getContextId() );
+                roles = RoleUtil.getInstance().getInheritedRoles( session, session.getContextId() );
             }
             if ( CollectionUtils.isNotEmpty( roles ) )
             {
                 for ( String uRole : roles )
                 {
-                    filterbuf.append( "(" );
-                    filterbuf.append( ROLES );
-                    filterbuf.append( "=" );
-                    filterbuf.append( uRole );
-                    filterbuf.append( ")" );
+                    grantees.add( LdapFilter.equal( ROLES, uRole ) );
                 }
             }
 
-            filterbuf.append( "))" );
+            ExprNode filter = LdapFilter.and( LdapFilter.objectClass( PERM_OP_OBJECT_CLASS_NAME ),
+                LdapFilter.or( grantees.toArray( new ExprNode[0] ) ) );
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, permRoot,
-                SearchScope.SUBTREE, filterbuf.toString(), PERMISSION_OP_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.SUBTREE, filter, PERMISSION_OP_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -2163,6 +2428,9 @@ class PermDAO extends LdapDataProvider
 
 
     /**
+     * The values are escaped the same way as in {@link #getOpDn(Permission, String)}, so the dns written and read
+     * agree.
+     *
      * @param opName
      * @param objId
      * @return
@@ -2173,11 +2441,12 @@ class PermDAO extends LdapDataProvider
 
         if ( objId != null && objId.length() > 0 )
         {
-            rDn = GlobalIds.POP_NAME + "=" + opName + "+" + GlobalIds.POBJ_ID + "=" + objId;
+            rDn = GlobalIds.POP_NAME + "=" + Rdn.escapeValue( opName ) + "+" + GlobalIds.POBJ_ID + "="
+                + Rdn.escapeValue( objId );
         }
         else
         {
-            rDn = GlobalIds.POP_NAME + "=" + opName;
+            rDn = GlobalIds.POP_NAME + "=" + Rdn.escapeValue( opName );
         }
 
         return rDn;
@@ -2186,14 +2455,40 @@ class PermDAO extends LdapDataProvider
 
     protected String getDn( Permission pOp, String contextId )
     {
-        return getOpRdn( pOp.getOpName(), pOp.getObjId() ) + "," + GlobalIds.POBJ_NAME + "=" + pOp.getObjName()
-            + "," + getRootDn( pOp.isAdmin(), contextId );
+        return getOpRdn( pOp.getOpName(), pOp.getObjId() ) + "," + GlobalIds.POBJ_NAME + "="
+            + Rdn.escapeValue( pOp.getObjName() ) + "," + getRootDn( pOp.isAdmin(), contextId );
+    }
+
+
+    /**
+     * Build the parsed dn of a permission operation below the cached dn of its container.
+     *
+     * @param pOp contains the objName, opName and optional objId of the operation.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return Dn of the operation.
+     * @throws LdapInvalidDnException if the dn is not valid.
+     */
+    private Dn getOpDn( Permission pOp, String contextId ) throws LdapInvalidDnException
+    {
+        Rdn opRdn;
+        if ( StringUtils.isNotEmpty( pOp.getObjId() ) )
+        {
+            opRdn = new Rdn( GlobalIds.POP_NAME + "=" + Rdn.escapeValue( pOp.getOpName() ) + "+" + GlobalIds.POBJ_ID
+                + "=" + Rdn.escapeValue( pOp.getObjId() ) );
+        }
+        else
+        {
+            opRdn = getRdn( GlobalIds.POP_NAME, pOp.getOpName() );
+        }
+        return getChildDn( getRootDnName( pOp.isAdmin(), contextId ), opRdn, getRdn( GlobalIds.POBJ_NAME,
+            pOp.getObjName() ) );
     }
 
 
     protected String getDn( PermObj pObj, String contextId )
     {
-        return GlobalIds.POBJ_NAME + "=" + pObj.getObjName() + "," + getRootDn( pObj.isAdmin(), contextId );
+        return GlobalIds.POBJ_NAME + "=" + Rdn.escapeValue( pObj.getObjName() ) + "," + getRootDn( pObj.isAdmin(),
+            contextId );
     }
     
 
@@ -2209,6 +2504,12 @@ class PermDAO extends LdapDataProvider
     }
     
 
+    private Dn getRootDnName( boolean isAdmin, String contextId ) throws LdapInvalidDnException
+    {
+        return getRootDnName( contextId, isAdmin ? GlobalIds.ADMIN_PERM_ROOT : GlobalIds.PERM_ROOT );
+    }
+
+
     private String getRootDn( boolean isAdmin, String contextId )
     {
         String dn;
@@ -20,18 +20,31 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.CfgRuntimeException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.model.AdminRole;
+import org.apache.directory.fortress.core.model.BatchResult;
 import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermGrant;
 import org.apache.directory.fortress.core.model.PermObj;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.PermissionAttribute;
@@ -39,7 +52,12 @@ import org.apache.directory.fortress.core.model.PermissionAttributeSet;
 import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.cache.Cache;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -54,7 +72,14 @@ import org.apache.directory.fortress.core.util.VUtil;
  *  or {@link org.apache.directory.fortress.core.ValidationException} as {@link SecurityException}s with appropriate
  * error id from {@link org.apache.directory.fortress.core.GlobalErrIds}.
  * <p>
- * This class is thread safe.
+ * The permissions not found by {@link #checkPermission(Session, Permission)} are remembered in the
+ * {@code fortress.perms.notfound} cache for a short time, so repeated checks on a missing permission do not read the
+ * directory.  The audit records of those checks may be limited with {@link GlobalIds#PERM_NOTFOUND_AUDIT}.
+ * <p>
+ * The permission attribute sets are read once per tenant, with a single search, and kept in the {@code fortress.pasets}
+ * cache region until one of them is changed.
+ * <p>
+ * This class uses one reference to the synchronized {@code fortress.perms.notfound} cache but is thread safe.
  * <p>
 
  *
@@ -67,6 +92,59 @@ final class PermP
      */
     private PermDAO pDao = new PermDAO();
     private OrgUnitP orgUnitP = new OrgUnitP();
+    private static final String CLS_NM = PermP.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final String FORTRESS_PERMS_NOTFOUND = "fortress.perms.notfound";
+    private static final String FORTRESS_PASETS = "fortress.pasets";
+    // each tenant's region holds one entry, all of its permission attribute sets:
+    private static final String PASETS_KEY = "pasets";
+    // bumped on every change to a set so sets read while it was being changed are not cached:
+    private static final AtomicLong PASET_GENERATION = new AtomicLong();
+    // limits the number of missing operations remembered per perm object:
+    private static final int MAX_MISSES = 100;
+    private static final int DEFAULT_AUDIT_SECONDS = 60;
+
+
+    /**
+     * Package private constructor.
+     */
+    PermP()
+    {
+    }
+
+
+    /**
+     * Holds the settings of the permissions not found, read once on first use by the class loader, which makes them
+     * visible to every thread without locking.
+     */
+    private static final class NotFound
+    {
+        // per tenant and perm object, the operations known not to exist.  null when disabled:
+        private static final Cache CACHE;
+        private static final String AUDIT_MODE;
+        private static final long AUDIT_INTERVAL;
+
+        static
+        {
+            Config cfg = Config.getInstance();
+            AUDIT_MODE = cfg.getProperty( GlobalIds.PERM_NOTFOUND_AUDIT, GlobalIds.PERM_NOTFOUND_AUDIT_ALL );
+            AUDIT_INTERVAL = cfg.getInt( GlobalIds.PERM_NOTFOUND_AUDIT_SECONDS, DEFAULT_AUDIT_SECONDS ) * 1000L;
+            Cache cache = null;
+            if ( cfg.getBoolean( GlobalIds.PERM_NOTFOUND_CACHE, true ) )
+            {
+                try
+                {
+                    cache = CacheMgr.getInstance().getCache( FORTRESS_PERMS_NOTFOUND );
+                }
+                catch ( CfgRuntimeException e )
+                {
+                    LOG.warn( "init cache [{}] not available, permissions not found will not be cached",
+                        FORTRESS_PERMS_NOTFOUND );
+                }
+            }
+            CACHE = cache;
+        }
+    }
 
 
     /**
@@ -86,7 +164,121 @@ final class PermP
      */
     boolean checkPermission( Session session, Permission permission ) throws SecurityException
     {
-        return pDao.checkPermission( session, permission );
+        Cache cache = NotFound.CACHE;
+        if ( cache == null )
+        {
+            return pDao.checkPermission( session, permission );
+        }
+        String key = getNotFoundKey( permission.isAdmin(), permission.getObjName(), permission.getContextId() );
+        String opKey = getOpKey( permission );
+        Map<String, Miss> misses = ( Map<String, Miss> ) cache.get( key );
+        if ( misses == null )
+        {
+            // The blocking cache holds a lock on the key until put, always put so concurrent checks are released:
+            misses = new ConcurrentHashMap<>();
+            try
+            {
+                return check( session, permission, opKey, misses );
+            }
+            finally
+            {
+                cache.put( key, misses );
+            }
+        }
+        Miss miss = misses.get( opKey );
+        if ( miss != null )
+        {
+            auditMiss( session, permission, miss );
+            return false;
+        }
+        return check( session, permission, opKey, misses );
+    }
+
+
+    /**
+     * Read the permission and remember it in the given misses if it does not exist.
+     */
+    private boolean check( Session session, Permission permission, String opKey, Map<String, Miss> misses )
+        throws SecurityException
+    {
+        Boolean result = pDao.checkPermission( session, permission, !GlobalIds.NONE.equalsIgnoreCase( NotFound.AUDIT_MODE ) );
+        if ( result == null )
+        {
+            if ( misses.size() < MAX_MISSES )
+            {
+                misses.put( opKey, new Miss() );
+            }
+            return false;
+        }
+        return result;
+    }
+
+
+    /**
+     * Store the audit record of a check on a permission known not to exist, as directed by
+     * {@link GlobalIds#PERM_NOTFOUND_AUDIT}.
+     */
+    private void auditMiss( Session session, Permission permission, Miss miss ) throws SecurityException
+    {
+        if ( GlobalIds.NONE.equalsIgnoreCase( NotFound.AUDIT_MODE ) )
+        {
+            return;
+        }
+        if ( GlobalIds.PERM_NOTFOUND_AUDIT_INTERVAL.equalsIgnoreCase( NotFound.AUDIT_MODE ) )
+        {
+            long now = System.currentTimeMillis();
+            long last = miss.lastAudit.get();
+            if ( now - last < NotFound.AUDIT_INTERVAL || !miss.lastAudit.compareAndSet( last, now ) )
+            {
+                miss.skipped.incrementAndGet();
+                return;
+            }
+            int skipped = miss.skipped.getAndSet( 0 );
+            if ( skipped > 0 )
+            {
+                LOG.info( "auditMiss objName [{}] opName [{}] objId [{}] contextId [{}] not found, [{}] audit records skipped",
+                    permission.getObjName(), permission.getOpName(), permission.getObjId(), permission.getContextId(),
+                    skipped );
+            }
+        }
+        pDao.auditMiss( session, permission );
+    }
+
+
+    /**
+     * Forget the operations of a perm object that were not found, called after the object or one of its operations are
+     * added.
+     */
+    private void clearNotFound( boolean isAdmin, String objName, String contextId )
+    {
+        Cache cache = NotFound.CACHE;
+        if ( cache != null && objName != null )
+        {
+            cache.clear( getNotFoundKey( isAdmin, objName, contextId ) );
+        }
+    }
+
+
+    private static String getNotFoundKey( boolean isAdmin, String objName, String contextId )
+    {
+        return contextId + ":" + isAdmin + ":" + StringUtils.lowerCase( objName );
+    }
+
+
+    private static String getOpKey( Permission permission )
+    {
+        return StringUtils.lowerCase( permission.getOpName() ) + ":" + StringUtils.lowerCase( permission.getObjId() );
+    }
+
+
+    /**
+     * Tracks the audit records of a permission not found.
+     */
+    private static final class Miss
+    {
+        // the miss was audited when first found:
+        private final AtomicLong lastAudit = new AtomicLong( System.currentTimeMillis() );
+        private final AtomicInteger skipped = new AtomicInteger();
     }
 
 
@@ -330,10 +522,149 @@ final class PermP
         return pDao.getPerm( permObj );
     }
     
-    //TODO: add documentation
+    /**
+     * Read every permission operation of a tenant, handing each one to the handler as it is read.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param pageSize  contains the number of permissions requested per page.
+     * @param handler   called with each permission.
+     * @return number of permissions read.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    long scanPermissions( String contextId, int pageSize, Consumer<Permission> handler ) throws SecurityException
+    {
+        return pDao.scanPermissions( contextId, pageSize, handler );
+    }
+
+
+    /**
+     * Return the ou of each of the given permission objects, read with a single search.  This method will throw
+     * SecurityException if one of the objects is not found.
+     *
+     * @param objNames  contains the full permission object names.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return Map of lower case object name to the ou of the object.
+     * @throws SecurityException is thrown if perm object not found or runtime error occurs with system.
+     */
+    Map<String, String> readOus( Collection<String> objNames, String contextId ) throws SecurityException
+    {
+        Map<String, String> ous = pDao.getObjOus( objNames, contextId );
+        for ( String objName : objNames )
+        {
+            if ( !ous.containsKey( objName.toLowerCase() ) )
+            {
+                String warning = "readOus no entry found objName [" + objName + "]";
+                throw new FinderException( GlobalErrIds.PERM_OBJ_NOT_FOUND, warning );
+            }
+        }
+        return ous;
+    }
+
+
+    /**
+     * Return a permission attribute set, with its attributes, from the tenant's index of sets.
+     *
+     * @param permAttributeSet contains the name and contextId of the set.
+     * @return PermissionAttributeSet copy of the indexed set, owned by the caller.
+     * @throws SecurityException is thrown if set not found or runtime error occurs with system.
+     */
     PermissionAttributeSet read( PermissionAttributeSet permAttributeSet ) throws SecurityException
     {
-        return pDao.getPermAttributeSet( permAttributeSet );
+        PermissionAttributeSet paSet = getPaSets( permAttributeSet.getContextId() ).get(
+            StringUtils.lowerCase( permAttributeSet.getName() ) );
+        if ( paSet == null )
+        {
+            String warning = "read no permission attribute set found name [" + permAttributeSet.getName() + "]";
+            throw new FinderException( GlobalErrIds.PERM_ATTRIBUTE_SET_NOT_FOUND, warning );
+        }
+        return copy( paSet );
+    }
+
+
+    /**
+     * Return the permission attribute sets with the given names, with their attributes, from the tenant's index of
+     * sets.
+     *
+     * @param paSetNames contains the names of the sets.
+     * @param contextId  maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type PermissionAttributeSet containing copies of the indexed sets, in the order of the names.
+     * @throws SecurityException is thrown if one set is not found or runtime error occurs with system.
+     */
+    List<PermissionAttributeSet> read( Collection<String> paSetNames, String contextId ) throws SecurityException
+    {
+        Map<String, PermissionAttributeSet> paSets = getPaSets( contextId );
+        List<PermissionAttributeSet> results = new ArrayList<>( paSetNames.size() );
+        for ( String paSetName : paSetNames )
+        {
+            PermissionAttributeSet paSet = paSets.get( StringUtils.lowerCase( paSetName ) );
+            if ( paSet == null )
+            {
+                String warning = "read no permission attribute set found name [" + paSetName + "]";
+                throw new FinderException( GlobalErrIds.PERM_ATTRIBUTE_SET_NOT_FOUND, warning );
+            }
+            results.add( copy( paSet ) );
+        }
+        return results;
+    }
+
+
+    /**
+     * Return the tenant's permission attribute sets keyed by lower case name, from the cache if present, otherwise read
+     * with one search and cached.
+     */
+    private Map<String, PermissionAttributeSet> getPaSets( String contextId ) throws SecurityException
+    {
+        Cache cache = CacheMgr.getInstance().getCache( FORTRESS_PASETS, contextId );
+        @SuppressWarnings("unchecked")
+        Map<String, PermissionAttributeSet> paSets = ( Map<String, PermissionAttributeSet> ) cache.get( PASETS_KEY );
+        if ( paSets != null )
+        {
+            return paSets;
+        }
+        long generation = PASET_GENERATION.get();
+        try
+        {
+            Map<String, PermissionAttributeSet> loaded = new HashMap<>();
+            for ( PermissionAttributeSet paSet : pDao.getPermAttributeSets( contextId ) )
+            {
+                paSet.setContextId( contextId );
+                loaded.put( paSet.getName().toLowerCase(), paSet );
+            }
+            paSets = Collections.unmodifiableMap( loaded );
+            return paSets;
+        }
+        finally
+        {
+            // the blocking cache holds a lock on the key until put, a null value releases it without caching:
+            cache.put( PASETS_KEY, generation == PASET_GENERATION.get() ? paSets : null );
+        }
+    }
+
+
+    /**
+     * Remove a tenant's permission attribute sets from the cache, called after every change to a set.
+     */
+    private static void clearPaSets( String contextId )
+    {
+        PASET_GENERATION.incrementAndGet();
+        CacheMgr.getInstance().getCache( FORTRESS_PASETS, contextId ).clear( PASETS_KEY );
+    }
+
+
+    /**
+     * Copy an indexed set, with a set of attributes of its own.
+     */
+    private static PermissionAttributeSet copy( PermissionAttributeSet src )
+    {
+        PermissionAttributeSet paSet = new PermissionAttributeSet( src.getName() );
+        paSet.setInternalId( src.getInternalId() );
+        paSet.setDescription( src.getDescription() );
+        paSet.setType( src.getType() );
+        paSet.setDn( src.getDn() );
+        paSet.setSequenceId( src.getSequenceId() );
+        paSet.setContextId( src.getContextId() );
+        paSet.setAttributes( new HashSet<>( src.getAttributes() ) );
+        return paSet;
     }
 
     /**
@@ -348,7 +679,9 @@ final class PermP
     PermObj add( PermObj entity ) throws SecurityException
     {
         validate( entity, false );
-        return pDao.createObject( entity );
+        PermObj pObj = pDao.createObject( entity );
+        clearNotFound( entity.isAdmin(), entity.getObjName(), entity.getContextId() );
+        return pObj;
     }
 
 
@@ -364,7 +697,9 @@ final class PermP
     Permission add( Permission entity ) throws SecurityException
     {
         validate( entity, false );
-        return pDao.createOperation( entity );
+        Permission perm = pDao.createOperation( entity );
+        clearNotFound( entity.isAdmin(), entity.getObjName(), entity.getContextId() );
+        return perm;
     }
     
     /**
@@ -377,7 +712,9 @@ final class PermP
     PermissionAttributeSet add( PermissionAttributeSet entity ) throws SecurityException
     {
         validate( entity );
-        return pDao.createPermissionAttributeSet( entity );
+        PermissionAttributeSet paSet = pDao.createPermissionAttributeSet( entity );
+        clearPaSets( entity.getContextId() );
+        return paSet;
     }
     
     /**
@@ -391,7 +728,9 @@ final class PermP
     PermissionAttribute add( PermissionAttribute entity, String paSetName ) throws SecurityException
     {
         validate( entity );
-        return pDao.createPermissionAttribute( entity, paSetName );
+        PermissionAttribute pa = pDao.createPermissionAttribute( entity, paSetName );
+        clearPaSets( entity.getContextId() );
+        return pa;
     }
 
     /**
@@ -405,6 +744,7 @@ final class PermP
     {
         validate( entity );                
         pDao.deletePermissionAttribute( entity, paSetName );
+        clearPaSets( entity.getContextId() );
     }
 
     /**
@@ -419,6 +759,7 @@ final class PermP
     {
         validate( entity );
         pDao.updatePermissionAttribute( entity, paSetName, replaceValidValues );
+        clearPaSets( entity.getContextId() );
     }    
         
     /**
@@ -525,6 +866,7 @@ final class PermP
     void delete( PermissionAttributeSet entity ) throws SecurityException
     {
         pDao.deleteAttributeSet( entity );
+        clearPaSets( entity.getContextId() );
     }
     
     /**
@@ -545,6 +887,20 @@ final class PermP
     }
 
 
+    /**
+     * This command grants a batch of permissions to roles or users.  Grants that target the same permission are
+     * grouped into a single update.
+     *
+     * @param permGrants contains object and operation name for resource with either roleNm or userId set.
+     * @return List of results, one per input grant, in the same order as the input.
+     * @throws SecurityException Thrown in the event of system error.
+     */
+    List<BatchResult> grant( List<PermGrant> permGrants ) throws SecurityException
+    {
+        return pDao.grant( permGrants );
+    }
+
+
     /**
      * This command revokes the permission to perform an operation on an object from the set
      * of permissions assigned to a role. The command is implemented by setting the access control
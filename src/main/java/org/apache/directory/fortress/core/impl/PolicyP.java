@@ -51,7 +51,7 @@ import org.slf4j.LoggerFactory;
  * or {@link org.apache.directory.fortress.core.ValidationException} as {@link SecurityException}s with appropriate
  * error id from {@link org.apache.directory.fortress.core.GlobalErrIds}.
  * <p>
- * This class uses one reference to synchronized data set {@link #policyCache} but is thread safe.
+ * This class uses one reference to synchronized data set {@link #getCache(String)} but is thread safe.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -66,8 +66,6 @@ final class PolicyP
     private PolicyDAO olDao = new PolicyDAO();
     // this field is used to synchronize access to the above static data set:
     private static final ReadWriteLock policySetLock = new ReentrantReadWriteLock();
-    // static field holds the list of names for all valid pw policies in effect:
-    private static Cache policyCache;
     private static final int MIN_PW_LEN = 20;
     private static final int MAX_FAILURE = 100;
     private static final int MAX_GRACE_COUNT = 10;
@@ -75,19 +73,11 @@ final class PolicyP
     private static final String POLICIES = "policies";
     private static final String FORTRESS_POLICIES = "fortress.policies";
 
-    private void init()
-    {
-        CacheMgr cacheMgr = CacheMgr.getInstance();
-        PolicyP.policyCache = cacheMgr.getCache( FORTRESS_POLICIES );
-    }
-
-
     /**
      * Package private constructor.
      */
     PolicyP()
     {
-        init();
     }
 
 
@@ -386,12 +376,24 @@ final class PolicyP
             LOG.info( warning );
         }
 
-        policyCache.put( getKey( contextId ), policySet );
+        getCache( contextId ).put( getKey( contextId ), policySet );
 
         return policySet;
     }
 
 
+    /**
+     * Load the set of password policy names of the tenant into the cache unless it is already present.  Called during
+     * startup so the first request does not pay for reading the policies from ldap.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void preload( String contextId )
+    {
+        getPolicySet( contextId );
+    }
+
+
     /**
      *
      * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
@@ -403,7 +405,7 @@ final class PolicyP
         {
             policySetLock.readLock().lock();
 
-            Set<String> policySet = ( Set<String> ) policyCache.get( getKey( contextId ) );
+            Set<String> policySet = ( Set<String> ) getCache( contextId ).get( getKey( contextId ) );
 
             if ( policySet == null )
             {
@@ -435,4 +437,14 @@ final class PolicyP
 
         return key;
     }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return this tenant's region of the cache holding the names of the valid pw policies.
+     */
+    private static Cache getCache( String contextId )
+    {
+        return CacheMgr.getInstance().getCache( FORTRESS_POLICIES, contextId );
+    }
 }
@@ -0,0 +1,258 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.UpdateException;
+import org.apache.directory.fortress.core.model.Configuration;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Hands out the uidNumber and gidNumber values of new posix users and groups.  The sequences are stored on the config
+ * node, ftUidNumber and ftGidNumber, and hold the next value to hand out.  Rather than reading and writing the node
+ * for every value, each process reserves a block of {@link GlobalIds#POSIX_ID_BLOCK_SIZE} values with a single
+ * compare and swap on the sequence, then hands them out from memory without locking.  A reservation that loses the
+ * race to another process re-reads the sequence and tries again, so processes sharing a directory never hand out the
+ * same value.
+ * <p>
+ * Values are unique but not contiguous, a process that stops skips what remains of its block.
+ * <p>
+ * A sequence not yet stored on the config node starts at {@link GlobalIds#CONFIG_UID_NUMBER} or
+ * {@link GlobalIds#CONFIG_GID_NUMBER}.  Without a stored value or a start value, reserving fails rather than handing
+ * out 0, which is root's uid and gid.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class PosixIdAllocator
+{
+    private static final String CLS_NM = PosixIdAllocator.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final Map<String, PosixIdAllocator> ALLOCATORS = new ConcurrentHashMap<>();
+    private static final int DEFAULT_BLOCK_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 50;
+    private final String name;
+    private final Store store;
+    private final int size;
+    private final String seed;
+    private final Object reserveLock = new Object();
+    private volatile Block block = new Block( 0, 0 );
+    // last value written or read by this process, guarded by reserveLock:
+    private String lastValue;
+
+
+    /**
+     * @param name  contains the name of the sequence, for logging.
+     * @param store reads and advances the sequence.
+     * @param size  contains the number of values reserved at a time.
+     * @param seed  contains the first value when the sequence is not stored yet, may be null.
+     */
+    PosixIdAllocator( String name, Store store, int size, String seed )
+    {
+        this.name = name;
+        this.store = store;
+        this.size = Math.max( 1, size );
+        this.seed = seed;
+    }
+
+
+    /**
+     * Return the allocator of uidNumber or gidNumber values for the config node of this runtime.
+     *
+     * @param idName contains {@link GlobalIds#UID_NUMBER} or {@link GlobalIds#GID_NUMBER}.
+     * @return allocator shared by every caller of this process.
+     */
+    static PosixIdAllocator getInstance( String idName )
+    {
+        Config config = Config.getInstance();
+        String cfgName = config.getProperty( GlobalIds.CONFIG_REALM, "DEFAULT" );
+        boolean isUid = GlobalIds.UID_NUMBER.equals( idName );
+        String sequence = isUid ? ConfigDAO.UID_NUMBER_SEQUENCE : ConfigDAO.GID_NUMBER_SEQUENCE;
+        return ALLOCATORS.computeIfAbsent( cfgName + GlobalIds.PROP_SEP + sequence,
+            k -> new PosixIdAllocator( k, new ConfigStore( cfgName, sequence ),
+                config.getInt( GlobalIds.POSIX_ID_BLOCK_SIZE, DEFAULT_BLOCK_SIZE ),
+                config.getProperty( isUid ? GlobalIds.CONFIG_UID_NUMBER : GlobalIds.CONFIG_GID_NUMBER ) ) );
+    }
+
+
+    /**
+     * Return the next value, reserving a new block from the config node when the current one is used up.
+     *
+     * @return the value, never handed out before by this or any other process.
+     * @throws SecurityException in the event the config node cannot be read or updated.
+     */
+    String next() throws SecurityException
+    {
+        for ( ;; )
+        {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if ( id < current.end )
+            {
+                return Long.toString( id );
+            }
+            synchronized ( reserveLock )
+            {
+                // another thread may have reserved while this one waited:
+                if ( block == current )
+                {
+                    block = reserve();
+                }
+            }
+        }
+    }
+
+
+    private Block reserve() throws SecurityException
+    {
+        String expected = lastValue;
+        for ( int attempt = 0; attempt < MAX_ATTEMPTS; attempt++ )
+        {
+            // the value last seen is usually still current, it is only read when unknown or after losing a race:
+            if ( expected == null || attempt > 0 )
+            {
+                expected = store.read();
+            }
+            long first = parse( expected != null ? expected : getSeed() );
+            String value = Long.toString( first + size );
+            // with no expected value the sequence is created, which fails if another process created it first:
+            if ( store.advance( expected, value ) )
+            {
+                lastValue = value;
+                LOG.debug( "reserve {} [{}] to [{}] on attempt {}", name, first, first + size - 1, attempt );
+                return new Block( first, first + size );
+            }
+        }
+        String error = "reserve " + name + " failed after " + MAX_ATTEMPTS + " attempts";
+        throw new UpdateException( GlobalErrIds.FT_CONFIG_UPDATE_FAILED, error );
+    }
+
+
+    private String getSeed() throws UpdateException
+    {
+        if ( StringUtils.isBlank( seed ) )
+        {
+            String error = "reserve " + name + " has no value on the config node and no start value set";
+            throw new UpdateException( GlobalErrIds.FT_CONFIG_UPDATE_FAILED, error );
+        }
+        return seed;
+    }
+
+
+    private long parse( String value ) throws UpdateException
+    {
+        try
+        {
+            return Long.parseLong( value.trim() );
+        }
+        catch ( NumberFormatException e )
+        {
+            String error = "parse " + name + " invalid value [" + value + "]";
+            throw new UpdateException( GlobalErrIds.FT_CONFIG_UPDATE_FAILED, error, e );
+        }
+    }
+
+
+    /**
+     * Stored sequence the blocks are reserved from.
+     */
+    interface Store
+    {
+        /**
+         * @return the next value to hand out, null if the sequence is not stored yet.
+         * @throws SecurityException in the event the sequence cannot be read.
+         */
+        String read() throws SecurityException;
+
+
+        /**
+         * Replace the stored value, provided it is still the expected one.
+         *
+         * @param expected contains the value last read, null if the sequence was not stored.
+         * @param value    contains the new value.
+         * @return true if the sequence was advanced, false if another process changed it first.
+         * @throws SecurityException in the event the sequence cannot be updated.
+         */
+        boolean advance( String expected, String value ) throws SecurityException;
+    }
+
+
+    /**
+     * Sequence stored on the config node, ftUidNumber or ftGidNumber.
+     */
+    private static final class ConfigStore implements Store
+    {
+        private final ConfigP cfgP = new ConfigP();
+        private final String cfgName;
+        private final String sequence;
+
+
+        private ConfigStore( String cfgName, String sequence )
+        {
+            this.cfgName = cfgName;
+            this.sequence = sequence;
+        }
+
+
+        @Override
+        public String read() throws SecurityException
+        {
+            Configuration configuration = cfgP.readPosixIds( cfgName );
+            return ConfigDAO.UID_NUMBER_SEQUENCE.equals( sequence ) ? configuration.getUidNumber() :
+                configuration.getGidNumber();
+        }
+
+
+        @Override
+        public boolean advance( String expected, String value ) throws SecurityException
+        {
+            return cfgP.advancePosixId( cfgName, sequence, expected, value );
+        }
+    }
+
+
+    /**
+     * Values [next, end) reserved by this process.
+     */
+    private static final class Block
+    {
+        private final AtomicLong next;
+        private final long end;
+
+
+        private Block( long first, long end )
+        {
+            this.next = new AtomicLong( first );
+            this.end = end;
+        }
+    }
+}
@@ -21,15 +21,17 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Hier;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.Relationship;
@@ -43,7 +45,7 @@ import org.slf4j.LoggerFactory;
 /**
  * This utility wraps {@link HierUtil} methods to provide hierarchical functionality using the {@link org.apache.directory.fortress.core.model.OrgUnit} data set
  * for Permissions, {@link org.apache.directory.fortress.core.model.OrgUnit.Type#PERM}.
- * The {@code cn=Hierarchies, ou=OS-P} data contains Permission OU pools and within a data cache, {@link #psoCache}, contained within this class.  The parent-child edges are contained in LDAP,
+ * The {@code cn=Hierarchies, ou=OS-P} data contains Permission OU pools and within a data cache, {@link #getCache(String)}, contained within this class.  The parent-child edges are contained in LDAP,
  * in {@code ftParents} attribute.  The ldap data is retrieved {@link OrgUnitP#getAllDescendants(org.apache.directory.fortress.core.model.OrgUnit)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
  * The graph...
  * <ol>
@@ -63,12 +65,17 @@ import org.slf4j.LoggerFactory;
  */
 final class PsoUtil
 {
-    private Cache psoCache;
+    private static final String FORTRESS_PSO = "fortress.pso";
     private OrgUnitP orgUnitP;
+    private final HierLoader loader = new HierLoader( HierUtil.Type.PSO,
+        ( contextId, since ) -> orgUnitP.getDescendants( getOrgUnit( contextId ), since ) );
     private static final String CLS_NM = PsoUtil.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
 
     private static volatile PsoUtil sINSTANCE = null;
+    // stamps of the hierarchies currently loaded, one per tenant, changed every time a hierarchy is loaded or updated:
+    private static final AtomicLong STAMP_SEQ = new AtomicLong();
+    private final Map<String, Long> stamps = new ConcurrentHashMap<>();
 
     static PsoUtil getInstance()
     {
@@ -96,9 +103,6 @@ final class PsoUtil
     private void init()
     {
         orgUnitP = new OrgUnitP();
-    
-        CacheMgr cacheMgr = CacheMgr.getInstance();
-        psoCache = cacheMgr.getCache( "fortress.pso" );                
     }
 
 
@@ -232,6 +236,7 @@ final class PsoUtil
     void updateHier( String contextId, Relationship relationship, Hier.Op op ) throws SecurityException
     {
         HierUtil.updateHier( getGraph( contextId ), relationship, op );
+        newStamp( contextId );
     }
 
 
@@ -244,30 +249,52 @@ final class PsoUtil
      */
     private synchronized SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
     {
-        Hier inHier = new Hier( Hier.Type.ROLE );
-        inHier.setContextId( contextId );
-        LOG.info( "loadGraph initializing PSO context [{}]", inHier.getContextId() );
-        List<Graphable> descendants = null;
+        SimpleDirectedGraph<String, Relationship> graph = loader.load( getKey( contextId ), contextId );
+        getCache( contextId ).put( getKey( contextId ), graph );
+        newStamp( contextId );
 
-        try
-        {
-            OrgUnit orgUnit = new OrgUnit();
-            orgUnit.setType( OrgUnit.Type.PERM );
-            orgUnit.setContextId( contextId );
-            descendants = orgUnitP.getAllDescendants( orgUnit );
-        }
-        catch ( SecurityException se )
-        {
-            LOG.info( "loadGraph caught SecurityException={}", se );
-        }
+        return graph;
+    }
 
-        Hier hier = HierUtil.loadHier( contextId, descendants );
-        SimpleDirectedGraph<String, Relationship> graph;
 
-        graph = HierUtil.buildGraph( hier );
-        psoCache.put( getKey( contextId ), graph );
+    private static OrgUnit getOrgUnit( String contextId )
+    {
+        OrgUnit orgUnit = new OrgUnit();
+        orgUnit.setType( OrgUnit.Type.PERM );
+        orgUnit.setContextId( contextId );
+        return orgUnit;
+    }
+
 
-        return graph;
+    /**
+     * Return the stamp of the tenant's perm ou hierarchy, loading it first if needed.  The stamp changes every time the
+     * hierarchy is loaded or updated, so values derived from the hierarchy may be kept along with it.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return stamp of the tenant's perm ou hierarchy, unique across tenants.
+     */
+    long getStamp( String contextId )
+    {
+        getGraph( contextId );
+        return stamps.computeIfAbsent( getKey( contextId ), k -> STAMP_SEQ.incrementAndGet() );
+    }
+
+
+    private void newStamp( String contextId )
+    {
+        stamps.put( getKey( contextId ), STAMP_SEQ.incrementAndGet() );
+    }
+
+
+    /**
+     * Load the perm ou hierarchy of the tenant into the cache unless it is already present.  Called during startup
+     * so the first request does not pay for reading the hierarchy from ldap.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void preload( String contextId )
+    {
+        getGraph( contextId );
     }
 
 
@@ -280,7 +307,7 @@ final class PsoUtil
         String key = getKey( contextId );        
         LOG.debug("Getting graph for key " + contextId);
          
-        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) psoCache
+        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) getCache( contextId )
                  .get( key );
              
         if(graph == null){
@@ -308,4 +335,14 @@ final class PsoUtil
         }
         return key;
     }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return this tenant's region of the perm ou cache.
+     */
+    private Cache getCache( String contextId )
+    {
+        return CacheMgr.getInstance().getCache( FORTRESS_PSO, contextId );
+    }
 }
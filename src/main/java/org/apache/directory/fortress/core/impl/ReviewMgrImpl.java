@@ -21,10 +21,9 @@ package org.apache.directory.fortress.core.impl;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -274,6 +273,22 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         return userP.read( user, true );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @AdminPermissionOperation
+    public final User readUser( User user, User.Profile profile )
+        throws SecurityException
+    {
+        String methodName = "readUser";
+        assertContext( CLS_NM, methodName, user, GlobalErrIds.USER_NULL );
+        VUtil.assertNotNullOrEmpty( user.getUserId(), GlobalErrIds.USER_ID_NULL, CLS_NM + "." + methodName );
+        VUtil.assertNotNull( profile, GlobalErrIds.USER_NULL, CLS_NM + "." + methodName );
+        checkAccess( CLS_NM, methodName );
+        return userP.read( user, profile );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -410,7 +425,7 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         String methodName = "assignedRoles";
         assertContext(CLS_NM, methodName, user, GlobalErrIds.USER_NULL);
         checkAccess(CLS_NM, methodName);
-        User ue = userP.read(user, true);
+        User ue = userP.read(user, User.Profile.SESSION);
         return ue.getRoles();
     }
 
@@ -455,7 +470,7 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
         String methodName = "authorizedRoles";
         assertContext(CLS_NM, methodName, user, GlobalErrIds.USER_NULL);
         checkAccess(CLS_NM, methodName);
-        User ue = userP.read(user, true);
+        User ue = userP.read(user, User.Profile.SESSION);
         List<UserRole> roles = ue.getRoles();
         Set<String> iRoles = null;
         if (CollectionUtils.isNotEmpty( roles ))
@@ -496,26 +511,18 @@ public class ReviewMgrImpl extends Manageable implements ReviewMgr, Serializable
     public List<PermissionAttributeSet> rolePermissionAttributeSets( Role role, boolean noInhertiance )    
         throws SecurityException
     {
-        Map<String, PermissionAttributeSet> permAttributeSets = new HashMap<String, PermissionAttributeSet>();
+        Set<String> paSetNames = new LinkedHashSet<>();
         //look through all permissions in the role
         List<Permission> permissions = this.rolePermissions( role, noInhertiance );
         for(Permission perm : permissions)
         {
             if( CollectionUtils.isNotEmpty(perm.getPaSets() ))
             {
-                for(String paSetName : perm.getPaSets())
-                {
-                    if(!permAttributeSets.containsKey( paSetName ))
-                    {
-                        PermissionAttributeSet paSet = new PermissionAttributeSet( paSetName );
-                        paSet.setContextId( this.contextId );
-                        PermissionAttributeSet permAttributeSet = permP.read( paSet );
-                        permAttributeSets.put( paSetName, permAttributeSet );
-                    }
-                }
+                paSetNames.addAll( perm.getPaSets() );
             }
         }
-        return new ArrayList<>(permAttributeSets.values());
+        // all of the sets are served from the tenant's index, not read one at a time:
+        return permP.read( paSetNames, this.contextId );
     }
 
     /**
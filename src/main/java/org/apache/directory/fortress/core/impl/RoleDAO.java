@@ -37,18 +37,19 @@ import org.apache.directory.api.ldap.model.entry.ModificationOperation;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
+import org.apache.directory.api.ldap.model.message.LdapResult;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.SearchScope;
-import org.apache.directory.fortress.core.CfgException;
 import org.apache.directory.fortress.core.CreateException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.RemoveException;
+import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.UpdateException;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
 import org.apache.directory.fortress.core.model.*;
 import org.apache.directory.fortress.core.util.Config;
-import org.apache.directory.fortress.core.util.PropUpdater;
 import org.apache.directory.fortress.core.util.PropUtil;
 import org.apache.directory.ldap.client.api.LdapConnection;
 
@@ -98,7 +99,7 @@ import org.apache.directory.ldap.client.api.LdapConnection;
  *
  * @author Kevin McKinney
  */
-final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>, PropUpdater
+final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>
 {
     /*
       *  *************************************************************************
@@ -155,18 +156,6 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>,
             GlobalIds.FT_MODIFIER_AUX_OBJECT_CLASS_NAME
         };
 
-    /**
-     * Method on PropUdater interface used to increment UID and GID prop values.
-     * @param value contains a String that will be converted to an Integer before incremeting.
-     * @return String value contains the new sequence value.
-     */
-    public String newValue(String value)
-    {
-        Integer id = new Integer( value );
-        Integer newId = id + 1;
-        return newId.toString();
-    }
-
     /**
      * @param entity
      * @return
@@ -357,6 +346,66 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>,
     }
 
 
+    /**
+     * Add many occupants to a role.  The values are sent in a single modify, falling back to one modify per occupant if
+     * that fails, so each occupant receives its own result.
+     *
+     * @param entity  contains the role name and contextId.
+     * @param userDns contains the distinguished names of the occupants.
+     * @return List of results, one per userDn, in the same order as the input.
+     * @throws org.apache.directory.fortress.core.UpdateException
+     *
+     */
+    List<BatchResult> assign( Role entity, List<String> userDns ) throws UpdateException
+    {
+        LdapConnection ld = null;
+        String dn = getDn( entity.getName(), entity.getContextId() );
+        List<String> dns = new ArrayList<>( userDns.size() );
+        List<List<Modification>> mods = new ArrayList<>( userDns.size() );
+        List<Role> entities = new ArrayList<>( userDns.size() );
+        for ( String userDn : userDns )
+        {
+            List<Modification> occupantMods = new ArrayList<Modification>();
+            occupantMods.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE,
+                SchemaConstants.ROLE_OCCUPANT_AT, userDn ) );
+            dns.add( dn );
+            mods.add( occupantMods );
+            entities.add( entity );
+        }
+        List<BatchResult> results = new ArrayList<>( userDns.size() );
+        try
+        {
+            ld = getAdminConnection();
+            List<LdapResult> ldapResults = modifyBatch( ld, dns, mods, entities );
+            for ( int i = 0; i < userDns.size(); i++ )
+            {
+                LdapResult ldapResult = ldapResults.get( i );
+                if ( ldapResult.getResultCode() == ResultCodeEnum.SUCCESS )
+                {
+                    results.add( new BatchResult( entity ) );
+                }
+                else
+                {
+                    results.add( new BatchResult( entity, GlobalErrIds.ROLE_USER_ASSIGN_FAILED, "assign role name ["
+                        + entity.getName() + "] user dn [" + userDns.get( i ) + "] failed, result code ["
+                        + ldapResult.getResultCode() + "] msg [" + ldapResult.getDiagnosticMessage() + "]" ) );
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            String error = "assign role name [" + entity.getName() + "] user dns caught LdapException=" + e;
+            throw new UpdateException( GlobalErrIds.ROLE_USER_ASSIGN_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+
+        return results;
+    }
+
+
     /**
      * @param entity
      * @param userDn
@@ -525,7 +574,7 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>,
                 + ROLE_NM + "=" + searchVal + "*))";
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, roleRoot,
-                SearchScope.ONELEVEL, filter, ROLE_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, ROLE_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -596,7 +645,7 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>,
 
                 ld = getAdminConnection();
                 try ( SearchCursor searchResults = search( ld, roleRoot,
-                    SearchScope.ONELEVEL, filterbuf.toString(), ROLE_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                    SearchScope.ONELEVEL, filterbuf.toString(), ROLE_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
                 {
                     long sequence = 0;
                     while ( searchResults.next() )
@@ -710,7 +759,7 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>,
             filter += "(" + SchemaConstants.ROLE_OCCUPANT_AT + "=" + userDn + "))";
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, roleRoot,
-                SearchScope.ONELEVEL, filter, ROLE_NM_ATR, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, ROLE_NM_ATR, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 while ( searchResults.next() )
                 {
@@ -743,6 +792,7 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>,
 
 
     /**
+     * Read every node of the hierarchy that has parents, see {@link #getDescendants(String, String)}.
      *
      * @param contextId
      * @return
@@ -750,42 +800,69 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>,
      */
     List<Graphable> getAllDescendants( String contextId )
         throws FinderException
+    {
+        return getDescendants( contextId, null ).getDescendants();
+    }
+
+
+    /**
+     * Read the nodes of the hierarchy along with the latest {@code modifyTimestamp} found on them.
+     *
+     * @param contextId
+     * @param since contains a high-water mark returned by an earlier read, only the nodes changed since then are read,
+     *              with or without parents.  If null every node that has parents is read.
+     * @return the nodes read and the new high-water mark.
+     * @throws FinderException
+     */
+    HierDelta getDescendants( String contextId, String since )
+        throws FinderException
     {
         String[] DESC_ATRS =
-            { ROLE_NM, GlobalIds.PARENT_NODES };
-        List<Graphable> descendants = new ArrayList<>();
+            { ROLE_NM, GlobalIds.PARENT_NODES, SchemaConstants.MODIFY_TIMESTAMP_AT };
+        HierDelta descendants = new HierDelta( since );
         LdapConnection ld = null;
         String roleRoot = getRootDn( contextId, GlobalIds.ROLE_ROOT );
         String filter = null;
 
         try
         {
-            filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
-                + GlobalIds.PARENT_NODES + "=*))";
+            if ( since == null )
+            {
+                filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
+                    + GlobalIds.PARENT_NODES + "=*))";
+            }
+            else
+            {
+                // nodes changed since, including those whose last parent was removed:
+                filter = GlobalIds.FILTER_PREFIX + GlobalIds.ROLE_OBJECT_CLASS_NM + ")("
+                    + SchemaConstants.MODIFY_TIMESTAMP_AT + ">=" + since + "))";
+            }
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, roleRoot,
-                SearchScope.ONELEVEL, filter, DESC_ATRS, false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                SearchScope.ONELEVEL, filter, DESC_ATRS, false, Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
                 {
-                    descendants.add( unloadDescendants( searchResults.getEntry(), sequence++, contextId ) );
+                    Entry entry = searchResults.getEntry();
+                    descendants.add( unloadDescendants( entry, sequence++, contextId ), getAttribute( entry,
+                        SchemaConstants.MODIFY_TIMESTAMP_AT ) );
                 }
             }
             catch ( IOException e )
             {
-                String error = "getAllDescendants filter [" + filter + "] caught IOException=" + e.getMessage();
+                String error = "getDescendants filter [" + filter + "] caught IOException=" + e.getMessage();
                 throw new FinderException( GlobalErrIds.ROLE_SEARCH_FAILED, error, e );
             }
             catch ( CursorException e )
             {
-                String error = "getAllDescendants filter [" + filter + "] caught CursorException=" + e.getMessage();
+                String error = "getDescendants filter [" + filter + "] caught CursorException=" + e.getMessage();
                 throw new FinderException( GlobalErrIds.ROLE_SEARCH_FAILED, error, e );
             }
         }
         catch ( LdapException e )
         {
-            String error = "getAllDescendants filter [" + filter + "] caught LdapException=" + e;
+            String error = "getDescendants filter [" + filter + "] caught LdapException=" + e;
             throw new FinderException( GlobalErrIds.ROLE_SEARCH_FAILED, error, e );
         }
         finally
@@ -808,19 +885,15 @@ final class RoleDAO extends LdapDataProvider implements PropertyProvider<Role>,
         // Generate the value of gidNumber if not passed in by caller:
         if ( StringUtils.isEmpty( entity.getGidNumber() ) )
         {
-            List<String> idNumbers = new ArrayList<>();
-            idNumbers.add(GlobalIds.GID_NUMBER);
-            Configuration configuration;
             try
             {
-                configuration = Config.getInstance().getIncrementReplacePosixIds(idNumbers, this);
+                entity.setGidNumber( PosixIdAllocator.getInstance( GlobalIds.GID_NUMBER ).next() );
             }
-            catch (CfgException ce)
+            catch ( SecurityException se )
             {
-                String error = "Create role had a problem loading the gidNumber, catching a CfgException:" + ce.getMessage();
-                throw new CreateException(GlobalErrIds.USER_ADD_FAILED, error, ce);
+                String error = "Create role had a problem loading the gidNumber, catching a SecurityException:" + se.getMessage();
+                throw new CreateException(GlobalErrIds.USER_ADD_FAILED, error, se);
             }
-            entity.setGidNumber( configuration.getGidNumber() );
         }
     }
 
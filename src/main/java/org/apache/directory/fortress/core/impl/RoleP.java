@@ -30,6 +30,7 @@ import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.util.ConstraintValidator;
+import org.apache.directory.fortress.core.model.BatchResult;
 import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Group;
 import org.apache.directory.fortress.core.model.Role;
@@ -150,6 +151,21 @@ final class RoleP
     }
 
 
+    /**
+     * Return the Roles changed since a high-water mark, or all Roles that have a parent assignment if there is no mark yet.
+     * This used for reloading hierarchies.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param since contains the high-water mark of an earlier call, may be null.
+     * @return the Roles read, with their parents, and the new high-water mark.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    HierDelta getDescendants( String contextId, String since ) throws SecurityException
+    {
+        return rDao.getDescendants( contextId, since );
+    }
+
+
     /**
      * Adds a new Role entity to directory.  The Role entity input object will be validated to ensure that:
      * role name is present, and reasonability checks on all of the other populated values.
@@ -208,6 +224,20 @@ final class RoleP
     }
 
 
+    /**
+     * Method will add many "roleOccupant" values on OpenLDAP entry which represents an RBAC Role assignment in Fortress.
+     *
+     * @param entity contains the role name targeted.
+     * @param userDns contains the dns for the user entries that are being assigned the RBAC Role.
+     * @return List of results, one per userDn, in the same order as the input.
+     * @throws SecurityException in the event of DAO system error.
+     */
+    List<BatchResult> assign( Role entity, List<String> userDns ) throws SecurityException
+    {
+        return rDao.assign( entity, userDns );
+    }
+
+
     /**
      * Method will remove the "roleOccupant" attribute on OpenLDAP entry which represents an RBAC Role assignment in Fortress.
      *
@@ -0,0 +1,601 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Reverse index of the RBAC role assignments, role name to the users assigned to it, used by {@link ReviewMgrImpl}
+ * to answer authorizedUsers and authorizedPermissionUsers with set unions instead of searches that OR together every
+ * role of the hierarchy.
+ * <p>
+ * The index is off unless {@link GlobalIds#ROLE_USER_INDEX} is true.  A tenant's index is built on first use with a
+ * paged scan of the users' ftRA attribute.  Each user is numbered, and each role holds a bit set of the numbers of its
+ * users, so the index of a large tenant stays compact.  It is kept current by the assignments and deassignments made
+ * through {@link UserP}.  Changes made by other processes are followed with a persistent search when the server
+ * supports it, otherwise the index is rebuilt when it is older than {@link GlobalIds#ROLE_USER_INDEX_REFRESH}
+ * seconds.  The scan waits for the persistent search to start, and the changes made while the index is being built are
+ * replayed onto it once the scan completes.  Each tenant's persistent search holds its own connection, opened outside
+ * of the admin pool.
+ * <p>
+ * This class contains singleton that can be updated but is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class RoleUserIndex
+{
+    private static final String CLS_NM = RoleUserIndex.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final int PAGE_SIZE = 1000;
+    private static final int DEFAULT_REFRESH_SECONDS = 600;
+    // wait before following the changes again after a persistent search ends:
+    private static final long LISTEN_RETRY_MILLIS = 30000;
+    // longest wait for the persistent search to start before the scan goes ahead without it:
+    private static final long LISTEN_START_MILLIS = 10000;
+    private static final AtomicInteger LISTENER_COUNT = new AtomicInteger();
+    private static volatile RoleUserIndex sINSTANCE = null;
+    private final boolean enabled;
+    private final long refreshMillis;
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final UserP userP = new UserP();
+
+
+    static RoleUserIndex getInstance()
+    {
+        if ( sINSTANCE == null )
+        {
+            synchronized ( RoleUserIndex.class )
+            {
+                if ( sINSTANCE == null )
+                {
+                    sINSTANCE = new RoleUserIndex();
+                }
+            }
+        }
+        return sINSTANCE;
+    }
+
+
+    private RoleUserIndex()
+    {
+        enabled = Config.getInstance().getBoolean( GlobalIds.ROLE_USER_INDEX, false );
+        refreshMillis = TimeUnit.SECONDS.toMillis( Config.getInstance().getInt( GlobalIds.ROLE_USER_INDEX_REFRESH,
+            DEFAULT_REFRESH_SECONDS ) );
+    }
+
+
+    /**
+     * @return true if {@link GlobalIds#ROLE_USER_INDEX} is set.
+     */
+    boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Return the users assigned to any of the given roles, building the tenant's index if needed.
+     *
+     * @param roles     contains the role names, case insensitive.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return Set of userIds, null if the index is disabled.
+     * @throws SecurityException in the event the index could not be built.
+     */
+    Set<String> getUserIds( Collection<String> roles, String contextId ) throws SecurityException
+    {
+        if ( !enabled )
+        {
+            return null;
+        }
+        Tenant tenant = tenants.computeIfAbsent( getKey( contextId ), key -> new Tenant() );
+        Snapshot snapshot = getSnapshot( tenant, contextId );
+        tenant.lock.readLock().lock();
+        try
+        {
+            return snapshot.getUserIds( roles );
+        }
+        finally
+        {
+            tenant.lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Record the assignment of a user to a role, called after it was written to the directory.
+     *
+     * @param userId    contains the userId.
+     * @param roleName  contains the role name.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void assign( String userId, String roleName, String contextId )
+    {
+        change( contextId, snapshot -> snapshot.assign( userId, roleName ) );
+    }
+
+
+    /**
+     * Record the deassignment of a user from a role, called after it was written to the directory.
+     *
+     * @param userId    contains the userId.
+     * @param roleName  contains the role name.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void deassign( String userId, String roleName, String contextId )
+    {
+        change( contextId, snapshot -> snapshot.deassign( userId, roleName ) );
+    }
+
+
+    /**
+     * Record that a user's role assignments were replaced, i.e. when the user is added or updated with roles.
+     *
+     * @param userId    contains the userId.
+     * @param roleNames contains the names of the roles now assigned to the user.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void replace( String userId, Collection<String> roleNames, String contextId )
+    {
+        List<String> copy = new ArrayList<>( roleNames );
+        change( contextId, snapshot -> snapshot.replace( userId, copy ) );
+    }
+
+
+    /**
+     * Record the removal of a user, called after it was deleted from the directory.
+     *
+     * @param userId    contains the userId.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void remove( String userId, String contextId )
+    {
+        change( contextId, snapshot -> snapshot.remove( userId ) );
+    }
+
+
+    private void change( String contextId, Consumer<Snapshot> change )
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+        // a tenant not yet built will read the change from the directory:
+        Tenant tenant = tenants.get( getKey( contextId ) );
+        if ( tenant != null )
+        {
+            change( tenant, change );
+        }
+    }
+
+
+    private static void change( Tenant tenant, Consumer<Snapshot> change )
+    {
+        tenant.lock.writeLock().lock();
+        try
+        {
+            if ( tenant.snapshot != null )
+            {
+                change.accept( tenant.snapshot );
+            }
+            if ( tenant.pending != null )
+            {
+                tenant.pending.add( change );
+            }
+        }
+        finally
+        {
+            tenant.lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Return the tenant's index, building it when it is missing or stale.  While a stale index is rebuilt the other
+     * callers keep using it, a missing one is waited for.
+     */
+    private Snapshot getSnapshot( Tenant tenant, String contextId ) throws SecurityException
+    {
+        Snapshot snapshot = tenant.snapshot;
+        if ( snapshot != null && !isStale( tenant, snapshot ) )
+        {
+            return snapshot;
+        }
+        if ( snapshot != null )
+        {
+            if ( !tenant.buildLock.tryLock() )
+            {
+                return snapshot;
+            }
+        }
+        else
+        {
+            tenant.buildLock.lock();
+        }
+        try
+        {
+            snapshot = tenant.snapshot;
+            if ( snapshot == null || isStale( tenant, snapshot ) )
+            {
+                snapshot = build( tenant, contextId );
+            }
+            return snapshot;
+        }
+        finally
+        {
+            tenant.buildLock.unlock();
+        }
+    }
+
+
+    private boolean isStale( Tenant tenant, Snapshot snapshot )
+    {
+        return snapshot.stale || ( refreshMillis > 0 && !tenant.listening && System.currentTimeMillis()
+            - snapshot.builtAt > refreshMillis );
+    }
+
+
+    private Snapshot build( Tenant tenant, String contextId ) throws SecurityException
+    {
+        long start = System.currentTimeMillis();
+        // follow the changes first so none made during the scan are missed:
+        startListener( tenant, contextId );
+        awaitListener( tenant, contextId );
+        Snapshot next = new Snapshot();
+        tenant.lock.writeLock().lock();
+        try
+        {
+            tenant.pending = new ArrayList<>();
+        }
+        finally
+        {
+            tenant.lock.writeLock().unlock();
+        }
+        long users;
+        try
+        {
+            users = userP.scanUserRoles( contextId, PAGE_SIZE, next::add );
+        }
+        finally
+        {
+            tenant.lock.writeLock().lock();
+            try
+            {
+                List<Consumer<Snapshot>> pending = tenant.pending;
+                tenant.pending = null;
+                if ( pending != null )
+                {
+                    for ( Consumer<Snapshot> change : pending )
+                    {
+                        change.accept( next );
+                    }
+                }
+            }
+            finally
+            {
+                tenant.lock.writeLock().unlock();
+            }
+        }
+        tenant.lock.writeLock().lock();
+        try
+        {
+            tenant.snapshot = next;
+        }
+        finally
+        {
+            tenant.lock.writeLock().unlock();
+        }
+        LOG.info( "build contextId [{}] users [{}] roles [{}] in [{}] ms", contextId, users, next.roleUsers.size(),
+            System.currentTimeMillis() - start );
+        return next;
+    }
+
+
+    private void startListener( Tenant tenant, String contextId )
+    {
+        if ( tenant.listener != null || tenant.listenUnsupported )
+        {
+            return;
+        }
+        Thread thread = new Thread( () -> listen( tenant, contextId ), "fortress-role-index-"
+            + LISTENER_COUNT.incrementAndGet() );
+        thread.setDaemon( true );
+        tenant.started = new CountDownLatch( 1 );
+        tenant.listener = thread;
+        thread.start();
+    }
+
+
+    /**
+     * Wait until the listener's persistent search has started, failed or turned out to be unsupported.
+     */
+    private static void awaitListener( Tenant tenant, String contextId )
+    {
+        CountDownLatch started = tenant.started;
+        if ( started == null )
+        {
+            return;
+        }
+        try
+        {
+            if ( !started.await( LISTEN_START_MILLIS, TimeUnit.MILLISECONDS ) )
+            {
+                LOG.warn( "build contextId [{}] persistent search not started after [{}] ms, changes made by other "
+                    + "processes during the scan may be missed", contextId, LISTEN_START_MILLIS );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Follow the tenant's changes until the server says it does not support persistent searches.  When a search ends
+     * the changes made until the next one starts are lost, so the index is marked stale to be rebuilt on next use.
+     */
+    private void listen( Tenant tenant, String contextId )
+    {
+        CountDownLatch started = tenant.started;
+        while ( !Thread.currentThread().isInterrupted() )
+        {
+            tenant.listening = true;
+            try
+            {
+                // a renamed user is added under its new userId, the index is rebuilt to drop the previous one:
+                boolean supported = userP.listenUserRoles( contextId, ( userId, roleNames ) -> change( tenant,
+                    roleNames == null ? snapshot -> snapshot.remove( userId ) : snapshot -> snapshot.replace( userId,
+                        roleNames ) ), () -> change( tenant, snapshot -> snapshot.stale = true ),
+                    started::countDown );
+                if ( !supported )
+                {
+                    LOG.info( "listen contextId [{}] persistent search not supported, index rebuilt every [{}] ms",
+                        contextId, refreshMillis );
+                    tenant.listenUnsupported = true;
+                    tenant.listening = false;
+                    return;
+                }
+                LOG.info( "listen contextId [{}] persistent search ended", contextId );
+            }
+            catch ( SecurityException e )
+            {
+                LOG.warn( "listen contextId [{}] persistent search failed, exception={}", contextId, e.getMessage() );
+            }
+            finally
+            {
+                // a build waiting for this search goes ahead:
+                started.countDown();
+            }
+            tenant.listening = false;
+            Snapshot snapshot = tenant.snapshot;
+            if ( snapshot != null )
+            {
+                snapshot.stale = true;
+            }
+            try
+            {
+                Thread.sleep( LISTEN_RETRY_MILLIS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            started = new CountDownLatch( 1 );
+            tenant.started = started;
+        }
+        tenant.listener = null;
+    }
+
+
+    private static String getKey( String contextId )
+    {
+        String key = StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) ? contextId
+            : GlobalIds.HOME;
+        return key.toLowerCase();
+    }
+
+
+    /**
+     * The state of one tenant: its current index, the changes recorded while it is rebuilt and its listener.
+     */
+    private static final class Tenant
+    {
+        // guards the contents of the snapshots and the pending changes:
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // held by the thread building the index:
+        private final ReentrantLock buildLock = new ReentrantLock();
+        private volatile Snapshot snapshot;
+        private List<Consumer<Snapshot>> pending;
+        private volatile Thread listener;
+        // counted down once the listener's current persistent search has started or failed:
+        private volatile CountDownLatch started;
+        private volatile boolean listening;
+        private volatile boolean listenUnsupported;
+    }
+
+
+    /**
+     * One build of a tenant's index.  Users are numbered in the order they are met, and the numbers of removed users
+     * are not reused until the next build.  The roles of each user are kept by number too, so removing a user only
+     * touches the bit sets of its own roles.
+     */
+    private static final class Snapshot
+    {
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<String> userIds = new ArrayList<>();
+        private final List<Set<String>> userRoles = new ArrayList<>();
+        private final Map<String, BitSet> roleUsers = new HashMap<>();
+        private final long builtAt = System.currentTimeMillis();
+        private volatile boolean stale;
+
+
+        private void add( String userId, List<String> roleNames )
+        {
+            if ( userId == null || roleNames == null )
+            {
+                return;
+            }
+            for ( String roleName : roleNames )
+            {
+                assign( userId, roleName );
+            }
+        }
+
+
+        private void assign( String userId, String roleName )
+        {
+            String key = userId.toLowerCase();
+            Integer ordinal = ordinals.get( key );
+            if ( ordinal == null )
+            {
+                ordinal = userIds.size();
+                ordinals.put( key, ordinal );
+                userIds.add( userId );
+                userRoles.add( new HashSet<>() );
+            }
+            String role = roleName.toLowerCase();
+            if ( userRoles.get( ordinal ).add( role ) )
+            {
+                roleUsers.computeIfAbsent( role, k -> new BitSet() ).set( ordinal );
+            }
+        }
+
+
+        private void deassign( String userId, String roleName )
+        {
+            Integer ordinal = ordinals.get( userId.toLowerCase() );
+            String role = roleName.toLowerCase();
+            if ( ordinal != null && userRoles.get( ordinal ).remove( role ) )
+            {
+                clear( role, ordinal );
+            }
+        }
+
+
+        private void replace( String userId, List<String> roleNames )
+        {
+            if ( userId == null )
+            {
+                return;
+            }
+            // the user keeps its number, only the roles it no longer has are cleared:
+            Integer ordinal = ordinals.get( userId.toLowerCase() );
+            if ( ordinal != null )
+            {
+                Set<String> next = new HashSet<>();
+                if ( roleNames != null )
+                {
+                    for ( String roleName : roleNames )
+                    {
+                        next.add( roleName.toLowerCase() );
+                    }
+                }
+                Set<String> roles = userRoles.get( ordinal );
+                for ( Iterator<String> it = roles.iterator(); it.hasNext(); )
+                {
+                    String role = it.next();
+                    if ( !next.contains( role ) )
+                    {
+                        it.remove();
+                        clear( role, ordinal );
+                    }
+                }
+            }
+            add( userId, roleNames );
+        }
+
+
+        private void remove( String userId )
+        {
+            if ( userId == null )
+            {
+                return;
+            }
+            Integer ordinal = ordinals.remove( userId.toLowerCase() );
+            if ( ordinal != null )
+            {
+                userIds.set( ordinal, null );
+                Set<String> roles = userRoles.set( ordinal, null );
+                for ( String role : roles )
+                {
+                    clear( role, ordinal );
+                }
+            }
+        }
+
+
+        private void clear( String role, int ordinal )
+        {
+            BitSet users = roleUsers.get( role );
+            if ( users != null )
+            {
+                users.clear( ordinal );
+                if ( users.isEmpty() )
+                {
+                    roleUsers.remove( role );
+                }
+            }
+        }
+
+
+        private Set<String> getUserIds( Collection<String> roleNames )
+        {
+            BitSet union = new BitSet();
+            for ( String roleName : roleNames )
+            {
+                BitSet users = roleUsers.get( roleName.toLowerCase() );
+                if ( users != null )
+                {
+                    union.or( users );
+                }
+            }
+            Set<String> result = new HashSet<>( union.cardinality() * 4 / 3 + 1 );
+            for ( int i = union.nextSetBit( 0 ); i >= 0; i = union.nextSetBit( i + 1 ) )
+            {
+                result.add( userIds.get( i ) );
+            }
+            return result;
+        }
+    }
+}
@@ -20,20 +20,24 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Hier;
 import org.apache.directory.fortress.core.model.ParentUtil;
 import org.apache.directory.fortress.core.model.Relationship;
 import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.util.cache.Cache;
 import org.apache.directory.fortress.core.util.cache.CacheMgr;
@@ -44,8 +48,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This utility wraps {@link org.apache.directory.fortress.core.impl.HierUtil} methods to provide hierarchical functionality for the {@link org.apache.directory.fortress.core.model.Role} data set.
- * The {@code cn=Hierarchies, ou=Roles} data is stored within a cache, {@link #roleCache}, contained within this class.  The parent-child edges are contained in LDAP,
- * in {@code ftParents} attribute.  The ldap data is retrieved {@link org.apache.directory.fortress.core.impl.RoleP#getAllDescendants(String)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
+ * The {@code cn=Hierarchies, ou=Roles} data is stored within a cache, {@link #getCache(String)}, contained within this class.  The parent-child edges are contained in LDAP,
+ * in {@code ftParents} attribute.  The ldap data is retrieved {@link org.apache.directory.fortress.core.impl.RoleP#getDescendants(String, String)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
  * The graph...
  * <ol>
  * <li>is stored as singleton in this class with vertices of {@code String}, and edges, as {@link org.apache.directory.fortress.core.model.Relationship}s</li>
@@ -64,12 +68,17 @@ import org.slf4j.LoggerFactory;
  */
 final class RoleUtil implements ParentUtil
 {
-    private Cache roleCache;
+    private static final String FORTRESS_ROLES = "fortress.roles";
     private RoleP roleP = new RoleP();
+    private final HierLoader loader = new HierLoader( HierUtil.Type.ROLE,
+        ( contextId, since ) -> roleP.getDescendants( contextId, since ) );
     private static final String CLS_NM = RoleUtil.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
 
     private static volatile RoleUtil sINSTANCE = null;
+    // stamps of the hierarchies currently loaded, one per tenant, changed every time a hierarchy is loaded or updated:
+    private static final AtomicLong STAMP_SEQ = new AtomicLong();
+    private final Map<String, Long> stamps = new ConcurrentHashMap<>();
 
     static RoleUtil getInstance()
     {
@@ -98,9 +107,6 @@ final class RoleUtil implements ParentUtil
     private void init()
     {
         roleP = new RoleP();
-    
-        CacheMgr cacheMgr = CacheMgr.getInstance();
-        roleCache = cacheMgr.getCache( "fortress.roles" );
     }
 
 
@@ -233,6 +239,28 @@ final class RoleUtil implements ParentUtil
     }
 
 
+    /**
+     * Return Set of RBAC {@link org.apache.directory.fortress.core.model.Role#name}s activated into the session and their
+     * ascendants, same as {@link #getInheritedRoles(List, String)}.  The result is saved on the session and returned again
+     * until its activated roles or the tenant's role hierarchy change.
+     *
+     * @param session contains the roles activated within a {@link org.apache.directory.fortress.core.model.User}'s {@link Session}.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return contains unmodifiable Set of all authorized RBAC Roles for a given User.
+     */
+    Set<String> getInheritedRoles( Session session, String contextId )
+    {
+        long stamp = getStamp( contextId );
+        Set<String> iRoles = session.getInheritedRoles( stamp );
+        if ( iRoles == null )
+        {
+            iRoles = Collections.unmodifiableSet( getInheritedRoles( session.getRoles(), contextId ) );
+            session.setInheritedRoles( iRoles, stamp );
+        }
+        return iRoles;
+    }
+
+
     /**
      *
      * @param roles
@@ -337,6 +365,8 @@ final class RoleUtil implements ParentUtil
     void updateHier( String contextId, Relationship relationship, Hier.Op op ) throws SecurityException
     {
         HierUtil.updateHier( getGraph( contextId ), relationship, op );
+        newStamp( contextId );
+        SessionUtil.flush( contextId );
     }
 
 
@@ -349,25 +379,9 @@ final class RoleUtil implements ParentUtil
      */
     private synchronized SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
     {
-        Hier inHier = new Hier( Hier.Type.ROLE );
-        inHier.setContextId( contextId );
-        LOG.info( "loadGraph initializing ROLE context [{}]", inHier.getContextId() );
-        List<Graphable> descendants = null;
-
-        try
-        {
-            descendants = roleP.getAllDescendants( inHier.getContextId() );
-        }
-        catch ( SecurityException se )
-        {
-            LOG.info( "loadGraph caught SecurityException={}", se );
-        }
-
-        Hier hier = HierUtil.loadHier( contextId, descendants );
-        SimpleDirectedGraph<String, Relationship> graph;
-
-        graph = HierUtil.buildGraph( hier );
-        roleCache.put( getKey( contextId ), graph );
+        SimpleDirectedGraph<String, Relationship> graph = loader.load( getKey( contextId ), contextId );
+        getCache( contextId ).put( getKey( contextId ), graph );
+        newStamp( contextId );
 
         return graph;
     }
@@ -391,6 +405,39 @@ final class RoleUtil implements ParentUtil
     }
 
 
+    /**
+     * Return the stamp of the tenant's role hierarchy, loading it first if needed.  The stamp changes every time the
+     * hierarchy is loaded or updated.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return stamp of the tenant's role hierarchy, unique across tenants.
+     */
+    long getStamp( String contextId )
+    {
+        // load the graph first, its stamp is set once loaded:
+        getGraph( contextId );
+        return stamps.computeIfAbsent( getKey( contextId ), k -> STAMP_SEQ.incrementAndGet() );
+    }
+
+
+    private void newStamp( String contextId )
+    {
+        stamps.put( getKey( contextId ), STAMP_SEQ.incrementAndGet() );
+    }
+
+
+    /**
+     * Load the role hierarchy of the tenant into the cache unless it is already present.  Called during startup
+     * so the first request does not pay for reading the hierarchy from ldap.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void preload( String contextId )
+    {
+        getGraph( contextId );
+    }
+
+
     /**
      *
      * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
@@ -401,7 +448,7 @@ final class RoleUtil implements ParentUtil
         String key = getKey( contextId );        
         LOG.debug("Getting graph for key " + contextId);
          
-        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) roleCache
+        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) getCache( contextId )
                  .get( key );
              
         if(graph == null){
@@ -413,4 +460,14 @@ final class RoleUtil implements ParentUtil
             return graph;
         }
     }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return this tenant's region of the role cache.
+     */
+    private Cache getCache( String contextId )
+    {
+        return CacheMgr.getInstance().getCache( FORTRESS_ROLES, contextId );
+    }
 }
@@ -123,11 +123,37 @@ final class SDUtil
      */
     void validateSSD(User user, Role role)
         throws SecurityException
+    {
+        validateSSD( user, role, null );
+    }
+
+    /**
+     * This method is called by AdminMgr.assignUsers and is used to validate Static Separation of Duty
+     * constraints when assigning a role to user, along with the roles accepted for the same user earlier in the batch
+     * that have not been stored yet.
+     *
+     * @param user
+     * @param role
+     * @param pending roles accepted for the user earlier in the batch, may be null.
+     * @throws org.apache.directory.fortress.core.SecurityException
+     *
+     */
+    void validateSSD( User user, Role role, List<UserRole> pending )
+        throws SecurityException
     {
         // get all authorized roles for user
         String contextId = user.getContextId();
         ReviewMgr rMgr = ReviewMgrFactory.createInstance( contextId );
         Set<String> rls = rMgr.authorizedRoles( user );
+        if ( CollectionUtils.isNotEmpty( pending ) )
+        {
+            Set<String> pendingRls = RoleUtil.getInstance().getInheritedRoles( pending, contextId );
+            if ( rls != null )
+            {
+                pendingRls.addAll( rls );
+            }
+            rls = pendingRls;
+        }
 
         checkSSD( role, rls, contextId);
     }
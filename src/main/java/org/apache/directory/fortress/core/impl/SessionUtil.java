@@ -0,0 +1,244 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.ConstraintUtil;
+import org.apache.directory.fortress.core.model.ObjectFactory;
+import org.apache.directory.fortress.core.model.RoleList;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.cache.Cache;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+
+
+/**
+ * Caches the trusted sessions built for the stateless {@link AccessMgrImpl#checkAccess(User, org.apache.directory.fortress.core.model.Permission, boolean)}
+ * and {@link AccessMgrImpl#isUserInRole(User, org.apache.directory.fortress.core.model.Role, boolean)} calls, so a
+ * caller that checks the same user again within a few seconds skips the user read, role activation and DSD check.
+ * <p>
+ * The cache is off unless {@link GlobalIds#SESSION_CACHE} is true.  Its time to live and size are set on the
+ * {@code fortress.sessions} region in ehcache.xml, there is one region per tenant.  Each entry holds the sessions of
+ * one user, one per set of roles requested for activation.
+ * <p>
+ * The cached sessions are never handed out.  Every hit gets a copy whose user and role temporal constraints are
+ * validated again, so a role outside its time window is still dropped.  The entries are removed when the user is
+ * updated, locked, deleted or its roles are assigned or deassigned, and all of a tenant's entries are removed when its
+ * role or admin role hierarchy changes.
+ * <p>
+ * This class uses synchronized data sets but is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class SessionUtil
+{
+    private static final String FORTRESS_SESSIONS = "fortress.sessions";
+    // limits the number of role sets cached per user:
+    private static final int MAX_SESSIONS = 16;
+    // bumped on every removal so a session built while its entry was being removed is not cached:
+    private static final Map<String, AtomicLong> GENERATIONS = new ConcurrentHashMap<>();
+    private static volatile Boolean enabled;
+
+
+    /**
+     * Private constructor
+     *
+     */
+    private SessionUtil()
+    {
+    }
+
+
+    /**
+     * Return true if the session cache has been enabled with {@link GlobalIds#SESSION_CACHE}.
+     *
+     * @param user contains the userId and the roles requested for activation.
+     * @return boolean true if the session of this user may be cached.
+     */
+    static boolean isCacheable( User user )
+    {
+        if ( enabled == null )
+        {
+            enabled = Config.getInstance().getBoolean( GlobalIds.SESSION_CACHE, false );
+        }
+        // sessions created with dynamic constraints are not cached:
+        return enabled && StringUtils.isNotEmpty( user.getUserId() )
+            && ( user.getProps() == null || CollectionUtils.isEmpty( user.getProps().getEntry() ) );
+    }
+
+
+    /**
+     * Return a trusted session for the user, from the cache if present, otherwise created by
+     * {@link UserP#createSession(User, boolean)} and cached.
+     *
+     * @param user  contains the userId and optionally the roles requested for activation.
+     * @param userP creates the session on a miss.
+     * @return session with the user and role temporal constraints validated, owned by the caller.
+     * @throws SecurityException in the event the session cannot be created or a constraint fails.
+     */
+    static Session getSession( User user, UserP userP ) throws SecurityException
+    {
+        String contextId = user.getContextId();
+        Cache cache = getCache( contextId );
+        String key = user.getUserId().toLowerCase();
+        String rolesKey = getRolesKey( user );
+        long generation = getGeneration( contextId ).get();
+        @SuppressWarnings("unchecked")
+        Map<String, Session> sessions = ( Map<String, Session> ) cache.get( key );
+        boolean loading = sessions == null;
+        if ( loading )
+        {
+            sessions = new ConcurrentHashMap<>();
+        }
+        try
+        {
+            Session cached = sessions.get( rolesKey );
+            if ( cached != null )
+            {
+                Session session = copy( cached );
+                VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.USER, false );
+                VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.ROLE, false );
+                return session;
+            }
+            Session session = userP.createSession( user, true );
+            if ( sessions.size() < MAX_SESSIONS && generation == getGeneration( contextId ).get() )
+            {
+                sessions.put( rolesKey, copy( session ) );
+            }
+            return session;
+        }
+        finally
+        {
+            // the blocking cache holds a lock on the key until put, always put so concurrent calls are released:
+            if ( loading )
+            {
+                cache.put( key, generation == getGeneration( contextId ).get() ? sessions
+                    : new ConcurrentHashMap<String, Session>() );
+            }
+        }
+    }
+
+
+    /**
+     * Remove the cached sessions of a user.
+     *
+     * @param userId    contains the id of the user whose sessions are removed.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    static void clear( String userId, String contextId )
+    {
+        if ( isEnabled() && userId != null )
+        {
+            getGeneration( contextId ).incrementAndGet();
+            getCache( contextId ).clear( userId.toLowerCase() );
+        }
+    }
+
+
+    /**
+     * Remove the cached sessions of every user of a tenant.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    static void flush( String contextId )
+    {
+        if ( isEnabled() )
+        {
+            getGeneration( contextId ).incrementAndGet();
+            getCache( contextId ).flush();
+        }
+    }
+
+
+    private static boolean isEnabled()
+    {
+        return enabled != null && enabled;
+    }
+
+
+    /**
+     * Copy the parts of a cached session needed to check access, with role lists of its own so the temporal checks
+     * may remove roles without changing the cached session.
+     */
+    private static Session copy( Session cached )
+    {
+        User src = cached.getUser();
+        User user = new User( src.getUserId() );
+        ConstraintUtil.copy( src, user );
+        user.setInternalId( src.getInternalId() );
+        user.setVersion( src.getVersion() );
+        user.setDn( src.getDn() );
+        user.setOu( src.getOu() );
+        user.setContextId( src.getContextId() );
+        user.setProps( src.getProps() );
+        user.setRoles( new RoleList<>( src.getRoles() ) );
+        user.setAdminRoles( new RoleList<>( src.getAdminRoles() ) );
+        Session session = new ObjectFactory().createSession();
+        session.setUser( user );
+        session.setAuthenticated( false );
+        session.setContextId( cached.getContextId() );
+        return session;
+    }
+
+
+    private static String getRolesKey( User user )
+    {
+        List<UserRole> roles = user.getRoles();
+        if ( CollectionUtils.isEmpty( roles ) )
+        {
+            return "";
+        }
+        TreeSet<String> names = new TreeSet<>();
+        for ( UserRole role : roles )
+        {
+            names.add( StringUtils.lowerCase( role.getName() ) );
+        }
+        return String.join( ",", names );
+    }
+
+
+    private static AtomicLong getGeneration( String contextId )
+    {
+        return GENERATIONS.computeIfAbsent( String.valueOf( contextId ), k -> new AtomicLong() );
+    }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return this tenant's region of the session cache.
+     */
+    private static Cache getCache( String contextId )
+    {
+        return CacheMgr.getInstance().getCache( FORTRESS_SESSIONS, contextId );
+    }
+}
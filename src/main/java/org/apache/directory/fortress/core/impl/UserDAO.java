@@ -22,11 +22,15 @@ package org.apache.directory.fortress.core.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -47,13 +51,19 @@ import org.apache.directory.api.ldap.model.exception.LdapAuthenticationException
 import org.apache.directory.api.ldap.model.exception.LdapEntryAlreadyExistsException;
 import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.exception.LdapNoPermissionException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchAttributeException;
 import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.message.AddRequest;
 import org.apache.directory.api.ldap.model.message.BindResponse;
+import org.apache.directory.api.ldap.model.message.LdapResult;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.SearchScope;
-import org.apache.directory.fortress.core.CfgException;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.api.ldap.model.message.controls.ChangeType;
 import org.apache.directory.fortress.core.CreateException;
 import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
@@ -63,11 +73,13 @@ import org.apache.directory.fortress.core.RemoveException;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.UpdateException;
 import org.apache.directory.fortress.core.ldap.LdapDataProvider;
+import org.apache.directory.fortress.core.ldap.LdapFilter;
 import org.apache.directory.fortress.core.model.*;
-import org.apache.directory.fortress.core.util.PropUpdater;
 import org.apache.directory.fortress.core.util.PropUtil;
 import org.apache.directory.fortress.core.model.RoleConstraint.RCType;
 import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.trace.TraceSpan;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 import org.apache.directory.ldap.client.api.LdapConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -144,7 +156,7 @@ import static org.apache.directory.fortress.core.impl.RoleDAO.IS_RFC2307;
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  * @created August 30, 2009
  */
-final class UserDAO extends LdapDataProvider implements PropUpdater
+final class UserDAO extends LdapDataProvider
 {
     /*
       *  *************************************************************************
@@ -198,10 +210,15 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
     private static final String[] USERID_ATRS = { SchemaConstants.UID_AT };
     // These will be loaded in static initializer that follows:
     private static String[] authnAtrs = null;
+    private static String[] sessionAtrs = null;
     private static String[] defaultAtrs = null;
+    // operational attribute that changes on every update of a user entry, see getVersion:
+    private static String versionAtr = null;
     private static final String[] ROLE_ATR = { GlobalIds.USER_ROLE_DATA };
     private static final String[] AROLE_ATR = { GlobalIds.USER_ADMINROLE_DATA };
     private static final String[] USERID_ATR = { SchemaConstants.UID_AT };
+    private static final String[] USER_OU_ATRS = { SchemaConstants.UID_AT, SchemaConstants.OU_AT };
+    private static final String[] USER_ROLE_ATRS = { SchemaConstants.UID_AT, USER_ROLE_ASSIGN };
 
     /**
      * Default constructor is public
@@ -213,19 +230,6 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
     }
 
 
-    /**
-     * Method on PropUdater interface used to increment UID and GID prop values.
-     * @param value contains a String that will be converted to an Integer before incremeting.
-     * @return String value contains the new sequence value.
-     */
-    public String newValue(String value)
-    {
-        Integer id = new Integer( value );
-        Integer newId = id + 1;
-        return newId.toString();
-    }
-
-
     /**
      * Add new user entity to LDAP
      *
@@ -236,141 +240,241 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
     User create( User entity ) throws CreateException
     {
         LdapConnection ld = null;
-        boolean setRelaxControl = false;
         try
         {
-            entity.setInternalId();
-
-            String dn = getDn( entity.getUserId(), entity.getContextId() );
+            Entry myEntry = newUserEntry( entity );
+            ld = getAdminConnection();
+            add( ld, myEntry, entity, isPwPolicySet( entity ) );
+            entity.setDn( myEntry.getDn().getName() );
+        }
+        catch ( LdapEntryAlreadyExistsException e )
+        {
+            String error = "create userId [" + entity.getUserId() + "] failed, already exists in directory";
+            throw new CreateException( GlobalErrIds.USER_ADD_FAILED_ALREADY_EXISTS, error, e );
+        }
+        catch ( LdapException e )
+        {
+            String error = "create userId [" + entity.getUserId() + "] caught LDAPException=" + e;
+            throw new CreateException( GlobalErrIds.USER_ADD_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
 
-            Entry myEntry = new DefaultEntry( dn );
+        return entity;
+    }
 
-            myEntry.add( SchemaConstants.OBJECT_CLASS_AT, getUserObjectClass() );
-            myEntry.add( GlobalIds.FT_IID, entity.getInternalId() );
-            myEntry.add( SchemaConstants.UID_AT, entity.getUserId() );
 
-            // CN is required on inetOrgPerson object class, if caller did not set, use the userId:
-            if ( StringUtils.isEmpty( entity.getCn() ) )
+    /**
+     * Add a batch of new user entities to LDAP.  The entries are sent over a single connection using pipelined add
+     * requests.  One result is returned for each user in the same order as the input.
+     *
+     * @param entities contains the users to add.
+     * @return List of results, one per input user.
+     * @throws CreateException in the event of system error obtaining the connection.
+     */
+    List<BatchResult> create( List<User> entities ) throws CreateException
+    {
+        BatchResult[] results = new BatchResult[entities.size()];
+        List<AddRequest> requests = new ArrayList<>( entities.size() );
+        List<Integer> pending = new ArrayList<>( entities.size() );
+        for ( int i = 0; i < entities.size(); i++ )
+        {
+            User entity = entities.get( i );
+            try
             {
-                entity.setCn( entity.getUserId() );
+                requests.add( newAddRequest( newUserEntry( entity ), entity, isPwPolicySet( entity ) ) );
+                pending.add( i );
             }
-
-            myEntry.add( SchemaConstants.CN_AT, entity.getCn() );
-
-            // SN is required on inetOrgPerson object class, if caller did not set, use the userId:
-            if ( StringUtils.isEmpty( entity.getSn() ) )
+            catch ( CreateException e )
             {
-                entity.setSn( entity.getUserId() );
+                results[i] = new BatchResult( entity, e.getErrorId(), e.getMessage() );
             }
-
-            myEntry.add( SchemaConstants.SN_AT, entity.getSn() );
-
-            if( StringUtils.isNotEmpty( entity.getPassword() ))
+            catch ( LdapException e )
             {
-                myEntry.add( SchemaConstants.USER_PASSWORD_AT, entity.getPassword() );
+                String error = "create userId [" + entity.getUserId() + "] caught LDAPException=" + e;
+                results[i] = new BatchResult( entity, GlobalErrIds.USER_ADD_FAILED, error );
             }
-            else if( !Config.getInstance().getBoolean( GlobalIds.USER_CREATION_PASSWORD_FIELD, false ) )
+        }
+        if ( !requests.isEmpty() )
+        {
+            LdapConnection ld = null;
+            try
             {
-                myEntry.add( SchemaConstants.USER_PASSWORD_AT, new String() );
+                ld = getAdminConnection();
+                List<LdapResult> ldapResults = pipeline( ld, requests );
+                for ( int i = 0; i < pending.size(); i++ )
+                {
+                    int idx = pending.get( i );
+                    User entity = entities.get( idx );
+                    LdapResult ldapResult = ldapResults.get( i );
+                    if ( ldapResult.getResultCode() == ResultCodeEnum.SUCCESS )
+                    {
+                        entity.setDn( requests.get( i ).getEntryDn().getName() );
+                        results[idx] = new BatchResult( entity );
+                    }
+                    else if ( ldapResult.getResultCode() == ResultCodeEnum.ENTRY_ALREADY_EXISTS )
+                    {
+                        String error = "create userId [" + entity.getUserId() + "] failed, already exists in directory";
+                        results[idx] = new BatchResult( entity, GlobalErrIds.USER_ADD_FAILED_ALREADY_EXISTS, error );
+                    }
+                    else
+                    {
+                        String error = "create userId [" + entity.getUserId() + "] failed, result code ["
+                            + ldapResult.getResultCode() + "] msg [" + ldapResult.getDiagnosticMessage() + "]";
+                        results[idx] = new BatchResult( entity, GlobalErrIds.USER_ADD_FAILED, error );
+                    }
+                }
             }
-
-            myEntry.add( SchemaConstants.DISPLAY_NAME_AT, StringUtils.isNotEmpty( entity.getDisplayName() ) ? entity.getDisplayName() : entity.getCn() );
-
-            if ( StringUtils.isNotEmpty( entity.getTitle() ) )
+            catch ( LdapException e )
             {
-                myEntry.add( SchemaConstants.TITLE_AT, entity.getTitle() );
+                String error = "create users caught LDAPException=" + e;
+                throw new CreateException( GlobalErrIds.USER_ADD_FAILED, error, e );
             }
-
-            if ( StringUtils.isNotEmpty( entity.getEmployeeType() ) )
+            finally
             {
-                myEntry.add( EMPLOYEE_TYPE, entity.getEmployeeType() );
+                closeAdminConnection( ld );
             }
+        }
+        return Arrays.asList( results );
+    }
 
-            // These are multi-valued attributes, use the util function to load.
-            // These items are optional.  The utility function will return quietly if item list is empty:
-            loadAttrs( entity.getPhones(), myEntry, SchemaConstants.TELEPHONE_NUMBER_AT );
-            loadAttrs( entity.getMobiles(), myEntry, MOBILE );
-            loadAttrs( entity.getEmails(), myEntry, SchemaConstants.MAIL_AT );
 
-            // The following attributes are optional:
-            if ( entity.isSystem() != null )
-            {
-                myEntry.add( SYSTEM_USER, entity.isSystem().toString().toUpperCase() );
-            }
+    /**
+     * Build the ldap entry for a new user.  Generates the internal id and, when RFC2307 is enabled, the posix ids.
+     *
+     * @param entity contains the user to add.
+     * @return Entry ready to be added to the directory.
+     * @throws LdapException in the event of an invalid attribute.
+     * @throws CreateException in the event the posix ids cannot be generated.
+     */
+    private Entry newUserEntry( User entity ) throws LdapException, CreateException
+    {
+        entity.setInternalId();
 
-            // If password policy is set and either openldap or apacheds in use:
-            if ( ( Config.getInstance().isOpenldap() || Config.getInstance().isApacheds() ) && StringUtils.isNotEmpty( entity.getPwPolicy() ) )
-            {
-                myEntry.add( OPENLDAP_POLICY_SUBENTRY, PolicyDAO.getPolicyDn( entity ) );
-                setRelaxControl = true;
-            }
+        String dn = getDn( entity.getUserId(), entity.getContextId() );
 
-            if ( StringUtils.isNotEmpty( entity.getOu() ) )
-            {
-                myEntry.add( SchemaConstants.OU_AT, entity.getOu() );
-            }
+        Entry myEntry = new DefaultEntry( dn );
 
-            if ( StringUtils.isNotEmpty( entity.getDescription() ) )
-            {
-                myEntry.add( SchemaConstants.DESCRIPTION_AT, entity.getDescription() );
-            }
+        myEntry.add( SchemaConstants.OBJECT_CLASS_AT, getUserObjectClass() );
+        myEntry.add( GlobalIds.FT_IID, entity.getInternalId() );
+        myEntry.add( SchemaConstants.UID_AT, entity.getUserId() );
 
-            // props are optional as well:
-            // Add "initial" property here.
-            entity.addProperty( "init", "" );
-            loadProperties( entity.getProperties(), myEntry, GlobalIds.PROPS );
-            // map the userid to the name field in constraint:
-            entity.setName( entity.getUserId() );
-            myEntry.add( GlobalIds.CONSTRAINT, ConstraintUtil.setConstraint( entity ) );
-            loadAddress( entity.getAddress(), myEntry );
+        // CN is required on inetOrgPerson object class, if caller did not set, use the userId:
+        if ( StringUtils.isEmpty( entity.getCn() ) )
+        {
+            entity.setCn( entity.getUserId() );
+        }
 
-            if ( ArrayUtils.isNotEmpty( entity.getJpegPhoto() ) )
-            {
-                myEntry.add( JPEGPHOTO, entity.getJpegPhoto() );
-            }
+        myEntry.add( SchemaConstants.CN_AT, entity.getCn() );
 
-            // Load the posixAccount attributes required by the RFC2307bis (proposed) IETF standard:
-            if ( IS_RFC2307 )
-            {
-                loadPosixIds( entity );
+        // SN is required on inetOrgPerson object class, if caller did not set, use the userId:
+        if ( StringUtils.isEmpty( entity.getSn() ) )
+        {
+            entity.setSn( entity.getUserId() );
+        }
 
-                // required on PosixAccount:
-                myEntry.add( GlobalIds.UID_NUMBER, entity.getUidNumber() );
-                myEntry.add( GlobalIds.GID_NUMBER, entity.getGidNumber() );
+        myEntry.add( SchemaConstants.SN_AT, entity.getSn() );
 
-                // if not set, generate a sensible default:
-                if ( StringUtils.isEmpty( entity.getHomeDirectory() ) )
-                {
-                    entity.setHomeDirectory( "/home/" + entity.getUserId() );
-                }
+        if( StringUtils.isNotEmpty( entity.getPassword() ))
+        {
+            myEntry.add( SchemaConstants.USER_PASSWORD_AT, entity.getPassword() );
+        }
+        else if( !Config.getInstance().getBoolean( GlobalIds.USER_CREATION_PASSWORD_FIELD, false ) )
+        {
+            myEntry.add( SchemaConstants.USER_PASSWORD_AT, new String() );
+        }
 
-                // Also required on PosixAccount:
-                myEntry.add( HOME_DIRECTORY, entity.getHomeDirectory() );
-            }
+        myEntry.add( SchemaConstants.DISPLAY_NAME_AT, StringUtils.isNotEmpty( entity.getDisplayName() ) ? entity.getDisplayName() : entity.getCn() );
 
-            ld = getAdminConnection();
-            add( ld, myEntry, entity, setRelaxControl );
-            entity.setDn( dn );
+        if ( StringUtils.isNotEmpty( entity.getTitle() ) )
+        {
+            myEntry.add( SchemaConstants.TITLE_AT, entity.getTitle() );
         }
-        catch ( LdapEntryAlreadyExistsException e )
+
+        if ( StringUtils.isNotEmpty( entity.getEmployeeType() ) )
         {
-            String error = "create userId [" + entity.getUserId() + "] failed, already exists in directory";
-            throw new CreateException( GlobalErrIds.USER_ADD_FAILED_ALREADY_EXISTS, error, e );
+            myEntry.add( EMPLOYEE_TYPE, entity.getEmployeeType() );
         }
-        catch ( LdapException e )
+
+        // These are multi-valued attributes, use the util function to load.
+        // These items are optional.  The utility function will return quietly if item list is empty:
+        loadAttrs( entity.getPhones(), myEntry, SchemaConstants.TELEPHONE_NUMBER_AT );
+        loadAttrs( entity.getMobiles(), myEntry, MOBILE );
+        loadAttrs( entity.getEmails(), myEntry, SchemaConstants.MAIL_AT );
+
+        // The following attributes are optional:
+        if ( entity.isSystem() != null )
         {
-            String error = "create userId [" + entity.getUserId() + "] caught LDAPException=" + e;
-            throw new CreateException( GlobalErrIds.USER_ADD_FAILED, error, e );
+            myEntry.add( SYSTEM_USER, entity.isSystem().toString().toUpperCase() );
         }
-        finally
+
+        // If password policy is set and either openldap or apacheds in use:
+        if ( isPwPolicySet( entity ) )
         {
-            closeAdminConnection( ld );
+            myEntry.add( OPENLDAP_POLICY_SUBENTRY, PolicyDAO.getPolicyDn( entity ) );
         }
 
-        return entity;
+        if ( StringUtils.isNotEmpty( entity.getOu() ) )
+        {
+            myEntry.add( SchemaConstants.OU_AT, entity.getOu() );
+        }
+
+        if ( StringUtils.isNotEmpty( entity.getDescription() ) )
+        {
+            myEntry.add( SchemaConstants.DESCRIPTION_AT, entity.getDescription() );
+        }
+
+        // props are optional as well:
+        // Add "initial" property here.
+        entity.addProperty( "init", "" );
+        loadProperties( entity.getProperties(), myEntry, GlobalIds.PROPS );
+        // map the userid to the name field in constraint:
+        entity.setName( entity.getUserId() );
+        myEntry.add( GlobalIds.CONSTRAINT, ConstraintUtil.setConstraint( entity ) );
+        loadAddress( entity.getAddress(), myEntry );
+
+        if ( ArrayUtils.isNotEmpty( entity.getJpegPhoto() ) )
+        {
+            myEntry.add( JPEGPHOTO, entity.getJpegPhoto() );
+        }
+
+        // Load the posixAccount attributes required by the RFC2307bis (proposed) IETF standard:
+        if ( IS_RFC2307 )
+        {
+            loadPosixIds( entity );
+
+            // required on PosixAccount:
+            myEntry.add( GlobalIds.UID_NUMBER, entity.getUidNumber() );
+            myEntry.add( GlobalIds.GID_NUMBER, entity.getGidNumber() );
+
+            // if not set, generate a sensible default:
+            if ( StringUtils.isEmpty( entity.getHomeDirectory() ) )
+            {
+                entity.setHomeDirectory( "/home/" + entity.getUserId() );
+            }
+
+            // Also required on PosixAccount:
+            myEntry.add( HOME_DIRECTORY, entity.getHomeDirectory() );
+        }
+
+        return myEntry;
     }
 
 
+    /**
+     * Return true if a password policy is set on the user and either openldap or apacheds in use.  The entry will need
+     * the relax control to write the policy subentry attribute.
+     *
+     * @param entity contains the user.
+     * @return boolean true if the pwdPolicySubentry will be written.
+     */
+    private boolean isPwPolicySet( User entity )
+    {
+        return ( Config.getInstance().isOpenldap() || Config.getInstance().isApacheds() ) && StringUtils.isNotEmpty( entity.getPwPolicy() );
+    }
+
     /**
      * @param entity
      * @return
@@ -662,30 +766,45 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
      * @throws org.apache.directory.fortress.core.FinderException
      */
     User getUser( User user, boolean isRoles ) throws FinderException
+    {
+        // Retrieve the User's assigned RBAC and Admin Role attributes from directory?
+        return getUser( user, isRoles ? User.Profile.FULL : User.Profile.AUTHN );
+    }
+
+
+    /**
+     * Read a user entry, pulling back only the attributes of the given profile.
+     *
+     * @param user    contains the userId and contextId of the entry to read.
+     * @param profile names the attributes to read.
+     * @return User entity containing the attributes of the profile found on the entry.
+     * @throws org.apache.directory.fortress.core.FinderException if the user does not exist or the read fails.
+     */
+    User getUser( User user, User.Profile profile ) throws FinderException
     {
         User entity = null;
         LdapConnection ld = null;
-        String userDn = getDn( user.getUserId(), user.getContextId() );
+        Dn userDn = null;
 
         String[] uATTRS;
-        // Retrieve role attributes?
-
-        if ( isRoles )
+        switch ( profile )
         {
-            // Retrieve the User's assigned RBAC and Admin Role attributes from directory.
-            uATTRS = defaultAtrs;
-
-        }
-        else
-        {
-            // Do not retrieve the User's assigned RBAC and Admin Role attributes from directory.
-            uATTRS = authnAtrs;
+            case SESSION:
+                uATTRS = sessionAtrs;
+                break;
+            case AUTHN:
+                uATTRS = authnAtrs;
+                break;
+            default:
+                uATTRS = defaultAtrs;
+                break;
         }
 
         Entry findEntry = null;
 
         try
         {
+            userDn = getDnName( user.getUserId(), user.getContextId() );
             ld = getAdminConnection();
             findEntry = read( ld, userDn, uATTRS );
         }
@@ -727,6 +846,43 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
     }
 
 
+    /**
+     * Read the attribute that changes every time the user entry is updated, entryCSN on OpenLDAP and ApacheDS or
+     * modifyTimestamp otherwise, unless set by {@link GlobalIds#USER_VERSION_ATTR}.  It is returned in
+     * {@link User#getVersion()} by {@link #getUser(User, boolean)}, comparing the two tells if the entry changed since.
+     *
+     * @param user contains the userId of the entry to read.
+     * @return value of the attribute, null if the server does not return it.
+     * @throws org.apache.directory.fortress.core.FinderException if the user does not exist or the read fails.
+     */
+    String getVersion( User user ) throws FinderException
+    {
+        LdapConnection ld = null;
+        String userDn = getDn( user.getUserId(), user.getContextId() );
+
+        try
+        {
+            ld = getAdminConnection();
+            Entry findEntry = read( ld, userDn, new String[]{ versionAtr } );
+            return findEntry != null ? getAttribute( findEntry, versionAtr ) : null;
+        }
+        catch ( LdapNoSuchObjectException e )
+        {
+            String warning = "getVersion COULD NOT FIND ENTRY for user [" + user.getUserId() + "]";
+            throw new FinderException( GlobalErrIds.USER_NOT_FOUND, warning );
+        }
+        catch ( LdapException e )
+        {
+            String error = "getVersion [" + userDn + "]= caught LDAPException=" + e;
+            throw new FinderException( GlobalErrIds.USER_READ_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
     /**
      * @param user
      * @return
@@ -1017,7 +1173,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
 
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), defaultAtrs, false,
-                    Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) ) )
+                    Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1122,45 +1278,13 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
 
         try
         {
-            String roleVal = encodeSafeText( role.getName(), GlobalIds.USERID_LEN );
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( USERS_AUX_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(" );
-
+            String roleVal = checkSafeText( role.getName(), GlobalIds.USERID_LEN );
             Set<String> roles = RoleUtil.getInstance().getDescendants( role.getName(), role.getContextId() );
-
-            if ( CollectionUtils.isNotEmpty( roles ) )
-            {
-                filterbuf.append( "|(" );
-                filterbuf.append( USER_ROLE_ASSIGN );
-                filterbuf.append( "=" );
-                filterbuf.append( roleVal );
-                filterbuf.append( ")" );
-
-                for ( String uRole : roles )
-                {
-                    filterbuf.append( "(" );
-                    filterbuf.append( USER_ROLE_ASSIGN );
-                    filterbuf.append( "=" );
-                    filterbuf.append( uRole );
-                    filterbuf.append( ")" );
-                }
-
-                filterbuf.append( ")" );
-            }
-            else
-            {
-                filterbuf.append( USER_ROLE_ASSIGN );
-                filterbuf.append( "=" );
-                filterbuf.append( roleVal );
-                filterbuf.append( ")" );
-            }
-
-            filterbuf.append( ")" );
+            ExprNode filter = LdapFilter.and( LdapFilter.objectClass( USERS_AUX_OBJECT_CLASS_NAME ),
+                LdapFilter.anyOf( USER_ROLE_ASSIGN, roleVal, roles ) );
             ld = getAdminConnection();
-            try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), defaultAtrs, false,
-                Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+            try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filter, defaultAtrs, false,
+                Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1196,6 +1320,229 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
     }
 
 
+    /**
+     * Read the RBAC role assignments of every user of a tenant with paged searches, handing each user to the handler
+     * as it is read so the users are never all held at once.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param pageSize  contains the number of entries requested per page.
+     * @param handler   called with the userId and the names of the roles assigned to it, may be empty.
+     * @return number of users read.
+     * @throws FinderException in the event system error occurs.
+     */
+    long scanUserRoles( String contextId, int pageSize, BiConsumer<String, List<String>> handler )
+        throws FinderException
+    {
+        LdapConnection ld = null;
+        String userRoot = getRootDn( contextId, GlobalIds.USER_ROOT );
+
+        try
+        {
+            ld = getAdminConnection();
+            return searchPaged( ld, userRoot, SearchScope.ONELEVEL, LdapFilter.objectClass( Config.getInstance()
+                .getProperty( USER_OBJECT_CLASS ) ), USER_ROLE_ATRS, pageSize, entry -> handler.accept( getAttribute(
+                    entry, SchemaConstants.UID_AT ), getAttributes( entry, USER_ROLE_ASSIGN ) ) );
+        }
+        catch ( CursorException e )
+        {
+            String warning = "scanUserRoles caught CursorException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        catch ( LdapException e )
+        {
+            String warning = "scanUserRoles caught LdapException=" + e;
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+    }
+
+
+    /**
+     * Read the ou of each of the given users with a single search.
+     *
+     * @param userIds   contains the userIds, not empty.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return Map of lower case userId to ou, users not found are missing.
+     * @throws FinderException in the event system error occurs.
+     */
+    Map<String, String> getOus( Collection<String> userIds, String contextId ) throws FinderException
+    {
+        Map<String, String> ous = new HashMap<>();
+        LdapConnection ld = null;
+        String userRoot = getRootDn( contextId, GlobalIds.USER_ROOT );
+
+        try
+        {
+            for ( String userId : userIds )
+            {
+                checkSafeText( userId, GlobalIds.USERID_LEN );
+            }
+            ExprNode filter = LdapFilter.and( LdapFilter.objectClass( Config.getInstance().getProperty(
+                USER_OBJECT_CLASS ) ), LdapFilter.anyOf( SchemaConstants.UID_AT, userIds ) );
+            ld = getAdminConnection();
+            try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filter, USER_OU_ATRS, false,
+                userIds.size() ) )
+            {
+                while ( searchResults.next() )
+                {
+                    Entry entry = searchResults.getEntry();
+                    ous.put( getAttribute( entry, SchemaConstants.UID_AT ).toLowerCase(), getAttribute( entry,
+                        SchemaConstants.OU_AT ) );
+                }
+            }
+            catch ( IOException e )
+            {
+                String warning = "getOus caught IOException=" + e.getMessage();
+                throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+            }
+            catch ( CursorException e )
+            {
+                String warning = "getOus caught CursorException=" + e.getMessage();
+                throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+            }
+        }
+        catch ( LdapException e )
+        {
+            String warning = "getOus caught LdapException=" + e;
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+
+        return ous;
+    }
+
+
+    /**
+     * Follow the changes to the RBAC role assignments of a tenant's users with a persistent search, handing each
+     * changed user to the handler.  The method blocks, holding its own admin connection opened outside of the admin
+     * pool, until the search ends, fails or the calling thread is interrupted.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param handler   called with the userId and the names of the roles now assigned to it, null when the user was
+     *                  deleted.
+     * @param renamed   called before the handler when a user was renamed, whose previous userId is not known.
+     * @param started   called once the search has started, changes made from then on are handed to the handler.
+     * @return false without searching if the server does not support persistent searches, true after the search ends.
+     * @throws FinderException in the event system error occurs.
+     */
+    boolean listenUserRoles( String contextId, BiConsumer<String, List<String>> handler, Runnable renamed,
+        Runnable started ) throws FinderException
+    {
+        LdapConnection ld = null;
+        String userRoot = getRootDn( contextId, GlobalIds.USER_ROOT );
+
+        try
+        {
+            ld = getListenConnection();
+            if ( !isPersistentSearchSupported( ld ) )
+            {
+                return false;
+            }
+            searchPersistent( ld, userRoot, SearchScope.ONELEVEL, LdapFilter.objectClass( Config.getInstance()
+                .getProperty( USER_OBJECT_CLASS ) ), USER_ROLE_ATRS, started, ( entry, changeType ) ->
+                {
+                    if ( changeType == ChangeType.MODDN )
+                    {
+                        renamed.run();
+                    }
+                    handler.accept( getAttribute( entry, SchemaConstants.UID_AT ), changeType == ChangeType.DELETE
+                        ? null : getAttributes( entry, USER_ROLE_ASSIGN ) );
+                } );
+            return true;
+        }
+        catch ( LdapException e )
+        {
+            String warning = "listenUserRoles caught LdapException=" + e;
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        finally
+        {
+            closeListenConnection( ld );
+        }
+    }
+
+
+    /**
+     * Read the given users, searching for at most {@link Config#getMaxBatchSize()} of them at a time.
+     *
+     * @param userIds   contains the userIds.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type User containing fully populated matching User entities, users not found are missing.
+     * @throws FinderException in the event system error occurs.
+     */
+    List<User> getUsers( Collection<String> userIds, String contextId ) throws FinderException
+    {
+        List<User> userList = new ArrayList<>( userIds.size() );
+        LdapConnection ld = null;
+        String userRoot = getRootDn( contextId, GlobalIds.USER_ROOT );
+        int chunkSize = Math.max( 1, Config.getInstance().getMaxBatchSize() );
+
+        try
+        {
+            ld = getAdminConnection();
+            List<String> chunk = new ArrayList<>( Math.min( chunkSize, userIds.size() ) );
+            long sequence = 0;
+            for ( String userId : userIds )
+            {
+                chunk.add( checkSafeText( userId, GlobalIds.USERID_LEN ) );
+                if ( chunk.size() == chunkSize )
+                {
+                    sequence = getUsers( ld, userRoot, chunk, contextId, sequence, userList );
+                    chunk.clear();
+                }
+            }
+            if ( !chunk.isEmpty() )
+            {
+                getUsers( ld, userRoot, chunk, contextId, sequence, userList );
+            }
+        }
+        catch ( IOException e )
+        {
+            String warning = "getUsers caught IOException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        catch ( CursorException e )
+        {
+            String warning = "getUsers caught CursorException=" + e.getMessage();
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        catch ( LdapException e )
+        {
+            String warning = "getUsers caught LdapException=" + e;
+            throw new FinderException( GlobalErrIds.USER_SEARCH_FAILED, warning, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+
+        return userList;
+    }
+
+
+    private long getUsers( LdapConnection ld, String userRoot, List<String> userIds, String contextId, long sequence,
+        List<User> userList ) throws LdapException, CursorException, IOException
+    {
+        ExprNode filter = LdapFilter.and( LdapFilter.objectClass( Config.getInstance().getProperty(
+            USER_OBJECT_CLASS ) ), LdapFilter.anyOf( SchemaConstants.UID_AT, userIds ) );
+        try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filter, defaultAtrs, false,
+            userIds.size() ) )
+        {
+            while ( searchResults.next() )
+            {
+                userList.add( unloadLdapEntry( searchResults.getEntry(), sequence++, contextId ) );
+            }
+        }
+        return sequence;
+    }
+
+
     /**
      * @param role
      * @param roleConstraint
@@ -1232,7 +1579,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
             
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), defaultAtrs, false,
-                Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1295,7 +1642,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
             
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), defaultAtrs, false,
-                Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                Config.getInstance().getMaxBatchSize() ) )
             {
                 while ( searchResults.next() )
                 {
@@ -1372,7 +1719,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
 
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), USERID_ATR, false,
-                Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                Config.getInstance().getMaxBatchSize() ) )
             {
                 while ( searchResults.next() )
                 {
@@ -1445,7 +1792,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
             filterbuf.append( "))" );
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), USERID_ATRS,
-                false, Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                false, Config.getInstance().getMaxBatchSize() ) )
             {
                 while ( searchResults.next() )
                 {
@@ -1502,7 +1849,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
 
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), defaultAtrs, false,
-                Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1552,18 +1899,11 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
 
         try
         {
-            String roleVal = encodeSafeText( role.getName(), GlobalIds.USERID_LEN );
-            StringBuilder filterbuf = new StringBuilder();
-            filterbuf.append( GlobalIds.FILTER_PREFIX );
-            filterbuf.append( USERS_AUX_OBJECT_CLASS_NAME );
-            filterbuf.append( ")(" );
-            filterbuf.append( USER_ROLE_ASSIGN );
-            filterbuf.append( "=" );
-            filterbuf.append( roleVal );
-            filterbuf.append( "))" );
+            ExprNode filter = LdapFilter.and( LdapFilter.objectClass( USERS_AUX_OBJECT_CLASS_NAME ),
+                LdapFilter.equal( USER_ROLE_ASSIGN, checkSafeText( role.getName(), GlobalIds.USERID_LEN ) ) );
 
             ld = getAdminConnection();
-            try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), USERID,
+            try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filter, USERID,
                 false, limit ) )
             {
                 while ( searchResults.next() )
@@ -1625,7 +1965,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
 
             ld = getAdminConnection();
             try ( SearchCursor searchResults = search( ld, userRoot, SearchScope.ONELEVEL, filterbuf.toString(), defaultAtrs, false,
-                Config.getInstance().getInt(GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE ) ) )
+                Config.getInstance().getMaxBatchSize() ) )
             {
                 long sequence = 0;
                 while ( searchResults.next() )
@@ -1912,6 +2252,68 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
         return userDn;
     }
 
+    /**
+     * Assign a batch of roles to users.  Assignments that target the same user are grouped into a single modify and
+     * the modifies are sent over one connection using pipelined requests.
+     *
+     * @param uRoles contains the userId and role name of each assignment.
+     * @return List of results, one per input assignment, in the same order as the input.
+     * @throws UpdateException in the event of system error obtaining the connection.
+     */
+    List<BatchResult> assign( List<UserRole> uRoles ) throws UpdateException
+    {
+        List<String> dns = new ArrayList<>( uRoles.size() );
+        List<List<Modification>> mods = new ArrayList<>( uRoles.size() );
+        for ( UserRole uRole : uRoles )
+        {
+            List<Modification> uRoleMods = new ArrayList<Modification>();
+            uRoleMods.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE, GlobalIds.USER_ROLE_DATA,
+                uRole.getRawData() ) );
+            uRoleMods.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE, USER_ROLE_ASSIGN, uRole
+                .getName() ) );
+            dns.add( getDn( uRole.getUserId(), uRole.getContextId() ) );
+            mods.add( uRoleMods );
+        }
+        List<BatchResult> results = new ArrayList<>( uRoles.size() );
+        LdapConnection ld = null;
+        try
+        {
+            ld = getAdminConnection();
+            List<LdapResult> ldapResults = modifyBatch( ld, dns, mods, uRoles );
+            for ( int i = 0; i < uRoles.size(); i++ )
+            {
+                UserRole uRole = uRoles.get( i );
+                LdapResult ldapResult = ldapResults.get( i );
+                String warning = "assign userId [" + uRole.getUserId() + "] name [" + uRole.getName() + "] ";
+                if ( ldapResult.getResultCode() == ResultCodeEnum.SUCCESS )
+                {
+                    results.add( new BatchResult( uRole ) );
+                }
+                else if ( ldapResult.getResultCode() == ResultCodeEnum.ATTRIBUTE_OR_VALUE_EXISTS )
+                {
+                    results.add( new BatchResult( uRole, GlobalErrIds.URLE_ASSIGN_EXIST, warning
+                        + "assignment already exists." ) );
+                }
+                else
+                {
+                    results.add( new BatchResult( uRole, GlobalErrIds.URLE_ASSIGN_FAILED, warning
+                        + "failed, result code [" + ldapResult.getResultCode() + "] msg ["
+                        + ldapResult.getDiagnosticMessage() + "]" ) );
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            String error = "assign users caught LDAPException=" + e;
+            throw new UpdateException( GlobalErrIds.URLE_ASSIGN_FAILED, error, e );
+        }
+        finally
+        {
+            closeAdminConnection( ld );
+        }
+        return results;
+    }
+
     /**
      * @param uRole
      * @param roleConstraint
@@ -2240,6 +2642,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
         entity.setDisplayName( getAttribute( entry, SchemaConstants.DISPLAY_NAME_AT ) );
         entity.setTitle( getAttribute( entry, SchemaConstants.TITLE_AT ) );
         entity.setEmployeeType( getAttribute( entry, EMPLOYEE_TYPE ) );
+        entity.setVersion( getAttribute( entry, versionAtr ) );
         unloadTemporal( entry, entity );
         entity.setRoles( unloadUserRoles( entry, entity.getUserId(), contextId, null ) );
         entity.setAdminRoles( unloadUserAdminRoles( entry, entity.getUserId(), contextId ) );
@@ -2291,17 +2694,21 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
 
 
     /**
-     * @param userId
-     * @return
-     * @throws FinderException
+     * Read only the RBAC role assignments of a user, with their temporal and role constraints.
+     *
+     * @param userId    contains the id of the user.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return List of type UserRole assigned to the user, may be empty.
+     * @throws FinderException in the event the user is not found or system error occurs.
      */
-    private List<UserRole> getUserRoles( String userId, String contextId ) throws FinderException
+    List<UserRole> getUserRoles( String userId, String contextId ) throws FinderException
     {
         List<UserRole> roles = null;
         LdapConnection ld = null;
-        String userDn = getDn( userId, contextId );
+        Dn userDn = null;
         try
         {
+            userDn = getDnName( userId, contextId );
             ld = getAdminConnection();
             Entry findEntry = read( ld, userDn, ROLE_ATR );
             roles = unloadUserRoles( findEntry, userId, contextId, null );
@@ -2636,7 +3043,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
         if ( roles != null )
         {
             long sequence = 0;
-            uRoles = new ArrayList<>();
+            uRoles = new RoleList<>();
 
             for ( String raw : roles )
             {
@@ -2661,47 +3068,48 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
     private void loadPosixIds( User entity ) throws CreateException
     {
         // Were the id numbers passed in or do we need to generate?
-        if ( StringUtils.isEmpty( entity.getUidNumber() ) || StringUtils.isEmpty( entity.getGidNumber() ) )
+        try
         {
-            // Contains list of which attr names to load:
-            List<String> idNumbers = new ArrayList<>();
             if ( StringUtils.isEmpty( entity.getUidNumber() ) )
             {
-                idNumbers.add( GlobalIds.UID_NUMBER );
+                entity.setUidNumber( PosixIdAllocator.getInstance( GlobalIds.UID_NUMBER ).next() );
             }
             if ( StringUtils.isEmpty( entity.getGidNumber() ) )
             {
-                idNumbers.add( GlobalIds.GID_NUMBER );
-            }
-            Configuration configuration;
-            try
-            {
-                configuration = Config.getInstance().getIncrementReplacePosixIds( idNumbers, this );
-            }
-            catch ( CfgException ce )
-            {
-                String error = "create user caught CfgException replacing an ID prop:" + ce.getMessage();
-                throw new CreateException( GlobalErrIds.USER_ADD_FAILED, error, ce );
-            }
-            if ( StringUtils.isEmpty( entity.getUidNumber() ) )
-            {
-                entity.setUidNumber( configuration.getUidNumber() );
-            }
-            if ( StringUtils.isEmpty( entity.getGidNumber() ) )
-            {
-                entity.setGidNumber( configuration.getGidNumber() );
+                entity.setGidNumber( PosixIdAllocator.getInstance( GlobalIds.GID_NUMBER ).next() );
             }
         }
+        catch ( SecurityException se )
+        {
+            String error = "create user caught SecurityException allocating an ID prop:" + se.getMessage();
+            throw new CreateException( GlobalErrIds.USER_ADD_FAILED, error, se );
+        }
+    }
+
+    /**
+     * @param userId
+     * @param contextId
+     * @return
+     */
+    String getDn( String userId, String contextId )
+    {
+        return SchemaConstants.UID_AT + "=" + Rdn.escapeValue( userId ) + "," + getRootDn( contextId,
+            GlobalIds.USER_ROOT );
     }
 
+
     /**
+     * Same as {@link #getDn(String, String)} but built on the cached dn of the user container, so the read paths
+     * do not parse the dn again.
+     *
      * @param userId
      * @param contextId
      * @return
+     * @throws LdapInvalidDnException if the dn is not valid.
      */
-    private String getDn( String userId, String contextId )
+    private Dn getDnName( String userId, String contextId ) throws LdapInvalidDnException
     {
-        return SchemaConstants.UID_AT + "=" + userId + "," + getRootDn( contextId, GlobalIds.USER_ROOT );
+        return getChildDn( getRootDnName( contextId, GlobalIds.USER_ROOT ), SchemaConstants.UID_AT, userId );
     }
 
 
@@ -2717,6 +3125,22 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
      * @return List of type {@link UserRole} containing RBAC roles assigned to a particular user.
      */
     private List<UserRole> unloadUserRoles( Entry entry, String userId, String contextId, String roleNameFilter )
+    {
+        TraceSpan span = Tracer.startPhase( "unloadUserRoles" );
+        List<UserRole> userRoles = null;
+        try
+        {
+            userRoles = parseUserRoles( entry, userId, contextId, roleNameFilter );
+            return userRoles;
+        }
+        finally
+        {
+            Tracer.end( span, userRoles == null ? -1 : userRoles.size(), null );
+        }
+    }
+
+
+    private List<UserRole> parseUserRoles( Entry entry, String userId, String contextId, String roleNameFilter )
     {
         Map<String, UserRole> uRoles = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
         List<String> roles = getAttributes( entry, GlobalIds.USER_ROLE_DATA );
@@ -2752,7 +3176,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
             }
         }
 
-        return new ArrayList<UserRole>( uRoles.values() );
+        return new RoleList<>( uRoles.values() );
     }
 
 
@@ -2793,6 +3217,9 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
      */
     private void initAttrArrays()
     {
+        versionAtr = Config.getInstance().getProperty( GlobalIds.USER_VERSION_ATTR,
+            Config.getInstance().isOpenldap() || Config.getInstance().isApacheds() ? SchemaConstants.ENTRY_CSN_AT
+                : SchemaConstants.MODIFY_TIMESTAMP_AT );
         if ( Config.getInstance().isOpenldap() || Config.getInstance().isApacheds() )
         {
             // This default set of attributes contains all and is used for search operations.
@@ -2805,6 +3232,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
                     SchemaConstants.OU_AT,
                     SchemaConstants.CN_AT,
                     SchemaConstants.SN_AT,
+                    versionAtr,
                     GlobalIds.USER_ROLE_DATA,
                     GlobalIds.CONSTRAINT,
                     USER_ROLE_ASSIGN,
@@ -2834,6 +3262,27 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
                     IS_RFC2307 ? GlobalIds.GID_NUMBER : null,
                     IS_RFC2307 ? GlobalIds.UID_NUMBER : null };
 
+            // The attributes needed to build a session, leaves out the large ones like the photo:
+            sessionAtrs = new String[]
+                {
+                    GlobalIds.FT_IID,
+                    SchemaConstants.UID_AT,
+                    SchemaConstants.DESCRIPTION_AT,
+                    SchemaConstants.OU_AT,
+                    SchemaConstants.CN_AT,
+                    SchemaConstants.SN_AT,
+                    versionAtr,
+                    GlobalIds.USER_ROLE_DATA,
+                    GlobalIds.CONSTRAINT,
+                    USER_ROLE_ASSIGN,
+                    OPENLDAP_PW_RESET,
+                    OPENLDAP_PW_LOCKED_TIME,
+                    OPENLDAP_POLICY_SUBENTRY,
+                    GlobalIds.PROPS,
+                    GlobalIds.USER_ADMINROLE_ASSIGN,
+                    GlobalIds.USER_ADMINROLE_DATA,
+                    SYSTEM_USER };
+
             // This smaller result set of attributes are needed for user validation and authentication operations.
             authnAtrs = new String[]
                 {
@@ -2844,6 +3293,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
                     SchemaConstants.OU_AT,
                     SchemaConstants.CN_AT,
                     SchemaConstants.SN_AT,
+                    versionAtr,
                     GlobalIds.CONSTRAINT,
                     OPENLDAP_PW_RESET,
                     OPENLDAP_PW_LOCKED_TIME,
@@ -2861,6 +3311,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
                     SchemaConstants.OU_AT,
                     SchemaConstants.CN_AT,
                     SchemaConstants.SN_AT,
+                    versionAtr,
                     GlobalIds.USER_ROLE_DATA,
                     GlobalIds.CONSTRAINT,
                     USER_ROLE_ASSIGN,
@@ -2887,6 +3338,24 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
                     IS_RFC2307 ? GlobalIds.UID_NUMBER : null
                 };
 
+            // The attributes needed to build a session, leaves out the large ones like the photo:
+            sessionAtrs = new String[]
+                {
+                    GlobalIds.FT_IID,
+                    SchemaConstants.UID_AT,
+                    SchemaConstants.DESCRIPTION_AT,
+                    SchemaConstants.OU_AT,
+                    SchemaConstants.CN_AT,
+                    SchemaConstants.SN_AT,
+                    versionAtr,
+                    GlobalIds.USER_ROLE_DATA,
+                    GlobalIds.CONSTRAINT,
+                    USER_ROLE_ASSIGN,
+                    GlobalIds.PROPS,
+                    GlobalIds.USER_ADMINROLE_ASSIGN,
+                    GlobalIds.USER_ADMINROLE_DATA,
+                    SYSTEM_USER };
+
             // This smaller result set of attributes are needed for user validation and authentication operations.
             authnAtrs = new String[]
                 {
@@ -2897,6 +3366,7 @@ final class UserDAO extends LdapDataProvider implements PropUpdater
                     SchemaConstants.OU_AT,
                     SchemaConstants.CN_AT,
                     SchemaConstants.SN_AT,
+                    versionAtr,
                     GlobalIds.CONSTRAINT,
                     GlobalIds.PROPS };
         }
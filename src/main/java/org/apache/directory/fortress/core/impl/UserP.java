@@ -21,12 +21,21 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.FinderException;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.PasswordException;
@@ -34,12 +43,14 @@ import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
 import org.apache.directory.fortress.core.model.AdminRole;
 import org.apache.directory.fortress.core.model.Administrator;
+import org.apache.directory.fortress.core.model.BatchResult;
 import org.apache.directory.fortress.core.model.ConstraintUtil;
 import org.apache.directory.fortress.core.model.ObjectFactory;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.PwPolicy;
 import org.apache.directory.fortress.core.model.Role;
 import org.apache.directory.fortress.core.model.RoleConstraint;
+import org.apache.directory.fortress.core.model.RoleList;
 import org.apache.directory.fortress.core.model.RoleConstraint.RCType;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
@@ -47,6 +58,8 @@ import org.apache.directory.fortress.core.model.UserAdminRole;
 import org.apache.directory.fortress.core.model.UserRole;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.VUtil;
+import org.apache.directory.fortress.core.util.cache.Cache;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +77,9 @@ import org.slf4j.LoggerFactory;
  *  or {@link org.apache.directory.fortress.core.ValidationException} as {@link SecurityException}s with appropriate
  * error id from {@link org.apache.directory.fortress.core.GlobalErrIds}.
  * <p>
+ * The role constraints returned by {@link #findRoleConstraints(Set, User, RCType, Set)} are kept per user in the
+ * {@code fortress.roleconstraints} cache region until the user is changed.
+ * <p>
  * This class is thread safe.
  * <p>
  *
@@ -73,6 +89,9 @@ final class UserP
 {
     private static final String CLS_NM = UserP.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final String FORTRESS_ROLE_CONSTRAINTS = "fortress.roleconstraints";
+    // bumped on every change to a user so role constraints read while it was being changed are not cached:
+    private static final AtomicLong RC_GENERATION = new AtomicLong();
     private UserDAO uDao = new UserDAO();
     private PolicyP policyP = new PolicyP();
     private AdminRoleP admRoleP = new AdminRoleP();
@@ -121,6 +140,20 @@ final class UserP
      */
     List<User> getAuthorizedUsers( Role role ) throws SecurityException
     {
+        if ( RoleUserIndex.getInstance().isEnabled() )
+        {
+            Set<String> roles = new HashSet<>( RoleUtil.getInstance().getDescendants( role.getName(),
+                role.getContextId() ) );
+            roles.add( role.getName() );
+            Set<String> userIds = RoleUserIndex.getInstance().getUserIds( roles, role.getContextId() );
+            // the search this replaces returned at most max batch size users:
+            int limit = Config.getInstance().getMaxBatchSize();
+            if ( limit > 0 && userIds.size() > limit )
+            {
+                userIds = userIds.stream().limit( limit ).collect( Collectors.toSet() );
+            }
+            return userIds.isEmpty() ? new ArrayList<>() : uDao.getUsers( userIds, role.getContextId() );
+        }
         return uDao.getAuthorizedUsers( role );
     }
 
@@ -135,6 +168,14 @@ final class UserP
      */
     Set<String> getAssignedUsers( Set<String> roles, String contextId ) throws SecurityException
     {
+        if ( CollectionUtils.isNotEmpty( roles ) )
+        {
+            Set<String> userIds = RoleUserIndex.getInstance().getUserIds( roles, contextId );
+            if ( userIds != null )
+            {
+                return userIds;
+            }
+        }
         return uDao.getAssignedUsers( roles, contextId );
     }
 
@@ -252,6 +293,78 @@ final class UserP
     }
 
 
+    /**
+     * Return a User entity for a given userId holding the attributes of the given profile.  If the User entry is not
+     * found a SecurityException will be thrown.
+     *
+     * @param user    contains full userId value.
+     * @param profile names the attributes to read, i.e. {@link User.Profile#SESSION} for role activation.
+     * @return User entity containing the attributes of the profile.
+     * @throws SecurityException in the event of User not found or DAO search error.
+     */
+    User read( User user, User.Profile profile ) throws SecurityException
+    {
+        return uDao.getUser( user, profile );
+    }
+
+
+    /**
+     * Read the RBAC role assignments of every user of a tenant, handing each user to the handler as it is read.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param pageSize  contains the number of users requested per page.
+     * @param handler   called with the userId and the names of the roles assigned to it.
+     * @return number of users read.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    long scanUserRoles( String contextId, int pageSize, BiConsumer<String, List<String>> handler )
+        throws SecurityException
+    {
+        return uDao.scanUserRoles( contextId, pageSize, handler );
+    }
+
+
+    /**
+     * Follow the changes to the RBAC role assignments of a tenant's users, blocking until the persistent search ends.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @param handler   called with the userId and the names of the roles now assigned to it, null for a deleted user.
+     * @param renamed   called before the handler when a user was renamed, whose previous userId is not known.
+     * @param started   called once the search has started, changes made from then on are handed to the handler.
+     * @return false if the server does not support persistent searches.
+     * @throws SecurityException in the event of DAO search error.
+     */
+    boolean listenUserRoles( String contextId, BiConsumer<String, List<String>> handler, Runnable renamed,
+        Runnable started ) throws SecurityException
+    {
+        return uDao.listenUserRoles( contextId, handler, renamed, started );
+    }
+
+
+    /**
+     * Return the ou of each of the given users, read with a single search.  If one of the User entries is not found a
+     * SecurityException will be thrown.
+     *
+     * @param userIds   contains full userId values.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return Map of lower case userId to the ou of the user.
+     * @throws SecurityException in the event of User not found or DAO search error.
+     */
+    Map<String, String> readOus( Collection<String> userIds, String contextId ) throws SecurityException
+    {
+        Map<String, String> ous = uDao.getOus( userIds, contextId );
+        for ( String userId : userIds )
+        {
+            if ( !ous.containsKey( userId.toLowerCase() ) )
+            {
+                String warning = "readOus no entry found userId [" + userId + "]";
+                throw new FinderException( GlobalErrIds.USER_NOT_FOUND, warning );
+            }
+        }
+        return ous;
+    }
+
+
     /**
      * Adds a new User entity to directory.  The User entity input object will be validated to ensure that:
      * userId is present, orgUnitId is valid, roles (optiona) are valid, reasonability checks on all of the
@@ -286,11 +399,55 @@ final class UserP
         }
 
         entity = uDao.create( entity );
+        indexRoles( entity );
 
         return entity;
     }
 
 
+    /**
+     * Adds a batch of new User entities to directory.  Every User is validated as described in {@link #add(User)}.  Users
+     * that fail validation are not sent to the directory, the remaining ones are added using pipelined requests.
+     *
+     * @param entities contains the Users targeted for insertion.
+     * @return List of results, one per input User, in the same order as the input.
+     * @throws SecurityException in the event of DAO system error.
+     */
+    List<BatchResult> add( List<User> entities ) throws SecurityException
+    {
+        BatchResult[] results = new BatchResult[entities.size()];
+        List<User> validUsers = new ArrayList<>( entities.size() );
+        List<Integer> validIdxs = new ArrayList<>( entities.size() );
+        for ( int i = 0; i < entities.size(); i++ )
+        {
+            User entity = entities.get( i );
+            try
+            {
+                validate( entity, false );
+                validUsers.add( entity );
+                validIdxs.add( i );
+            }
+            catch ( SecurityException se )
+            {
+                results[i] = new BatchResult( entity, se.getErrorId(), se.getMessage() );
+            }
+        }
+        if ( !validUsers.isEmpty() )
+        {
+            List<BatchResult> daoResults = uDao.create( validUsers );
+            for ( int i = 0; i < validIdxs.size(); i++ )
+            {
+                results[validIdxs.get( i )] = daoResults.get( i );
+                if ( daoResults.get( i ).isSuccess() )
+                {
+                    indexRoles( validUsers.get( i ) );
+                }
+            }
+        }
+        return Arrays.asList( results );
+    }
+
+
     /**
      * Update existing user's attributes with the input entity.  Null or empty attributes will be ignored.
      * This method will ignore userId as input as change userId is not allowed.  If password is changed
@@ -340,6 +497,8 @@ final class UserP
             validate( entity, true );
         }
         entity = uDao.update( entity );
+        clearCaches( entity.getUserId(), entity.getContextId() );
+        indexRoles( entity );
         return entity;
     }
 
@@ -365,6 +524,7 @@ final class UserP
         }
         user.setDescription( "DELETED" );
         User outUser = uDao.update( user );
+        clearCaches( user.getUserId(), user.getContextId() );
         return outUser.getDn();
     }
 
@@ -388,7 +548,10 @@ final class UserP
                 + "] can't be removed due to policy violation, rc=" + GlobalErrIds.USER_PLCY_VIOLATION;
             throw new SecurityException( GlobalErrIds.USER_PLCY_VIOLATION, warning );
         }
-        return uDao.remove( user );
+        String dn = uDao.remove( user );
+        clearCaches( user.getUserId(), user.getContextId() );
+        RoleUserIndex.getInstance().remove( user.getUserId(), user.getContextId() );
+        return dn;
     }
 
 
@@ -505,15 +668,14 @@ final class UserP
         {
             // Process selective activation of user's RBAC roles into session:
             List<UserRole> rlsActual = session.getRoles();
-            List<UserRole> rlsFinal = new ArrayList<>();
+            List<UserRole> rlsFinal = new RoleList<>();
             session.setRoles( rlsFinal );
             // Activate only the intersection between assigned and roles passed into this method:
             for ( UserRole role : user.getRoles() )
             {
-                int indx = rlsActual.indexOf( role );
-                if ( indx != -1 )
+                UserRole candidateRole = RoleList.find( rlsActual, role.getName() );
+                if ( candidateRole != null )
                 {
-                    UserRole candidateRole = rlsActual.get( indx );
                     rlsFinal.add( candidateRole );
                 }
             }
@@ -571,7 +733,7 @@ final class UserP
         throws SecurityException
     {
         // read user entity:
-        User user = read( inUser, true );
+        User user = read( inUser, User.Profile.SESSION );
         user.setContextId( inUser.getContextId() );
 
         // authenticate password, check pw policies and validate user temporal constraints:
@@ -593,7 +755,7 @@ final class UserP
     private Session createSessionTrusted( User inUser )
         throws SecurityException
     {
-        User user = read( inUser, true );
+        User user = read( inUser, User.Profile.SESSION );
         user.setContextId( inUser.getContextId() );
 
         if ( user.isLocked() )
@@ -613,6 +775,67 @@ final class UserP
     }
 
 
+    /**
+     * Bring the session up to date with the user entry.  Reads the version marker of the entry and only reloads the
+     * user when it differs from the one captured in the session, see
+     * {@link org.apache.directory.fortress.core.AccessMgr#refreshSession(Session)}.
+     *
+     * @param session contains the user and the roles activated, updated in place.
+     * @throws SecurityException in the event the user was removed or locked, fails a constraint or DAO error.
+     */
+    void refreshSession( Session session ) throws SecurityException
+    {
+        if ( session.isGroupSession() )
+        {
+            VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.ROLE, false );
+            return;
+        }
+        User current = session.getUser();
+        String version = uDao.getVersion( current );
+        if ( version != null && version.equals( current.getVersion() ) )
+        {
+            VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.USER, false );
+            VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.ROLE, false );
+            return;
+        }
+
+        User user = read( current, User.Profile.SESSION );
+        user.setContextId( current.getContextId() );
+        if ( user.isLocked() )
+        {
+            String warning = "refreshSession failed for userId [" + current.getUserId() + "] reason user is locked";
+            LOG.warn( warning );
+            throw new SecurityException( GlobalErrIds.USER_LOCKED_BY_CONST, warning );
+        }
+        // keep the active roles still assigned, with their latest constraints:
+        List<UserRole> roles = new RoleList<>();
+        for ( UserRole role : session.getRoles() )
+        {
+            UserRole assigned = RoleList.find( user.getRoles(), role.getName() );
+            if ( assigned != null )
+            {
+                roles.add( assigned );
+            }
+        }
+        List<UserAdminRole> adminRoles = new RoleList<>();
+        for ( UserAdminRole role : session.getAdminRoles() )
+        {
+            UserAdminRole assigned = RoleList.find( user.getAdminRoles(), role.getName() );
+            if ( assigned != null )
+            {
+                adminRoles.add( assigned );
+            }
+        }
+        user.setRoles( roles );
+        user.setAdminRoles( adminRoles );
+        // the dynamic constraints passed in on creation are kept:
+        user.setProps( current.getProps() );
+        session.setUser( user );
+        VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.USER, false );
+        VUtil.getInstance().validateConstraints( session, VUtil.ConstraintType.ROLE, true );
+    }
+
+
     /**
      * Method will set the OpenLDAP pwlocked attribute which will lock user from being able to signon to the system.
      *
@@ -622,6 +845,7 @@ final class UserP
     void lock( User user ) throws SecurityException
     {
         uDao.lock( user );
+        clearCaches( user.getUserId(), user.getContextId() );
     }
 
 
@@ -706,15 +930,76 @@ final class UserP
     {
         validate( uRole );
         // "assign" custom Fortress role data, i.e. temporal constraints, onto the user node:
-        return uDao.assign( uRole );
+        String dn = uDao.assign( uRole );
+        clearCaches( uRole.getUserId(), uRole.getContextId() );
+        RoleUserIndex.getInstance().assign( uRole.getUserId(), uRole.getName(), uRole.getContextId() );
+        return dn;
     }
     
+
+    /**
+     * This command assigns a batch of users to roles.  Every assignment is validated as described in
+     * {@link #assign(UserRole)}, assignments that target the same user are grouped into a single update.
+     *
+     * @param uRoles contains the userId and role name for the targeted assignments.
+     * @return List of results, one per input assignment, in the same order as the input.
+     * @throws SecurityException in the event of DAO system error.
+     */
+    List<BatchResult> assign( List<UserRole> uRoles ) throws SecurityException
+    {
+        BatchResult[] results = new BatchResult[uRoles.size()];
+        List<UserRole> validRoles = new ArrayList<>( uRoles.size() );
+        List<Integer> validIdxs = new ArrayList<>( uRoles.size() );
+        for ( int i = 0; i < uRoles.size(); i++ )
+        {
+            UserRole uRole = uRoles.get( i );
+            try
+            {
+                validate( uRole );
+                validRoles.add( uRole );
+                validIdxs.add( i );
+            }
+            catch ( ValidationException ve )
+            {
+                results[i] = new BatchResult( uRole, ve.getErrorId(), ve.getMessage() );
+            }
+        }
+        if ( !validRoles.isEmpty() )
+        {
+            List<BatchResult> daoResults = uDao.assign( validRoles );
+            for ( int i = 0; i < validIdxs.size(); i++ )
+            {
+                results[validIdxs.get( i )] = daoResults.get( i );
+                UserRole uRole = validRoles.get( i );
+                clearCaches( uRole.getUserId(), uRole.getContextId() );
+                if ( daoResults.get( i ).isSuccess() )
+                {
+                    RoleUserIndex.getInstance().assign( uRole.getUserId(), uRole.getName(), uRole.getContextId() );
+                }
+            }
+        }
+        return Arrays.asList( results );
+    }
+
+
+    /**
+     * Return the distinguished name of the user entry targeted by the assignment.
+     *
+     * @param uRole contains the userId and contextId.
+     * @return String containing the user's DN.
+     */
+    String getDn( UserRole uRole )
+    {
+        return uDao.getDn( uRole.getUserId(), uRole.getContextId() );
+    }
+
     //TODO: add documentation
     void assign( UserRole uRole, RoleConstraint roleConstraint ) throws SecurityException
     {        
         validate( roleConstraint, uRole.getContextId() );
         
         uDao.assign( uRole, roleConstraint );
+        clearCaches( uRole.getUserId(), uRole.getContextId() );
     }
     
     //TODO: add documentation, maybe change method name?
@@ -723,6 +1008,7 @@ final class UserP
         //TODO: validate?
         
         uDao.deassign( uRole, roleConstraint );
+        clearCaches( uRole.getUserId(), uRole.getContextId() );
     }
 
 
@@ -744,7 +1030,10 @@ final class UserP
     {
         validate( uRole );
         // "deassign" custom Fortress role data from the user's node:
-        return uDao.deassign( uRole );
+        String dn = uDao.deassign( uRole );
+        clearCaches( uRole.getUserId(), uRole.getContextId() );
+        RoleUserIndex.getInstance().deassign( uRole.getUserId(), uRole.getName(), uRole.getContextId() );
+        return dn;
     }
 
 
@@ -776,7 +1065,9 @@ final class UserP
     {
         validate( uRole );
         // Assign custom Fortress role data, i.e. temporal constraints, onto the user node:
-        return uDao.assign( uRole );
+        String dn = uDao.assign( uRole );
+        clearCaches( uRole.getUserId(), uRole.getContextId() );
+        return dn;
     }
 
 
@@ -796,7 +1087,9 @@ final class UserP
     {
         validate( uRole );
         // Deassign custom Fortress role data from the user's node:
-        return uDao.deassign( uRole );
+        String dn = uDao.deassign( uRole );
+        clearCaches( uRole.getUserId(), uRole.getContextId() );
+        return dn;
     }
 
 
@@ -986,8 +1279,7 @@ final class UserP
     {
         List<RoleConstraint> matchingConstraints = new ArrayList<RoleConstraint>();
         
-        //TODO: can we do this in a query?
-        List<UserRole> userRoles = uDao.getUser(user, true).getRoles();
+        List<UserRole> userRoles = getUserRoles( user );
         for(UserRole ur : userRoles){
             //only get constraints for passed in roles
             if(roles.contains(ur.getName()))
@@ -1004,4 +1296,68 @@ final class UserP
         
         return matchingConstraints;
     }
+
+
+    /**
+     * Return the role assignments of a user, with their role constraints, from the cache if present, otherwise read
+     * with only the role assignment attribute and cached.
+     */
+    private List<UserRole> getUserRoles( User user ) throws SecurityException
+    {
+        if ( StringUtils.isEmpty( user.getUserId() ) )
+        {
+            return uDao.getUserRoles( user.getUserId(), user.getContextId() );
+        }
+        Cache cache = CacheMgr.getInstance().getCache( FORTRESS_ROLE_CONSTRAINTS, user.getContextId() );
+        String key = user.getUserId().toLowerCase();
+        @SuppressWarnings("unchecked")
+        List<UserRole> userRoles = ( List<UserRole> ) cache.get( key );
+        if ( userRoles != null )
+        {
+            return userRoles;
+        }
+        long generation = RC_GENERATION.get();
+        try
+        {
+            List<UserRole> roles = uDao.getUserRoles( user.getUserId(), user.getContextId() );
+            userRoles = Collections.unmodifiableList( roles != null ? roles : new ArrayList<UserRole>() );
+            return userRoles;
+        }
+        finally
+        {
+            // the blocking cache holds a lock on the key until put, a null value releases it without caching:
+            cache.put( key, generation == RC_GENERATION.get() ? userRoles : null );
+        }
+    }
+
+
+    /**
+     * Replace the user's assignments in the role user index when the user was written with roles.
+     */
+    private static void indexRoles( User user )
+    {
+        if ( CollectionUtils.isNotEmpty( user.getRoles() ) )
+        {
+            List<String> roleNames = new ArrayList<>( user.getRoles().size() );
+            for ( UserRole uRole : user.getRoles() )
+            {
+                roleNames.add( uRole.getName() );
+            }
+            RoleUserIndex.getInstance().replace( user.getUserId(), roleNames, user.getContextId() );
+        }
+    }
+
+
+    /**
+     * Remove the cached sessions and role constraints of a user, called after every change to the user.
+     */
+    private static void clearCaches( String userId, String contextId )
+    {
+        SessionUtil.clear( userId, contextId );
+        if ( userId != null )
+        {
+            RC_GENERATION.incrementAndGet();
+            CacheMgr.getInstance().getCache( FORTRESS_ROLE_CONSTRAINTS, contextId ).clear( userId.toLowerCase() );
+        }
+    }
 }
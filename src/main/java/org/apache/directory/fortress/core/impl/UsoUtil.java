@@ -21,8 +21,11 @@ package org.apache.directory.fortress.core.impl;
 
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 //import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.*;
@@ -30,7 +33,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.ValidationException;
-import org.apache.directory.fortress.core.model.Graphable;
 import org.apache.directory.fortress.core.model.Hier;
 import org.apache.directory.fortress.core.model.OrgUnit;
 import org.apache.directory.fortress.core.model.Relationship;
@@ -43,7 +45,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This utility wraps {@link HierUtil} methods to provide hierarchical functionality using the {@link org.apache.directory.fortress.core.model.OrgUnit} data set for User type {@link org.apache.directory.fortress.core.model.OrgUnit.Type#USER}.
- * The {@code cn=Hierarchies, ou=OS-U} data contains User OU pools is stored within a data cache, {@link #usoCache}, contained within this class.  The parent-child edges are contained in LDAP,
+ * The {@code cn=Hierarchies, ou=OS-U} data contains User OU pools is stored within a data cache, {@link #getCache(String)}, contained within this class.  The parent-child edges are contained in LDAP,
  * in {@code ftParents} attribute.  The ldap data is retrieved {@link OrgUnitP#getAllDescendants(org.apache.directory.fortress.core.model.OrgUnit)} and loaded into {@code org.jgrapht.graph.SimpleDirectedGraph}.
  * The graph...
  * <ol>
@@ -63,12 +65,17 @@ import org.slf4j.LoggerFactory;
  */
 final class UsoUtil
 {
-    private Cache usoCache;
+    private static final String FORTRESS_USO = "fortress.uso";
     private OrgUnitP orgUnitP;
+    private final HierLoader loader = new HierLoader( HierUtil.Type.USO,
+        ( contextId, since ) -> orgUnitP.getDescendants( getOrgUnit( contextId ), since ) );
     private static final String CLS_NM = UsoUtil.class.getName();
     private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
 
     private static volatile UsoUtil sINSTANCE = null;
+    // stamps of the hierarchies currently loaded, one per tenant, changed every time a hierarchy is loaded or updated:
+    private static final AtomicLong STAMP_SEQ = new AtomicLong();
+    private final Map<String, Long> stamps = new ConcurrentHashMap<>();
 
     static UsoUtil getInstance()
     {
@@ -93,9 +100,6 @@ final class UsoUtil
     private void init()
     {
         orgUnitP = new OrgUnitP();
-    
-        CacheMgr cacheMgr = CacheMgr.getInstance();
-        usoCache = cacheMgr.getCache( "fortress.uso" );
     }
 
     /**
@@ -233,6 +237,7 @@ final class UsoUtil
     void updateHier( String contextId, Relationship relationship, Hier.Op op ) throws SecurityException
     {
         HierUtil.updateHier( getGraph( contextId ), relationship, op );
+        newStamp( contextId );
     }
 
 
@@ -245,33 +250,55 @@ final class UsoUtil
      */
     private synchronized SimpleDirectedGraph<String, Relationship> loadGraph( String contextId )
     {
-        Hier inHier = new Hier( Hier.Type.ROLE );
-        inHier.setContextId( contextId );
-        LOG.info( "loadGraph initializing USO context [{}]", inHier.getContextId() );
-        
-        List<Graphable> descendants = null;
-        try
-        {
-            OrgUnit orgUnit = new OrgUnit();
-            orgUnit.setType( OrgUnit.Type.USER );
-            orgUnit.setContextId( contextId );
-            descendants = orgUnitP.getAllDescendants( orgUnit );
-        }
-        catch ( SecurityException se )
-        {
-            LOG.info( "loadGraph caught SecurityException={}", se );
-        }
-        
-        Hier hier = HierUtil.loadHier( contextId, descendants );
-        SimpleDirectedGraph<String, Relationship> graph;
-        
-        graph = HierUtil.buildGraph( hier );
-        usoCache.put( getKey( contextId ), graph );
-        
+        SimpleDirectedGraph<String, Relationship> graph = loader.load( getKey( contextId ), contextId );
+        getCache( contextId ).put( getKey( contextId ), graph );
+        newStamp( contextId );
+
         return graph;
     }
 
 
+    private static OrgUnit getOrgUnit( String contextId )
+    {
+        OrgUnit orgUnit = new OrgUnit();
+        orgUnit.setType( OrgUnit.Type.USER );
+        orgUnit.setContextId( contextId );
+        return orgUnit;
+    }
+
+
+    /**
+     * Return the stamp of the tenant's user ou hierarchy, loading it first if needed.  The stamp changes every time the
+     * hierarchy is loaded or updated, so values derived from the hierarchy may be kept along with it.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return stamp of the tenant's user ou hierarchy, unique across tenants.
+     */
+    long getStamp( String contextId )
+    {
+        getGraph( contextId );
+        return stamps.computeIfAbsent( getKey( contextId ), k -> STAMP_SEQ.incrementAndGet() );
+    }
+
+
+    private void newStamp( String contextId )
+    {
+        stamps.put( getKey( contextId ), STAMP_SEQ.incrementAndGet() );
+    }
+
+
+    /**
+     * Load the user ou hierarchy of the tenant into the cache unless it is already present.  Called during startup
+     * so the first request does not pay for reading the hierarchy from ldap.
+     *
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     */
+    void preload( String contextId )
+    {
+        getGraph( contextId );
+    }
+
+
     /**
      *
      * @return handle to simple digraph containing user ou hierarchies.
@@ -281,7 +308,7 @@ final class UsoUtil
         String key = getKey( contextId );        
         LOG.debug("Getting graph for key " + contextId);
          
-        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) usoCache
+        SimpleDirectedGraph<String, Relationship> graph = ( SimpleDirectedGraph<String, Relationship> ) getCache( contextId )
                  .get( key );
              
         if(graph == null){
@@ -304,4 +331,14 @@ final class UsoUtil
         }
         return key;
     }
+
+
+    /**
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return this tenant's region of the user ou cache.
+     */
+    private Cache getCache( String contextId )
+    {
+        return CacheMgr.getInstance().getCache( FORTRESS_USO, contextId );
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.util.Config;
+
+
+/**
+ * Holds the parsed {@link Dn} of each fortress container, e.g. the user, role or permission root, per tenant and
+ * container.  The container dns are used on every ldap operation, so computing and parsing them once saves the DAOs
+ * from building and parsing the same strings over and over again.
+ * <p>
+ * Each cached value remembers the {@link Config#getVersion()} it was computed from.  Once config changes, the dn is
+ * computed again and replaces the old value on its next use.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class DnCache
+{
+    // tenant key -> container property name -> parsed dn
+    private final Map<String, Map<String, Parsed>> tenants = new ConcurrentHashMap<>();
+
+
+    /**
+     * Return the parsed dn of a container, computing it with {@link LdapDataProvider#getRootDn(String, String)} when it
+     * is missing or config has changed since.
+     *
+     * @param contextId maps to the tenant.
+     * @param root      contains the fortress parameter name that corresponds with the container.
+     * @return the parsed dn, shared between callers so it must not be changed.
+     * @throws LdapInvalidDnException if the dn cannot be parsed.
+     */
+    Dn get( String contextId, String root ) throws LdapInvalidDnException
+    {
+        // read before the dn is computed, so a change made meanwhile is picked up on next use:
+        long version = Config.getInstance().getVersion();
+        Map<String, Parsed> containers = tenants.computeIfAbsent( getKey( contextId ),
+            key -> new ConcurrentHashMap<>() );
+        Parsed parsed = containers.get( root );
+        if ( parsed == null || parsed.version != version )
+        {
+            parsed = new Parsed( version, new Dn( LdapDataProvider.getRootDn( contextId, root ) ) );
+            containers.put( root, parsed );
+        }
+        return parsed.dn;
+    }
+
+
+    private static String getKey( String contextId )
+    {
+        String key = StringUtils.isNotEmpty( contextId ) && !contextId.equalsIgnoreCase( GlobalIds.NULL ) ? contextId
+            : GlobalIds.HOME;
+        return key.toLowerCase();
+    }
+
+
+    /**
+     * A parsed dn along with the version of config it was computed from.
+     */
+    private static final class Parsed
+    {
+        private final long version;
+        private final Dn dn;
+
+
+        private Parsed( long version, Dn dn )
+        {
+            this.version = version;
+            this.dn = dn;
+        }
+    }
+}
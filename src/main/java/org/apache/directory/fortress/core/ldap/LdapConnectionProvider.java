@@ -34,19 +34,23 @@ import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.EncryptUtil;
+import org.apache.directory.fortress.core.util.trace.TraceSpan;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 import org.apache.directory.ldap.client.api.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This utility manages the LDAP connection pools and provides methods for adding / removing connections from the three pools.
+ * This utility manages the LDAP connection pools and provides methods for adding / removing connections from the four pools.
  * <ul>
  *   <li>Admin Connections - bound with ldap service account creds</li>
  *   <li>User Connections - unbound used for authentication</li>
  *   <li>Audit Log Connections - bound with slapo access log service account creds (OpenLDAP only)</li>
+ *   <li>Accelerator Connections - bound with ldap service account creds, carry RBAC Accelerator extended operations (OpenLDAP only)</li>
  * </ul>
  *
  * Each connection pool is initialized on first invocation of getInstance() which stores a reference to self used by subsequent callers.
+ * The statistics of every pool are returned by {@link #getPoolStats()}.
  * <p>
  * This class is not thread safe.
  *
@@ -73,6 +77,16 @@ public class LdapConnectionProvider
      */
     private static LdapConnectionPool userPool;
 
+    /**
+     * The RBAC Accelerator connection pool
+     */
+    private static LdapConnectionPool accelPool;
+
+    /**
+     * The admin connection config, used to open the connections held outside of the pools.
+     */
+    private static LdapConnectionConfig adminConfig;
+
     private static volatile LdapConnectionProvider sINSTANCE = null;
 
     /**
@@ -105,7 +119,7 @@ public class LdapConnectionProvider
     }
 
     /**
-     * Initialize the three connection pools using settings and coordinates contained in the config.
+     * Initialize the four connection pools using settings and coordinates contained in the config.
      */
     private void init()
     {
@@ -123,6 +137,10 @@ public class LdapConnectionProvider
         int maxConnBlockTime = Config.getInstance().getInt( GlobalIds.MAX_CONN_BLOCK_TIME, 5000 );
         int timeBetweenEvictionRunMillis = Config.getInstance().getInt( GlobalIds.LDAP_ADMIN_POOL_EVICT_RUN_MILLIS, 1000 * 60 * 30 );
         int logTimeBetweenEvictionRunMillis = Config.getInstance().getInt( GlobalIds.LDAP_LOG_POOL_EVICT_RUN_MILLIS, 1000 * 60 * 30 );
+        int accelmin = Config.getInstance().getInt( GlobalIds.LDAP_ACCEL_POOL_MIN, 0 );
+        int accelmax = Config.getInstance().getInt( GlobalIds.LDAP_ACCEL_POOL_MAX, 10 );
+        int accelTimeBetweenEvictionRunMillis = Config.getInstance().getInt( GlobalIds.LDAP_ACCEL_POOL_EVICT_RUN_MILLIS, 1000 * 60 * 30 );
+        long accelTimeout = Config.getInstance().getInt( GlobalIds.LDAP_ACCEL_TIMEOUT, ( int ) LdapConnectionConfig.DEFAULT_TIMEOUT );
 
         LOG.info( "LDAP POOL:  host=[{}], port=[{}], min=[{}], max=[{}]", host, port, min, max );
 
@@ -187,6 +205,7 @@ public class LdapConnectionProvider
             throw new CfgRuntimeException( GlobalErrIds.FT_APACHE_LDAP_POOL_INIT_FAILED, error, ex );
         }
 
+        adminConfig = config;
         PooledObjectFactory<LdapConnection> poolFactory = new ValidatingPoolableLdapConnectionFactory( config );
 
         // Create the Admin pool
@@ -211,6 +230,29 @@ public class LdapConnectionProvider
         userPool.setTestWhileIdle( testWhileIdle );
         userPool.setTimeBetweenEvictionRunsMillis( timeBetweenEvictionRunMillis );
 
+        // This pool is used by {@link org.apache.directory.fortress.core.AccelMgr}, so its extended operations do not
+        // compete with admin traffic.  Its own config carries the accelerator timeout, no connection is ever changed:
+        LdapConnectionConfig accelConfig = new LdapConnectionConfig();
+        accelConfig.setLdapHost( host );
+        accelConfig.setLdapPort( port );
+        accelConfig.setName( config.getName() );
+        accelConfig.setCredentials( config.getCredentials() );
+        accelConfig.setEnabledProtocols( config.getEnabledProtocols() );
+        accelConfig.setUseTls( config.isUseTls() );
+        accelConfig.setUseSsl( config.isUseSsl() );
+        accelConfig.setTrustManagers( config.getTrustManagers() );
+        accelConfig.setLdapApiService( config.getLdapApiService() );
+        accelConfig.setTimeout( accelTimeout );
+        accelPool = new LdapConnectionPool( new ValidatingPoolableLdapConnectionFactory( accelConfig ) );
+        accelPool.setTestOnBorrow( testOnBorrow );
+        accelPool.setMaxTotal( accelmax );
+        accelPool.setBlockWhenExhausted( isBlockOnMaxConnection );
+        accelPool.setMaxWaitMillis( maxConnBlockTime );
+        accelPool.setMinIdle( accelmin );
+        accelPool.setMaxIdle( -1 );
+        accelPool.setTestWhileIdle( testWhileIdle );
+        accelPool.setTimeBetweenEvictionRunsMillis( accelTimeBetweenEvictionRunMillis );
+
         // This pool of access log connections is used by {@link org.apache.directory.fortress.AuditMgr}.
         // To enable, set {@code log.admin.user} && {@code log.admin.pw} inside fortress.properties file:
         if ( StringUtils.isNotEmpty( GlobalIds.LDAP_LOG_POOL_UID ) && StringUtils.isNotEmpty( GlobalIds.LDAP_LOG_POOL_PW ) )
@@ -315,24 +357,35 @@ public class LdapConnectionProvider
 
 
     /**
-     * Calls the PoolMgr to get an Admin connection to the LDAP server.
+     * Calls the PoolMgr to close the RBAC Accelerator LDAP connection.
      *
-     * @return ldap connection.
-     * @throws LdapException If we had an issue getting an LDAP connection
+     * @param connection handle to ldap connection object.
      */
-    public LdapConnection getAdminConnection() throws LdapException
+    public void closeAccelConnection(LdapConnection connection)
     {
         try
         {
-            return adminPool.getConnection();
+            accelPool.releaseConnection( connection );
         }
         catch ( Exception e )
         {
-            throw new LdapException( e );
+            LOG.warn( "Error closing accel connection: " + e );
         }
     }
 
 
+    /**
+     * Calls the PoolMgr to get an Admin connection to the LDAP server.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue getting an LDAP connection
+     */
+    public LdapConnection getAdminConnection() throws LdapException
+    {
+        return getConnection( adminPool, "admin" );
+    }
+
+
     /**
      * Calls the PoolMgr to get an Log connection to the LDAP server.
      *
@@ -341,33 +394,161 @@ public class LdapConnectionProvider
      */
     public LdapConnection getLogConnection() throws LdapException
     {
+        return getConnection( logPool, "log" );
+    }
+
+
+    /**
+     * Calls the PoolMgr to get an User connection to the LDAP server.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue getting an LDAP connection
+     */
+    public LdapConnection getUserConnection() throws LdapException
+    {
+        return getConnection( userPool, "user" );
+    }
+
+    /**
+     * Calls the PoolMgr to get an RBAC Accelerator connection to the LDAP server.  Its timeout, set by
+     * {@link GlobalIds#LDAP_ACCEL_TIMEOUT}, bounds the wait for each extended operation's response.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue getting an LDAP connection
+     */
+    public LdapConnection getAccelConnection() throws LdapException
+    {
+        return getConnection( accelPool, "accel" );
+    }
+
+
+    /**
+     * Open a connection bound with the ldap service account creds outside of the pools, for an operation that holds
+     * its connection for as long as it runs, i.e. a persistent search, so it does not take one of the admin pool's.
+     * The connection must be closed with {@link #closeListenConnection(LdapConnection)}.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue opening or binding the LDAP connection
+     */
+    public LdapConnection getListenConnection() throws LdapException
+    {
+        LdapNetworkConnection connection = new LdapNetworkConnection( adminConfig );
+        try
+        {
+            connection.bind( adminConfig.getName(), adminConfig.getCredentials() );
+        }
+        catch ( LdapException e )
+        {
+            closeListenConnection( connection );
+            throw e;
+        }
+        return connection;
+    }
+
+
+    /**
+     * Close a connection opened by {@link #getListenConnection()}.
+     *
+     * @param connection handle to ldap connection object, may be null.
+     */
+    public void closeListenConnection( LdapConnection connection )
+    {
+        if ( connection == null )
+        {
+            return;
+        }
         try
         {
-            return logPool.getConnection();
+            connection.close();
         }
         catch ( Exception e )
         {
-            throw new LdapException( e );
+            LOG.warn( "Error closing listen connection: " + e );
         }
     }
 
 
     /**
-     * Calls the PoolMgr to get an User connection to the LDAP server.
+     * Borrow a connection from a pool, recording the wait as a pool span when tracing is on.
      *
+     * @param pool contains the pool to borrow from.
+     * @param name contains the name of the pool, i.e. admin.
      * @return ldap connection.
      * @throws LdapException If we had an issue getting an LDAP connection
      */
-    public LdapConnection getUserConnection() throws LdapException
+    private LdapConnection getConnection( LdapConnectionPool pool, String name ) throws LdapException
     {
+        TraceSpan span = Tracer.start( TraceSpan.Kind.POOL, name, null, null, null );
         try
         {
-            return userPool.getConnection();
+            return pool.getConnection();
         }
         catch ( Exception e )
         {
+            Tracer.end( span, -1, e );
             throw new LdapException( e );
         }
+        finally
+        {
+            Tracer.end( span );
+        }
+    }
+
+
+    /**
+     * Return the statistics of every connection pool.
+     *
+     * @return list of statistics, one per pool.
+     */
+    public List<PoolStats> getPoolStats()
+    {
+        List<PoolStats> stats = new ArrayList<>();
+        addStats( stats, "admin", adminPool );
+        addStats( stats, "user", userPool );
+        addStats( stats, "log", logPool );
+        addStats( stats, "accel", accelPool );
+        return stats;
+    }
+
+
+    private void addStats( List<PoolStats> stats, String name, LdapConnectionPool pool )
+    {
+        if ( pool != null )
+        {
+            stats.add( new PoolStats( name, pool ) );
+        }
+    }
+
+    /**
+     * Open the minimum number of idle connections configured for each pool, i.e. {@link GlobalIds#LDAP_ADMIN_POOL_MIN},
+     * so the first requests served do not pay for connecting and binding to the ldap server.
+     *
+     * @throws LdapException If a connection could not be opened.
+     */
+    public void warmUp() throws LdapException
+    {
+        warmUp( adminPool, "admin" );
+        warmUp( userPool, "user" );
+        warmUp( logPool, "log" );
+        warmUp( accelPool, "accel" );
+    }
+
+
+    private void warmUp( LdapConnectionPool pool, String name ) throws LdapException
+    {
+        if ( pool == null )
+        {
+            return;
+        }
+        try
+        {
+            pool.preparePool();
+            LOG.info( "warmUp {} pool, idle connections [{}]", name, pool.getNumIdle() );
+        }
+        catch ( Exception e )
+        {
+            throw new LdapException( "Error opening " + name + " pool connections: " + e, e );
+        }
     }
 
     /**
@@ -404,6 +585,16 @@ public class LdapConnectionProvider
         {
             LOG.warn( "Error closing log pool: " + e );
         }
+
+        try
+        {
+            LOG.info( "Closing accel pool" );
+            accelPool.close();
+        }
+        catch ( Exception e )
+        {
+            LOG.warn( "Error closing accel pool: " + e );
+        }
     }
 
     private String[] getDefaultProtocols()
@@ -23,11 +23,19 @@ package org.apache.directory.fortress.core.ldap;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.api.ldap.extras.controls.ppolicy.PasswordPolicyRequest;
@@ -47,10 +55,18 @@ import org.apache.directory.api.ldap.model.exception.LdapException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidAttributeValueException;
 import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.exception.LdapOperationErrorException;
+import org.apache.directory.api.ldap.model.filter.ExprNode;
 import org.apache.directory.api.ldap.model.message.*;
+import org.apache.directory.api.ldap.model.message.controls.ChangeType;
+import org.apache.directory.api.ldap.model.message.controls.EntryChange;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
+import org.apache.directory.api.ldap.model.message.controls.PersistentSearch;
+import org.apache.directory.api.ldap.model.message.controls.PersistentSearchImpl;
 import org.apache.directory.api.ldap.model.message.controls.ProxiedAuthz;
 import org.apache.directory.api.ldap.model.message.controls.ProxiedAuthzImpl;
 import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
 import org.apache.directory.api.ldap.extras.controls.relax.RelaxControlImpl;
 
 import org.apache.directory.fortress.core.GlobalIds;
@@ -61,7 +77,13 @@ import org.apache.directory.fortress.core.model.Hier;
 import org.apache.directory.fortress.core.model.Relationship;
 import org.apache.directory.fortress.core.util.Config;
 import org.apache.directory.fortress.core.util.LdapUtil;
+import org.apache.directory.fortress.core.util.trace.TraceSpan;
+import org.apache.directory.fortress.core.util.trace.Tracer;
+import org.apache.directory.ldap.client.api.LdapAsyncConnection;
 import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.Wrapper;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+import org.apache.directory.ldap.client.api.future.SearchFuture;
 
 
 /**
@@ -78,9 +100,13 @@ public abstract class LdapDataProvider
 {
     // Logging
     private static final String CLS_NM = LdapDataProvider.class.getName();
-    private static final int MAX_DEPTH = 100;
     private static final LdapCounters COUNTERS = new LdapCounters();
     private static final PasswordPolicyRequest PP_REQ_CTRL = new PasswordPolicyRequestImpl();
+    // how often a persistent search checks that its connection is still open and its thread not interrupted:
+    private static final long PERSISTENT_POLL_MILLIS = 1000;
+    // wait for the server to reject a persistent search before it is taken as started:
+    private static final long PERSISTENT_ACCEPT_MILLIS = 200;
+    private static final DnCache DN_CACHE = new DnCache();
 
     /**
      * Given a contextId and a fortress param name return the LDAP dn.
@@ -119,6 +145,70 @@ public abstract class LdapDataProvider
         }
     }
 
+    /**
+     * Given a contextId and a fortress param name return the parsed LDAP dn.  The dn is computed and parsed once per
+     * tenant and container, and again after config changes, see {@link #getRootDn(String, String)}.
+     *
+     * @param contextId is to determine what sub-tree to use.
+     * @param root      contains the fortress parameter name that corresponds with a particular LDAP container.
+     * @return Dn contains the dn to use for operation, it must not be changed.
+     * @throws LdapInvalidDnException if the dn in config cannot be parsed.
+     */
+    protected static Dn getRootDnName( String contextId, String root ) throws LdapInvalidDnException
+    {
+        return DN_CACHE.get( contextId, root );
+    }
+
+
+    /**
+     * Build the dn of a node below an already parsed parent by appending its rdns.  Only the rdns are parsed, the
+     * parent is shared as is.
+     *
+     * @param parent contains the dn of the parent node, it is not changed.
+     * @param rdns   contains the rdns to append, in the order they appear in a dn string, leaf first.
+     * @return Dn of the node.
+     * @throws LdapInvalidDnException if the rdns cannot be appended.
+     */
+    protected static Dn getChildDn( Dn parent, Rdn... rdns ) throws LdapInvalidDnException
+    {
+        Dn dn = parent;
+        for ( int i = rdns.length - 1; i >= 0; i-- )
+        {
+            dn = dn.add( rdns[i] );
+        }
+        return dn;
+    }
+
+
+    /**
+     * Build the dn of a node below an already parsed parent with a single valued rdn.
+     *
+     * @param parent contains the dn of the parent node, it is not changed.
+     * @param type   contains the attribute type of the rdn.
+     * @param value  contains the unescaped attribute value of the rdn.
+     * @return Dn of the node.
+     * @throws LdapInvalidDnException if the rdn is not valid.
+     */
+    protected static Dn getChildDn( Dn parent, String type, String value ) throws LdapInvalidDnException
+    {
+        return parent.add( getRdn( type, value ) );
+    }
+
+
+    /**
+     * Build a single valued rdn, escaping the special characters of its value.
+     *
+     * @param type  contains the attribute type of the rdn.
+     * @param value contains the unescaped attribute value of the rdn.
+     * @return Rdn to append to a parsed parent with {@link #getChildDn(Dn, Rdn...)}.
+     * @throws LdapInvalidDnException if the rdn is not valid.
+     */
+    protected static Rdn getRdn( String type, String value ) throws LdapInvalidDnException
+    {
+        return new Rdn( type + "=" + Rdn.escapeValue( value ) );
+    }
+
+
     /**
      * Given a contextId return the LDAP dn that includes the suffix.
      *
@@ -154,8 +244,11 @@ public abstract class LdapDataProvider
     protected Entry read( LdapConnection connection, String dn, String[] attrs ) throws LdapException
     {
         COUNTERS.incrementRead();
-
-        return connection.lookup( dn, attrs );
+        if ( !Tracer.isEnabled() )
+        {
+            return connection.lookup( dn, attrs );
+        }
+        return traced( "read", dn, null, () -> connection.lookup( dn, attrs ), LdapDataProvider::countEntry );
     }
 
 
@@ -171,8 +264,11 @@ public abstract class LdapDataProvider
     protected Entry read( LdapConnection connection, Dn dn, String[] attrs ) throws LdapException
     {
         COUNTERS.incrementRead();
-
-        return connection.lookup( dn, attrs );
+        if ( !Tracer.isEnabled() )
+        {
+            return connection.lookup( dn, attrs );
+        }
+        return traced( "read", dn.getName(), null, () -> connection.lookup( dn, attrs ), LdapDataProvider::countEntry );
     }
 
 
@@ -192,8 +288,11 @@ public abstract class LdapDataProvider
     protected Entry read( LdapConnection connection, String dn, String[] attrs, String userDn ) throws LdapException
     {
         COUNTERS.incrementRead();
-
-        return connection.lookup( dn, attrs );
+        if ( !Tracer.isEnabled() )
+        {
+            return connection.lookup( dn, attrs );
+        }
+        return traced( "read", dn, null, () -> connection.lookup( dn, attrs ), LdapDataProvider::countEntry );
     }
 
 
@@ -207,7 +306,12 @@ public abstract class LdapDataProvider
     protected void add( LdapConnection connection, Entry entry ) throws LdapException
     {
         COUNTERS.incrementAdd();
-        connection.add( entry );
+        if ( !Tracer.isEnabled() )
+        {
+            connection.add( entry );
+            return;
+        }
+        traced( "add", entry.getDn().getName(), () -> connection.add( entry ) );
     }
 
 
@@ -237,32 +341,242 @@ public abstract class LdapDataProvider
     protected void add( LdapConnection connection, Entry entry, FortEntity entity, boolean setRelaxControl ) throws LdapException
     {
         COUNTERS.incrementAdd();
+        AddRequest addRequest = newAddRequest( entry, entity, setRelaxControl );
+        if ( !Tracer.isEnabled() )
+        {
+            ResultCodeEnum.processResponse( connection.add( addRequest ) );
+            return;
+        }
+        traced( "add", entry.getDn().getName(), () -> ResultCodeEnum.processResponse( connection.add( addRequest ) ) );
+    }
 
-        if ( Config.getInstance().isAuditEnabled() && ( entity != null ) && ( entity.getAdminSession() != null ) )
+
+    /**
+     * Build an add request for a new ldap entry.  Add audit context.  The request is not sent, use
+     * {@link #pipeline(LdapConnection, List)} to send a batch of them.
+     *
+     * @param entry      contains data to add..
+     * @param entity     contains audit context.
+     * @param setRelaxControl   when true attaches relax control to request
+     * @return AddRequest ready to be sent to the directory.
+     * @throws LdapException in the event system error occurs.
+     */
+    protected AddRequest newAddRequest( Entry entry, FortEntity entity, boolean setRelaxControl ) throws LdapException
+    {
+        audit( entry, entity );
+        AddRequest addRequest = new AddRequestImpl();
+        addRequest.setEntry( entry );
+        if ( setRelaxControl )
         {
-            if ( StringUtils.isNotEmpty( entity.getAdminSession().getInternalUserId() ) )
+            addRequest.addControl( new RelaxControlImpl() );
+        }
+        return addRequest;
+    }
+
+
+    /**
+     * Build a modify request for an existing ldap entry.  Add audit context.  The request is not sent, use
+     * {@link #pipeline(LdapConnection, List)} to send a batch of them.
+     *
+     * @param dn         contains distinguished node of entry.
+     * @param mods       contains data to modify.
+     * @param entity     contains audit context.
+     * @return ModifyRequest ready to be sent to the directory.
+     * @throws LdapException in the event system error occurs.
+     */
+    protected ModifyRequest newModifyRequest( String dn, List<Modification> mods, FortEntity entity ) throws LdapException
+    {
+        audit( mods, entity );
+        ModifyRequest modRequest = new ModifyRequestImpl();
+        for( Modification mod : mods )
+        {
+            modRequest.addModification( mod );
+        }
+        modRequest.setName( new Dn( dn ) );
+        return modRequest;
+    }
+
+
+    /**
+     * Send a batch of add and modify requests over a single connection.  When the connection supports it, every request
+     * is written to the wire before the first response is read, so the batch costs one round trip instead of one per
+     * request.  Otherwise the requests are sent one after the other.
+     * <p>
+     * A failure on one request does not stop the others.  The caller must inspect each returned result.
+     *
+     * @param connection handle to ldap connection.
+     * @param requests   contains {@link AddRequest} or {@link ModifyRequest} entries.
+     * @return List of LdapResult, one for each request, in the same order as the input.
+     * @throws LdapException in the event system error occurs.
+     */
+    protected List<LdapResult> pipeline( LdapConnection connection, List<? extends SingleReplyRequest> requests )
+        throws LdapException
+    {
+        List<LdapResult> results = new ArrayList<>( requests.size() );
+        if ( !Tracer.isEnabled() )
+        {
+            pipeline( connection, requests, results );
+            return results;
+        }
+        return traced( "pipeline", null, null, () -> {
+            pipeline( connection, requests, results );
+            return results;
+        }, List::size );
+    }
+
+
+    private void pipeline( LdapConnection connection, List<? extends SingleReplyRequest> requests,
+        List<LdapResult> results ) throws LdapException
+    {
+        if ( connection instanceof LdapAsyncConnection )
+        {
+            LdapAsyncConnection asyncConnection = ( LdapAsyncConnection ) connection;
+            List<ResponseFuture<? extends ResultResponse>> futures = new ArrayList<>( requests.size() );
+            for ( SingleReplyRequest request : requests )
             {
-                entry.add( GlobalIds.FT_MODIFIER, entity.getAdminSession().getInternalUserId() );
+                if ( request instanceof AddRequest )
+                {
+                    COUNTERS.incrementAdd();
+                    futures.add( asyncConnection.addAsync( ( AddRequest ) request ) );
+                }
+                else if ( request instanceof ModifyRequest )
+                {
+                    COUNTERS.incrementMod();
+                    futures.add( asyncConnection.modifyAsync( ( ModifyRequest ) request ) );
+                }
+                else
+                {
+                    throw new LdapOperationErrorException( "pipeline unsupported request type [" + request.getType() + "]" );
+                }
             }
-
-            if ( StringUtils.isNotEmpty( entity.getModCode() ) )
+            long timeout = asyncConnection.getConfig().getTimeout();
+            for ( ResponseFuture<? extends ResultResponse> future : futures )
             {
-                entry.add( GlobalIds.FT_MODIFIER_CODE, entity.getModCode() );
+                results.add( getResult( future, timeout ) );
+            }
+        }
+        else
+        {
+            for ( SingleReplyRequest request : requests )
+            {
+                ResultResponse response;
+                if ( request instanceof AddRequest )
+                {
+                    COUNTERS.incrementAdd();
+                    response = connection.add( ( AddRequest ) request );
+                }
+                else if ( request instanceof ModifyRequest )
+                {
+                    COUNTERS.incrementMod();
+                    response = connection.modify( ( ModifyRequest ) request );
+                }
+                else
+                {
+                    throw new LdapOperationErrorException( "pipeline unsupported request type [" + request.getType() + "]" );
+                }
+                results.add( response.getLdapResult() );
             }
+        }
+    }
 
-            if ( StringUtils.isNotEmpty( entity.getModId() ) )
+
+    /**
+     * Apply a batch of modifications, one per item, to the directory.  Items that target the same entry are merged
+     * into a single modify request and the requests are sent with {@link #pipeline(LdapConnection, List)}.  If a merged
+     * request fails, i.e. because one of its values already exists, its items are retried one at a time so that each
+     * item receives its own result.
+     *
+     * @param connection handle to ldap connection.
+     * @param dns        contains the distinguished name targeted by each item.
+     * @param mods       contains the modifications for each item.
+     * @param entities   contains the audit context for each item.
+     * @return List of LdapResult, one for each item, in the same order as the input.
+     * @throws LdapException in the event system error occurs.
+     */
+    protected List<LdapResult> modifyBatch( LdapConnection connection, List<String> dns, List<List<Modification>> mods,
+        List<? extends FortEntity> entities ) throws LdapException
+    {
+        LdapResult[] results = new LdapResult[dns.size()];
+        // group the items by target entry, preserving input order:
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for ( int i = 0; i < dns.size(); i++ )
+        {
+            groups.computeIfAbsent( dns.get( i ), k -> new ArrayList<>() ).add( i );
+        }
+        List<List<Integer>> pending = new ArrayList<>( groups.values() );
+        while ( !pending.isEmpty() )
+        {
+            List<ModifyRequest> requests = new ArrayList<>( pending.size() );
+            for ( List<Integer> group : pending )
             {
-                entry.add( GlobalIds.FT_MODIFIER_ID, entity.getModId() );
+                List<Modification> merged = new ArrayList<>();
+                for ( int idx : group )
+                {
+                    merged.addAll( mods.get( idx ) );
+                }
+                int first = group.get( 0 );
+                requests.add( newModifyRequest( dns.get( first ), merged, entities.get( first ) ) );
+            }
+            List<LdapResult> ldapResults = pipeline( connection, requests );
+            List<List<Integer>> retries = new ArrayList<>();
+            for ( int i = 0; i < pending.size(); i++ )
+            {
+                List<Integer> group = pending.get( i );
+                LdapResult ldapResult = ldapResults.get( i );
+                if ( ldapResult.getResultCode() != ResultCodeEnum.SUCCESS && group.size() > 1 )
+                {
+                    for ( int idx : group )
+                    {
+                        retries.add( Collections.singletonList( idx ) );
+                    }
+                }
+                else
+                {
+                    for ( int idx : group )
+                    {
+                        results[idx] = ldapResult;
+                    }
+                }
             }
+            pending = retries;
         }
-        AddRequest addRequest = new AddRequestImpl();
-        addRequest.setEntry( entry );
-        if ( setRelaxControl )
+        return Arrays.asList( results );
+    }
+
+
+    /**
+     * Wait for the response of a single pipelined request.
+     *
+     * @param future  contains handle to the outstanding request.
+     * @param timeout number of milliseconds to wait, values less than 1 mean wait forever.
+     * @return LdapResult for the request.  A request that never completed is reported with result code OTHER.
+     * @throws LdapException if the calling thread was interrupted.
+     */
+    private LdapResult getResult( ResponseFuture<? extends ResultResponse> future, long timeout ) throws LdapException
+    {
+        ResultResponse response;
+        try
         {
-            addRequest.addControl( new RelaxControlImpl() );
+            response = timeout > 0 ? future.get( timeout, TimeUnit.MILLISECONDS ) : future.get();
         }
-        AddResponse response = connection.add( addRequest );
-        ResultCodeEnum.processResponse(response);
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new LdapException( "pipeline interrupted waiting for response", e );
+        }
+        catch ( ExecutionException | TimeoutException e )
+        {
+            future.cancel( true );
+            response = null;
+        }
+        if ( response == null )
+        {
+            LdapResult result = new LdapResultImpl();
+            result.setResultCode( ResultCodeEnum.OTHER );
+            result.setDiagnosticMessage( "no response received from server" );
+            return result;
+        }
+        return response.getLdapResult();
     }
 
 
@@ -277,7 +591,12 @@ public abstract class LdapDataProvider
     protected void modify( LdapConnection connection, String dn, List<Modification> mods ) throws LdapException
     {
         COUNTERS.incrementMod();
-        connection.modify( dn, mods.toArray( new Modification[]{} ) );
+        if ( !Tracer.isEnabled() )
+        {
+            connection.modify( dn, mods.toArray( new Modification[]{} ) );
+            return;
+        }
+        traced( "modify", dn, () -> connection.modify( dn, mods.toArray( new Modification[]{} ) ) );
     }
 
 
@@ -292,8 +611,12 @@ public abstract class LdapDataProvider
     protected void modify( LdapConnection connection, Dn dn, List<Modification> mods ) throws LdapException
     {
         COUNTERS.incrementMod();
-        connection.modify( dn, mods.toArray( new Modification[]
-            {} ) );
+        if ( !Tracer.isEnabled() )
+        {
+            connection.modify( dn, mods.toArray( new Modification[]{} ) );
+            return;
+        }
+        traced( "modify", dn.getName(), () -> connection.modify( dn, mods.toArray( new Modification[]{} ) ) );
     }
 
 
@@ -361,8 +684,12 @@ public abstract class LdapDataProvider
             modRequest.addControl( setControl );
         }
         modRequest.setName( new Dn( dn ) );
-        ModifyResponse response = connection.modify( modRequest );
-        ResultCodeEnum.processResponse(response);
+        if ( !Tracer.isEnabled() )
+        {
+            ResultCodeEnum.processResponse( connection.modify( modRequest ) );
+            return;
+        }
+        traced( "modify", dn, () -> ResultCodeEnum.processResponse( connection.modify( modRequest ) ) );
     }
 
 
@@ -380,7 +707,12 @@ public abstract class LdapDataProvider
     {
         COUNTERS.incrementMod();
         audit( mods, entity );
-        connection.modify( dn, mods.toArray( new Modification[] {} ) );
+        if ( !Tracer.isEnabled() )
+        {
+            connection.modify( dn, mods.toArray( new Modification[] {} ) );
+            return;
+        }
+        traced( "modify", dn.getName(), () -> connection.modify( dn, mods.toArray( new Modification[] {} ) ) );
     }
 
 
@@ -394,7 +726,12 @@ public abstract class LdapDataProvider
     protected void delete( LdapConnection connection, String dn ) throws LdapException
     {
         COUNTERS.incrementDelete();
-        connection.delete( dn );
+        if ( !Tracer.isEnabled() )
+        {
+            connection.delete( dn );
+            return;
+        }
+        traced( "delete", dn, () -> connection.delete( dn ) );
     }
 
 
@@ -419,7 +756,12 @@ public abstract class LdapDataProvider
             modify( connection, dn, mods );
         }
 
-        connection.delete( dn );
+        if ( !Tracer.isEnabled() )
+        {
+            connection.delete( dn );
+            return;
+        }
+        traced( "delete", dn, () -> connection.delete( dn ) );
     }
 
 
@@ -444,12 +786,19 @@ public abstract class LdapDataProvider
             modify( connection, dn, mods );
         }
 
-        connection.delete( dn );
+        if ( !Tracer.isEnabled() )
+        {
+            connection.delete( dn );
+            return;
+        }
+        traced( "delete", dn.getName(), () -> connection.delete( dn ) );
     }
 
 
     /**
-     * Delete exiting ldap entry and all descendants from the directory.  Do not add audit context.
+     * Delete exiting ldap entry and all descendants from the directory.  Do not add audit context.  Uses the tree
+     * delete control when the server supports it, otherwise removes the entries deepest first, see
+     * {@link SubtreeDelete}.
      *
      * @param connection handle to ldap connection.
      * @param dn         contains distinguished node of entry targeted for removal..
@@ -459,8 +808,7 @@ public abstract class LdapDataProvider
      */
     protected void deleteRecursive( LdapConnection connection, String dn ) throws LdapException, CursorException
     {
-        int recursiveCount = 0;
-        deleteRecursive( dn, connection, recursiveCount );
+        new SubtreeDelete( this, dn ).run( connection );
     }
 
 
@@ -491,57 +839,31 @@ public abstract class LdapDataProvider
 
 
     /**
-     * Used to recursively remove all nodes up to record pointed to by dn attribute.
+     * Add the audit context variables to a new entry.
      *
-     * @param dn             contains distinguished node of entry targeted for removal..
-     * @param connection     handle to ldap connection.
-     * @param recursiveCount keeps track of how many iterations have been performed.
-     * @throws LdapException   in the event system error occurs.
-     * @throws CursorException
+     * @param entry  contains data to add.
+     * @param entity contains audit context.
+     * @throws LdapException in the event system error occurs.
      */
-    private void deleteRecursive( String dn, LdapConnection connection, int recursiveCount ) throws LdapException,
-        CursorException
+    private void audit( Entry entry, FortEntity entity ) throws LdapException
     {
-        String method = "deleteRecursive";
-
-        // Sanity check - only allow max tree depth of 100
-        if ( recursiveCount++ > MAX_DEPTH )
+        if ( Config.getInstance().isAuditEnabled() && ( entity != null ) && ( entity.getAdminSession() != null ) )
         {
-            // too deep inside of a recursive sequence;
-            String error = "." + method + " dn [" + dn + "] depth error in recursive";
-            throw new LdapOperationErrorException( error );
-        }
-
-        String theDN;
-
-        // Find child nodes
-        SearchCursor cursor = search( connection, dn, SearchScope.ONELEVEL, "(objectclass=*)",
-            SchemaConstants.NO_ATTRIBUTE_ARRAY,
-            false, 0 );
+            if ( StringUtils.isNotEmpty( entity.getAdminSession().getInternalUserId() ) )
+            {
+                entry.add( GlobalIds.FT_MODIFIER, entity.getAdminSession().getInternalUserId() );
+            }
 
-        // Iterate over all entries under this entry
-        while ( cursor.next() )
-        {
-            try
+            if ( StringUtils.isNotEmpty( entity.getModCode() ) )
             {
-                // Next directory entry
-                Entry entry = cursor.getEntry();
-                theDN = entry.getDn().getName();
-                // continue down:
-                deleteRecursive( theDN, connection, recursiveCount );
-                recursiveCount--;
+                entry.add( GlobalIds.FT_MODIFIER_CODE, entity.getModCode() );
             }
-            catch ( LdapException le )
+
+            if ( StringUtils.isNotEmpty( entity.getModId() ) )
             {
-                // cannot continue;
-                String error = "." + method + " dn [" + dn + "] caught LdapException=" + le.getMessage();
-                throw new LdapException( error );
+                entry.add( GlobalIds.FT_MODIFIER_ID, entity.getModId() );
             }
         }
-
-        // delete the node:
-        COUNTERS.incrementDelete();
-        delete( connection, dn );
     }
 
 
@@ -604,7 +926,7 @@ public abstract class LdapDataProvider
         searchRequest.setTypesOnly( attrsOnly );
         searchRequest.addAttributes( attrs );
 
-        return connection.search( searchRequest );
+        return tracedSearch( connection, searchRequest, baseDn, filter );
     }
 
 
@@ -636,7 +958,438 @@ public abstract class LdapDataProvider
         searchRequest.setTypesOnly( attrsOnly );
         searchRequest.addAttributes( attrs );
 
-        return connection.search( searchRequest );
+        return tracedSearch( connection, searchRequest, baseDn, filter );
+    }
+
+
+    /**
+     * Perform normal ldap search on a filter built with {@link LdapFilter}, specifying max entries to return.
+     *
+     * @param connection is LdapConnection object used for all communication with host.
+     * @param baseDn     contains address of distinguished name to begin ldap search
+     * @param scope      indicates depth of search starting at basedn.  0 (base dn),
+     *                   1 (one level down) or 2 (infinite) are valid values.
+     * @param filter     contains the search criteria, it is not parsed.
+     * @param attrs      is the requested list of attritubutes to return from directory search.
+     * @param attrsOnly  if true pull back attribute names only.
+     * @param maxEntries specifies the maximum number of entries to return in this search query.
+     * @return result set containing ldap entries returned from directory.
+     * @throws LdapException thrown in the event of error in ldap client or server code.
+     */
+    protected SearchCursor search( LdapConnection connection, String baseDn, SearchScope scope,
+        ExprNode filter, String[] attrs, boolean attrsOnly, int maxEntries )
+        throws LdapException
+    {
+        return search( connection, new Dn( baseDn ), scope, filter, attrs, attrsOnly, maxEntries );
+    }
+
+
+    /**
+     * Perform normal ldap search on a filter built with {@link LdapFilter} below an already parsed base dn, specifying
+     * max entries to return.
+     *
+     * @param connection is LdapConnection object used for all communication with host.
+     * @param baseDn     contains address of distinguished name to begin ldap search
+     * @param scope      indicates depth of search starting at basedn.  0 (base dn),
+     *                   1 (one level down) or 2 (infinite) are valid values.
+     * @param filter     contains the search criteria, it is not parsed.
+     * @param attrs      is the requested list of attritubutes to return from directory search.
+     * @param attrsOnly  if true pull back attribute names only.
+     * @param maxEntries specifies the maximum number of entries to return in this search query.
+     * @return result set containing ldap entries returned from directory.
+     * @throws LdapException thrown in the event of error in ldap client or server code.
+     */
+    protected SearchCursor search( LdapConnection connection, Dn baseDn, SearchScope scope,
+        ExprNode filter, String[] attrs, boolean attrsOnly, int maxEntries )
+        throws LdapException
+    {
+        COUNTERS.incrementSearch();
+
+        SearchRequest searchRequest = new SearchRequestImpl();
+
+        searchRequest.setBase( baseDn );
+        searchRequest.setFilter( filter );
+        searchRequest.setScope( scope );
+        searchRequest.setSizeLimit( maxEntries );
+        searchRequest.setTypesOnly( attrsOnly );
+        searchRequest.addAttributes( attrs );
+
+        return tracedSearch( connection, searchRequest, baseDn.getName(), Tracer.isEnabled() ? filter.toString() : null );
+    }
+
+
+    /**
+     * Search with the simple paged results control, handing every entry to the handler as it is read, so result sets
+     * of any size may be processed without holding them in memory.  Each page is a separate request on the same
+     * connection.  Servers that do not support the control return everything in one page.
+     *
+     * @param connection is LdapConnection object used for all communication with host.
+     * @param baseDn     contains address of distinguished name to begin ldap search
+     * @param scope      indicates depth of search starting at basedn.
+     * @param filter     contains the search criteria, it is not parsed.
+     * @param attrs      is the requested list of attritubutes to return from directory search.
+     * @param pageSize   contains the number of entries requested per page.
+     * @param handler    called with each entry, in the order returned by the server.
+     * @return number of entries read.
+     * @throws LdapException   thrown in the event of error in ldap client or server code, or by the handler.
+     * @throws CursorException thrown in the event the search results cannot be read.
+     */
+    protected long searchPaged( LdapConnection connection, String baseDn, SearchScope scope, ExprNode filter,
+        String[] attrs, int pageSize, EntryHandler handler ) throws LdapException, CursorException
+    {
+        long count = 0;
+        byte[] cookie = null;
+        do
+        {
+            COUNTERS.incrementSearch();
+            SearchRequest searchRequest = new SearchRequestImpl();
+            searchRequest.setBase( new Dn( baseDn ) );
+            searchRequest.setFilter( filter );
+            searchRequest.setScope( scope );
+            searchRequest.addAttributes( attrs );
+            PagedResults pagedControl = new PagedResultsImpl();
+            pagedControl.setSize( pageSize );
+            pagedControl.setCookie( cookie );
+            searchRequest.addControl( pagedControl );
+            cookie = null;
+
+            TraceSpan span = Tracer.start( TraceSpan.Kind.DAO, "searchPaged", null, baseDn,
+                Tracer.isEnabled() ? filter.toString() : null );
+            int entries = 0;
+            try ( SearchCursor cursor = connection.search( searchRequest ) )
+            {
+                while ( cursor.next() )
+                {
+                    if ( cursor.isEntry() )
+                    {
+                        handler.handle( cursor.getEntry() );
+                        entries++;
+                    }
+                }
+                SearchResultDone done = cursor.getSearchResultDone();
+                if ( done != null )
+                {
+                    ResultCodeEnum.processResponse( done );
+                    PagedResults responseControl = ( PagedResults ) done.getControl( PagedResults.OID );
+                    if ( responseControl != null )
+                    {
+                        cookie = responseControl.getCookie();
+                    }
+                }
+                Tracer.end( span, entries, null );
+            }
+            catch ( IOException e )
+            {
+                Tracer.end( span, -1, e );
+                throw new LdapException( "searchPaged base [" + baseDn + "] caught IOException=" + e.getMessage(), e );
+            }
+            catch ( LdapException | CursorException | RuntimeException e )
+            {
+                Tracer.end( span, -1, e );
+                throw e;
+            }
+            finally
+            {
+                Tracer.end( span );
+            }
+            count += entries;
+        }
+        while ( cookie != null && cookie.length > 0 );
+        return count;
+    }
+
+
+    /**
+     * Run a search inside a DAO span.  The span is handed to the returned cursor and ends when the cursor is closed.
+     *
+     * @param connection    is LdapConnection object used for all communication with host.
+     * @param searchRequest contains the search to run.
+     * @param baseDn        contains the base dn, for the span.
+     * @param filter        contains the filter, for the span, may be null.
+     * @return result set containing ldap entries returned from directory.
+     * @throws LdapException thrown in the event of error in ldap client or server code.
+     */
+    private static SearchCursor tracedSearch( LdapConnection connection, SearchRequest searchRequest, String baseDn,
+        String filter ) throws LdapException
+    {
+        TraceSpan span = Tracer.start( TraceSpan.Kind.DAO, "search", null, baseDn, filter );
+        try
+        {
+            SearchCursor cursor = connection.search( searchRequest );
+            return span == null ? cursor : new TracingSearchCursor( cursor, span );
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            Tracer.end( span, -1, e );
+            throw e;
+        }
+    }
+
+
+    /**
+     * Run an ldap operation inside a DAO span, see {@link Tracer}. Callers check {@link Tracer#isEnabled()} first and
+     * call the connection directly when no listener is registered, so the lambda and dn strings are only built while
+     * tracing.
+     *
+     * @param operation contains the name of the operation, i.e. read.
+     * @param dn        contains the dn the operation is performed on, may be null.
+     * @param filter    contains the ldap search filter, may be null.
+     * @param call      performs the operation.
+     * @param <T>       the result of the operation.
+     * @param <X>       the checked exception the operation throws besides LdapException.
+     * @return the result of the operation.
+     * @throws LdapException thrown in the event of error in ldap client or server code.
+     * @throws X             thrown by the operation.
+     */
+    private static <T, X extends Exception> T traced( String operation, String dn, String filter,
+        LdapCall<T, X> call ) throws LdapException, X
+    {
+        return traced( operation, dn, filter, call, null );
+    }
+
+
+    /**
+     * Run an ldap operation inside a DAO span, see {@link Tracer}, recording the number of entries it returned.
+     *
+     * @param operation contains the name of the operation, i.e. read.
+     * @param dn        contains the dn the operation is performed on, may be null.
+     * @param filter    contains the ldap search filter, may be null.
+     * @param call      performs the operation.
+     * @param entries   returns the number of entries in the result, null when not known.
+     * @param <T>       the result of the operation.
+     * @param <X>       the checked exception the operation throws besides LdapException.
+     * @return the result of the operation.
+     * @throws LdapException thrown in the event of error in ldap client or server code.
+     * @throws X             thrown by the operation.
+     */
+    private static <T, X extends Exception> T traced( String operation, String dn, String filter,
+        LdapCall<T, X> call, ToIntFunction<? super T> entries ) throws LdapException, X
+    {
+        TraceSpan span = Tracer.start( TraceSpan.Kind.DAO, operation, null, dn, filter );
+        try
+        {
+            T result = call.call();
+            Tracer.end( span, span == null || entries == null ? -1 : entries.applyAsInt( result ), null );
+            return result;
+        }
+        catch ( Exception e )
+        {
+            Tracer.end( span, -1, e );
+            throw e;
+        }
+    }
+
+
+    /**
+     * Run an ldap operation that returns nothing inside a DAO span, see {@link Tracer}.
+     *
+     * @param operation contains the name of the operation, i.e. modify.
+     * @param dn        contains the dn the operation is performed on.
+     * @param call      performs the operation.
+     * @throws LdapException thrown in the event of error in ldap client or server code.
+     */
+    private static void traced( String operation, String dn, LdapOperation call ) throws LdapException
+    {
+        traced( operation, dn, null, () -> {
+            call.run();
+            return null;
+        } );
+    }
+
+
+    private static int countEntry( Entry entry )
+    {
+        return entry == null ? 0 : 1;
+    }
+
+
+    /**
+     * Run a search expected to return at most one entry.
+     *
+     * @return the entry found, null if none.
+     * @throws LdapException if more than one entry is found or in the event of error in ldap client or server code.
+     * @throws CursorException if the entry could not be fetched from the search result.
+     */
+    private static Entry searchUnique( LdapConnection connection, SearchRequest searchRequest, String baseDn,
+        String filter ) throws LdapException, CursorException
+    {
+        SearchCursor result = connection.search( searchRequest );
+
+        Entry entry = result.getEntry();
+
+        if ( result.next() )
+        {
+            throw new LdapException( "searchNode failed to return unique record for LDAP search of base DN [" +
+                baseDn + "] filter [" + filter + "]" );
+        }
+        return entry;
+    }
+
+
+    private static boolean compare( LdapConnection connection, CompareRequest compareRequest ) throws LdapException
+    {
+        CompareResponse response = connection.compare( compareRequest );
+        return response.getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS;
+    }
+
+
+    /**
+     * Ldap operation run by {@link #traced(String, String, String, LdapCall)}.
+     *
+     * @param <T> the result of the operation.
+     * @param <X> the checked exception the operation throws besides LdapException.
+     */
+    @FunctionalInterface
+    private interface LdapCall<T, X extends Exception>
+    {
+        T call() throws LdapException, X;
+    }
+
+
+    /**
+     * Ldap operation that returns nothing, run by {@link #traced(String, String, LdapOperation)}.
+     */
+    @FunctionalInterface
+    private interface LdapOperation
+    {
+        void run() throws LdapException;
+    }
+
+
+    /**
+     * Receives the entries read by {@link #searchPaged}.
+     */
+    protected interface EntryHandler
+    {
+        /**
+         * @param entry contains the entry just read.
+         * @throws LdapException to stop the search.
+         */
+        void handle( Entry entry ) throws LdapException;
+    }
+
+
+    /**
+     * Tell whether the server accepts the persistent search control used by
+     * {@link #searchPersistent(LdapConnection, String, SearchScope, ExprNode, String[], Runnable, ChangeHandler)}.
+     *
+     * @param connection is LdapConnection object used for all communication with host.
+     * @return true if the control is listed in the root DSE.
+     */
+    protected boolean isPersistentSearchSupported( LdapConnection connection )
+    {
+        try
+        {
+            return connection.isControlSupported( PersistentSearch.OID );
+        }
+        catch ( LdapException e )
+        {
+            // the root DSE could not be read, treat the control as missing:
+            return false;
+        }
+    }
+
+
+    /**
+     * Run a persistent search, handing every entry added, modified, renamed or deleted below the base to the handler
+     * as the changes occur.  The method blocks until the server ends the search, the connection is lost or the
+     * calling thread is interrupted, in which case the search is abandoned and the method returns.  The connection is
+     * held for the whole search.
+     * <p>
+     * The server sends nothing when it accepts a persistent search, so the search is taken as started once it was sent
+     * and the server did not end it within a short wait, or as soon as a change is returned.  Changes made after that
+     * are handed to the handler.
+     *
+     * @param connection is LdapConnection object used for all communication with host.
+     * @param baseDn     contains address of distinguished name to begin ldap search
+     * @param scope      indicates depth of search starting at basedn.
+     * @param filter     contains the search criteria, it is not parsed.
+     * @param attrs      is the requested list of attritubutes to return from directory search.
+     * @param started    called once when the search has started, not called if it fails to start.
+     * @param handler    called with each changed entry, deleted entries are passed as they were before the delete.
+     * @throws LdapException thrown in the event of error in ldap client or server code, or by the handler.
+     */
+    @SuppressWarnings("unchecked")
+    protected void searchPersistent( LdapConnection connection, String baseDn, SearchScope scope, ExprNode filter,
+        String[] attrs, Runnable started, ChangeHandler handler ) throws LdapException
+    {
+        LdapConnection network = connection;
+        while ( !( network instanceof LdapAsyncConnection ) && network instanceof Wrapper )
+        {
+            network = ( ( Wrapper<LdapConnection> ) network ).wrapped();
+        }
+        if ( !( network instanceof LdapAsyncConnection ) )
+        {
+            throw new LdapException( "searchPersistent connection does not support asynchronous operations ["
+                + connection.getClass().getName() + "]" );
+        }
+        LdapAsyncConnection asyncConnection = ( LdapAsyncConnection ) network;
+        SearchRequest searchRequest = new SearchRequestImpl();
+        searchRequest.setBase( new Dn( baseDn ) );
+        searchRequest.setFilter( filter );
+        searchRequest.setScope( scope );
+        searchRequest.addAttributes( attrs );
+        PersistentSearch persistentControl = new PersistentSearchImpl();
+        persistentControl.setChangesOnly( true );
+        persistentControl.setReturnECs( true );
+        persistentControl.setChangeTypes( PersistentSearch.CHANGE_TYPES_MAX );
+        searchRequest.addControl( persistentControl );
+        COUNTERS.incrementSearch();
+        SearchFuture future = asyncConnection.searchAsync( searchRequest );
+        boolean accepted = false;
+        try
+        {
+            while ( true )
+            {
+                Response response = future.get( accepted ? PERSISTENT_POLL_MILLIS : PERSISTENT_ACCEPT_MILLIS,
+                    TimeUnit.MILLISECONDS );
+                if ( response == null && ( future.isCancelled() || !asyncConnection.isConnected() ) )
+                {
+                    throw new LdapException( "searchPersistent base [" + baseDn + "] connection closed" );
+                }
+                if ( response instanceof SearchResultDone )
+                {
+                    ResultCodeEnum.processResponse( ( SearchResultDone ) response );
+                    return;
+                }
+                if ( !accepted )
+                {
+                    accepted = true;
+                    started.run();
+                }
+                if ( response instanceof SearchResultEntry )
+                {
+                    SearchResultEntry resultEntry = ( SearchResultEntry ) response;
+                    EntryChange entryChange = ( EntryChange ) resultEntry.getControl( EntryChange.OID );
+                    handler.handle( resultEntry.getEntry(), entryChange != null ? entryChange.getChangeType()
+                        : ChangeType.MODIFY );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            future.cancel( true );
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            future.cancel( true );
+            throw e;
+        }
+    }
+
+
+    /**
+     * Receives the entries changed during {@link #searchPersistent}.
+     */
+    protected interface ChangeHandler
+    {
+        /**
+         * @param entry      contains the entry just changed.
+         * @param changeType contains the kind of change, modify when the server did not say.
+         * @throws LdapException to stop the search.
+         */
+        void handle( Entry entry, ChangeType changeType ) throws LdapException;
     }
 
 
@@ -666,17 +1419,12 @@ public abstract class LdapDataProvider
         searchRequest.setTypesOnly( attrsOnly );
         searchRequest.addAttributes( attrs );
 
-        SearchCursor result = connection.search( searchRequest );
-
-        Entry entry = result.getEntry();
-
-        if ( result.next() )
+        if ( !Tracer.isEnabled() )
         {
-            throw new LdapException( "searchNode failed to return unique record for LDAP search of base DN [" +
-                baseDn + "] filter [" + filter + "]" );
+            return searchUnique( connection, searchRequest, baseDn, filter );
         }
-
-        return entry;
+        return traced( "searchNode", baseDn, filter, () -> searchUnique( connection, searchRequest, baseDn, filter ),
+            LdapDataProvider::countEntry );
     }
 
 
@@ -709,17 +1457,12 @@ public abstract class LdapDataProvider
         searchRequest.setTypesOnly( attrsOnly );
         searchRequest.addAttributes( attrs );
 
-        SearchCursor result = connection.search( searchRequest );
-
-        Entry entry = result.getEntry();
-
-        if ( result.next() )
+        if ( !Tracer.isEnabled() )
         {
-            throw new LdapException( "searchNode failed to return unique record for LDAP search of base DN [" +
-                baseDn + "] filter [" + filter + "]" );
+            return searchUnique( connection, searchRequest, baseDn, filter );
         }
-
-        return entry;
+        return traced( "searchNode", baseDn, filter, () -> searchUnique( connection, searchRequest, baseDn, filter ),
+            LdapDataProvider::countEntry );
     }
 
 
@@ -741,11 +1484,29 @@ public abstract class LdapDataProvider
      */
     protected boolean compareNode( LdapConnection connection, String dn, String userDn,
         Attribute attribute ) throws LdapException, UnsupportedEncodingException
+    {
+        return compareNode( connection, new Dn( dn ), userDn, attribute );
+    }
+
+
+    /**
+     * Same as {@link #compareNode(LdapConnection, String, String, Attribute)} on an already parsed dn.
+     *
+     * @param connection is LdapConnection object used for all communication with host.
+     * @param dn         contains address of distinguished name to begin ldap search
+     * @param userDn     dn for user node
+     * @param attribute  attribute used for compare
+     * @return true if compare operation succeeds
+     * @throws LdapException                thrown in the event of error in ldap client or server code.
+     * @throws UnsupportedEncodingException in the event the server cannot perform the operation.
+     */
+    protected boolean compareNode( LdapConnection connection, Dn dn, String userDn,
+        Attribute attribute ) throws LdapException, UnsupportedEncodingException
     {
         COUNTERS.incrementCompare();
 
         CompareRequest compareRequest = new CompareRequestImpl();
-        compareRequest.setName( new Dn( dn ) );
+        compareRequest.setName( dn );
         compareRequest.setAttributeId( attribute.getId() );
         compareRequest.setAssertionValue( attribute.getString() );
 
@@ -753,8 +1514,11 @@ public abstract class LdapDataProvider
         ProxiedAuthz proxiedAuthzControl = new ProxiedAuthzImpl();
         proxiedAuthzControl.setAuthzId( "dn: " + userDn );
         compareRequest.addControl( proxiedAuthzControl );
-        CompareResponse response = connection.compare( compareRequest );
-        return response.getLdapResult().getResultCode() == ResultCodeEnum.SUCCESS;
+        if ( !Tracer.isEnabled() )
+        {
+            return compare( connection, compareRequest );
+        }
+        return traced( "compare", dn.getName(), null, () -> compare( connection, compareRequest ) );
     }
 
 
@@ -1192,13 +1956,7 @@ public abstract class LdapDataProvider
     {
         if ( StringUtils.isNotEmpty( value ) )
         {
-            int length = value.length();
-
-            if ( length > validLen )
-            {
-                String error = "encodeSafeText value [" + value + "] invalid length [" + length + "]";
-                throw new LdapException( error );
-            }
+            checkSafeText( value, validLen );
 
             if ( LdapUtil.getInstance().isLdapfilterSizeFound() )
             {
@@ -1210,6 +1968,26 @@ public abstract class LdapDataProvider
     }
 
 
+    /**
+     * Check the length of some text used in a filter built with {@link LdapFilter}, which needs no encoding.
+     *
+     * @param value The value to check
+     * @param validLen The maximum accepted length of the value.
+     * @return String containing the input value.
+     * @throws LdapException If the value is longer than the maximum value
+     */
+    protected String checkSafeText( String value, int validLen ) throws LdapException
+    {
+        if ( value != null && value.length() > validLen )
+        {
+            String error = "checkSafeText value [" + value + "] invalid length [" + value.length() + "]";
+            throw new LdapException( error );
+        }
+
+        return value;
+    }
+
+
     /**
      * Get Password Policy Response Control from LDAP client.
      *
@@ -1240,7 +2018,11 @@ public abstract class LdapDataProvider
         bindReq.setDn( userDn );
         bindReq.setCredentials( password );
         bindReq.addControl( PP_REQ_CTRL );
-        return connection.bind( bindReq );
+        if ( !Tracer.isEnabled() )
+        {
+            return connection.bind( bindReq );
+        }
+        return traced( "bind", szUserDn, null, () -> connection.bind( bindReq ) );
     }
 
 
@@ -1277,6 +2059,17 @@ public abstract class LdapDataProvider
     }
 
 
+    /**
+     * Calls the PoolMgr to close the RBAC Accelerator LDAP connection.
+     *
+     * @param connection handle to ldap connection object.
+     */
+    protected void closeAccelConnection( LdapConnection connection )
+    {
+        LdapConnectionProvider.getInstance().closeAccelConnection( connection );
+    }
+
+
     /**
      * Calls the PoolMgr to get an Admin connection to the LDAP server.
      *
@@ -1289,6 +2082,29 @@ public abstract class LdapDataProvider
     }
 
 
+    /**
+     * Open a connection bound with the admin creds outside of the pools, for a persistent search.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue getting an LDAP connection
+     */
+    protected LdapConnection getListenConnection() throws LdapException
+    {
+        return LdapConnectionProvider.getInstance().getListenConnection();
+    }
+
+
+    /**
+     * Close a connection opened by {@link #getListenConnection()}.
+     *
+     * @param connection handle to ldap connection object.
+     */
+    protected void closeListenConnection( LdapConnection connection )
+    {
+        LdapConnectionProvider.getInstance().closeListenConnection( connection );
+    }
+
+
     /**
      * Calls the PoolMgr to get an Log connection to the LDAP server.
      *
@@ -1301,6 +2117,18 @@ public abstract class LdapDataProvider
     }
 
 
+    /**
+     * Calls the PoolMgr to get an RBAC Accelerator connection to the LDAP server.
+     *
+     * @return ldap connection.
+     * @throws LdapException If we had an issue getting an LDAP connection
+     */
+    protected LdapConnection getAccelConnection() throws LdapException
+    {
+        return LdapConnectionProvider.getInstance().getAccelConnection();
+    }
+
+
     /**
      * Calls the PoolMgr to get an User connection to the LDAP server.
      *
@@ -1336,37 +2164,7 @@ public abstract class LdapDataProvider
      */
     protected String escapeLDAPSearchFilter( String filter )
     {
-        StringBuilder sb = new StringBuilder();
-        int filterLen = filter.length();
-
-        for ( int i = 0; i < filterLen; i++ )
-        {
-            boolean found = false;
-            char curChar = filter.charAt( i );
-            int j = 0;
-
-            for ( ; j < GlobalIds.LDAP_FILTER_SIZE; j++ )
-            {
-                if ( LdapUtil.getInstance().getLdapMetaChars()[j] > curChar )
-                {
-                    break;
-                }
-                else if ( curChar == LdapUtil.getInstance().getLdapMetaChars()[j] )
-                {
-                    sb.append( "\\" );
-                    sb.append( LdapUtil.getInstance().getLdapReplVals()[j] );
-                    found = true;
-                    break;
-                }
-            }
-
-            if ( !found )
-            {
-                sb.append( curChar );
-            }
-        }
-
-        return sb.toString();
+        return LdapUtil.getInstance().escape( filter );
     }
 
     /**
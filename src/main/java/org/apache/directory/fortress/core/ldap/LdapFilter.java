@@ -0,0 +1,207 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.filter.AndNode;
+import org.apache.directory.api.ldap.model.filter.EqualityNode;
+import org.apache.directory.api.ldap.model.filter.ExprNode;
+import org.apache.directory.api.ldap.model.filter.GreaterEqNode;
+import org.apache.directory.api.ldap.model.filter.NotNode;
+import org.apache.directory.api.ldap.model.filter.OrNode;
+import org.apache.directory.api.ldap.model.filter.PresenceNode;
+import org.apache.directory.api.ldap.model.filter.SubstringNode;
+
+
+/**
+ * Builds ldap search filters as filter nodes, to be passed to the
+ * {@link LdapDataProvider} search methods that accept an {@link ExprNode}.
+ * <p>
+ * Building the nodes directly skips appending the filter to a string and the ldap api parsing it back on every search,
+ * which is significant for the large OR filters made of every role in a hierarchy.  Values are carried as is, they must
+ * not be escaped with {@link LdapDataProvider#encodeSafeText(String, int)}.
+ * <p>
+ * The nodes that never change, i.e. the objectClass assertions, are cached and shared by every search.  They must not
+ * be modified.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class LdapFilter
+{
+    private static final Map<String, ExprNode> OBJECT_CLASSES = new ConcurrentHashMap<>();
+
+
+    private LdapFilter()
+    {
+    }
+
+
+    /**
+     * Return the (objectClass=name) filter node.
+     *
+     * @param name contains the name of the object class.
+     * @return shared filter node, must not be modified.
+     */
+    public static ExprNode objectClass( String name )
+    {
+        return OBJECT_CLASSES.computeIfAbsent( name, n -> new EqualityNode<String>( SchemaConstants.OBJECT_CLASS_AT, n ) );
+    }
+
+
+    /**
+     * Return the (attribute=value) filter node.
+     *
+     * @param attribute contains the attribute name.
+     * @param value     contains the unescaped value.
+     * @return filter node.
+     */
+    public static ExprNode equal( String attribute, String value )
+    {
+        return new EqualityNode<String>( attribute, value );
+    }
+
+
+    /**
+     * Return the (attribute=initial*) filter node, or (attribute=*) if initial is empty.
+     *
+     * @param attribute contains the attribute name.
+     * @param initial   contains the unescaped leading value, may be null.
+     * @return filter node.
+     */
+    public static ExprNode startsWith( String attribute, String initial )
+    {
+        if ( StringUtils.isEmpty( initial ) )
+        {
+            return new PresenceNode( attribute );
+        }
+        return new SubstringNode( attribute, initial, null );
+    }
+
+
+    /**
+     * Return the (attribute&gt;=value) filter node.
+     *
+     * @param attribute contains the attribute name.
+     * @param value     contains the unescaped value.
+     * @return filter node.
+     * @throws LdapException if the node cannot be built.
+     */
+    public static ExprNode greaterOrEqual( String attribute, String value ) throws LdapException
+    {
+        return new GreaterEqNode<String>( attribute, value );
+    }
+
+
+    /**
+     * Return the (!(node)) filter node.
+     *
+     * @param node contains the node that must not match.
+     * @return filter node.
+     */
+    public static ExprNode not( ExprNode node )
+    {
+        NotNode notNode = new NotNode();
+        notNode.addNode( node );
+        return notNode;
+    }
+
+
+    /**
+     * Return the (&amp;(node1)(node2)...) filter node.
+     *
+     * @param nodes contains the nodes that must all match.
+     * @return filter node.
+     */
+    public static ExprNode and( ExprNode... nodes )
+    {
+        return new AndNode( nodes );
+    }
+
+
+    /**
+     * Return the (|(node1)(node2)...) filter node.
+     *
+     * @param nodes contains the nodes of which one must match.
+     * @return filter node.
+     */
+    public static ExprNode or( ExprNode... nodes )
+    {
+        return new OrNode( nodes );
+    }
+
+
+    /**
+     * Return the (|(attribute=value1)(attribute=value2)...) filter node, or (attribute=value1) if there is only one
+     * value.
+     *
+     * @param attribute contains the attribute name.
+     * @param values    contains the unescaped values, must not be empty.
+     * @return filter node.
+     */
+    public static ExprNode anyOf( String attribute, Collection<String> values )
+    {
+        if ( values.size() == 1 )
+        {
+            return equal( attribute, values.iterator().next() );
+        }
+        List<ExprNode> nodes = new ArrayList<>( values.size() );
+        for ( String value : values )
+        {
+            nodes.add( equal( attribute, value ) );
+        }
+        return new OrNode( nodes );
+    }
+
+
+    /**
+     * Return the (|(attribute=first)(attribute=value1)...) filter node, or (attribute=first) if there are no other
+     * values.
+     *
+     * @param attribute contains the attribute name.
+     * @param first     contains the first unescaped value.
+     * @param values    contains the other unescaped values, may be null.
+     * @return filter node.
+     */
+    public static ExprNode anyOf( String attribute, String first, Collection<String> values )
+    {
+        if ( values == null || values.isEmpty() )
+        {
+            return equal( attribute, first );
+        }
+        List<ExprNode> nodes = new ArrayList<>( values.size() + 1 );
+        nodes.add( equal( attribute, first ) );
+        for ( String value : values )
+        {
+            nodes.add( equal( attribute, value ) );
+        }
+        return new OrNode( nodes );
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import org.apache.directory.ldap.client.api.LdapConnectionPool;
+
+
+/**
+ * Point in time statistics of one ldap connection pool, returned by {@link LdapConnectionProvider#getPoolStats()}.
+ * <p>
+ * This class is immutable and thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class PoolStats
+{
+    private final String name;
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxTotal;
+    private final long borrowed;
+    private final long created;
+    private final long destroyed;
+    private final long meanBorrowWaitMillis;
+    private final long maxBorrowWaitMillis;
+
+
+    PoolStats( String name, LdapConnectionPool pool )
+    {
+        this.name = name;
+        this.active = pool.getNumActive();
+        this.idle = pool.getNumIdle();
+        this.waiters = pool.getNumWaiters();
+        this.maxTotal = pool.getMaxTotal();
+        this.borrowed = pool.getBorrowedCount();
+        this.created = pool.getCreatedCount();
+        this.destroyed = pool.getDestroyedCount();
+        this.meanBorrowWaitMillis = pool.getMeanBorrowWaitTimeMillis();
+        this.maxBorrowWaitMillis = pool.getMaxBorrowWaitTimeMillis();
+    }
+
+
+    /**
+     * @return name of the pool, i.e. admin, user, log or accel.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * @return number of connections currently borrowed.
+     */
+    public int getActive()
+    {
+        return active;
+    }
+
+
+    /**
+     * @return number of connections currently idle in the pool.
+     */
+    public int getIdle()
+    {
+        return idle;
+    }
+
+
+    /**
+     * @return number of callers currently blocked waiting for a connection.
+     */
+    public int getWaiters()
+    {
+        return waiters;
+    }
+
+
+    /**
+     * @return maximum number of connections the pool may open, negative for no limit.
+     */
+    public int getMaxTotal()
+    {
+        return maxTotal;
+    }
+
+
+    /**
+     * @return number of connections borrowed since the pool was created.
+     */
+    public long getBorrowed()
+    {
+        return borrowed;
+    }
+
+
+    /**
+     * @return number of connections opened since the pool was created.
+     */
+    public long getCreated()
+    {
+        return created;
+    }
+
+
+    /**
+     * @return number of connections closed since the pool was created.
+     */
+    public long getDestroyed()
+    {
+        return destroyed;
+    }
+
+
+    /**
+     * @return mean time the recent borrowers waited for a connection, in milliseconds.
+     */
+    public long getMeanBorrowWaitMillis()
+    {
+        return meanBorrowWaitMillis;
+    }
+
+
+    /**
+     * @return longest time a borrower waited for a connection, in milliseconds.
+     */
+    public long getMaxBorrowWaitMillis()
+    {
+        return maxBorrowWaitMillis;
+    }
+
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString()
+    {
+        return "PoolStats name [" + name + "] active [" + active + "] idle [" + idle + "] waiters [" + waiters
+            + "] maxTotal [" + maxTotal + "] borrowed [" + borrowed + "] created [" + created + "] destroyed ["
+            + destroyed + "] meanBorrowWaitMillis [" + meanBorrowWaitMillis + "] maxBorrowWaitMillis ["
+            + maxBorrowWaitMillis + "]";
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.ldap;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.api.ldap.extras.controls.ad.TreeDelete;
+import org.apache.directory.api.ldap.extras.controls.ad.TreeDeleteImpl;
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.cursor.CursorException;
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.exception.LdapContextNotEmptyException;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.exception.LdapNoSuchObjectException;
+import org.apache.directory.api.ldap.model.exception.LdapOperationErrorException;
+import org.apache.directory.api.ldap.model.exception.LdapUnwillingToPerformException;
+import org.apache.directory.api.ldap.model.message.DeleteRequest;
+import org.apache.directory.api.ldap.model.message.DeleteRequestImpl;
+import org.apache.directory.api.ldap.model.message.DeleteResponse;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.trace.TraceSpan;
+import org.apache.directory.fortress.core.util.trace.Tracer;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Removes an entry and all of its descendants, called by {@link LdapDataProvider#deleteRecursive}.
+ * <p>
+ * When the server advertises the tree delete control the whole subtree is removed with a single request.  Otherwise
+ * the dns are collected with one subtree search and removed level by level, deepest first.  The entries of a level
+ * have no children left, so they are spread over up to {@link GlobalIds#SUBTREE_DELETE_THREADS} threads, each using
+ * its own admin connection from the pool.  Progress is logged at info level.
+ * <p>
+ * When the server caps the size of the search, what was returned is removed and the search is repeated until the
+ * subtree is gone.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class SubtreeDelete
+{
+    private static final String CLS_NM = SubtreeDelete.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final int DEFAULT_THREADS = 4;
+    // a level smaller than this is not worth handing to other threads:
+    private static final int MIN_PARALLEL = 64;
+    private static final int PROGRESS_INTERVAL = 1000;
+    // whether the server supports tree delete, null until the root dse has been read:
+    private static volatile Boolean treeDeleteSupported;
+    private final LdapDataProvider provider;
+    private final String dn;
+    private final AtomicInteger deleted = new AtomicInteger();
+    private int total;
+    private long begin;
+
+
+    SubtreeDelete( LdapDataProvider provider, String dn )
+    {
+        this.provider = provider;
+        this.dn = dn;
+    }
+
+
+    /**
+     * Remove the subtree.
+     *
+     * @param connection contains the caller's connection, used for the search and the tree delete request.
+     * @throws LdapException   in the event system error occurs.
+     * @throws CursorException in the event the search results cannot be read.
+     */
+    void run( LdapConnection connection ) throws LdapException, CursorException
+    {
+        begin = System.currentTimeMillis();
+        if ( isTreeDeleteSupported( connection ) && treeDelete( connection ) )
+        {
+            LOG.info( "deleteRecursive dn [{}] removed with tree delete in [{}] ms", dn,
+                System.currentTimeMillis() - begin );
+            return;
+        }
+        int threads = Math.max( 1, Config.getInstance().getInt( GlobalIds.SUBTREE_DELETE_THREADS, DEFAULT_THREADS ) );
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool( threads, new DeleteThreadFactory() )
+            : null;
+        try
+        {
+            for ( ;; )
+            {
+                Map<Integer, List<Dn>> levels = collect( connection );
+                if ( levels.isEmpty() )
+                {
+                    break;
+                }
+                int before = deleted.get();
+                for ( List<Dn> level : levels.values() )
+                {
+                    deleteLevel( connection, level, executor, threads );
+                }
+                if ( deleted.get() == before )
+                {
+                    String error = "deleteRecursive dn [" + dn + "] no entry could be removed";
+                    throw new LdapOperationErrorException( error );
+                }
+            }
+        }
+        finally
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+            }
+        }
+        LOG.info( "deleteRecursive dn [{}] removed [{}] entries in [{}] ms", dn, deleted.get(),
+            System.currentTimeMillis() - begin );
+    }
+
+
+    private boolean isTreeDeleteSupported( LdapConnection connection )
+    {
+        Boolean supported = treeDeleteSupported;
+        if ( supported == null )
+        {
+            try
+            {
+                supported = connection.isControlSupported( TreeDelete.OID );
+            }
+            catch ( LdapException e )
+            {
+                LOG.warn( "isTreeDeleteSupported could not read the supported controls, exception={}",
+                    e.getMessage() );
+                supported = Boolean.FALSE;
+            }
+            treeDeleteSupported = supported;
+        }
+        return supported;
+    }
+
+
+    /**
+     * @return true if the subtree was removed, false if the server refused the control.
+     */
+    private boolean treeDelete( LdapConnection connection ) throws LdapException
+    {
+        DeleteRequest deleteRequest = new DeleteRequestImpl();
+        deleteRequest.setName( new Dn( dn ) );
+        deleteRequest.addControl( new TreeDeleteImpl() );
+        LdapDataProvider.getLdapCounters().incrementDelete();
+        TraceSpan span = Tracer.start( TraceSpan.Kind.DAO, "treeDelete", null, dn, null );
+        try
+        {
+            DeleteResponse response = connection.delete( deleteRequest );
+            ResultCodeEnum.processResponse( response );
+            return true;
+        }
+        catch ( LdapUnwillingToPerformException e )
+        {
+            LOG.warn( "treeDelete dn [{}] refused by server, deleting entries one by one", dn );
+            treeDeleteSupported = Boolean.FALSE;
+            return false;
+        }
+        catch ( LdapException | RuntimeException e )
+        {
+            Tracer.end( span, -1, e );
+            throw e;
+        }
+        finally
+        {
+            Tracer.end( span );
+        }
+    }
+
+
+    /**
+     * @return dns of the subtree, the entry itself included, grouped by depth, deepest first.
+     */
+    private Map<Integer, List<Dn>> collect( LdapConnection connection ) throws LdapException, CursorException
+    {
+        Map<Integer, List<Dn>> levels = new TreeMap<>( Collections.reverseOrder() );
+        int found = 0;
+        try ( SearchCursor cursor = provider.search( connection, dn, SearchScope.SUBTREE,
+            "(" + SchemaConstants.OBJECT_CLASS_AT + "=*)", SchemaConstants.NO_ATTRIBUTE_ARRAY, false, 0 ) )
+        {
+            while ( cursor.next() )
+            {
+                if ( cursor.isEntry() )
+                {
+                    Dn entryDn = cursor.getEntry().getDn();
+                    levels.computeIfAbsent( entryDn.size(), k -> new ArrayList<>() ).add( entryDn );
+                    found++;
+                }
+            }
+        }
+        catch ( LdapNoSuchObjectException e )
+        {
+            if ( deleted.get() == 0 )
+            {
+                throw e;
+            }
+            // the subtree is gone:
+            return levels;
+        }
+        catch ( IOException e )
+        {
+            throw new LdapException( "deleteRecursive dn [" + dn + "] could not close search", e );
+        }
+        total = deleted.get() + found;
+        return levels;
+    }
+
+
+    private void deleteLevel( LdapConnection connection, List<Dn> level, ExecutorService executor, int threads )
+        throws LdapException
+    {
+        if ( executor == null || level.size() < MIN_PARALLEL )
+        {
+            delete( connection, level );
+            return;
+        }
+        int chunk = ( level.size() + threads - 1 ) / threads;
+        List<Future<Void>> futures = new ArrayList<>( threads );
+        for ( int from = 0; from < level.size(); from += chunk )
+        {
+            List<Dn> part = level.subList( from, Math.min( level.size(), from + chunk ) );
+            futures.add( executor.submit( () ->
+            {
+                LdapConnection ld = provider.getAdminConnection();
+                try
+                {
+                    delete( ld, part );
+                }
+                finally
+                {
+                    provider.closeAdminConnection( ld );
+                }
+                return null;
+            } ) );
+        }
+        LdapException error = null;
+        for ( Future<Void> future : futures )
+        {
+            try
+            {
+                future.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new LdapException( "deleteRecursive dn [" + dn + "] interrupted", e );
+            }
+            catch ( ExecutionException e )
+            {
+                if ( error == null )
+                {
+                    error = e.getCause() instanceof LdapException ? ( LdapException ) e.getCause() :
+                        new LdapException( e.getCause() );
+                }
+            }
+        }
+        if ( error != null )
+        {
+            throw error;
+        }
+    }
+
+
+    private void delete( LdapConnection connection, List<Dn> entries ) throws LdapException
+    {
+        for ( Dn entryDn : entries )
+        {
+            try
+            {
+                provider.delete( connection, entryDn.getName() );
+            }
+            catch ( LdapNoSuchObjectException | LdapContextNotEmptyException e )
+            {
+                // removed by someone else, or its children were beyond the search size limit, next pass handles it:
+                LOG.debug( "deleteRecursive dn [{}] skipped, exception={}", entryDn, e.getMessage() );
+                continue;
+            }
+            int count = deleted.incrementAndGet();
+            if ( count % PROGRESS_INTERVAL == 0 )
+            {
+                LOG.info( "deleteRecursive dn [{}] removed [{}] of [{}] entries in [{}] ms", dn, count, total,
+                    System.currentTimeMillis() - begin );
+            }
+        }
+    }
+
+
+    /**
+     * Names the delete threads and marks them as daemons so they never hold up jvm shutdown.
+     */
+    private static final class DeleteThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+
+        @Override
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, "fortress-delete-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
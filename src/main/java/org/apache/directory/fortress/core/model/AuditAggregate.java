@@ -0,0 +1,352 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlEnum;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlType;
+
+
+/**
+ * This entity is used to pass the criteria of an audit aggregation into
+ * {@link org.apache.directory.fortress.core.AuditMgr#aggregate(AuditAggregate)}.
+ * <p>
+ * The events of one {@link #event} type that occurred within the time window [{@link #beginDate}, {@link #endDate})
+ * are counted per time bucket of {@link #bucketSeconds} and per distinct value of the {@link #groupBy} keys.  The
+ * optional {@link #userId}, {@link #objName}, {@link #opName} and {@link #failedOnly} fields limit the events counted.
+ * The counts are returned as {@link AuditCount} rows, for example the failed binds per user per hour:
+ * <pre>
+ * AuditAggregate query = new AuditAggregate( AuditAggregate.Event.BIND, begin, end, 3600 );
+ * query.setFailedOnly( true );
+ * query.addGroupBy( AuditAggregate.GroupBy.USER );
+ * </pre>
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@XmlRootElement(name = "fortAuditAggregate")
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(name = "auditAggregate", propOrder =
+    {
+        "event",
+        "beginDate",
+        "endDate",
+        "bucketSeconds",
+        "groupBy",
+        "userId",
+        "objName",
+        "opName",
+        "failedOnly",
+        "admin"
+})
+public class AuditAggregate extends FortEntity implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private Event event;
+    private Date beginDate;
+    private Date endDate;
+    private long bucketSeconds;
+    private List<GroupBy> groupBy;
+    private String userId;
+    private String objName;
+    private String opName;
+    private boolean failedOnly;
+    private boolean admin;
+
+
+    /**
+     * The kind of access log events counted.
+     */
+    @XmlType(name = "auditEvent")
+    @XmlEnum
+    public enum Event
+    {
+        /** Authentications, read from the auditBind entries. */
+        BIND,
+        /** Authorizations, i.e. checkAccess, read from the auditCompare entries. */
+        AUTHZ
+    }
+
+
+    /**
+     * The fields the counts are grouped by, in addition to the time bucket.
+     */
+    @XmlType(name = "auditGroupBy")
+    @XmlEnum
+    public enum GroupBy
+    {
+        /** The userId that bound or was authorized. */
+        USER,
+        /** The object name of the permission checked, authorizations only. */
+        OBJECT,
+        /** The operation name of the permission checked, authorizations only. */
+        OPERATION,
+        /** The ldap result code of the event. */
+        RESULT
+    }
+
+
+    /**
+     * Default constructor used by JAXB.
+     */
+    public AuditAggregate()
+    {
+    }
+
+
+    /**
+     * Construct the criteria for the given events, time window and bucket size.
+     *
+     * @param event         contains the kind of events counted.
+     * @param beginDate     contains the start of the window, inclusive.
+     * @param endDate       contains the end of the window, exclusive, now if null.
+     * @param bucketSeconds contains the size of the time buckets, 0 for a single bucket covering the window.
+     */
+    public AuditAggregate( Event event, Date beginDate, Date endDate, long bucketSeconds )
+    {
+        this.event = event;
+        this.beginDate = beginDate;
+        this.endDate = endDate;
+        this.bucketSeconds = bucketSeconds;
+    }
+
+
+    /**
+     * @return the kind of events counted.
+     */
+    public Event getEvent()
+    {
+        return event;
+    }
+
+
+    /**
+     * @param event contains the kind of events counted.
+     */
+    public void setEvent( Event event )
+    {
+        this.event = event;
+    }
+
+
+    /**
+     * @return the start of the time window, inclusive.
+     */
+    public Date getBeginDate()
+    {
+        return beginDate;
+    }
+
+
+    /**
+     * @param beginDate contains the start of the time window, inclusive.  Required.
+     */
+    public void setBeginDate( Date beginDate )
+    {
+        this.beginDate = beginDate;
+    }
+
+
+    /**
+     * @return the end of the time window, exclusive, null for now.
+     */
+    public Date getEndDate()
+    {
+        return endDate;
+    }
+
+
+    /**
+     * @param endDate contains the end of the time window, exclusive, null for now.
+     */
+    public void setEndDate( Date endDate )
+    {
+        this.endDate = endDate;
+    }
+
+
+    /**
+     * @return the size of the time buckets in seconds, 0 for a single bucket covering the window.
+     */
+    public long getBucketSeconds()
+    {
+        return bucketSeconds;
+    }
+
+
+    /**
+     * Buckets start at the begin date, i.e. a begin date on the hour with 3600 second buckets counts per clock hour.
+     *
+     * @param bucketSeconds contains the size of the time buckets in seconds, 0 for a single bucket covering the window.
+     */
+    public void setBucketSeconds( long bucketSeconds )
+    {
+        this.bucketSeconds = bucketSeconds;
+    }
+
+
+    /**
+     * @return the keys the counts are grouped by, never null.
+     */
+    public List<GroupBy> getGroupBy()
+    {
+        if ( groupBy == null )
+        {
+            groupBy = new ArrayList<>();
+        }
+        return groupBy;
+    }
+
+
+    /**
+     * @param groupBy contains the keys the counts are grouped by, empty to count per bucket only.
+     */
+    public void setGroupBy( List<GroupBy> groupBy )
+    {
+        this.groupBy = groupBy;
+    }
+
+
+    /**
+     * @param key contains a key the counts are grouped by.
+     */
+    public void addGroupBy( GroupBy key )
+    {
+        getGroupBy().add( key );
+    }
+
+
+    /**
+     * @return the optional userId the events are limited to.
+     */
+    public String getUserId()
+    {
+        return userId;
+    }
+
+
+    /**
+     * @param userId contains the optional userId the events are limited to.
+     */
+    public void setUserId( String userId )
+    {
+        this.userId = userId;
+    }
+
+
+    /**
+     * @return the optional permission object name the authorizations are limited to.
+     */
+    public String getObjName()
+    {
+        return objName;
+    }
+
+
+    /**
+     * @param objName contains the optional permission object name the authorizations are limited to.
+     */
+    public void setObjName( String objName )
+    {
+        this.objName = objName;
+    }
+
+
+    /**
+     * @return the optional permission operation name the authorizations are limited to.
+     */
+    public String getOpName()
+    {
+        return opName;
+    }
+
+
+    /**
+     * @param opName contains the optional permission operation name the authorizations are limited to.
+     */
+    public void setOpName( String opName )
+    {
+        this.opName = opName;
+    }
+
+
+    /**
+     * @return true if only failed binds or denied authorizations are counted.
+     */
+    public boolean isFailedOnly()
+    {
+        return failedOnly;
+    }
+
+
+    /**
+     * @param failedOnly if true only failed binds or denied authorizations are counted.
+     */
+    public void setFailedOnly( boolean failedOnly )
+    {
+        this.failedOnly = failedOnly;
+    }
+
+
+    /**
+     * @return true if the authorizations counted are on administrative permissions.
+     */
+    public boolean isAdmin()
+    {
+        return admin;
+    }
+
+
+    /**
+     * @param admin if true the authorizations counted are on administrative permissions.
+     */
+    public void setAdmin( boolean admin )
+    {
+        this.admin = admin;
+    }
+
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "AuditAggregate object: \n" +
+            "    event :" + event + "\n" +
+            "    beginDate :" + beginDate + "\n" +
+            "    endDate :" + endDate + "\n" +
+            "    bucketSeconds :" + bucketSeconds + "\n" +
+            "    groupBy :" + groupBy + "\n" +
+            "    userId :" + userId + "\n" +
+            "    objName :" + objName + "\n" +
+            "    opName :" + opName + "\n" +
+            "    failedOnly :" + failedOnly + "\n";
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+import java.io.Serializable;
+import java.util.Date;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlType;
+
+
+/**
+ * This entity carries one row returned by {@link org.apache.directory.fortress.core.AuditMgr#aggregate(AuditAggregate)}:
+ * the number of events that occurred within one time bucket with one combination of the grouped fields.
+ * <p>
+ * Only the fields named by {@link AuditAggregate#getGroupBy()} are set, the others are null.  The {@link #result} is the
+ * ldap result code of the event, i.e. 0 for a successful bind, 49 for invalid credentials, 6 for a granted
+ * authorization and 5 for a denied one.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@XmlRootElement(name = "fortAuditCount")
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(name = "auditCount", propOrder =
+    {
+        "bucketBegin",
+        "userId",
+        "objName",
+        "opName",
+        "result",
+        "count"
+})
+public class AuditCount extends FortEntity implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private Date bucketBegin;
+    private String userId;
+    private String objName;
+    private String opName;
+    private String result;
+    private long count;
+
+
+    /**
+     * Default constructor used by JAXB.
+     */
+    public AuditCount()
+    {
+    }
+
+
+    /**
+     * Construct a row.
+     *
+     * @param bucketBegin contains the start of the time bucket.
+     * @param userId      contains the userId, null if not grouped by user.
+     * @param objName     contains the object name, null if not grouped by object.
+     * @param opName      contains the operation name, null if not grouped by operation.
+     * @param result      contains the ldap result code, null if not grouped by result.
+     * @param count       contains the number of events.
+     */
+    public AuditCount( Date bucketBegin, String userId, String objName, String opName, String result, long count )
+    {
+        this.bucketBegin = bucketBegin;
+        this.userId = userId;
+        this.objName = objName;
+        this.opName = opName;
+        this.result = result;
+        this.count = count;
+    }
+
+
+    /**
+     * @return the start of the time bucket.
+     */
+    public Date getBucketBegin()
+    {
+        return bucketBegin;
+    }
+
+
+    /**
+     * @param bucketBegin contains the start of the time bucket.
+     */
+    public void setBucketBegin( Date bucketBegin )
+    {
+        this.bucketBegin = bucketBegin;
+    }
+
+
+    /**
+     * @return the userId, null if not grouped by user.
+     */
+    public String getUserId()
+    {
+        return userId;
+    }
+
+
+    /**
+     * @param userId contains the userId.
+     */
+    public void setUserId( String userId )
+    {
+        this.userId = userId;
+    }
+
+
+    /**
+     * @return the permission object name, null if not grouped by object.
+     */
+    public String getObjName()
+    {
+        return objName;
+    }
+
+
+    /**
+     * @param objName contains the permission object name.
+     */
+    public void setObjName( String objName )
+    {
+        this.objName = objName;
+    }
+
+
+    /**
+     * @return the permission operation name, null if not grouped by operation.
+     */
+    public String getOpName()
+    {
+        return opName;
+    }
+
+
+    /**
+     * @param opName contains the permission operation name.
+     */
+    public void setOpName( String opName )
+    {
+        this.opName = opName;
+    }
+
+
+    /**
+     * @return the ldap result code of the events, null if not grouped by result.
+     */
+    public String getResult()
+    {
+        return result;
+    }
+
+
+    /**
+     * @param result contains the ldap result code of the events.
+     */
+    public void setResult( String result )
+    {
+        this.result = result;
+    }
+
+
+    /**
+     * @return the number of events.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+
+    /**
+     * @param count contains the number of events.
+     */
+    public void setCount( long count )
+    {
+        this.count = count;
+    }
+
+
+    /**
+     * @see Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return "AuditCount object: \n" +
+            "    bucketBegin :" + bucketBegin + "\n" +
+            "    userId :" + userId + "\n" +
+            "    objName :" + objName + "\n" +
+            "    opName :" + opName + "\n" +
+            "    result :" + result + "\n" +
+            "    count :" + count + "\n";
+    }
+}
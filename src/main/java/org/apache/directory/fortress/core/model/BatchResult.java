@@ -0,0 +1,185 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+import java.io.Serializable;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlType;
+
+
+/**
+ * This entity carries the outcome of a single item processed by one of the bulk write APIs, i.e.
+ * {@link org.apache.directory.fortress.core.AdminMgr#addUsers(java.util.List)}.
+ * <p>
+ * One BatchResult is returned for every item passed in, in the same order as the input list.  The {@link #errorCode}
+ * will be 0 if the item was processed successfully, otherwise it contains the Fortress error id from
+ * {@link org.apache.directory.fortress.core.GlobalErrIds} that would have been thrown by the single entity API.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@XmlRootElement(name = "fortBatchResult")
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlType(name = "batchResult", propOrder =
+    {
+        "entity",
+        "errorCode",
+        "errorMessage"
+})
+public class BatchResult extends FortEntity implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private FortEntity entity;
+    private int errorCode;
+    private String errorMessage;
+
+
+    /**
+     * Default constructor used by JAXB.
+     */
+    public BatchResult()
+    {
+    }
+
+
+    /**
+     * Construct a successful result for the given item.
+     *
+     * @param entity contains the item that was processed.
+     */
+    public BatchResult( FortEntity entity )
+    {
+        this.entity = entity;
+    }
+
+
+    /**
+     * Construct a failed result for the given item.
+     *
+     * @param entity contains the item that was processed.
+     * @param errorCode contains the Fortress error id.
+     * @param errorMessage contains the error text.
+     */
+    public BatchResult( FortEntity entity, int errorCode, String errorMessage )
+    {
+        this.entity = entity;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+
+    /**
+     * Return the item from the input list this result belongs to.
+     *
+     * @return the processed entity, i.e. {@link User}, {@link UserRole} or {@link PermGrant}.
+     */
+    public FortEntity getEntity()
+    {
+        return entity;
+    }
+
+
+    /**
+     * Set the item from the input list this result belongs to.
+     *
+     * @param entity the processed entity.
+     */
+    public void setEntity( FortEntity entity )
+    {
+        this.entity = entity;
+    }
+
+
+    /**
+     * Return the Fortress error id for this item or 0 if it was processed successfully.
+     *
+     * @return int maps to {@link org.apache.directory.fortress.core.GlobalErrIds}.
+     */
+    public int getErrorCode()
+    {
+        return errorCode;
+    }
+
+
+    /**
+     * Set the Fortress error id for this item.
+     *
+     * @param errorCode maps to {@link org.apache.directory.fortress.core.GlobalErrIds}.
+     */
+    public void setErrorCode( int errorCode )
+    {
+        this.errorCode = errorCode;
+    }
+
+
+    /**
+     * Return the error message for this item or null if it was processed successfully.
+     *
+     * @return String containing error text.
+     */
+    public String getErrorMessage()
+    {
+        return errorMessage;
+    }
+
+
+    /**
+     * Set the error message for this item.
+     *
+     * @param errorMessage contains error text.
+     */
+    public void setErrorMessage( String errorMessage )
+    {
+        this.errorMessage = errorMessage;
+    }
+
+
+    /**
+     * Return true if this item was processed without error.
+     *
+     * @return boolean true if {@link #errorCode} is 0.
+     */
+    public boolean isSuccess()
+    {
+        return errorCode == 0;
+    }
+
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append( "BatchResult object: \n" );
+
+        sb.append( "    entity :" ).append( entity ).append( '\n' );
+        sb.append( "    errorCode :" ).append( errorCode ).append( '\n' );
+        sb.append( "    errorMessage :" ).append( errorMessage ).append( '\n' );
+
+        return sb.toString();
+    }
+}
@@ -94,7 +94,10 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo.Id;
         PermissionAttribute.class,
         PermissionAttributeSet.class,
         RoleConstraint.class,
-        Configuration.class
+        Configuration.class,
+        BatchResult.class,
+        AuditAggregate.class,
+        AuditCount.class
 })
 @JsonTypeInfo(use=Id.CLASS, include=As.PROPERTY, property="fqcn", visible=false)
 public abstract class FortEntity
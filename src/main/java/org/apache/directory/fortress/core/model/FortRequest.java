@@ -21,6 +21,8 @@ package org.apache.directory.fortress.core.model;
 
 import jakarta.xml.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * This class is used to pass request data to Fortress Rest server.
  * <p>
@@ -34,6 +36,7 @@ import jakarta.xml.bind.annotation.*;
 {
     "entity",
     "entity2",
+    "entities",
     "value",
     "limit",
     "contextId",
@@ -44,6 +47,7 @@ public class FortRequest
 {
     private FortEntity entity;
     private FortEntity entity2;
+    private List<FortEntity> entities;
     private Session session;
     private String value;
     private Integer limit;
@@ -69,6 +73,16 @@ public class FortRequest
         this.entity2 = entity2;
     }
 
+    public <T extends FortEntity> List<T> getEntities()
+    {
+        return (List<T>)entities;
+    }
+
+    public <T extends FortEntity> void setEntities(List<T> entities)
+    {
+        this.entities = (List<FortEntity>)entities;
+    }
+
     public String getValue()
     {
         return value;
@@ -70,6 +70,9 @@ public class ObjectFactory
     private static final QName FORTPERMATTR_QNAME = new QName( "", "fortPermissionAttribute" );
     private static final QName FORTPERMATTRSET_QNAME = new QName( "", "fortPermissionAttributeSet" );
     private static final QName FORTROLECONSTRAINT_QNAME = new QName( "", "fortRoleConstraint" );
+    private static final QName FORTBATCHRESULT_QNAME = new QName( "", "fortBatchResult" );
+    private static final QName FORTAUDITAGGREGATE_QNAME = new QName( "", "fortAuditAggregate" );
+    private static final QName FORTAUDITCOUNT_QNAME = new QName( "", "fortAuditCount" );
 
 
     /**
@@ -372,6 +375,36 @@ public class ObjectFactory
     }
 
 
+    /**
+     * Create an instance of {@link JAXBElement }{@code <}{@link org.apache.directory.fortress.core.model.BatchResult }{@code >}}
+     */
+    @XmlElementDecl(namespace = "", name = "fortBatchResult")
+    public JAXBElement<BatchResult> createFortBatchResult( BatchResult value )
+    {
+        return new JAXBElement<>( FORTBATCHRESULT_QNAME, BatchResult.class, null, value );
+    }
+
+
+    /**
+     * Create an instance of {@link JAXBElement }{@code <}{@link org.apache.directory.fortress.core.model.AuditAggregate }{@code >}}
+     */
+    @XmlElementDecl(namespace = "", name = "fortAuditAggregate")
+    public JAXBElement<AuditAggregate> createFortAuditAggregate( AuditAggregate value )
+    {
+        return new JAXBElement<>( FORTAUDITAGGREGATE_QNAME, AuditAggregate.class, null, value );
+    }
+
+
+    /**
+     * Create an instance of {@link JAXBElement }{@code <}{@link org.apache.directory.fortress.core.model.AuditCount }{@code >}}
+     */
+    @XmlElementDecl(namespace = "", name = "fortAuditCount")
+    public JAXBElement<AuditCount> createFortAuditCount( AuditCount value )
+    {
+        return new JAXBElement<>( FORTAUDITCOUNT_QNAME, AuditCount.class, null, value );
+    }
+
+
     /**
      * Create a new ObjectFactory that can be used to create new instances of schema derived classes for package: org.apache.directory.fortress.model2
      */
@@ -656,4 +689,31 @@ public class ObjectFactory
     {
         return new RoleConstraint();
     }
+
+
+    /**
+     * Create an instance of {@link BatchResult}
+     */
+    public BatchResult createBatchResult()
+    {
+        return new BatchResult();
+    }
+
+
+    /**
+     * Create an instance of {@link AuditAggregate}
+     */
+    public AuditAggregate createAuditAggregate()
+    {
+        return new AuditAggregate();
+    }
+
+
+    /**
+     * Create an instance of {@link AuditCount}
+     */
+    public AuditCount createAuditCount()
+    {
+        return new AuditCount();
+    }
 }
@@ -0,0 +1,305 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+
+/**
+ * List of {@link UserRole}s, or {@link UserAdminRole}s, that also indexes its roles by name.  The {@link User} and
+ * {@link Session} role collections use it so that checking whether a role is assigned or activated does not scan the
+ * whole list, which matters for users with hundreds of assignments.
+ * <p>
+ * It behaves as any other list, it may be passed to, and is marshalled as, a {@code List<UserRole>}.  Role names are
+ * matched ignoring case, the same as {@link UserRole#equals(Object)}.  The index is built on first lookup, a list that
+ * is only iterated costs the same as an {@link ArrayList}.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <T> type of role held, {@link UserRole} or {@link UserAdminRole}.
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class RoleList<T extends UserRole> extends AbstractList<T> implements RandomAccess, Serializable
+{
+    private static final long serialVersionUID = 1L;
+    private final ArrayList<T> roles;
+    // first role of each name, keyed by normalized name, null until first lookup:
+    private transient Map<String, T> index;
+    // changed on every update, tells a cached value computed from the roles that they have changed:
+    private transient int version;
+
+
+    /**
+     * Create an empty list.
+     */
+    public RoleList()
+    {
+        roles = new ArrayList<>();
+    }
+
+
+    /**
+     * Create a list containing the roles of the collection, in the same order.
+     *
+     * @param roles contains the roles to copy.
+     */
+    public RoleList( Collection<? extends T> roles )
+    {
+        this.roles = new ArrayList<>( roles );
+    }
+
+
+    /**
+     * Return the role with the given name from the list, using the index if the list is a {@code RoleList}.
+     *
+     * @param roles contains the roles to search, may be null.
+     * @param name  contains the role name, matched ignoring case.
+     * @param <T>   type of role held.
+     * @return first role with that name or null if none.
+     */
+    public static <T extends UserRole> T find( List<T> roles, String name )
+    {
+        if ( roles == null || name == null )
+        {
+            return null;
+        }
+        if ( roles instanceof RoleList )
+        {
+            return ( ( RoleList<T> ) roles ).get( name );
+        }
+        for ( T role : roles )
+        {
+            if ( name.equalsIgnoreCase( role.getName() ) )
+            {
+                return role;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Return the role with the given name.
+     *
+     * @param name contains the role name, matched ignoring case.
+     * @return first role with that name or null if none.
+     */
+    public T get( String name )
+    {
+        return name != null ? getIndex().get( key( name ) ) : null;
+    }
+
+
+    /**
+     * @return number that changes every time the list is updated.
+     */
+    int getVersion()
+    {
+        return version;
+    }
+
+
+    @Override
+    public T get( int index )
+    {
+        return roles.get( index );
+    }
+
+
+    @Override
+    public int size()
+    {
+        return roles.size();
+    }
+
+
+    @Override
+    public T set( int index, T role )
+    {
+        T old = roles.set( index, role );
+        this.index = null;
+        version++;
+        return old;
+    }
+
+
+    @Override
+    public void add( int index, T role )
+    {
+        roles.add( index, role );
+        if ( this.index != null && role != null && role.getName() != null )
+        {
+            if ( index == roles.size() - 1 )
+            {
+                this.index.putIfAbsent( key( role.getName() ), role );
+            }
+            else
+            {
+                // inserted ahead of others, the first role of its name may have changed:
+                this.index = null;
+            }
+        }
+        modCount++;
+        version++;
+    }
+
+
+    @Override
+    public T remove( int index )
+    {
+        T old = roles.remove( index );
+        unindex( old );
+        modCount++;
+        version++;
+        return old;
+    }
+
+
+    @Override
+    public void clear()
+    {
+        roles.clear();
+        index = null;
+        modCount++;
+        version++;
+    }
+
+
+    @Override
+    public boolean removeIf( Predicate<? super T> filter )
+    {
+        boolean removed = roles.removeIf( filter );
+        if ( removed )
+        {
+            index = null;
+            modCount++;
+            version++;
+        }
+        return removed;
+    }
+
+
+    @Override
+    public boolean removeAll( Collection<?> c )
+    {
+        Objects.requireNonNull( c );
+        return removeIf( c::contains );
+    }
+
+
+    @Override
+    public boolean retainAll( Collection<?> c )
+    {
+        Objects.requireNonNull( c );
+        return removeIf( role -> !c.contains( role ) );
+    }
+
+
+    @Override
+    public boolean contains( Object o )
+    {
+        return indexOf( o ) != -1;
+    }
+
+
+    @Override
+    public int indexOf( Object o )
+    {
+        // every role equals method requires a matching name, skip the scan if there is none:
+        if ( !( o instanceof UserRole ) || ( ( UserRole ) o ).getName() == null
+            || !getIndex().containsKey( key( ( ( UserRole ) o ).getName() ) ) )
+        {
+            return -1;
+        }
+        return roles.indexOf( o );
+    }
+
+
+    @Override
+    public int lastIndexOf( Object o )
+    {
+        return indexOf( o ) == -1 ? -1 : roles.lastIndexOf( o );
+    }
+
+
+    @Override
+    public boolean remove( Object o )
+    {
+        int i = indexOf( o );
+        if ( i == -1 )
+        {
+            return false;
+        }
+        remove( i );
+        return true;
+    }
+
+
+    private void unindex( T old )
+    {
+        if ( index != null && old != null && old.getName() != null && index.get( key( old.getName() ) ) == old )
+        {
+            // another role of the same name may remain, rebuild on next lookup:
+            index = null;
+        }
+    }
+
+
+    private Map<String, T> getIndex()
+    {
+        if ( index == null )
+        {
+            Map<String, T> newIndex = new HashMap<>( roles.size() * 2 );
+            for ( T role : roles )
+            {
+                if ( role != null && role.getName() != null )
+                {
+                    newIndex.putIfAbsent( key( role.getName() ), role );
+                }
+            }
+            index = newIndex;
+        }
+        return index;
+    }
+
+
+    /**
+     * Normalize the name the same way {@link String#equalsIgnoreCase(String)} compares its chars.
+     */
+    private static String key( String name )
+    {
+        char[] chars = name.toCharArray();
+        for ( int i = 0; i < chars.length; i++ )
+        {
+            chars[i] = Character.toLowerCase( Character.toUpperCase( chars[i] ) );
+        }
+        return new String( chars );
+    }
+}
@@ -27,6 +27,7 @@ import jakarta.xml.bind.annotation.XmlType;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -189,6 +190,8 @@ public class Session  extends FortEntity implements PwMessage, Serializable
     private boolean isGroupSession;
     private String message;
     private List<Warning> warnings;
+    // inherited roles computed from the activated roles, not marshalled:
+    private transient InheritedRoles inheritedRoles;
 
     /**
      * A 'true' value here indicates user successfully authenticated with Fortress.
@@ -456,6 +459,44 @@ public class Session  extends FortEntity implements PwMessage, Serializable
         return roles;
     }
 
+
+    /**
+     * Return the inherited RBAC roles saved by {@link #setInheritedRoles(Set, long)}, if the activated roles have not
+     * changed since and the stamp is the same.  Lets repeated access checks on a session skip walking the role hierarchy.
+     * Only the roles of a {@link RoleList} are tracked, for any other list this method returns null.
+     *
+     * @param stamp identifies the version of the role hierarchy the caller is using.
+     * @return Set of the activated roles and their ascendants, or null if not saved or no longer valid.
+     */
+    public Set<String> getInheritedRoles( long stamp )
+    {
+        InheritedRoles cached = inheritedRoles;
+        List<UserRole> roles = getRoles();
+        if ( cached != null && cached.roles == roles && cached.stamp == stamp
+            && ( ( RoleList<UserRole> ) roles ).getVersion() == cached.version )
+        {
+            return cached.names;
+        }
+        return null;
+    }
+
+
+    /**
+     * Save the inherited RBAC roles computed from the roles activated into this session, to be returned by
+     * {@link #getInheritedRoles(long)} until the activated roles or the stamp change.
+     *
+     * @param names contains the activated roles and their ascendants, must not be modified afterwards.
+     * @param stamp identifies the version of the role hierarchy used to compute the names.
+     */
+    public void setInheritedRoles( Set<String> names, long stamp )
+    {
+        List<UserRole> roles = getRoles();
+        if ( roles instanceof RoleList )
+        {
+            inheritedRoles = new InheritedRoles( roles, ( ( RoleList<UserRole> ) roles ).getVersion(), stamp, names );
+        }
+    }
+
     /**
      * Returns the last access time in milliseconds. Note that while the unit of time of the return value is a millisecond,
      * the granularity of the value depends on the underlying operating system and may be larger. For example, many
@@ -890,4 +931,25 @@ public class Session  extends FortEntity implements PwMessage, Serializable
 
         return sb.toString();
     }
+
+
+    /**
+     * Inherited roles with the state of the activated roles they were computed from.
+     */
+    private static final class InheritedRoles
+    {
+        private final List<UserRole> roles;
+        private final int version;
+        private final long stamp;
+        private final Set<String> names;
+
+
+        private InheritedRoles( List<UserRole> roles, int version, long stamp, Set<String> names )
+        {
+            this.roles = roles;
+            this.version = version;
+            this.stamp = stamp;
+            this.names = names;
+        }
+    }
 }
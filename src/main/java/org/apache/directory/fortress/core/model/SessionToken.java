@@ -0,0 +1,496 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.ValidationException;
+import org.apache.directory.fortress.core.util.Config;
+
+
+/**
+ * Compact, signed form of a {@link Session}, to pass an RBAC session between services without marshalling the
+ * session and its full {@link User}, or creating the session again downstream.
+ * <p>
+ * The token carries what access checks need and nothing more: the userId, tenant, the user's temporal constraints and
+ * properties, the names of the active RBAC and ARBAC roles with their temporal and role constraints, when it was
+ * issued and when it expires.  It is written in a binary form, signed with HMAC-SHA256 and encoded as url safe base64:
+ * <pre>
+ * Session session = accessMgr.createSession( user, false );
+ * String token = SessionToken.create( session ).encode();
+ * ...
+ * // in another service sharing the same key:
+ * boolean result = accessMgr.checkAccess( SessionToken.decode( token ), perm );
+ * </pre>
+ * The signing key is shared by every service that creates or checks tokens.  It is read, base64 encoded, from
+ * {@link GlobalIds#SESSION_TOKEN_KEY} unless passed in.  Keys must be at least 32 bytes long.
+ * <p>
+ * This class is immutable and thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class SessionToken
+{
+    private static final byte FORMAT = 1;
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MAC_LENGTH = 32;
+    private static final int MIN_KEY_LENGTH = 32;
+    private static final int DEFAULT_TTL = 300;
+    private static final byte AUTHENTICATED = 1;
+    private static final RoleConstraint.RCType[] RC_TYPES = RoleConstraint.RCType.values();
+
+    private final String userId;
+    private final String contextId;
+    private final boolean authenticated;
+    private final long issuedAt;
+    private final long expiresAt;
+    private final User user;
+
+
+    private SessionToken( User user, String contextId, boolean authenticated, long issuedAt, long expiresAt )
+    {
+        this.userId = user.getUserId();
+        this.contextId = contextId;
+        this.authenticated = authenticated;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+        this.user = user;
+    }
+
+
+    /**
+     * Create the token of a user session, valid for the number of seconds set by {@link GlobalIds#SESSION_TOKEN_TTL},
+     * five minutes by default.
+     *
+     * @param session contains the user and the roles activated by createSession.
+     * @return token not yet signed, see {@link #encode()}.
+     * @throws ValidationException if the session is a group session or has no userId.
+     */
+    public static SessionToken create( Session session ) throws ValidationException
+    {
+        return create( session, Config.getInstance().getInt( GlobalIds.SESSION_TOKEN_TTL, DEFAULT_TTL ) * 1000L );
+    }
+
+
+    /**
+     * Create the token of a user session.
+     *
+     * @param session    contains the user and the roles activated by createSession.
+     * @param ttlMillis  number of milliseconds the token is valid for.
+     * @return token not yet signed, see {@link #encode(byte[])}.
+     * @throws ValidationException if the session is a group session or has no userId.
+     */
+    public static SessionToken create( Session session, long ttlMillis ) throws ValidationException
+    {
+        if ( session == null || session.isGroupSession() || StringUtils.isEmpty( session.getUserId() ) )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID,
+                "create requires a user session with a userId" );
+        }
+        User src = session.getUser();
+        User user = new User( src.getUserId() );
+        copyConstraint( src, user );
+        user.setProps( src.getProps() );
+        user.setRoles( new RoleList<>( src.getRoles() ) );
+        user.setAdminRoles( new RoleList<>( src.getAdminRoles() ) );
+        long now = System.currentTimeMillis();
+        return new SessionToken( user, session.getContextId(), session.isAuthenticated(), now, now + ttlMillis );
+    }
+
+
+    /**
+     * Sign and encode the token with the key set by {@link GlobalIds#SESSION_TOKEN_KEY}.
+     *
+     * @return url safe base64 form of the token.
+     * @throws ValidationException if the key is not set or is too short.
+     */
+    public String encode() throws ValidationException
+    {
+        return encode( getConfigKey() );
+    }
+
+
+    /**
+     * Sign and encode the token.
+     *
+     * @param key contains the signing key, at least 32 bytes long.
+     * @return url safe base64 form of the token.
+     * @throws ValidationException if the key is too short.
+     */
+    public String encode( byte[] key ) throws ValidationException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( 256 );
+        try ( DataOutputStream out = new DataOutputStream( bytes ) )
+        {
+            out.writeByte( FORMAT );
+            out.writeByte( authenticated ? AUTHENTICATED : 0 );
+            out.writeLong( issuedAt );
+            out.writeLong( expiresAt );
+            writeString( out, userId );
+            writeString( out, contextId );
+            writeConstraint( out, user );
+            Properties props = user.getProperties();
+            out.writeShort( props != null ? props.size() : 0 );
+            if ( props != null )
+            {
+                for ( Map.Entry<Object, Object> prop : props.entrySet() )
+                {
+                    writeString( out, String.valueOf( prop.getKey() ) );
+                    writeString( out, String.valueOf( prop.getValue() ) );
+                }
+            }
+            writeRoles( out, user.getRoles() );
+            writeRoles( out, user.getAdminRoles() );
+            out.write( sign( key, bytes.toByteArray() ) );
+        }
+        catch ( IOException e )
+        {
+            // not thrown when writing to memory:
+            throw new IllegalStateException( e );
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( bytes.toByteArray() );
+    }
+
+
+    /**
+     * Verify and decode a token with the key set by {@link GlobalIds#SESSION_TOKEN_KEY}.
+     *
+     * @param token contains the url safe base64 form returned by {@link #encode()}.
+     * @return verified token.
+     * @throws ValidationException with {@link GlobalErrIds#USER_SESS_TOKEN_INVALID} if the token is malformed or its
+     * signature does not match, {@link GlobalErrIds#USER_SESS_TOKEN_EXPIRED} if it has expired.
+     */
+    public static SessionToken decode( String token ) throws ValidationException
+    {
+        return decode( token, getConfigKey() );
+    }
+
+
+    /**
+     * Verify and decode a token.
+     *
+     * @param token contains the url safe base64 form returned by {@link #encode(byte[])}.
+     * @param key   contains the signing key.
+     * @return verified token.
+     * @throws ValidationException with {@link GlobalErrIds#USER_SESS_TOKEN_INVALID} if the token is malformed or its
+     * signature does not match, {@link GlobalErrIds#USER_SESS_TOKEN_EXPIRED} if it has expired.
+     */
+    public static SessionToken decode( String token, byte[] key ) throws ValidationException
+    {
+        byte[] bytes;
+        try
+        {
+            bytes = Base64.getUrlDecoder().decode( token );
+        }
+        catch ( IllegalArgumentException | NullPointerException e )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, "decode token is not base64" );
+        }
+        if ( bytes.length <= MAC_LENGTH || bytes[0] != FORMAT )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, "decode token format not supported" );
+        }
+        int length = bytes.length - MAC_LENGTH;
+        byte[] mac = sign( key, Arrays.copyOf( bytes, length ) );
+        if ( !MessageDigest.isEqual( mac, Arrays.copyOfRange( bytes, length, bytes.length ) ) )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, "decode token signature invalid" );
+        }
+        SessionToken sessionToken;
+        try ( DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes, 1, length - 1 ) ) )
+        {
+            boolean authenticated = ( in.readByte() & AUTHENTICATED ) != 0;
+            long issuedAt = in.readLong();
+            long expiresAt = in.readLong();
+            User user = new User( readString( in ) );
+            String contextId = readString( in );
+            user.setContextId( contextId );
+            readConstraint( in, user );
+            for ( int i = in.readUnsignedShort(); i > 0; i-- )
+            {
+                user.addProperty( readString( in ), readString( in ) );
+            }
+            user.setRoles( readRoles( in, user.getUserId(), UserRole::new ) );
+            user.setAdminRoles( readRoles( in, user.getUserId(), UserAdminRole::new ) );
+            sessionToken = new SessionToken( user, contextId, authenticated, issuedAt, expiresAt );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, "decode token malformed" );
+        }
+        if ( sessionToken.isExpired() )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_EXPIRED, "decode token for userId ["
+                + sessionToken.getUserId() + "] expired" );
+        }
+        return sessionToken;
+    }
+
+
+    /**
+     * Return a new session holding the user, tenant and active roles carried by the token, to be passed to the
+     * access checks.  The session has not been validated, the caller should check the temporal constraints again.
+     *
+     * @return session owned by the caller.
+     */
+    public Session toSession()
+    {
+        User copy = new User( userId );
+        copyConstraint( user, copy );
+        copy.setContextId( contextId );
+        copy.setProps( user.getProps() );
+        copy.setRoles( new RoleList<>( user.getRoles() ) );
+        copy.setAdminRoles( new RoleList<>( user.getAdminRoles() ) );
+        Session session = new ObjectFactory().createSession();
+        session.setUser( copy );
+        session.setAuthenticated( authenticated );
+        session.setContextId( contextId );
+        return session;
+    }
+
+
+    /**
+     * @return true if the token is past its expiry time.
+     */
+    public boolean isExpired()
+    {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+
+
+    /**
+     * @return userId of the session owner.
+     */
+    public String getUserId()
+    {
+        return userId;
+    }
+
+
+    /**
+     * @return tenant of the session.
+     */
+    public String getContextId()
+    {
+        return contextId;
+    }
+
+
+    /**
+     * @return true if the session was created with a password.
+     */
+    public boolean isAuthenticated()
+    {
+        return authenticated;
+    }
+
+
+    /**
+     * @return time the token was created, in milliseconds since the epoch.
+     */
+    public long getIssuedAt()
+    {
+        return issuedAt;
+    }
+
+
+    /**
+     * @return time the token expires, in milliseconds since the epoch.
+     */
+    public long getExpiresAt()
+    {
+        return expiresAt;
+    }
+
+
+    /**
+     * @return names of the active RBAC roles.
+     */
+    public List<String> getRoleNames()
+    {
+        List<String> names = new ArrayList<>( user.getRoles().size() );
+        for ( UserRole role : user.getRoles() )
+        {
+            names.add( role.getName() );
+        }
+        return Collections.unmodifiableList( names );
+    }
+
+
+    private static byte[] getConfigKey() throws ValidationException
+    {
+        String key = Config.getInstance().getProperty( GlobalIds.SESSION_TOKEN_KEY, true );
+        if ( StringUtils.isEmpty( key ) )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, "signing key ["
+                + GlobalIds.SESSION_TOKEN_KEY + "] not set" );
+        }
+        try
+        {
+            return Base64.getDecoder().decode( key.trim() );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, "signing key ["
+                + GlobalIds.SESSION_TOKEN_KEY + "] is not base64" );
+        }
+    }
+
+
+    private static byte[] sign( byte[] key, byte[] data ) throws ValidationException
+    {
+        if ( key == null || key.length < MIN_KEY_LENGTH )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, "signing key must be at least ["
+                + MIN_KEY_LENGTH + "] bytes" );
+        }
+        try
+        {
+            Mac mac = Mac.getInstance( ALGORITHM );
+            mac.init( new SecretKeySpec( key, ALGORITHM ) );
+            return mac.doFinal( data );
+        }
+        catch ( GeneralSecurityException e )
+        {
+            throw new ValidationException( GlobalErrIds.USER_SESS_TOKEN_INVALID, "sign failed, exception=" + e );
+        }
+    }
+
+
+    private static void writeRoles( DataOutputStream out, List<? extends UserRole> roles ) throws IOException
+    {
+        out.writeShort( roles.size() );
+        for ( UserRole role : roles )
+        {
+            writeString( out, role.getName() );
+            writeConstraint( out, role );
+            List<RoleConstraint> constraints = role.getRoleConstraints();
+            out.writeShort( constraints.size() );
+            for ( RoleConstraint constraint : constraints )
+            {
+                out.writeByte( constraint.getType() != null ? constraint.getType().ordinal() : -1 );
+                writeString( out, constraint.getKey() );
+                writeString( out, constraint.getValue() );
+            }
+        }
+    }
+
+
+    private static <T extends UserRole> List<T> readRoles( DataInputStream in, String userId, Supplier<T> factory )
+        throws IOException
+    {
+        int count = in.readUnsignedShort();
+        RoleList<T> roles = new RoleList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            T role = factory.get();
+            role.setUserId( userId );
+            role.setName( readString( in ) );
+            readConstraint( in, role );
+            for ( int j = in.readUnsignedShort(); j > 0; j-- )
+            {
+                int type = in.readByte();
+                RoleConstraint constraint = new RoleConstraint();
+                constraint.setType( type >= 0 ? RC_TYPES[type] : null );
+                constraint.setKey( readString( in ) );
+                constraint.setValue( readString( in ) );
+                role.getRoleConstraints().add( constraint );
+            }
+            roles.add( role );
+        }
+        return roles;
+    }
+
+
+    private static void writeConstraint( DataOutputStream out, Constraint constraint ) throws IOException
+    {
+        out.writeInt( constraint.getTimeout() != null ? constraint.getTimeout() : 0 );
+        writeString( out, constraint.getBeginTime() );
+        writeString( out, constraint.getEndTime() );
+        writeString( out, constraint.getBeginDate() );
+        writeString( out, constraint.getEndDate() );
+        writeString( out, constraint.getBeginLockDate() );
+        writeString( out, constraint.getEndLockDate() );
+        writeString( out, constraint.getDayMask() );
+    }
+
+
+    private static void readConstraint( DataInputStream in, Constraint constraint ) throws IOException
+    {
+        constraint.setTimeout( in.readInt() );
+        constraint.setBeginTime( readString( in ) );
+        constraint.setEndTime( readString( in ) );
+        constraint.setBeginDate( readString( in ) );
+        constraint.setEndDate( readString( in ) );
+        constraint.setBeginLockDate( readString( in ) );
+        constraint.setEndLockDate( readString( in ) );
+        constraint.setDayMask( readString( in ) );
+    }
+
+
+    private static void copyConstraint( Constraint src, Constraint trg )
+    {
+        trg.setTimeout( src.getTimeout() );
+        trg.setBeginTime( src.getBeginTime() );
+        trg.setEndTime( src.getEndTime() );
+        trg.setBeginDate( src.getBeginDate() );
+        trg.setEndDate( src.getEndDate() );
+        trg.setBeginLockDate( src.getBeginLockDate() );
+        trg.setEndLockDate( src.getEndLockDate() );
+        trg.setDayMask( src.getDayMask() );
+    }
+
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException
+    {
+        out.writeBoolean( value != null );
+        if ( value != null )
+        {
+            out.writeUTF( value );
+        }
+    }
+
+
+    private static String readString( DataInputStream in ) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
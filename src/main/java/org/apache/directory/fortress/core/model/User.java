@@ -261,7 +261,8 @@ import jakarta.xml.bind.annotation.XmlType;
         "gidNumber",
         "homeDirectory",
         "loginShell",
-        "gecos"
+        "gecos",
+        "version"
     /*        "jpegPhoto"*/
 })
 public class User extends FortEntity implements Constraint, Serializable
@@ -311,6 +312,7 @@ public class User extends FortEntity implements Constraint, Serializable
     private String homeDirectory;
     private String loginShell;
     private String gecos;
+    private String version;
 
 
     public String getUidNumber()
@@ -600,7 +602,7 @@ public class User extends FortEntity implements Constraint, Serializable
         // do not return a null List to caller:
         if ( roles == null )
         {
-            roles = new ArrayList<>();
+            roles = new RoleList<>();
         }
 
         return roles;
@@ -628,7 +630,7 @@ public class User extends FortEntity implements Constraint, Serializable
     {
         if ( roles == null )
         {
-            roles = new ArrayList<>();
+            roles = new RoleList<>();
         }
 
         roles.add( role );
@@ -644,7 +646,7 @@ public class User extends FortEntity implements Constraint, Serializable
     {
         if ( roles == null )
         {
-            roles = new ArrayList<>();
+            roles = new RoleList<>();
         }
 
         roles.add( new UserRole( roleName ) );
@@ -675,7 +677,7 @@ public class User extends FortEntity implements Constraint, Serializable
         // do not return a null List to caller:
         if ( adminRoles == null )
         {
-            adminRoles = new ArrayList<>();
+            adminRoles = new RoleList<>();
         }
 
         return adminRoles;
@@ -702,7 +704,7 @@ public class User extends FortEntity implements Constraint, Serializable
     {
         if ( adminRoles == null )
         {
-            adminRoles = new ArrayList<>();
+            adminRoles = new RoleList<>();
         }
 
         adminRoles.add( role );
@@ -718,7 +720,7 @@ public class User extends FortEntity implements Constraint, Serializable
     {
         if ( adminRoles == null )
         {
-            adminRoles = new ArrayList<>();
+            adminRoles = new RoleList<>();
         }
 
         adminRoles.add( new UserAdminRole( userId, roleName ) );
@@ -786,6 +788,31 @@ public class User extends FortEntity implements Constraint, Serializable
     }
 
 
+    /**
+     * Return the marker of the last change to the user entry, i.e. its entryCSN, set by the DAO when the user is read.
+     * Used by {@link org.apache.directory.fortress.core.AccessMgr#refreshSession(Session)} to tell if the entry changed
+     * since the session was created.  Its format depends on the ldap server and is not meant to be parsed.
+     *
+     * @return attribute maps to 'entryCSN' or 'modifyTimestamp' operational attribute.
+     */
+    public String getVersion()
+    {
+        return version;
+    }
+
+
+    /**
+     * Set the marker of the last change to the user entry.  This method is used by DAO class, the attribute stored in
+     * LDAP is maintained by the server and cannot be changed by external caller.
+     *
+     * @param version maps to 'entryCSN' or 'modifyTimestamp' operational attribute.
+     */
+    public void setVersion( String version )
+    {
+        this.version = version;
+    }
+
+
     /**
      * Generate an internal userId that is associated with User.  This method is used by DAO class and
      * is not available to outside classes.   The generated attribute maps to 'ftId' in 'ftUserAttrs' object class.
@@ -1643,4 +1670,31 @@ public class User extends FortEntity implements Constraint, Serializable
 
         return thatUser.getUserId().equalsIgnoreCase( userId );
     }
+
+
+    /**
+     * Names the set of attributes a user read pulls back from the directory, see
+     * {@link org.apache.directory.fortress.core.ReviewMgr#readUser(User, Profile)}.  Reads on the authorization path
+     * request the smallest profile they need so large attributes, i.e. the photo, are not sent on every login.
+     */
+    public enum Profile
+    {
+        /**
+         * Everything needed to build a session: userId, internalId, ou, names, temporal constraints, properties,
+         * RBAC and ARBAC role assignments and password policy state.  Excludes password, photo, address, phones,
+         * emails and posix attributes.
+         */
+        SESSION,
+
+        /**
+         * What authentication and existence checks need: userId, internalId, ou, names, password, temporal
+         * constraints, properties and lock state.  Excludes role assignments.
+         */
+        AUTHN,
+
+        /**
+         * Every attribute Fortress stores on a user.
+         */
+        FULL
+    }
 }
@@ -198,6 +198,23 @@ public class AccessMgrRestImpl extends Manageable implements AccessMgr
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean checkAccess( SessionToken token, Permission perm )
+        throws SecurityException
+    {
+        VUtil.assertNotNull( token, GlobalErrIds.USER_SESS_NULL, CLS_NM + ".checkAccess" );
+        if ( token.isExpired() )
+        {
+            throw new SecurityException( GlobalErrIds.USER_SESS_TOKEN_EXPIRED, CLS_NM + ".checkAccess token for userId ["
+                + token.getUserId() + "] expired" );
+        }
+        // the server checks the tenant and the constraints:
+        return checkAccess( token.toSession(), perm );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -391,6 +408,30 @@ public class AccessMgrRestImpl extends Manageable implements AccessMgr
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void refreshSession( Session session )
+        throws SecurityException
+    {
+        VUtil.assertNotNull( session, GlobalErrIds.USER_SESS_NULL, CLS_NM + ".refreshSession" );
+        FortRequest request = RestUtils.getRequest( this.contextId );
+        request.setSession( session );
+        String szRequest = RestUtils.marshal( request );
+        String szResponse = RestUtils.getInstance().post( szRequest, HttpIds.RBAC_REFRESH );
+        FortResponse response = RestUtils.unmarshall( szResponse );
+        if ( response.getErrorCode() == 0 )
+        {
+            Session outSession = response.getSession();
+            session.copy( outSession );
+        }
+        else
+        {
+            throw new SecurityException( response.getErrorCode(), response.getErrorMessage() );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -20,10 +20,13 @@
 package org.apache.directory.fortress.core.rest;
 
 
+import java.util.List;
+
 import org.apache.directory.fortress.core.AdminMgr;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.impl.Manageable;
+import org.apache.directory.fortress.core.model.BatchResult;
 import org.apache.directory.fortress.core.model.FortRequest;
 import org.apache.directory.fortress.core.model.FortResponse;
 import org.apache.directory.fortress.core.model.PermGrant;
@@ -107,6 +110,32 @@ public final class AdminMgrRestImpl extends Manageable implements AdminMgr
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BatchResult> addUsers( List<User> users )
+        throws SecurityException
+    {
+        VUtil.assertNotNull( users, GlobalErrIds.USER_NULL, CLS_NM + ".addUsers" );
+        List<BatchResult> results;
+        FortRequest request = RestUtils.getRequest( this.contextId );
+        request.setEntities( users );
+        String szRequest = RestUtils.marshal( request );
+        String szResponse = RestUtils.getInstance().post( szRequest, HttpIds.USER_ADD_BATCH );
+        FortResponse response = RestUtils.unmarshall( szResponse );
+        if ( response.getErrorCode() == 0 )
+        {
+            results = response.getEntities();
+        }
+        else
+        {
+            throw new SecurityException( response.getErrorCode(), response.getErrorMessage() );
+        }
+        return results;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -361,6 +390,32 @@ public final class AdminMgrRestImpl extends Manageable implements AdminMgr
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BatchResult> assignUsers( List<UserRole> uRoles )
+        throws SecurityException
+    {
+        VUtil.assertNotNull( uRoles, GlobalErrIds.URLE_NULL, CLS_NM + ".assignUsers" );
+        List<BatchResult> results;
+        FortRequest request = RestUtils.getRequest( this.contextId );
+        request.setEntities( uRoles );
+        String szRequest = RestUtils.marshal( request );
+        String szResponse = RestUtils.getInstance().post( szRequest, HttpIds.ROLE_ASGN_BATCH );
+        FortResponse response = RestUtils.unmarshall( szResponse );
+        if ( response.getErrorCode() == 0 )
+        {
+            results = response.getEntities();
+        }
+        else
+        {
+            throw new SecurityException( response.getErrorCode(), response.getErrorMessage() );
+        }
+        return results;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -606,6 +661,32 @@ public final class AdminMgrRestImpl extends Manageable implements AdminMgr
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BatchResult> grantPermissions( List<PermGrant> permGrants )
+        throws SecurityException
+    {
+        VUtil.assertNotNull( permGrants, GlobalErrIds.PERM_OPERATION_NULL, CLS_NM + ".grantPermissions" );
+        List<BatchResult> results;
+        FortRequest request = RestUtils.getRequest( this.contextId );
+        request.setEntities( permGrants );
+        String szRequest = RestUtils.marshal( request );
+        String szResponse = RestUtils.getInstance().post( szRequest, HttpIds.ROLE_GRANT_BATCH );
+        FortResponse response = RestUtils.unmarshall( szResponse );
+        if ( response.getErrorCode() == 0 )
+        {
+            results = response.getEntities();
+        }
+        else
+        {
+            throw new SecurityException( response.getErrorCode(), response.getErrorMessage() );
+        }
+        return results;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -26,6 +26,8 @@ import org.apache.directory.fortress.core.AuditMgr;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.impl.Manageable;
+import org.apache.directory.fortress.core.model.AuditAggregate;
+import org.apache.directory.fortress.core.model.AuditCount;
 import org.apache.directory.fortress.core.model.AuthZ;
 import org.apache.directory.fortress.core.model.Bind;
 import org.apache.directory.fortress.core.model.FortRequest;
@@ -299,4 +301,36 @@ public class AuditMgrRestImpl extends Manageable implements AuditMgr
         }
         return outRecords;
     }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<AuditCount> aggregate(AuditAggregate query)
+        throws SecurityException
+    {
+        VUtil.assertNotNull(query, GlobalErrIds.AUDT_INPUT_NULL, CLS_NM + ".aggregate");
+        List<AuditCount> outRecords;
+        FortRequest request = new FortRequest();
+        request.setContextId(this.contextId);
+        request.setEntity(query);
+        String szRequest = RestUtils.marshal(request);
+        String szResponse = RestUtils.getInstance().post(szRequest, HttpIds.AUDIT_AGGREGATE);
+        FortResponse response = RestUtils.unmarshall(szResponse);
+        if (response.getErrorCode() == 0)
+        {
+            outRecords = response.getEntities();
+            // do not return a null list to the caller:
+            if (outRecords == null)
+            {
+                outRecords = new ArrayList<>();
+            }
+        }
+        else
+        {
+            throw new SecurityException(response.getErrorCode(), response.getErrorMessage());
+        }
+        return outRecords;
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.apache.directory.fortress.core.rest;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -26,6 +27,7 @@ import java.util.TreeSet;
 import org.apache.directory.fortress.core.DelAccessMgr;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.FortEntity;
 import org.apache.directory.fortress.core.model.FortRequest;
 import org.apache.directory.fortress.core.model.FortResponse;
 import org.apache.directory.fortress.core.model.Permission;
@@ -97,6 +99,26 @@ public class DelAccessMgrRestImpl extends AccessMgrRestImpl implements DelAccess
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The users followed by the roles are posted in a single request, the server returns the matrix row by row.
+     */
+    @Override
+    public boolean[][] canAssign(Session session, List<User> users, List<Role> roles)
+        throws SecurityException
+    {
+        String methodName = CLS_NM + ".canAssign";
+        VUtil.assertNotNull(session, GlobalErrIds.USER_SESS_NULL, methodName);
+        VUtil.assertNotNull(users, GlobalErrIds.USER_NULL, methodName);
+        VUtil.assertNotNull(roles, GlobalErrIds.ROLE_NULL, methodName);
+        List<FortEntity> entities = new ArrayList<>(users.size() + roles.size());
+        entities.addAll(users);
+        entities.addAll(roles);
+        return postMatrix(session, entities, users.size(), roles.size(), HttpIds.ADMIN_ASSIGN_BULK);
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -167,6 +189,26 @@ public class DelAccessMgrRestImpl extends AccessMgrRestImpl implements DelAccess
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The roles followed by the permissions are posted in a single request, the server returns the matrix row by row.
+     */
+    @Override
+    public boolean[][] canGrant(Session session, List<Role> roles, List<Permission> perms)
+        throws SecurityException
+    {
+        String methodName = CLS_NM + ".canGrant";
+        VUtil.assertNotNull(session, GlobalErrIds.USER_SESS_NULL, methodName);
+        VUtil.assertNotNull(roles, GlobalErrIds.ROLE_NULL, methodName);
+        VUtil.assertNotNull(perms, GlobalErrIds.PERM_OBJECT_NULL, methodName);
+        List<FortEntity> entities = new ArrayList<>(roles.size() + perms.size());
+        entities.addAll(roles);
+        entities.addAll(perms);
+        return postMatrix(session, entities, roles.size(), perms.size(), HttpIds.ADMIN_GRANT_BULK);
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -404,4 +446,46 @@ public class DelAccessMgrRestImpl extends AccessMgrRestImpl implements DelAccess
     {
         throw new UnsupportedOperationException( "not implemented" );
     }
+
+
+    /**
+     * Post the entities of a bulk check and convert the values of the response, one "true" or "false" per cell
+     * listed row by row, back to a matrix.
+     */
+    private boolean[][] postMatrix(Session session, List<FortEntity> entities, int rows, int columns, String function)
+        throws SecurityException
+    {
+        FortRequest request = new FortRequest();
+        request.setContextId(this.contextId);
+        request.setSession(session);
+        request.setEntities(entities);
+        String szRequest = RestUtils.marshal(request);
+        String szResponse = RestUtils.getInstance().post(szRequest, function);
+        FortResponse response = RestUtils.unmarshall(szResponse);
+        if (response.getErrorCode() != 0)
+        {
+            throw new SecurityException(response.getErrorCode(), response.getErrorMessage());
+        }
+        List<String> values = response.getValues();
+        int size = values != null ? values.size() : 0;
+        if (size != rows * columns)
+        {
+            String error = CLS_NM + "." + function + " expected [" + rows * columns + "] values, received [" + size + "]";
+            throw new SecurityException(GlobalErrIds.REST_UNMARSHALL_ERR, error);
+        }
+        boolean[][] results = new boolean[rows][columns];
+        for (int i = 0; i < rows; i++)
+        {
+            for (int j = 0; j < columns; j++)
+            {
+                results[i][j] = Boolean.parseBoolean(values.get(i * columns + j));
+            }
+        }
+        Session outSession = response.getSession();
+        if (outSession != null)
+        {
+            session.copy(outSession);
+        }
+        return results;
+    }
 }
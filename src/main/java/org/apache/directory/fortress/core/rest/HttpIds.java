@@ -37,6 +37,7 @@ public class HttpIds
     public static final String RBAC_AUTHZ_ROLES = "rbacAuthzRoles";
     public static final String RBAC_ADD = "rbacAdd";
     public static final String RBAC_DROP = "rbacDrop";
+    public static final String RBAC_REFRESH = "rbacRefresh";
     public static final String RBAC_USERID = "rbacUserId";
     public static final String RBAC_USER = "rbacUser";
     public static final String USER_READ = "userRead";
@@ -46,6 +47,7 @@ public class HttpIds
     public static final String USER_UNLOCK = "userUnlock";
     public static final String USER_RESET = "userReset";
     public static final String USER_ADD = "userAdd";
+    public static final String USER_ADD_BATCH = "userAddBatch";
     public static final String USER_DELETE = "userDelete";
     public static final String USER_DISABLE = "userDisable";
     public static final String USER_SEARCH = "userSearch";
@@ -63,8 +65,10 @@ public class HttpIds
     public static final String ROLE_DELETE = "roleDelete";
     public static final String ROLE_SEARCH = "roleSearch";
     public static final String ROLE_ASGN = "roleAsgn";
+    public static final String ROLE_ASGN_BATCH = "roleAsgnBatch";
     public static final String ROLE_DEASGN = "roleDeasgn";
     public static final String ROLE_GRANT = "roleGrant";
+    public static final String ROLE_GRANT_BATCH = "roleGrantBatch";
     public static final String ROLE_REVOKE = "roleRevoke";
     public static final String ROLE_PERMS = "rolePerms";
     public static final String ROLE_PERM_ATTR_SETS = "rolePermAttrSets";
@@ -140,8 +144,10 @@ public class HttpIds
     public static final String ADMIN_ADD = "adminAdd";
     public static final String ADMIN_DROP = "adminDrop";
     public static final String ADMIN_ASSIGN = "adminAssign";
+    public static final String ADMIN_ASSIGN_BULK = "adminAssignBulk";
     public static final String ADMIN_DEASSIGN = "adminDeassign";
     public static final String ADMIN_GRANT = "adminGrant";
+    public static final String ADMIN_GRANT_BULK = "adminGrantBulk";
     public static final String ADMIN_REVOKE = "adminRevoke";
     public static final String ARLE_READ = "arleRead";
     public static final String ARLE_UPDATE = "arleUpdate";
@@ -168,6 +174,7 @@ public class HttpIds
     public static final String AUDIT_SESSIONS = "auditSessions";
     public static final String AUDIT_MODS = "auditMods";
     public static final String AUDIT_INVLD = "auditInvld";
+    public static final String AUDIT_AGGREGATE = "auditAggregate";
     public static final String CFG_ADD = "cfgAdd";
     public static final String CFG_UPDATE = "cfgUpdate";
     public static final String CFG_DELETE = "cfgDelete";
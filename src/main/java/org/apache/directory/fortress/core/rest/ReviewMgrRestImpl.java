@@ -382,6 +382,19 @@ public class ReviewMgrRestImpl extends Manageable implements ReviewMgr
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The Fortress REST server has no notion of profile, the user is read with every attribute.
+     */
+    @Override
+    public final User readUser( User user, User.Profile profile )
+        throws SecurityException
+    {
+        return readUser( user );
+    }
+
+
     /**
      * {@inheritDoc}
      */
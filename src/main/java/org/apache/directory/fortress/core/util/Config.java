@@ -21,9 +21,15 @@ package org.apache.directory.fortress.core.util;
 
 
 import java.net.URL;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.configuration2.CompositeConfiguration;
 import org.apache.commons.configuration2.PropertiesConfiguration;
@@ -39,6 +45,7 @@ import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.SecurityException;
 import org.apache.directory.fortress.core.model.Configuration;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +58,9 @@ import org.slf4j.LoggerFactory;
  * The class will bootstrap itself during startup and must initialize correctly for the Fortress APIs to work correctly.
  * <p>
  * This object is thread safe but stores a static reference to Apache Commons Configuration {@link #config} object.
+ * The properties read on the hot path, i.e. {@link #isAuditEnabled()}, {@link #getDelimiter()},
+ * {@link #getMaxBatchSize()} and {@link #getRoleConstraint(String, String)}, are served from an immutable snapshot that
+ * is replaced every time the properties are changed through this class.
  * <p>
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
@@ -84,12 +94,21 @@ public final class Config
     private static final String EXT_SERVER_TYPE = "fortress.ldap.server.type";
     private static final String EXT_IS_ARBAC02 = "fortress.is.arbac02";
 
+    // numbers the snapshots, see getVersion.
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
     // static reference contains this.
     private static volatile Config sINSTANCE = null;
 
     // used internally to determine if the remote config has been loaded.
     private boolean remoteConfigLoaded = false;
 
+    // typed copy of the hot path properties, replaced as a whole whenever config changes.
+    private volatile Snapshot snapshot;
+
+    // serializes updates to config so snapshots are published in the same order as the changes.
+    private final Object snapshotLock = new Object();
+
     /**
      * Return a static reference to this instance.  If the instance has not been instantiated, call the boostrap:
      * <ul>
@@ -113,6 +132,7 @@ public final class Config
                     {
                         sINSTANCE.loadRemoteConfig();
                     }
+                    Tracer.configure( sINSTANCE );
                 }
             }
         }
@@ -129,6 +149,7 @@ public final class Config
         loadLocalConfig();
         // load the system property overrides:
         getExternalConfig();
+        snapshot = new Snapshot( this );
     }
 
     /**
@@ -399,7 +420,11 @@ public final class Config
     {
         if ( config != null )
         {
-            config.setProperty( name, value );
+            synchronized ( snapshotLock )
+            {
+                config.setProperty( name, value );
+                snapshot = new Snapshot( this );
+            }
         }
         else
         {
@@ -416,7 +441,11 @@ public final class Config
     {
         if ( config != null )
         {
-            config.clearProperty( name );
+            synchronized ( snapshotLock )
+            {
+                config.clearProperty( name );
+                snapshot = new Snapshot( this );
+            }
         }
         else
         {
@@ -424,6 +453,56 @@ public final class Config
         }
     }
 
+    /**
+     * Set many property values to the apache commons config.  The hot path snapshot is replaced once, after all
+     * values have been set.
+     *
+     * @param props contains the name/value pairs to set.
+     */
+    public void setProperties( Properties props )
+    {
+        if ( config != null )
+        {
+            synchronized ( snapshotLock )
+            {
+                for ( String name : props.stringPropertyNames() )
+                {
+                    config.setProperty( name, props.getProperty( name ) );
+                }
+                snapshot = new Snapshot( this );
+            }
+        }
+        else
+        {
+            LOG.warn( "setProperties invalid config, can't set props" );
+        }
+    }
+
+    /**
+     * Clear many properties from apache commons config.  The hot path snapshot is replaced once, after all
+     * properties have been cleared.
+     *
+     * @param props contains the names of the properties to clear, the values are ignored.
+     */
+    public void clearProperties( Properties props )
+    {
+        if ( config != null )
+        {
+            synchronized ( snapshotLock )
+            {
+                for ( String name : props.stringPropertyNames() )
+                {
+                    config.clearProperty( name );
+                }
+                snapshot = new Snapshot( this );
+            }
+        }
+        else
+        {
+            LOG.warn( "clearProperties invalid config, can't clear props" );
+        }
+    }
+
     /**
      * Fetch the remote cfg params from ldap with given name.
      *
@@ -458,7 +537,7 @@ public final class Config
 
     public boolean isRestEnabled()
     {
-        return ( ( getProperty( GlobalIds.ENABLE_REST ) != null ) && ( getProperty( GlobalIds.ENABLE_REST ).equalsIgnoreCase( "true" ) ) );
+        return snapshot.restEnabled;
     }
     /**
      * Fortress stores complex attribute types within a single attribute in ldap.  Usually a delimiter of '$' is used for string tokenization.
@@ -466,34 +545,48 @@ public final class Config
      */
     public String getDelimiter()
     {
-        return getProperty( "attr.delimiter", "$" );
+        return snapshot.delimiter;
     }
     public boolean isAuditEnabled()
     {
-        return ( ( getProperty( GlobalIds.ENABLE_AUDIT ) == null ) || ( getProperty( GlobalIds.ENABLE_AUDIT ).equalsIgnoreCase( "true" ) ) );
+        return snapshot.auditEnabled;
     }
     public boolean isOpenldap()
     {
-        return ( ( getProperty( GlobalIds.SERVER_TYPE ) != null ) && ( getProperty( GlobalIds.SERVER_TYPE ).equalsIgnoreCase( "openldap" ) ) );
+        return snapshot.openldap;
     }
     public boolean isApacheds()
     {
-        return ( ( getProperty( GlobalIds.SERVER_TYPE ) != null ) && ( getProperty( GlobalIds.SERVER_TYPE ).equalsIgnoreCase( "apacheds" ) ) );
+        return snapshot.apacheds;
     }
     public boolean isRealm()
     {
-        return GlobalIds.REALM_TYPE.equalsIgnoreCase( getProperty( GlobalIds.AUTHENTICATION_TYPE ) );
+        return snapshot.realm;
     }
     public boolean isRoleOccupant()
     {
-        // misc LDAP:
-        String ROLE_OCCUPANTS = "role.occupants";
+        return snapshot.roleOccupant;
+    }
+    /**
+     * Return the max number of entries to return from ldap searches, stored in fortress.properties as
+     * {@link GlobalIds#CONFIG_LDAP_MAX_BATCH_SIZE}.
+     *
+     * @return int containing the search size limit, defaults to {@link GlobalIds#BATCH_SIZE}.
+     */
+    public int getMaxBatchSize()
+    {
+        return snapshot.maxBatchSize;
+    }
 
-        // default is true:
-        boolean result = true;
-        if(( ( getProperty( ROLE_OCCUPANTS ) != null ) && ( getProperty( ROLE_OCCUPANTS ).equalsIgnoreCase( "false" ) ) ))
-            result = false;
-        return result;
+    /**
+     * Return a number that changes every time the properties are changed through this class, so values computed from
+     * config can be cached and recomputed only once it has changed.
+     *
+     * @return long containing the version of the properties.
+     */
+    public long getVersion()
+    {
+        return snapshot.version;
     }
 
     private boolean isRemoteConfigLoaded()
@@ -791,6 +884,7 @@ public final class Config
                         String val = props.getProperty( key );
                         config.setProperty( key, val );
                     }
+                    snapshot = new Snapshot( this );
                 }
 
                 //init ldap util vals since config is stored on server
@@ -836,13 +930,28 @@ public final class Config
      */
     public String getConstraintKey( String role, String contextId )
     {
-        return GlobalIds.CONSTRAINT_KEY_PREFIX +
-                getDelimiter() +
+        Snapshot current = snapshot;
+        return current.constraintKeyPrefix +
                 contextId +
-                getDelimiter()
+                current.delimiter
                 + role.toLowerCase();
     }
 
+    /**
+     * Return the name of the user property a role's activation is constrained by, as set by
+     * {@link org.apache.directory.fortress.core.AdminMgr#enableRoleConstraint}.  This is equivalent to reading the
+     * property named by {@link #getConstraintKey(String, String)} but uses a map precomputed for each tenant.
+     *
+     * @param role contains the name of the role being constrained, case insensitive.
+     * @param contextId contains the tenant name.
+     * @return String containing the constraint type or null if the role is not constrained.
+     */
+    public String getRoleConstraint( String role, String contextId )
+    {
+        Map<String, String> roleConstraints = snapshot.roleConstraints.get( String.valueOf( contextId ) );
+        return roleConstraints != null ? roleConstraints.get( role ) : null;
+    }
+
     /**
      * Performs auto-increment on a list of key names that map to integer values stored on the current config node of the runtime.
      * Unfortunately, it's synchronized to prevent a race condition of multiple threads trying to update the same id.
@@ -851,7 +960,10 @@ public final class Config
      * @param props list of attribute names to update on config node.
      * @param propUpdater reference to object that updates to new value.
      * @return Configuration entity containing the old values.
+     * @deprecated new users and roles draw their ids from blocks reserved with a compare and swap on the config node,
+     * which is safe across processes.  This method does not coordinate with those reservations.
      */
+    @Deprecated
     public synchronized Configuration getIncrementReplacePosixIds(List<String> props, PropUpdater propUpdater ) throws CfgException
     {
         String cfgName = Config.getInstance().getProperty( GlobalIds.CONFIG_REALM, "DEFAULT" );
@@ -882,4 +994,71 @@ public final class Config
         }
         return inConfig;
     }
+
+    /**
+     * Immutable copy of the properties read on the hot path, converted to their final types once per change.  The role
+     * constraints, stored as RC$contextId$role=type, are indexed by tenant then by case insensitive role name.
+     */
+    private static final class Snapshot
+    {
+        private final String delimiter;
+        private final String constraintKeyPrefix;
+        private final boolean auditEnabled;
+        private final boolean restEnabled;
+        private final boolean openldap;
+        private final boolean apacheds;
+        private final boolean realm;
+        private final boolean roleOccupant;
+        private final int maxBatchSize;
+        private final Map<String, Map<String, String>> roleConstraints;
+        private final long version = VERSIONS.incrementAndGet();
+
+        private Snapshot( Config cfg )
+        {
+            delimiter = cfg.getProperty( "attr.delimiter", "$" );
+            constraintKeyPrefix = GlobalIds.CONSTRAINT_KEY_PREFIX + delimiter;
+            String audit = cfg.getProperty( GlobalIds.ENABLE_AUDIT );
+            auditEnabled = ( audit == null ) || audit.equalsIgnoreCase( "true" );
+            restEnabled = "true".equalsIgnoreCase( cfg.getProperty( GlobalIds.ENABLE_REST ) );
+            String serverType = cfg.getProperty( GlobalIds.SERVER_TYPE );
+            openldap = "openldap".equalsIgnoreCase( serverType );
+            apacheds = "apacheds".equalsIgnoreCase( serverType );
+            realm = GlobalIds.REALM_TYPE.equalsIgnoreCase( cfg.getProperty( GlobalIds.AUTHENTICATION_TYPE ) );
+            // default is true:
+            roleOccupant = !"false".equalsIgnoreCase( cfg.getProperty( "role.occupants" ) );
+            maxBatchSize = cfg.getInt( GlobalIds.CONFIG_LDAP_MAX_BATCH_SIZE, GlobalIds.BATCH_SIZE );
+            roleConstraints = loadRoleConstraints( cfg );
+        }
+
+        private Map<String, Map<String, String>> loadRoleConstraints( Config cfg )
+        {
+            Map<String, Map<String, String>> tenants = new HashMap<>();
+            for ( Iterator<String> keys = config.getKeys(); keys.hasNext(); )
+            {
+                String key = keys.next();
+                if ( !key.startsWith( constraintKeyPrefix ) )
+                {
+                    continue;
+                }
+                int sep = key.indexOf( delimiter, constraintKeyPrefix.length() );
+                if ( sep < 0 )
+                {
+                    continue;
+                }
+                String contextId = key.substring( constraintKeyPrefix.length(), sep );
+                String role = key.substring( sep + delimiter.length() );
+                String type = cfg.getProperty( key );
+                if ( StringUtils.isNotEmpty( type ) )
+                {
+                    tenants.computeIfAbsent( contextId, k -> new TreeMap<>( String.CASE_INSENSITIVE_ORDER ) )
+                        .put( role, type );
+                }
+            }
+            for ( Map.Entry<String, Map<String, String>> tenant : tenants.entrySet() )
+            {
+                tenant.setValue( Collections.unmodifiableMap( tenant.getValue() ) );
+            }
+            return Collections.unmodifiableMap( tenants );
+        }
+    }
 }
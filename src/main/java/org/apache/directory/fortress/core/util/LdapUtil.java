@@ -35,6 +35,9 @@ public class LdapUtil
     private int ldapFilterSize = 25;
     private char[] ldapMetaChars;
     private String[] ldapReplVals;
+    // escape sequence for every ascii char, indexed by char value, null when the char is safe:
+    private volatile String[] escapeTable = new String[ESCAPE_TABLE_SIZE];
+    private static final int ESCAPE_TABLE_SIZE = 128;
 
     private static volatile LdapUtil sINSTANCE = null;
 
@@ -116,6 +119,7 @@ public class LdapUtil
     public void setLdapMetaChars(char[] ldapMetaChars)
     {
         this.ldapMetaChars = ldapMetaChars.clone();
+        loadEscapeTable();
     }
 
     /**
@@ -136,5 +140,68 @@ public class LdapUtil
     public void setLdapReplVals(String[] ldapReplVals)
     {
         this.ldapReplVals = ldapReplVals.clone();
+        loadEscapeTable();
+    }
+
+    /**
+     * Escape the unsafe characters of a value bound for an ldap filter, as set by {@link #setLdapMetaChars(char[])} and
+     * {@link #setLdapReplVals(String[])}.  Uses a table indexed by char value so each char is checked once.
+     *
+     * @param value contains the data to escape.
+     * @return the input string if it contains no unsafe chars, otherwise a copy with the unsafe chars escaped.
+     */
+    public String escape( String value )
+    {
+        String[] table = escapeTable;
+        int length = value.length();
+        int i = 0;
+        while ( i < length && !isEscaped( table, value.charAt( i ) ) )
+        {
+            i++;
+        }
+        if ( i == length )
+        {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder( length + 8 );
+        sb.append( value, 0, i );
+        for ( ; i < length; i++ )
+        {
+            char curChar = value.charAt( i );
+            if ( isEscaped( table, curChar ) )
+            {
+                sb.append( table[curChar] );
+            }
+            else
+            {
+                sb.append( curChar );
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isEscaped( String[] table, char curChar )
+    {
+        return curChar < ESCAPE_TABLE_SIZE && table[curChar] != null;
+    }
+
+    /**
+     * Build the escape table from the meta chars and their replacement values, once both are loaded.
+     */
+    private void loadEscapeTable()
+    {
+        String[] table = new String[ESCAPE_TABLE_SIZE];
+        if ( ldapMetaChars != null && ldapReplVals != null )
+        {
+            for ( int i = 0; i < ldapMetaChars.length && i < ldapReplVals.length; i++ )
+            {
+                char metaChar = ldapMetaChars[i];
+                if ( metaChar != 0 && metaChar < ESCAPE_TABLE_SIZE && ldapReplVals[i] != null )
+                {
+                    table[metaChar] = "\\" + ldapReplVals[i];
+                }
+            }
+        }
+        escapeTable = table;
     }
 }
@@ -26,6 +26,8 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -45,6 +47,8 @@ import org.apache.directory.fortress.core.model.Warning;
 import org.apache.directory.fortress.core.util.time.TUtil;
 import org.apache.directory.fortress.core.util.time.Time;
 import org.apache.directory.fortress.core.util.time.Validator;
+import org.apache.directory.fortress.core.util.trace.TraceSpan;
+import org.apache.directory.fortress.core.util.trace.Tracer;
 
 import org.slf4j.LoggerFactory;
 
@@ -560,6 +564,26 @@ public final class VUtil implements ConstraintValidator
      */
     public void validateConstraints( Session session, ConstraintType type, boolean checkDsd )
         throws SecurityException
+    {
+        TraceSpan span = Tracer.startPhase( "validateConstraints" );
+        try
+        {
+            checkConstraints( session, type, checkDsd );
+        }
+        catch ( SecurityException | RuntimeException e )
+        {
+            Tracer.end( span, -1, e );
+            throw e;
+        }
+        finally
+        {
+            Tracer.end( span );
+        }
+    }
+
+
+    private void checkConstraints( Session session, ConstraintType type, boolean checkDsd )
+        throws SecurityException
     {
         String location = "validateConstraints";
         String entityId = session.isGroupSession() ? session.getGroupName() : session.getUserId();
@@ -604,13 +628,13 @@ public final class VUtil implements ConstraintValidator
                 if ( CollectionUtils.isNotEmpty( session.getRoles() ) )
                 {
                     // now check the constraint on every role activation candidate contained within session object:
-                    List<UserRole> rolesToRemove = new ArrayList<>();
+                    Set<String> rolesToRemove = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
                     for ( UserRole role : session.getRoles() )
                     {
                         rc = val.validate( session, role, currTime, type );
-                        if ( rc > 0 )
+                        if ( rc > 0 && role.getName() != null )
                         {
-                            rolesToRemove.add( role );
+                            rolesToRemove.add( role.getName() );
                             String msg = location + " role [" + role.getName() + "] for " + entityType
                                     + "[" + entityId + "]" + " was deactivated reason code [" + rc + "]";
                             LOG.info( msg );
@@ -618,19 +642,23 @@ public final class VUtil implements ConstraintValidator
                                     role.getName() ) );
                         }
                     }
-                    // remove all roles not passing validation
-                    session.getRoles().removeAll( rolesToRemove );
+                    // remove all roles not passing validation, by name in one pass:
+                    if ( !rolesToRemove.isEmpty() )
+                    {
+                        session.getRoles().removeIf( role -> role.getName() != null
+                            && rolesToRemove.contains( role.getName() ) );
+                    }
                 }
                 if ( CollectionUtils.isNotEmpty( session.getAdminRoles() ) )
                 {
                     // now check the constraint on every arbac role activation candidate contained within session object:
-                    List<UserRole> rolesToRemove = new ArrayList<>();
+                    Set<String> rolesToRemove = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
                     for ( UserRole role : session.getAdminRoles() )
                     {
                         rc = val.validate( session, role, currTime, type );
-                        if ( rc > 0 )
+                        if ( rc > 0 && role.getName() != null )
                         {
-                            rolesToRemove.add( role );
+                            rolesToRemove.add( role.getName() );
                             String msg = location + " admin role [" + role.getName() + "] for " + entityType
                                     + "[" + entityId + "]" + " was deactivated reason code [" + rc + "]";
                             LOG.info( msg );
@@ -638,8 +666,12 @@ public final class VUtil implements ConstraintValidator
                                     role.getName() ) );
                         }
                     }
-                    // remove all roles not passing validation
-                    session.getAdminRoles().removeAll( rolesToRemove );
+                    // remove all roles not passing validation, by name in one pass:
+                    if ( !rolesToRemove.isEmpty() )
+                    {
+                        session.getAdminRoles().removeIf( role -> role.getName() != null
+                            && rolesToRemove.contains( role.getName() ) );
+                    }
                 }
             }
         }
@@ -649,14 +681,22 @@ public final class VUtil implements ConstraintValidator
             && CollectionUtils.isNotEmpty( session.getRoles() ) )
         {
             Validator dsdVal = ( Validator ) ClassUtil.createInstance( DSDVALIDATOR );
-            if ( session.isGroupSession() )
+            TraceSpan span = Tracer.startPhase( "validateDSD" );
+            try
             {
-                // pass session's group wrapped into constraint interface
-                dsdVal.validate( session, new ConstraintedGroup( session.getGroup() ), null, null );
+                if ( session.isGroupSession() )
+                {
+                    // pass session's group wrapped into constraint interface
+                    dsdVal.validate( session, new ConstraintedGroup( session.getGroup() ), null, null );
+                }
+                else
+                {
+                    dsdVal.validate( session, session.getUser(), null, null );
+                }
             }
-            else
+            finally
             {
-                dsdVal.validate( session, session.getUser(), null, null );
+                Tracer.end( span );
             }
         }
         // reset the user's last access timestamp:
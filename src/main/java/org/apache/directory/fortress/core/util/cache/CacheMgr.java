@@ -19,13 +19,23 @@
  */
 package org.apache.directory.fortress.core.util.cache;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.constructs.blocking.BlockingCache;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.directory.fortress.core.CfgException;
 import org.apache.directory.fortress.core.CfgRuntimeException;
 import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.GlobalIds;
 import org.apache.directory.fortress.core.util.ClassUtil;
 import org.apache.directory.fortress.core.util.Config;
 import org.slf4j.Logger;
@@ -35,6 +45,15 @@ import org.slf4j.LoggerFactory;
 /**
  * This class is a facade and shields internal Fortress objects from specifics of the actual
  * cache implementation that is in use.
+ * <p>
+ * Caches that hold one entry per tenant, i.e. the hierarchies, are retrieved with {@link #getCache(String, String)}
+ * which gives every tenant its own region, a copy of the region configured in ehcache.xml named
+ * {@code cacheName.contextId}.  That way the configured size applies to each tenant and one tenant's entries are never
+ * evicted to make room for another's.  Set {@code cache.tenant.regions=false} to share the configured region among
+ * all tenants.
+ * <p>
+ * The statistics of every region are returned by {@link #getStats()}.  A warning is logged when a region loads more
+ * than {@code cache.thrash.loads} entries (default 10) within {@code cache.thrash.window} seconds (default 60).
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -42,7 +61,18 @@ public final class CacheMgr
 {
     private static final Logger LOG = LoggerFactory.getLogger( CacheMgr.class.getName() );
     private static final String EHCACHE_CONFIG_FILE = "ehcache.config.file";
+    private static final String TENANT_REGIONS = "cache.tenant.regions";
+    private static final String THRASH_LOADS = "cache.thrash.loads";
+    private static final String THRASH_WINDOW = "cache.thrash.window";
+    private static final int DEFAULT_THRASH_LOADS = 10;
+    private static final int DEFAULT_THRASH_WINDOW = 60;
     private CacheManager mEhCacheImpl;
+    // every region handed out, by region name:
+    private final Map<String, EhCacheImpl> regions = new ConcurrentHashMap<>();
+    private final Set<String> tenants = ConcurrentHashMap.newKeySet();
+    private boolean tenantRegions;
+    private int thrashLoads;
+    private long thrashWindowMillis;
     
     private static volatile CacheMgr sINSTANCE = null;
     
@@ -83,6 +113,9 @@ public final class CacheMgr
             // 2. Requires location of ehcache's config file as parameter.
             // 3. The CacheManager reference then gets stored as member variable of this class instance.
             mEhCacheImpl = new CacheManager( ClassUtil.resourceAsStream( cacheConfig ) );
+            tenantRegions = Config.getInstance().getBoolean( TENANT_REGIONS, true );
+            thrashLoads = Config.getInstance().getInt( THRASH_LOADS, DEFAULT_THRASH_LOADS );
+            thrashWindowMillis = Config.getInstance().getInt( THRASH_WINDOW, DEFAULT_THRASH_WINDOW ) * 1000L;
         }
         catch(CfgException ce)
         {
@@ -115,15 +148,108 @@ public final class CacheMgr
      */
     public Cache getCache( String cacheName )
     {
+        EhCacheImpl region = regions.get( cacheName );
+        if ( region == null )
+        {
+            region = regions.computeIfAbsent( cacheName, this::createCache );
+        }
+        return region;
+    }
+
+
+    /**
+     * Return the region of a cache that belongs to one tenant, creating it from the configuration of the cache on
+     * first use.
+     *
+     * @param cacheName contains the name of the cache configured in ehcache.xml.
+     * @param contextId maps to sub-tree in DIT, e.g. ou=contextId, dc=example, dc=com.
+     * @return reference to the tenant's region, or the configured region if tenant regions are disabled or the
+     * contextId is not set.
+     */
+    public Cache getCache( String cacheName, String contextId )
+    {
+        if ( !tenantRegions || StringUtils.isEmpty( contextId ) || contextId.equalsIgnoreCase( GlobalIds.NULL ) )
+        {
+            return getCache( cacheName );
+        }
+        String regionName = cacheName + "." + contextId;
+        EhCacheImpl region = regions.get( regionName );
+        if ( region == null )
+        {
+            region = createRegion( cacheName, regionName, contextId );
+        }
+        return region;
+    }
+
+
+    /**
+     * Return the names of the tenants that have their own cache regions.
+     *
+     * @return set of contextIds, sorted.
+     */
+    public Set<String> getTenants()
+    {
+        return new TreeSet<>( tenants );
+    }
+
+
+    /**
+     * Return the statistics of every region handed out by this cache manager.
+     *
+     * @return list of statistics, one per region.
+     */
+    public List<CacheStats> getStats()
+    {
+        List<CacheStats> stats = new ArrayList<>();
+        for ( EhCacheImpl region : regions.values() )
+        {
+            stats.add( region.getStats() );
+        }
+        return stats;
+    }
+
+
+    private EhCacheImpl createCache( String cacheName )
+    {
+        EhCacheImpl region;
         Ehcache cache = mEhCacheImpl.getEhcache( cacheName );
         if(cache != null)
         {
-            return new EhCacheImpl( cacheName, new BlockingCache(cache) );
+            region = new EhCacheImpl( cacheName, new BlockingCache(cache) );
         }
         else
         {
-            return CacheFactory.createInstance( cacheName, mEhCacheImpl );
+            region = ( EhCacheImpl ) CacheFactory.createInstance( cacheName, mEhCacheImpl );
+        }
+        region.setThrashThreshold( thrashLoads, thrashWindowMillis );
+        return region;
+    }
+
+
+    /**
+     * Add a region to ehcache with the configuration of the given cache.
+     */
+    private synchronized EhCacheImpl createRegion( String cacheName, String regionName, String contextId )
+    {
+        EhCacheImpl region = regions.get( regionName );
+        if ( region == null )
+        {
+            Ehcache template = mEhCacheImpl.getEhcache( cacheName );
+            if ( template == null )
+            {
+                String error = "createRegion cache: " + cacheName + " is null";
+                throw new CfgRuntimeException( GlobalErrIds.FT_CACHE_NOT_CONFIGURED, error );
+            }
+            CacheConfiguration config = template.getCacheConfiguration().clone();
+            config.setName( regionName );
+            Ehcache cache = mEhCacheImpl.addCacheIfAbsent( new net.sf.ehcache.Cache( config ) );
+            region = new EhCacheImpl( regionName, new BlockingCache( cache ) );
+            region.setThrashThreshold( thrashLoads, thrashWindowMillis );
+            regions.put( regionName, region );
+            tenants.add( contextId );
+            LOG.info( "createRegion [{}] max elements [{}]", regionName, config.getMaxEntriesLocalHeap() );
         }
+        return region;
     }
 
     /**
@@ -0,0 +1,127 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util.cache;
+
+
+/**
+ * Point in time statistics of one cache region, returned by {@link CacheMgr#getStats()}.
+ * <p>
+ * A load is counted when a get returns no entry and the caller then puts the entry it read from ldap, its time is the
+ * time between the two calls.
+ * <p>
+ * This class is immutable and thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class CacheStats
+{
+    private final String name;
+    private final long size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long loads;
+    private final long loadTimeMillis;
+
+
+    CacheStats( String name, long size, long hits, long misses, long evictions, long loads, long loadTimeMillis )
+    {
+        this.name = name;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.loads = loads;
+        this.loadTimeMillis = loadTimeMillis;
+    }
+
+
+    /**
+     * @return name of the cache region, i.e. fortress.roles.tenant1.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * @return number of entries currently in the region.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+
+    /**
+     * @return number of gets that found an entry.
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+
+    /**
+     * @return number of gets that found no entry.
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+
+    /**
+     * @return number of entries evicted to make room for new ones.
+     */
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+
+    /**
+     * @return number of entries loaded after a miss.
+     */
+    public long getLoads()
+    {
+        return loads;
+    }
+
+
+    /**
+     * @return total time spent loading entries after a miss, in milliseconds.
+     */
+    public long getLoadTimeMillis()
+    {
+        return loadTimeMillis;
+    }
+
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString()
+    {
+        return "CacheStats name [" + name + "] size [" + size + "] hits [" + hits + "] misses [" + misses
+            + "] evictions [" + evictions + "] loads [" + loads + "] loadTimeMillis [" + loadTimeMillis + "]";
+    }
+}
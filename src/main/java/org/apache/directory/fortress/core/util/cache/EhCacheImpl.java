@@ -20,6 +20,12 @@
 package org.apache.directory.fortress.core.util.cache;
 
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import net.sf.ehcache.Element;
 import net.sf.ehcache.constructs.blocking.BlockingCache;
 import net.sf.ehcache.constructs.blocking.LockTimeoutException;
@@ -34,6 +40,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This class provides cache functionality from <a href="http://ehcache.org//">Ehcache</a> provider.
+ * <p>
+ * It counts the entries loaded after a miss and logs a warning when more than the thrash threshold set by
+ * {@link CacheMgr} are loaded within one window, which means the region is too small or expires too soon for its load.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -44,6 +53,14 @@ public class EhCacheImpl implements Cache
 
     private BlockingCache cache;
     private final String name;
+    // start time of the loads in progress, by key:
+    private final Map<Object, Long> pendingLoads = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong( System.currentTimeMillis() );
+    private final AtomicInteger windowLoads = new AtomicInteger();
+    private volatile int thrashLoads = Integer.MAX_VALUE;
+    private volatile long thrashWindowMillis = TimeUnit.MINUTES.toMillis( 1 );
 
 
     /**
@@ -88,6 +105,8 @@ public class EhCacheImpl implements Cache
             }
             else
             {
+                // the blocking cache holds the key until the caller puts the loaded entry:
+                pendingLoads.put( key, System.nanoTime() );
                 return null;
             }
         }
@@ -129,6 +148,14 @@ public class EhCacheImpl implements Cache
                 + ce.getMessage();
             throw new CacheException( GlobalErrIds.FT_CACHE_PUT_ERR, error, ce );
         }
+        finally
+        {
+            Long start = pendingLoads.remove( key );
+            if ( start != null )
+            {
+                loaded( System.nanoTime() - start );
+            }
+        }
     }
 
 
@@ -229,4 +256,51 @@ public class EhCacheImpl implements Cache
     {
         cache.flush();
     }
+
+
+    /**
+     * Return the statistics of this region.
+     *
+     * @return statistics of the ehcache region plus the loads counted here.
+     */
+    public CacheStats getStats()
+    {
+        net.sf.ehcache.statistics.StatisticsGateway stats = cache.getStatistics();
+        return new CacheStats( name, stats.getSize(), stats.cacheHitCount(), stats.cacheMissCount(),
+            stats.cacheEvictedCount(), loads.get(), TimeUnit.NANOSECONDS.toMillis( loadNanos.get() ) );
+    }
+
+
+    /**
+     * Set the number of loads within a window above which the region is considered to be thrashing.
+     *
+     * @param loads maximum number of loads expected in one window.
+     * @param windowMillis length of the window in milliseconds.
+     */
+    void setThrashThreshold( int loads, long windowMillis )
+    {
+        this.thrashLoads = loads;
+        this.thrashWindowMillis = windowMillis;
+    }
+
+
+    /**
+     * Count a load and warn, once per window, if there were too many.
+     */
+    private void loaded( long nanos )
+    {
+        loads.incrementAndGet();
+        loadNanos.addAndGet( nanos );
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if ( now - start > thrashWindowMillis && windowStart.compareAndSet( start, now ) )
+        {
+            windowLoads.set( 0 );
+        }
+        if ( windowLoads.incrementAndGet() == thrashLoads + 1 )
+        {
+            LOG.warn( "cache [{}] loaded more than [{}] entries in [{}] ms, increase its size or time to live. {}",
+                name, thrashLoads, thrashWindowMillis, getStats() );
+        }
+    }
 }
@@ -58,8 +58,7 @@ public class UserRoleConstraint
         if ( type != VUtil.ConstraintType.USER )
         {
             // This constraint type requires a global config parameter keyed by RC$tenant$role:constraint:
-            String constraintKey = Config.getInstance().getConstraintKey( role.getName(), session.getContextId() );
-            String constraintType = Config.getInstance().getProperty( constraintKey );
+            String constraintType = Config.getInstance().getRoleConstraint( role.getName(), session.getContextId() );
 
             // Is there a runtime constraint placed on this role activation?
             if ( StringUtils.isNotEmpty( constraintType ))
@@ -0,0 +1,162 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util.trace;
+
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Default {@link TraceListener} that logs, at warn level, the manager calls that took longer than
+ * <b>trace.slow.millis</b> along with the breakdown of their pool waits, ldap operations and phases, i.e.:
+ * <pre>
+ * slow AccessMgr.createSession 812ms contextId [HOME]
+ *   POOL admin 640ms
+ *   DAO read 12ms dn [uid=jsmith,ou=People,dc=example,dc=com] entries [1]
+ *   PHASE validateConstraints 3ms
+ *   ...
+ * </pre>
+ * Only a fraction, <b>trace.sample.rate</b>, of the slow calls is logged so a struggling server is not flooded.
+ * Ldap operations performed outside of a manager call, i.e. by the cache loaders, are logged on their own.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SlowOperationLogger implements TraceListener
+{
+    private static final String CLS_NM = SlowOperationLogger.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    private static final long DEFAULT_SLOW_MILLIS = 500;
+    private final long thresholdNanos;
+    private final double sampleRate;
+
+
+    /**
+     * Create the logger with the threshold and sampling rate from the <b>trace.slow.millis</b> and
+     * <b>trace.sample.rate</b> properties.
+     */
+    public SlowOperationLogger()
+    {
+        this( Config.getInstance().getInt( GlobalIds.TRACE_SLOW_MILLIS, ( int ) DEFAULT_SLOW_MILLIS ),
+            getSampleRate( Config.getInstance().getProperty( GlobalIds.TRACE_SAMPLE_RATE ) ) );
+    }
+
+
+    /**
+     * Create the logger with the given threshold and sampling rate.
+     *
+     * @param slowMillis contains the number of milliseconds above which a call is logged.
+     * @param sampleRate contains the fraction, between 0 and 1, of the slow calls logged.
+     */
+    public SlowOperationLogger( long slowMillis, double sampleRate )
+    {
+        this.thresholdNanos = slowMillis * 1_000_000L;
+        this.sampleRate = Math.max( 0, Math.min( 1, sampleRate ) );
+    }
+
+
+    /**
+     * Log the span when it is a root span slower than the threshold and it falls in the sample.
+     *
+     * @param span contains the ended span.
+     */
+    @Override
+    public void spanEnded( TraceSpan span )
+    {
+        if ( span.getParent() != null || span.getElapsedNanos() < thresholdNanos || !LOG.isWarnEnabled() )
+        {
+            return;
+        }
+        if ( sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate )
+        {
+            return;
+        }
+        StringBuilder sb = new StringBuilder( "slow " );
+        append( sb, span, 0 );
+        LOG.warn( sb.toString() );
+    }
+
+
+    private static void append( StringBuilder sb, TraceSpan span, int depth )
+    {
+        if ( depth > 0 )
+        {
+            sb.append( '\n' );
+            for ( int i = 0; i < depth; i++ )
+            {
+                sb.append( "  " );
+            }
+            sb.append( span.getKind() ).append( ' ' );
+        }
+        sb.append( span.getOperation() ).append( ' ' ).append( span.getElapsedNanos() / 1_000_000L ).append( "ms" );
+        if ( depth == 0 && span.getContextId() != null )
+        {
+            sb.append( " contextId [" ).append( span.getContextId() ).append( ']' );
+        }
+        if ( span.getBaseDn() != null )
+        {
+            sb.append( " dn [" ).append( span.getBaseDn() ).append( ']' );
+        }
+        if ( span.getFilter() != null )
+        {
+            sb.append( " filter [" ).append( span.getFilter() ).append( ']' );
+        }
+        if ( span.getEntries() >= 0 )
+        {
+            sb.append( " entries [" ).append( span.getEntries() ).append( ']' );
+        }
+        if ( span.getError() != null )
+        {
+            sb.append( " error [" ).append( span.getError() ).append( ']' );
+        }
+        for ( TraceSpan child : span.getChildren() )
+        {
+            append( sb, child, depth + 1 );
+        }
+        if ( span.getDroppedChildren() > 0 )
+        {
+            sb.append( "\n  ... " ).append( span.getDroppedChildren() ).append( " more" );
+        }
+    }
+
+
+    private static double getSampleRate( String value )
+    {
+        if ( value == null )
+        {
+            return 1;
+        }
+        try
+        {
+            return Double.parseDouble( value.trim() );
+        }
+        catch ( NumberFormatException e )
+        {
+            LOG.warn( "getSampleRate invalid {} [{}], using 1", GlobalIds.TRACE_SAMPLE_RATE, value );
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util.trace;
+
+
+/**
+ * Receives the spans recorded by {@link Tracer}.  Register an implementation with the <b>trace.listener</b> property,
+ * it must have a public no argument constructor.
+ * <p>
+ * {@link #spanEnded(TraceSpan)} is called once for every span on the thread that ran the operation, children before
+ * their parent, so implementations must be thread safe and should return quickly.  The root span of a manager call
+ * carries its whole breakdown in {@link TraceSpan#getChildren()}, listeners interested in whole calls only may
+ * ignore the spans that have a parent.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface TraceListener
+{
+    /**
+     * Called when a span ends.
+     *
+     * @param span contains the ended span, its elapsed time, entry count and error are set.
+     */
+    void spanEnded( TraceSpan span );
+}
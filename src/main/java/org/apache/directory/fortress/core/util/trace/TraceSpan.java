@@ -0,0 +1,250 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util.trace;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * One timed operation recorded by {@link Tracer}: a manager call, an ldap operation, a connection pool wait or an in
+ * memory phase.  Manager and phase spans are the parent of the spans started on the same thread until they end.
+ * <p>
+ * A span is only touched by the thread that started it until it ends, after which it must be treated as immutable.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class TraceSpan
+{
+    /**
+     * Type of operation a span records.
+     */
+    public enum Kind
+    {
+        /** Call on one of the manager interfaces, i.e. AccessMgr.createSession. */
+        MANAGER,
+        /** Ldap operation, i.e. search. */
+        DAO,
+        /** Wait for a connection from one of the ldap connection pools. */
+        POOL,
+        /** In memory step of a manager call, i.e. constraint validation. */
+        PHASE
+    }
+
+    // bounds the memory a long running call, i.e. a bulk load, holds on to:
+    private static final int MAX_CHILDREN = 1000;
+    private final Kind kind;
+    private final String operation;
+    private final String contextId;
+    private final String baseDn;
+    private final String filter;
+    private final TraceSpan parent;
+    private final long startNanos;
+    private long elapsedNanos = -1;
+    private int entries = -1;
+    private Throwable error;
+    private List<TraceSpan> children;
+    private int droppedChildren;
+
+
+    TraceSpan( Kind kind, String operation, String contextId, String baseDn, String filter, TraceSpan parent )
+    {
+        this.kind = kind;
+        this.operation = operation;
+        this.contextId = contextId == null && parent != null ? parent.contextId : contextId;
+        this.baseDn = baseDn;
+        this.filter = filter;
+        this.parent = parent;
+        this.startNanos = System.nanoTime();
+    }
+
+
+    void end( int entries, Throwable error )
+    {
+        if ( elapsedNanos < 0 )
+        {
+            this.elapsedNanos = System.nanoTime() - startNanos;
+            this.entries = entries;
+            this.error = error;
+            // a cursor closed after its manager call returned is not reported as part of it:
+            if ( parent != null && !parent.isEnded() )
+            {
+                parent.addChild( this );
+            }
+        }
+    }
+
+
+    boolean isEnded()
+    {
+        return elapsedNanos >= 0;
+    }
+
+
+    private void addChild( TraceSpan child )
+    {
+        if ( children == null )
+        {
+            children = new ArrayList<>();
+        }
+        if ( children.size() < MAX_CHILDREN )
+        {
+            children.add( child );
+        }
+        else
+        {
+            droppedChildren++;
+        }
+    }
+
+
+    /**
+     * @return type of operation recorded.
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+
+    /**
+     * @return name of the operation, i.e. AccessMgr.createSession, search or admin.
+     */
+    public String getOperation()
+    {
+        return operation;
+    }
+
+
+    /**
+     * @return tenant the operation ran for, inherited from the parent span when not known, null for the default tenant.
+     */
+    public String getContextId()
+    {
+        return contextId;
+    }
+
+
+    /**
+     * @return dn the ldap operation was performed on, null for other kinds of span.
+     */
+    public String getBaseDn()
+    {
+        return baseDn;
+    }
+
+
+    /**
+     * @return ldap search filter with its assertion values replaced by '?', i.e. (&amp;(objectClass=?)(uid=?)), null when
+     * the span is not a search.
+     */
+    public String getFilter()
+    {
+        return filter;
+    }
+
+
+    /**
+     * @return span this span was started within, null for a root span.
+     */
+    public TraceSpan getParent()
+    {
+        return parent;
+    }
+
+
+    /**
+     * @return number of entries the operation returned, -1 when not known.
+     */
+    public int getEntries()
+    {
+        return entries;
+    }
+
+
+    /**
+     * @return time the operation took in nanoseconds, -1 while it runs.
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+
+    /**
+     * @return exception the operation failed with, null when it succeeded.
+     */
+    public Throwable getError()
+    {
+        return error;
+    }
+
+
+    /**
+     * @return spans that ended within this span, in the order they ended, never null.
+     */
+    public List<TraceSpan> getChildren()
+    {
+        return children == null ? Collections.emptyList() : Collections.unmodifiableList( children );
+    }
+
+
+    /**
+     * @return number of children not kept once the span held 1000 children.
+     */
+    public int getDroppedChildren()
+    {
+        return droppedChildren;
+    }
+
+
+    /**
+     * @see Object#toString()
+     */
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( kind ).append( ' ' ).append( operation );
+        sb.append( " elapsed [" ).append( elapsedNanos / 1000 ).append( "us]" );
+        if ( contextId != null )
+        {
+            sb.append( " contextId [" ).append( contextId ).append( ']' );
+        }
+        if ( baseDn != null )
+        {
+            sb.append( " dn [" ).append( baseDn ).append( ']' );
+        }
+        if ( filter != null )
+        {
+            sb.append( " filter [" ).append( filter ).append( ']' );
+        }
+        if ( entries >= 0 )
+        {
+            sb.append( " entries [" ).append( entries ).append( ']' );
+        }
+        if ( error != null )
+        {
+            sb.append( " error [" ).append( error.getClass().getSimpleName() ).append( ']' );
+        }
+        return sb.toString();
+    }
+}
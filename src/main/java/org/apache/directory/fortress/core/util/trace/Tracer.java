@@ -0,0 +1,309 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.util.trace;
+
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.CfgException;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.util.ClassUtil;
+import org.apache.directory.fortress.core.util.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Records spans for manager calls, ldap operations, connection pool waits and in memory phases and hands them to the
+ * {@link TraceListener} named by the <b>trace.listener</b> property.
+ * <p>
+ * Instrumented code follows this pattern:
+ * <pre>
+ * TraceSpan span = Tracer.start( TraceSpan.Kind.DAO, "search", null, baseDn, filter );
+ * try
+ * {
+ *     ...
+ * }
+ * finally
+ * {
+ *     Tracer.end( span, entries, error );
+ * }
+ * </pre>
+ * When no listener is registered {@link #start} returns null after a single volatile read and {@link #end} ignores
+ * it, so tracing costs nothing measurable when it is off.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class Tracer
+{
+    private static final String CLS_NM = Tracer.class.getName();
+    private static final Logger LOG = LoggerFactory.getLogger( CLS_NM );
+    // matches the assertion value of each filter component, escaped parenthesis are \28 and \29 so never match:
+    private static final Pattern FILTER_VALUE = Pattern.compile( "([~<>]?=)[^()]*\\)" );
+    private static final ThreadLocal<TraceSpan> CURRENT = new ThreadLocal<>();
+    private static volatile TraceListener listener;
+
+
+    private Tracer()
+    {
+    }
+
+
+    /**
+     * Register the listener named by the <b>trace.listener</b> property.  Called by {@link Config} once it is loaded.
+     *
+     * @param config contains the loaded configuration.
+     */
+    public static void configure( Config config )
+    {
+        String className = config.getProperty( GlobalIds.TRACE_LISTENER );
+        if ( StringUtils.isNotEmpty( className ) )
+        {
+            try
+            {
+                setListener( ( TraceListener ) ClassUtil.createInstance( className ) );
+                LOG.info( "configure tracing enabled with listener [{}]", className );
+            }
+            catch ( CfgException | ClassCastException e )
+            {
+                LOG.error( "configure could not create trace listener [{}], tracing disabled", className, e );
+            }
+        }
+    }
+
+
+    /**
+     * Register the listener that receives the spans, replacing the current one.
+     *
+     * @param traceListener contains the listener, null turns tracing off.
+     */
+    public static void setListener( TraceListener traceListener )
+    {
+        listener = traceListener;
+    }
+
+
+    /**
+     * @return true when a listener is registered.
+     */
+    public static boolean isEnabled()
+    {
+        return listener != null;
+    }
+
+
+    /**
+     * Start a span.  Manager and phase spans become the parent of the spans started on this thread until they end,
+     * ldap and pool spans never have children.
+     *
+     * @param kind      contains the type of operation.
+     * @param operation contains the name of the operation, i.e. search.
+     * @param contextId contains the tenant, may be null to inherit the tenant of the parent span.
+     * @param baseDn    contains the dn the ldap operation is performed on, may be null.
+     * @param filter    contains the ldap search filter, may be null.  Only its shape is kept.
+     * @return the started span, null when tracing is off.
+     */
+    public static TraceSpan start( TraceSpan.Kind kind, String operation, String contextId, String baseDn,
+        String filter )
+    {
+        if ( listener == null )
+        {
+            return null;
+        }
+        TraceSpan parent = CURRENT.get();
+        TraceSpan span = new TraceSpan( kind, operation, contextId, baseDn, getFilterShape( filter ), parent );
+        if ( kind == TraceSpan.Kind.MANAGER || kind == TraceSpan.Kind.PHASE )
+        {
+            CURRENT.set( span );
+        }
+        return span;
+    }
+
+
+    /**
+     * Start an in memory phase of the current manager call.
+     *
+     * @param operation contains the name of the phase, i.e. validateConstraints.
+     * @return the started span, null when tracing is off.
+     */
+    public static TraceSpan startPhase( String operation )
+    {
+        return start( TraceSpan.Kind.PHASE, operation, null, null, null );
+    }
+
+
+    /**
+     * End a span that succeeded without an entry count.
+     *
+     * @param span contains the span returned by {@link #start}, may be null.
+     */
+    public static void end( TraceSpan span )
+    {
+        end( span, -1, null );
+    }
+
+
+    /**
+     * End a span and hand it to the listener.
+     *
+     * @param span    contains the span returned by {@link #start}, may be null.
+     * @param entries contains the number of entries the operation returned, -1 when not known.
+     * @param error   contains the exception the operation failed with, null when it succeeded.
+     */
+    public static void end( TraceSpan span, int entries, Throwable error )
+    {
+        if ( span == null || span.isEnded() )
+        {
+            return;
+        }
+        span.end( entries, error );
+        if ( span.getKind() == TraceSpan.Kind.MANAGER || span.getKind() == TraceSpan.Kind.PHASE )
+        {
+            // the parent becomes current again, even when a child was left open, and the thread local is cleared
+            // after the root span:
+            if ( span.getParent() == null )
+            {
+                CURRENT.remove();
+            }
+            else
+            {
+                CURRENT.set( span.getParent() );
+            }
+        }
+        TraceListener current = listener;
+        if ( current != null )
+        {
+            try
+            {
+                current.spanEnded( span );
+            }
+            catch ( RuntimeException e )
+            {
+                LOG.warn( "end listener failed on span [{}]", span, e );
+            }
+        }
+    }
+
+
+    /**
+     * Wrap a manager so each call on its interface is recorded as a manager span.  Called by the manager factories.
+     * <p>
+     * The proxy implements the manager interface only.  With a listener registered, code that casts a factory's result
+     * to the implementation class, i.e. (AdminMgrImpl) AdminMgrFactory.createInstance(), fails with a
+     * ClassCastException.  Such callers should use the interface, or create the implementation themselves and wrap it
+     * only if they want it traced.
+     *
+     * @param type      contains the manager interface, i.e. AccessMgr.class.
+     * @param manager   contains the manager implementation.
+     * @param contextId contains the tenant of the manager.
+     * @param <T>       the manager interface.
+     * @return a recording proxy when tracing is on, the manager itself when it is off.
+     */
+    public static <T> T wrap( Class<T> type, T manager, String contextId )
+    {
+        if ( listener == null || manager == null )
+        {
+            return manager;
+        }
+        return type.cast( Proxy.newProxyInstance( type.getClassLoader(), new Class<?>[]
+            { type }, new ManagerHandler( type.getSimpleName(), manager, contextId ) ) );
+    }
+
+
+    /**
+     * Return the shape of an ldap filter, the filter with its assertion values replaced by '?', so spans of the same
+     * query group together and no user data ends up in the traces.
+     *
+     * @param filter contains the ldap filter, may be null.
+     * @return the filter shape, i.e. (&amp;(objectClass=?)(uid=?)), null when filter is null.
+     */
+    static String getFilterShape( String filter )
+    {
+        return filter == null ? null : FILTER_VALUE.matcher( filter ).replaceAll( "$1?)" );
+    }
+
+
+    /**
+     * Records a manager span around each call of the manager interface.
+     */
+    private static final class ManagerHandler implements InvocationHandler
+    {
+        private final String name;
+        private final Object manager;
+        private volatile String contextId;
+
+
+        private ManagerHandler( String name, Object manager, String contextId )
+        {
+            this.name = name;
+            this.manager = manager;
+            this.contextId = contextId;
+        }
+
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable
+        {
+            if ( method.getDeclaringClass() == Object.class )
+            {
+                return invokeManager( method, args );
+            }
+            if ( "setContextId".equals( method.getName() ) && args != null && args.length == 1 )
+            {
+                contextId = ( String ) args[0];
+            }
+            TraceSpan span = start( TraceSpan.Kind.MANAGER, name + "." + method.getName(), contextId, null, null );
+            Throwable error = null;
+            try
+            {
+                return invokeManager( method, args );
+            }
+            catch ( Throwable t )
+            {
+                error = t;
+                throw t;
+            }
+            finally
+            {
+                end( span, -1, error );
+            }
+        }
+
+
+        private Object invokeManager( Method method, Object[] args ) throws Throwable
+        {
+            try
+            {
+                return method.invoke( manager, args );
+            }
+            catch ( InvocationTargetException e )
+            {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -30,8 +31,10 @@ import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.directory.fortress.core.model.Group;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.SDSet;
+import org.apache.directory.fortress.core.model.SessionToken;
 import org.apache.directory.fortress.core.model.Session;
 import org.apache.directory.fortress.core.model.User;
 import org.apache.directory.fortress.core.model.UserRole;
@@ -828,6 +831,93 @@ public class AccessMgrImplTest extends TestCase
     }
 
 
+    /**
+     *
+     */
+    public void testCheckAccessToken()
+    {
+        // public boolean checkAccess(SessionToken token, Permission perm)
+        checkAccessTokens( "CHCK-ACS-TKN TU1_UPD TO1 TOP1 ", UserTestData.USERS_TU1_UPD, PermTestData.OBJS_TOB1,
+            PermTestData.OPS_TOP1 );
+    }
+
+
+    /**
+     * Check access with tokens decoded from the users' sessions, then with a token issued for another tenant and an
+     * expired token, which must be rejected.
+     *
+     * @param msg
+     * @param uArray
+     * @param oArray
+     * @param opArray
+     */
+    public static void checkAccessTokens( String msg, String[][] uArray, String[][] oArray, String[][] opArray )
+    {
+        LogUtil.logIt( msg );
+        byte[] key = "jtsTokenKey-0123456789abcdef0123".getBytes( StandardCharsets.UTF_8 );
+        try
+        {
+            AccessMgr accessMgr = AccessMgrFactory.createInstance( TestUtils.getContext() );
+            for ( String[] usr : uArray )
+            {
+                User user = UserTestData.getUser( usr );
+                Session session = accessMgr.createSession( user, false );
+                assertNotNull( session );
+                SessionToken token = SessionToken.decode( SessionToken.create( session, 60000 ).encode( key ), key );
+                for ( String[] obj : oArray )
+                {
+                    for ( String[] op : opArray )
+                    {
+                        Permission perm = new Permission( PermTestData.getName( obj ), PermTestData.getName( op ),
+                            PermTestData.getObjId( op ) );
+                        assertTrue( CLS_NM + ".checkAccessTokens failed userId [" + user.getUserId()
+                            + "] Perm objName [" + perm.getObjName() + "] operationName [" + perm.getOpName() + "]",
+                            accessMgr.checkAccess( token, perm ) );
+                    }
+                }
+
+                // negative test case, token issued for another tenant:
+                Permission perm = new Permission( PermTestData.getName( oArray[0] ),
+                    PermTestData.getName( opArray[0] ), PermTestData.getObjId( opArray[0] ) );
+                session.setContextId( "jtsOtherTenant" );
+                SessionToken otherToken = SessionToken.decode( SessionToken.create( session, 60000 ).encode( key ),
+                    key );
+                try
+                {
+                    accessMgr.checkAccess( otherToken, perm );
+                    fail( CLS_NM + ".checkAccessTokens accepted token of another tenant, userId [" + user.getUserId()
+                        + "]" );
+                }
+                catch ( SecurityException se )
+                {
+                    assertEquals( CLS_NM + ".checkAccessTokens tenant excep id check",
+                        GlobalErrIds.USER_SESS_TOKEN_INVALID, se.getErrorId() );
+                }
+
+                // negative test case, expired token:
+                session.setContextId( TestUtils.getContext() );
+                try
+                {
+                    SessionToken.decode( SessionToken.create( session, -1 ).encode( key ), key );
+                    fail( CLS_NM + ".checkAccessTokens accepted expired token, userId [" + user.getUserId() + "]" );
+                }
+                catch ( SecurityException se )
+                {
+                    assertEquals( CLS_NM + ".checkAccessTokens expiry excep id check",
+                        GlobalErrIds.USER_SESS_TOKEN_EXPIRED, se.getErrorId() );
+                }
+            }
+            LOG.debug( "checkAccessTokens successful" );
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error( "checkAccessTokens: failed with SecurityException rc=" + ex.getErrorId() + ", " +
+                "msg=" + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
     /**
      *
      */
@@ -1306,6 +1396,84 @@ public class AccessMgrImplTest extends TestCase
     }
 
 
+    /**
+     *
+     */
+    public void testRefreshSession()
+    {
+        // public void refreshSession(Session session)
+        refreshSessions( "REFRESH-SESS TU1_UPD TR1", UserTestData.USERS_TU1_UPD, RoleTestData.ROLES_TR1 );
+        refreshGroupSession( "REFRESH-SESS TG1", GroupTestData.TEST_GROUP1 );
+    }
+
+
+    /**
+     * @param msg
+     * @param uArray
+     * @param rArray
+     */
+    public static void refreshSessions( String msg, String[][] uArray, String[][] rArray )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AccessMgr accessMgr = AccessMgrFactory.createInstance( TestUtils.getContext() );
+            for ( String[] usr : uArray )
+            {
+                User user = UserTestData.getUser( usr );
+                Session session = accessMgr.createSession( user, false );
+                assertNotNull( session );
+                accessMgr.refreshSession( session );
+                assertTrue( CLS_NM + ".refreshSessions failed compare userId [" + session.getUserId() + "]",
+                    UserTestData.getUserId( usr ).equalsIgnoreCase( session.getUserId() ) );
+                assertEquals( CLS_NM + ".refreshSessions role check failed list size user [" + user.getUserId()
+                    + "]", rArray.length, session.getRoles().size() );
+            }
+            LOG.debug( "refreshSessions successful" );
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error(
+                "refreshSessions: failed with SecurityException rc=" + ex.getErrorId() + ", msg="
+                    + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
+    /**
+     * Group sessions carry no user, refresh must revalidate the role constraints only.
+     *
+     * @param msg
+     * @param group
+     */
+    public static void refreshGroupSession( String msg, Group group )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AccessMgr accessMgr = AccessMgrFactory.createInstance( TestUtils.getContext() );
+            Session session = accessMgr.createSession( new Group( group.getName() ) );
+            assertNotNull( session );
+            assertTrue( CLS_NM + ".refreshGroupSession session not a group session", session.isGroupSession() );
+            int roleCount = session.getRoles().size();
+            accessMgr.refreshSession( session );
+            assertTrue( CLS_NM + ".refreshGroupSession session not a group session after refresh",
+                session.isGroupSession() );
+            assertEquals( CLS_NM + ".refreshGroupSession role check failed list size group [" + group.getName()
+                + "]", roleCount, session.getRoles().size() );
+            LOG.debug( "refreshGroupSession group [" + group.getName() + "] successful" );
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error(
+                "refreshGroupSession: failed with SecurityException rc=" + ex.getErrorId() + ", msg="
+                    + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
     /**
      * Test the Rbac-Abac curly,moe,larry use cases.
      *
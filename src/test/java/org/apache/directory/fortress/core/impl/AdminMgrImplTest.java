@@ -20,7 +20,10 @@
 package org.apache.directory.fortress.core.impl;
 
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.directory.fortress.core.AdminMgr;
@@ -28,7 +31,9 @@ import org.apache.directory.fortress.core.AdminMgrFactory;
 import org.apache.directory.fortress.core.GlobalErrIds;
 import org.apache.directory.fortress.core.ReviewMgr;
 import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.model.BatchResult;
 import org.apache.directory.fortress.core.model.ConstraintUtil;
+import org.apache.directory.fortress.core.model.PermGrant;
 import org.apache.directory.fortress.core.model.PermObj;
 import org.apache.directory.fortress.core.model.Permission;
 import org.apache.directory.fortress.core.model.PermissionAttribute;
@@ -1605,6 +1610,101 @@ public class AdminMgrImplTest extends TestCase
     }
 
 
+    public void testAssignUsersSSD()
+    {
+        //     public List<BatchResult> assignUsers(List<UserRole> uRoles)
+        assignUsersSSDBatch( "ASGN-USRS_SSDT1_BATCH TU8 SSD_T1", UserTestData.USERS_TU8_SSD, RoleTestData.SSD_T1 );
+    }
+
+
+    /**
+     * Assign every member of an SSD set to each user in one batch, the roles of all users interleaved.  The assignments
+     * up to the cardinality must succeed and the rest must fail SSD validation even though none of them is stored
+     * when the batch is validated.  The accepted assignments are removed again afterwards.
+     *
+     * @param msg
+     * @param uArray
+     * @param sArray
+     */
+    public static void assignUsersSSDBatch( String msg, String[][] uArray, String[][] sArray )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AdminMgr adminMgr = getManagedAdminMgr();
+            List<List<UserRole>> userRoles = new ArrayList<>();
+            Map<String, Integer> cardinalities = new HashMap<>();
+            int i = 0;
+            for ( String[] usr : uArray )
+            {
+                SDSet ssd = RoleTestData.getSDSet( sArray[i++] );
+                User user = UserTestData.getUser( usr );
+                cardinalities.put( user.getUserId(), ssd.getCardinality() );
+                List<UserRole> roles = new ArrayList<>();
+                for ( String role : ssd.getMembers() )
+                {
+                    roles.add( new UserRole( user.getUserId(), role ) );
+                }
+                userRoles.add( roles );
+            }
+
+            // interleave the users so the roles accepted for one user must be told apart from those of the others:
+            int total = userRoles.stream().mapToInt( List::size ).sum();
+            List<UserRole> uRoles = new ArrayList<>( total );
+            List<Integer> counts = new ArrayList<>( total );
+            for ( int j = 0; uRoles.size() < total; j++ )
+            {
+                for ( List<UserRole> roles : userRoles )
+                {
+                    if ( j < roles.size() )
+                    {
+                        uRoles.add( roles.get( j ) );
+                        counts.add( j + 1 );
+                    }
+                }
+            }
+
+            List<BatchResult> results = adminMgr.assignUsers( uRoles );
+            assertEquals( CLS_NM + ".assignUsersSSDBatch result count", uRoles.size(), results.size() );
+            for ( int k = 0; k < results.size(); k++ )
+            {
+                UserRole uRole = uRoles.get( k );
+                BatchResult result = results.get( k );
+                int cardinality = cardinalities.get( uRole.getUserId() );
+                if ( counts.get( k ) < cardinality )
+                {
+                    assertTrue( CLS_NM + ".assignUsersSSDBatch user [" + uRole.getUserId() + "] role ["
+                        + uRole.getName() + "] count [" + counts.get( k ) + "] failed rc=" + result.getErrorCode(),
+                        result.isSuccess() );
+                }
+                else
+                {
+                    assertEquals( CLS_NM + ".assignUsersSSDBatch user [" + uRole.getUserId() + "] role ["
+                        + uRole.getName() + "] count [" + counts.get( k ) + "] cardinality [" + cardinality
+                        + "] must fail SSD", GlobalErrIds.SSD_VALIDATION_FAILED,
+                        result.getErrorCode() );
+                }
+            }
+
+            // leave the users as they were for the single assignment tests:
+            for ( int k = 0; k < results.size(); k++ )
+            {
+                if ( results.get( k ).isSuccess() )
+                {
+                    adminMgr.deassignUser( uRoles.get( k ) );
+                }
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error(
+                "assignUsersSSDBatch caught SecurityException rc=" + ex.getErrorId() + ", msg=" + ex.getMessage(),
+                ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
     /**
      *
      * @param msg
@@ -2435,6 +2535,138 @@ public class AdminMgrImplTest extends TestCase
     }
 
 
+    public void testGrantPermissionsMissingGrantee()
+    {
+        //     public List<BatchResult> grantPermissions(List<PermGrant> permGrants)
+        grantPermissionsMissingGrantee( "GRNT-PRMS_MISSING_GRANTEE_BATCH TOB1 TOP1", PermTestData.OBJS_TOB1[0],
+            PermTestData.OPS_TOP1 );
+    }
+
+
+    /**
+     * Grant two operations to the same missing role, then to the same missing user, in one batch each.  Every grant
+     * must fail, the repeat of a grantee with the error of its first read rather than being written unchecked.
+     *
+     * @param msg
+     * @param obj
+     * @param ops
+     */
+    public static void grantPermissionsMissingGrantee( String msg, String[] obj, String[][] ops )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AdminMgr adminMgr = getManagedAdminMgr();
+            PermObj pObj = PermTestData.getObj( obj );
+            List<PermGrant> roleGrants = new ArrayList<>();
+            List<PermGrant> userGrants = new ArrayList<>();
+            for ( int i = 0; i < 2; i++ )
+            {
+                Permission pOp = PermTestData.getOp( pObj.getObjName(), ops[i] );
+                PermGrant roleGrant = new PermGrant();
+                roleGrant.setObjName( pOp.getObjName() );
+                roleGrant.setOpName( pOp.getOpName() );
+                roleGrant.setObjId( pOp.getObjId() );
+                roleGrant.setRoleNm( "jtsNoSuchRole" );
+                roleGrants.add( roleGrant );
+                PermGrant userGrant = new PermGrant();
+                userGrant.setObjName( pOp.getObjName() );
+                userGrant.setOpName( pOp.getOpName() );
+                userGrant.setObjId( pOp.getObjId() );
+                userGrant.setUserId( "jtsNoSuchUser" );
+                userGrants.add( userGrant );
+            }
+            assertFailed( adminMgr.grantPermissions( roleGrants ), roleGrants.size(), GlobalErrIds.ROLE_NOT_FOUND );
+            assertFailed( adminMgr.grantPermissions( userGrants ), userGrants.size(), GlobalErrIds.USER_NOT_FOUND );
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error( "grantPermissionsMissingGrantee caught SecurityException rc=" + ex.getErrorId() + ", msg="
+                + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
+    private static void assertFailed( List<BatchResult> results, int size, int errorId )
+    {
+        assertEquals( CLS_NM + ".grantPermissionsMissingGrantee result count", size, results.size() );
+        for ( int i = 0; i < results.size(); i++ )
+        {
+            BatchResult result = results.get( i );
+            assertFalse( CLS_NM + ".grantPermissionsMissingGrantee grant [" + i + "] succeeded", result.isSuccess() );
+            assertEquals( CLS_NM + ".grantPermissionsMissingGrantee grant [" + i + "] error", errorId,
+                result.getErrorCode() );
+        }
+    }
+
+
+    public void testSpecialCharNames()
+    {
+        specialCharNames( "SPECIAL-CHAR-NAMES TU1 TOB1", UserTestData.USERS_TU1[0], PermTestData.OBJS_TOB1[0],
+            "jts,User+1=a", "TOB1,Obj+1=a" );
+    }
+
+
+    /**
+     * Create, read and delete a user and a perm object whose names contain the characters escaped in a dn, ',' '+'
+     * and '='.  The other attributes are copied from the given test data rows.
+     *
+     * @param msg
+     * @param usr
+     * @param obj
+     * @param userId
+     * @param objName
+     */
+    public static void specialCharNames( String msg, String[] usr, String[] obj, String userId, String objName )
+    {
+        LogUtil.logIt( msg );
+        try
+        {
+            AdminMgr adminMgr = getManagedAdminMgr();
+            ReviewMgr reviewMgr = ReviewMgrImplTest.getManagedReviewMgr();
+            User user = UserTestData.getUser( usr );
+            user.setUserId( userId );
+            adminMgr.addUser( user );
+            assertEquals( CLS_NM + ".specialCharNames read userId", userId, reviewMgr.readUser( new User( userId ) )
+                .getUserId() );
+            PermObj pObj = PermTestData.getObj( obj );
+            pObj.setObjName( objName );
+            adminMgr.addPermObj( pObj );
+            assertEquals( CLS_NM + ".specialCharNames read objName", objName, reviewMgr.readPermObj( new PermObj(
+                objName ) ).getObjName() );
+            adminMgr.deletePermObj( new PermObj( objName ) );
+            adminMgr.deleteUser( new User( userId ) );
+            try
+            {
+                reviewMgr.readUser( new User( userId ) );
+                fail( CLS_NM + ".specialCharNames read deleted userId [" + userId + "]" );
+            }
+            catch ( SecurityException ex )
+            {
+                assertEquals( CLS_NM + ".specialCharNames read deleted userId", GlobalErrIds.USER_NOT_FOUND,
+                    ex.getErrorId() );
+            }
+            try
+            {
+                reviewMgr.readPermObj( new PermObj( objName ) );
+                fail( CLS_NM + ".specialCharNames read deleted objName [" + objName + "]" );
+            }
+            catch ( SecurityException ex )
+            {
+                assertEquals( CLS_NM + ".specialCharNames read deleted objName", GlobalErrIds.PERM_OBJ_NOT_FOUND,
+                    ex.getErrorId() );
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error( "specialCharNames caught SecurityException rc=" + ex.getErrorId() + ", msg=" + ex.getMessage(),
+                ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
     /**
      * AMT24
      *
@@ -105,6 +105,9 @@ public class DelegatedMgrImplTest extends TestCase
         suite.addTest( new DelegatedMgrImplTest( "testCanDeassignUser" ) );
         suite.addTest( new DelegatedMgrImplTest( "testCanGrantPerm" ) );
         suite.addTest( new DelegatedMgrImplTest( "testCanRevokePerm" ) );
+        suite.addTest( new DelegatedMgrImplTest( "testAdminScopeInvalidation" ) );
+        suite.addTest( new DelegatedMgrImplTest( "testCanAssignUserMatrix" ) );
+        suite.addTest( new DelegatedMgrImplTest( "testCanGrantPermMatrix" ) );
 
         return suite;
     }
@@ -918,6 +921,369 @@ public class DelegatedMgrImplTest extends TestCase
     }
 
 
+    public void testAdminScopeInvalidation()
+    {
+        adminScopeInvalidation( "ADMIN-SCOPE-INVALIDATION TU17A TR2", UserTestData.USERS_TU17A_ARBAC[0],
+            AdminRoleTestData.AROLES_TR2[0], OrgUnitTestData.ORGS_USR_TO5[0], OrgUnitTestData.ORGS_PRM_TO5[0],
+            RoleTestData.ROLES_TR15_ARBAC[0], RoleTestData.ROLES_TR15_ARBAC[3] );
+    }
+
+
+    /**
+     * Change the ou and role hierarchies and the role range of an admin role between checks made with the same
+     * session and verify the compiled admin scope follows every change.
+     *
+     * @param msg
+     * @param aUsr admin user holding the admin role.
+     * @param aRle admin role whose osU and osP contain the ous and whose range ends at the parent role.
+     * @param uOrg user ou contained in the admin role's osU.
+     * @param pOrg perm ou contained in the admin role's osP.
+     * @param pRle role at the top of the admin role's range.
+     * @param cRle role at the bottom of the admin role's range.
+     */
+    public static void adminScopeInvalidation( String msg, String[] aUsr, String[] aRle, String[] uOrg,
+        String[] pOrg, String[] pRle, String[] cRle )
+    {
+        LogUtil.logIt( msg );
+        OrgUnit uOu = new OrgUnit( "jtsScopeUsrOu1", OrgUnit.Type.USER );
+        OrgUnit pOu = new OrgUnit( "jtsScopePrmOu1", OrgUnit.Type.PERM );
+        User user = new User( "jtsScopeUser1", "passw0rd1", uOu.getName() );
+        PermObj pObj = new PermObj( "jtsScopeObj1", pOu.getName() );
+        Role role = new Role( "jtsScopeRole1" );
+        Role parent = RoleTestData.getRole( pRle );
+        Role child = RoleTestData.getRole( cRle );
+        Permission perm = new Permission( pObj.getObjName(), "" );
+        try
+        {
+            DelAdminMgr dAdminMgr = getManagedDelegatedMgr();
+            AdminMgr adminMgr = AdminMgrImplTest.getManagedAdminMgr();
+            dAdminMgr.add( uOu );
+            dAdminMgr.add( pOu );
+            adminMgr.addUser( user );
+            adminMgr.addPermObj( pObj );
+            adminMgr.addRole( role );
+
+            DelAccessMgr delAccessMgr = DelAccessMgrFactory.createInstance( TestUtils.getContext() );
+            AccessMgr accessMgr = ( AccessMgr ) delAccessMgr;
+            User aUser = UserTestData.getUser( aUsr );
+            Session session = accessMgr.createSession( aUser, false );
+            assertNotNull( session );
+
+            // the user ou joins and leaves the admin role's osU:
+            assertFalse( CLS_NM + ".adminScopeInvalidation user ou out of scope",
+                delAccessMgr.canAssign( session, user, parent ) );
+            OrgUnit osU = OrgUnitTestData.getOrgUnit( uOrg );
+            dAdminMgr.addInheritance( osU, uOu );
+            assertTrue( CLS_NM + ".adminScopeInvalidation user ou added to scope",
+                delAccessMgr.canAssign( session, user, parent ) );
+            dAdminMgr.deleteInheritance( osU, uOu );
+            assertFalse( CLS_NM + ".adminScopeInvalidation user ou removed from scope",
+                delAccessMgr.canAssign( session, user, parent ) );
+
+            // the perm ou joins and leaves the admin role's osP:
+            assertFalse( CLS_NM + ".adminScopeInvalidation perm ou out of scope",
+                delAccessMgr.canGrant( session, parent, perm ) );
+            OrgUnit osP = OrgUnitTestData.getOrgUnit( pOrg );
+            dAdminMgr.addInheritance( osP, pOu );
+            assertTrue( CLS_NM + ".adminScopeInvalidation perm ou added to scope",
+                delAccessMgr.canGrant( session, parent, perm ) );
+            dAdminMgr.deleteInheritance( osP, pOu );
+            assertFalse( CLS_NM + ".adminScopeInvalidation perm ou removed from scope",
+                delAccessMgr.canGrant( session, parent, perm ) );
+
+            // the role joins and leaves the admin role's range:
+            dAdminMgr.addInheritance( osU, uOu );
+            assertFalse( CLS_NM + ".adminScopeInvalidation role out of range",
+                delAccessMgr.canAssign( session, user, role ) );
+            adminMgr.addInheritance( parent, role );
+            adminMgr.addInheritance( role, child );
+            assertTrue( CLS_NM + ".adminScopeInvalidation role added to range",
+                delAccessMgr.canAssign( session, user, role ) );
+            adminMgr.deleteInheritance( role, child );
+            assertFalse( CLS_NM + ".adminScopeInvalidation role removed from range",
+                delAccessMgr.canAssign( session, user, role ) );
+            adminMgr.deleteInheritance( parent, role );
+
+            // the admin role's range moves to the role and back:
+            AdminRole aRole = AdminRoleTestData.getRole( aRle );
+            aRole.setBeginRange( role.getName() );
+            aRole.setEndRange( role.getName() );
+            dAdminMgr.updateRole( aRole );
+            session = accessMgr.createSession( aUser, false );
+            assertTrue( CLS_NM + ".adminScopeInvalidation range moved to role",
+                delAccessMgr.canAssign( session, user, role ) );
+            assertFalse( CLS_NM + ".adminScopeInvalidation range moved from parent",
+                delAccessMgr.canAssign( session, user, parent ) );
+            dAdminMgr.updateRole( AdminRoleTestData.getRole( aRle ) );
+            session = accessMgr.createSession( aUser, false );
+            assertFalse( CLS_NM + ".adminScopeInvalidation range restored without role",
+                delAccessMgr.canAssign( session, user, role ) );
+            assertTrue( CLS_NM + ".adminScopeInvalidation range restored to parent",
+                delAccessMgr.canAssign( session, user, parent ) );
+
+            dAdminMgr.deleteInheritance( osU, uOu );
+            adminMgr.deleteRole( role );
+            adminMgr.deletePermObj( pObj );
+            adminMgr.deleteUser( user );
+            dAdminMgr.delete( pOu );
+            dAdminMgr.delete( uOu );
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error( "adminScopeInvalidation caught SecurityException rc=" + ex.getErrorId()
+                + ", msg=" + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
+    public void testCanAssignUserMatrix()
+    {
+        canAssignMatrix( "CAN-ASGN-USRS-MATRIX TU17A TU17U TR15", UserTestData.USERS_TU17A_ARBAC,
+            UserTestData.USERS_TU17U_ARBAC, RoleTestData.ROLES_TR15_ARBAC );
+    }
+
+
+    public void testCanGrantPermMatrix()
+    {
+        canGrantMatrix( "CAN-GRNT-PRMS-MATRIX TU17A TOB5 TR15", UserTestData.USERS_TU17A_ARBAC,
+            PermTestData.OBJS_TOB5, RoleTestData.ROLES_TR15_ARBAC );
+    }
+
+
+    /**
+     * Compare every cell of the matrix canAssign with the single canAssign, for each admin role in the admin users'
+     * sessions (whose ranges cover inclusive and exclusive bounds), then again with the admin role renamed to the
+     * super and the service admin roles.  A missing user must fail both calls the same way.
+     *
+     * @param msg
+     * @param uaArray admin users, one admin role each.
+     * @param uArray users to assign.
+     * @param rArray roles to assign.
+     */
+    public static void canAssignMatrix( String msg, String[][] uaArray, String[][] uArray, String[][] rArray )
+    {
+        LogUtil.logIt( msg );
+        List<User> users = new ArrayList<>();
+        for ( String[] usr : uArray )
+        {
+            users.add( UserTestData.getUser( usr ) );
+        }
+        List<Role> roles = new ArrayList<>();
+        for ( String[] rle : rArray )
+        {
+            roles.add( RoleTestData.getRole( rle ) );
+        }
+        try
+        {
+            DelAccessMgr delAccessMgr = DelAccessMgrFactory.createInstance( TestUtils.getContext() );
+            AccessMgr accessMgr = ( AccessMgr ) delAccessMgr;
+            for ( String[] aUsr : uaArray )
+            {
+                Session session = accessMgr.createSession( UserTestData.getUser( aUsr ), false );
+                assertNotNull( session );
+                UserAdminRole aRole = session.getAdminRoles().get( 0 );
+                String aRoleName = aRole.getName();
+                compareAssign( delAccessMgr, session, users, roles );
+
+                aRole.setName( getSuperAdmin() );
+                boolean[][] results = compareAssign( delAccessMgr, session, users, roles );
+                for ( boolean[] row : results )
+                {
+                    for ( boolean result : row )
+                    {
+                        assertTrue( CLS_NM + ".canAssignMatrix super admin [" + aRoleName + "] denied", result );
+                    }
+                }
+
+                aRole.setName( getRestAdmin() );
+                results = compareAssign( delAccessMgr, session, users, roles );
+                for ( boolean[] row : results )
+                {
+                    for ( boolean result : row )
+                    {
+                        assertEquals( CLS_NM + ".canAssignMatrix service admin [" + aRoleName
+                            + "] not decided by user ou", row[0], result );
+                    }
+                }
+                aRole.setName( aRoleName );
+
+                List<User> missing = new ArrayList<>( users );
+                missing.add( new User( "jtsNoSuchUser" ) );
+                int matrixErrorId = 0;
+                try
+                {
+                    delAccessMgr.canAssign( session, missing, roles );
+                }
+                catch ( SecurityException ex )
+                {
+                    matrixErrorId = ex.getErrorId();
+                }
+                int singleErrorId = 0;
+                try
+                {
+                    delAccessMgr.canAssign( session, missing.get( missing.size() - 1 ), roles.get( 0 ) );
+                }
+                catch ( SecurityException ex )
+                {
+                    singleErrorId = ex.getErrorId();
+                }
+                assertEquals( CLS_NM + ".canAssignMatrix missing user", GlobalErrIds.USER_NOT_FOUND, matrixErrorId );
+                assertEquals( CLS_NM + ".canAssignMatrix missing user", singleErrorId, matrixErrorId );
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error( "canAssignMatrix caught SecurityException rc=" + ex.getErrorId()
+                + ", msg=" + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
+    private static boolean[][] compareAssign( DelAccessMgr delAccessMgr, Session session, List<User> users,
+        List<Role> roles ) throws SecurityException
+    {
+        boolean[][] results = delAccessMgr.canAssign( session, users, roles );
+        assertEquals( CLS_NM + ".compareAssign rows", users.size(), results.length );
+        for ( int i = 0; i < users.size(); i++ )
+        {
+            assertEquals( CLS_NM + ".compareAssign columns", roles.size(), results[i].length );
+            for ( int j = 0; j < roles.size(); j++ )
+            {
+                boolean result = delAccessMgr.canAssign( session, users.get( i ), roles.get( j ) );
+                assertEquals( CLS_NM + ".compareAssign admin role [" + session.getAdminRoles().get( 0 ).getName()
+                    + "] user [" + users.get( i ).getUserId() + "] role [" + roles.get( j ).getName() + "]", result,
+                    results[i][j] );
+            }
+        }
+        return results;
+    }
+
+
+    /**
+     * Compare every cell of the matrix canGrant with the single canGrant, for each admin role in the admin users'
+     * sessions, then again with the admin role renamed to the super and the service admin roles.  A missing object
+     * must fail both calls the same way.
+     *
+     * @param msg
+     * @param uaArray admin users, one admin role each.
+     * @param pArray objects of the permissions to grant.
+     * @param rArray roles to grant to.
+     */
+    public static void canGrantMatrix( String msg, String[][] uaArray, String[][] pArray, String[][] rArray )
+    {
+        LogUtil.logIt( msg );
+        List<Permission> perms = new ArrayList<>();
+        for ( String[] prm : pArray )
+        {
+            perms.add( new Permission( PermTestData.getObj( prm ).getObjName(), "" ) );
+        }
+        List<Role> roles = new ArrayList<>();
+        for ( String[] rle : rArray )
+        {
+            roles.add( RoleTestData.getRole( rle ) );
+        }
+        try
+        {
+            DelAccessMgr delAccessMgr = DelAccessMgrFactory.createInstance( TestUtils.getContext() );
+            AccessMgr accessMgr = ( AccessMgr ) delAccessMgr;
+            for ( String[] aUsr : uaArray )
+            {
+                Session session = accessMgr.createSession( UserTestData.getUser( aUsr ), false );
+                assertNotNull( session );
+                UserAdminRole aRole = session.getAdminRoles().get( 0 );
+                String aRoleName = aRole.getName();
+                compareGrant( delAccessMgr, session, roles, perms );
+
+                aRole.setName( getSuperAdmin() );
+                boolean[][] results = compareGrant( delAccessMgr, session, roles, perms );
+                for ( boolean[] row : results )
+                {
+                    for ( boolean result : row )
+                    {
+                        assertTrue( CLS_NM + ".canGrantMatrix super admin [" + aRoleName + "] denied", result );
+                    }
+                }
+
+                aRole.setName( getRestAdmin() );
+                results = compareGrant( delAccessMgr, session, roles, perms );
+                for ( boolean[] row : results )
+                {
+                    for ( int j = 0; j < row.length; j++ )
+                    {
+                        assertEquals( CLS_NM + ".canGrantMatrix service admin [" + aRoleName
+                            + "] not decided by perm ou", results[0][j], row[j] );
+                    }
+                }
+                aRole.setName( aRoleName );
+
+                List<Permission> missing = new ArrayList<>( perms );
+                missing.add( new Permission( "jtsNoSuchObj", "" ) );
+                int matrixErrorId = 0;
+                try
+                {
+                    delAccessMgr.canGrant( session, roles, missing );
+                }
+                catch ( SecurityException ex )
+                {
+                    matrixErrorId = ex.getErrorId();
+                }
+                int singleErrorId = 0;
+                try
+                {
+                    delAccessMgr.canGrant( session, roles.get( 0 ), missing.get( missing.size() - 1 ) );
+                }
+                catch ( SecurityException ex )
+                {
+                    singleErrorId = ex.getErrorId();
+                }
+                assertEquals( CLS_NM + ".canGrantMatrix missing object", GlobalErrIds.PERM_OBJ_NOT_FOUND,
+                    matrixErrorId );
+                assertEquals( CLS_NM + ".canGrantMatrix missing object", singleErrorId, matrixErrorId );
+            }
+        }
+        catch ( SecurityException ex )
+        {
+            LOG.error( "canGrantMatrix caught SecurityException rc=" + ex.getErrorId()
+                + ", msg=" + ex.getMessage(), ex );
+            fail( ex.getMessage() );
+        }
+    }
+
+
+    private static boolean[][] compareGrant( DelAccessMgr delAccessMgr, Session session, List<Role> roles,
+        List<Permission> perms ) throws SecurityException
+    {
+        boolean[][] results = delAccessMgr.canGrant( session, roles, perms );
+        assertEquals( CLS_NM + ".compareGrant rows", roles.size(), results.length );
+        for ( int i = 0; i < roles.size(); i++ )
+        {
+            assertEquals( CLS_NM + ".compareGrant columns", perms.size(), results[i].length );
+            for ( int j = 0; j < perms.size(); j++ )
+            {
+                boolean result = delAccessMgr.canGrant( session, roles.get( i ), perms.get( j ) );
+                assertEquals( CLS_NM + ".compareGrant admin role [" + session.getAdminRoles().get( 0 ).getName()
+                    + "] role [" + roles.get( i ).getName() + "] object [" + perms.get( j ).getObjName() + "]",
+                    result, results[i][j] );
+            }
+        }
+        return results;
+    }
+
+
+    private static String getSuperAdmin()
+    {
+        return Config.getInstance().getProperty( "superadmin.role", "fortress-core-super-admin" );
+    }
+
+
+    private static String getRestAdmin()
+    {
+        return Config.getInstance().getProperty( "serviceadmin.role", "fortress-rest-admin" );
+    }
+
+
     public void testAddOrgUnit()
     {
         //addOrgUnits("ADD ORGS_USR_DEV0", OrgUnitTestData.ORGS_USR_DEV0);
@@ -0,0 +1,166 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.model.Permission;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Unit tests of the csv rows written by {@link EntitlementExport}, joined from an in memory role hierarchy, no
+ * directory required.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EntitlementExportTest
+{
+    private static final int COLUMNS = 5;
+
+
+    @Test
+    public void testHeaderColumns()
+    {
+        assertEquals( "header", "userId,rolePath,objName,opName,objId\n", EntitlementExport.HEADER );
+        assertEquals( COLUMNS, split( EntitlementExport.HEADER.trim() ).size() );
+    }
+
+
+    @Test
+    public void testDirectGrant()
+    {
+        EntitlementExport export = new EntitlementExport( null, role -> null );
+        EntitlementExport.Index index = export.new Index();
+        index.add( grant( "jtsObj1", "read", "1", null, "jtsUser1" ) );
+        StringBuilder chunk = new StringBuilder();
+        assertEquals( 1, export.join( index, new EntitlementExport.UserRoles( "jtsUser1", null ), chunk ) );
+        assertEquals( "jtsUser1,,jtsObj1,read,1\n", chunk.toString() );
+        assertColumns( chunk );
+    }
+
+
+    @Test
+    public void testInheritedGrant()
+    {
+        Map<String, Set<String>> parents = new HashMap<>();
+        parents.put( "jtsRole1", Collections.singleton( "jtsRole2" ) );
+        parents.put( "jtsRole2", Collections.singleton( "jtsRole3" ) );
+        EntitlementExport export = new EntitlementExport( null, parents::get );
+        EntitlementExport.Index index = export.new Index();
+        index.add( grant( "jtsObj1", "read", null, "jtsRole1", null ) );
+        index.add( grant( "jtsObj2", "write", "2", "jtsRole3", null ) );
+        StringBuilder chunk = new StringBuilder();
+        assertEquals( 2, export.join( index, new EntitlementExport.UserRoles( "jtsUser1",
+            Collections.singletonList( "jtsRole1" ) ), chunk ) );
+        assertEquals( "jtsUser1,jtsRole1,jtsObj1,read,\n"
+            + "jtsUser1,jtsRole1>jtsRole2>jtsRole3,jtsObj2,write,2\n", chunk.toString() );
+        assertColumns( chunk );
+    }
+
+
+    @Test
+    public void testDirectAndInheritedGrant()
+    {
+        EntitlementExport export = new EntitlementExport( null, role -> null );
+        EntitlementExport.Index index = export.new Index();
+        index.add( grant( "jtsObj1", "read", null, null, "jtsUser1" ) );
+        index.add( grant( "jtsObj1", "read", null, "jtsRole1", null ) );
+        index.add( grant( "jtsObj,2", "say \"hi\"", null, "jtsRole1", "jtsUser1" ) );
+        StringBuilder chunk = new StringBuilder();
+        assertEquals( 2, export.join( index, new EntitlementExport.UserRoles( "jtsUser1",
+            Collections.singletonList( "jtsRole1" ) ), chunk ) );
+        // a permission granted both ways is listed once, as the direct grant:
+        assertEquals( "jtsUser1,,jtsObj1,read,\n"
+            + "jtsUser1,,\"jtsObj,2\",\"say \"\"hi\"\"\",\n", chunk.toString() );
+        assertColumns( chunk );
+    }
+
+
+    private static Permission grant( String objName, String opName, String objId, String role, String userId )
+    {
+        Permission perm = new Permission( objName, opName, objId );
+        if ( role != null )
+        {
+            perm.setRole( role );
+        }
+        if ( userId != null )
+        {
+            perm.setUser( userId );
+        }
+        return perm;
+    }
+
+
+    private static void assertColumns( StringBuilder chunk )
+    {
+        for ( String line : Arrays.asList( chunk.toString().split( "\n" ) ) )
+        {
+            assertEquals( "columns of [" + line + "]", COLUMNS, split( line ).size() );
+        }
+    }
+
+
+    /**
+     * Split a csv line, honoring quoted fields.
+     */
+    private static List<String> split( String line )
+    {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for ( int i = 0; i < line.length(); i++ )
+        {
+            char c = line.charAt( i );
+            if ( c == '"' )
+            {
+                if ( quoted && i + 1 < line.length() && line.charAt( i + 1 ) == '"' )
+                {
+                    field.append( c );
+                    i++;
+                }
+                else
+                {
+                    quoted = !quoted;
+                }
+            }
+            else if ( c == ',' && !quoted )
+            {
+                fields.add( field.toString() );
+                field.setLength( 0 );
+            }
+            else
+            {
+                field.append( c );
+            }
+        }
+        fields.add( field.toString() );
+        return fields;
+    }
+}
@@ -202,6 +202,7 @@ public class FortressJUnitTest extends TestCase
         {
             suite.addTest( new PswdPolicyMgrImplTest( "testUpdatePasswordPolicy" ) );
         }
+        suite.addTest( new AdminMgrImplTest( "testAssignUsersSSD" ) );
         suite.addTest( new AdminMgrImplTest( "testAssignUser" ) );
         suite.addTest( new AdminMgrImplTest( "testEnableRoleConstraint" ) );
         suite.addTest( new AdminMgrImplTest( "testAssignUserRoleConstraints" ) );
@@ -210,6 +211,8 @@ public class FortressJUnitTest extends TestCase
         suite.addTest( new AdminMgrImplTest( "testAddPermissionOp" ) );
         suite.addTest( new AdminMgrImplTest( "testUpdatePermissionOp" ) );
         suite.addTest( new AdminMgrImplTest( "testGrantPermissionRole" ) );
+        suite.addTest( new AdminMgrImplTest( "testGrantPermissionsMissingGrantee" ) );
+        suite.addTest( new AdminMgrImplTest( "testSpecialCharNames" ) );
         suite.addTest( new AdminMgrImplTest( "testGrantPermissionUser" ) );
         suite.addTest( new AdminMgrImplTest( "testAddPermissionAttributeSet" ) );
         suite.addTest( new AdminMgrImplTest( "testAddPermissionAttributeToSet" ) );
@@ -282,6 +285,9 @@ public class FortressJUnitTest extends TestCase
         suite.addTest( new DelegatedMgrImplTest( "testCanDeassignUser" ) );
         suite.addTest( new DelegatedMgrImplTest( "testCanGrantPerm" ) );
         suite.addTest( new DelegatedMgrImplTest( "testCanRevokePerm" ) );
+        suite.addTest( new DelegatedMgrImplTest( "testAdminScopeInvalidation" ) );
+        suite.addTest( new DelegatedMgrImplTest( "testCanAssignUserMatrix" ) );
+        suite.addTest( new DelegatedMgrImplTest( "testCanGrantPermMatrix" ) );
 
         // AccessMgr RBAC:
         suite.addTest( new AccessMgrImplTest( "testGetUserId" ) );
@@ -300,11 +306,13 @@ public class FortressJUnitTest extends TestCase
         suite.addTest( new AccessMgrImplTest( "testCreateSession" ) );
         suite.addTest( new AccessMgrImplTest( "testCreateSessionTrusted" ) );
         suite.addTest( new AccessMgrImplTest( "testCreateSessionHier" ) );
+        suite.addTest( new AccessMgrImplTest( "testRefreshSession" ) );
         suite.addTest( new AccessMgrImplTest( "createSessionsDSD" ) );
         // hit it again to make sure the caching is working good:
         suite.addTest( new AccessMgrImplTest( "createSessionsDSD" ) );
         suite.addTest( new AccessMgrImplTest( "testSessionRole" ) );
         suite.addTest( new AccessMgrImplTest( "testCheckAccess" ) );
+        suite.addTest( new AccessMgrImplTest( "testCheckAccessToken" ) );
         suite.addTest( new AccessMgrImplTest( "testAddActiveRole" ) );
         suite.addTest( new AccessMgrImplTest( "testDropActiveRole" ) );
         suite.addTest( new AccessMgrImplTest( "testSessionPermission" ) );
@@ -0,0 +1,167 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.directory.fortress.core.model.Graphable;
+import org.apache.directory.fortress.core.model.Relationship;
+import org.apache.directory.fortress.core.model.Role;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Unit tests of the delta reloads of {@link HierLoader} and {@link HierUtil#applyDelta(SimpleDirectedGraph, List)}
+ * against an in memory source, no directory required.  The hierarchy used is {@code jtsHierP <- jtsHierA <- jtsHierB}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class HierLoaderTest
+{
+    private static final String CONTEXT_ID = "jtsHierCtx";
+
+
+    @Test
+    public void testApplyDeltaParentRemoved()
+    {
+        SimpleDirectedGraph<String, Relationship> graph = buildGraph();
+        // the parent was deleted, which removed it from the child's parents:
+        assertTrue( HierUtil.applyDelta( graph, nodes( node( "jtsHierA" ) ) ) );
+        assertEquals( set( "jtsHierA" ), HierUtil.getAscendants( "jtsHierB", graph ) );
+        assertTrue( HierUtil.getAscendants( "jtsHierA", graph ).isEmpty() );
+        assertTrue( HierUtil.getDescendants( "jtsHierP", graph ).isEmpty() );
+    }
+
+
+    @Test
+    public void testApplyDeltaParentReplaced()
+    {
+        SimpleDirectedGraph<String, Relationship> graph = buildGraph();
+        assertTrue( HierUtil.applyDelta( graph, nodes( node( "jtsHierA", "jtsHierQ" ) ) ) );
+        assertEquals( set( "jtsHierA", "jtsHierQ" ), HierUtil.getAscendants( "jtsHierB", graph ) );
+        assertTrue( HierUtil.getDescendants( "jtsHierP", graph ).isEmpty() );
+    }
+
+
+    @Test
+    public void testApplyDeltaUnchanged()
+    {
+        SimpleDirectedGraph<String, Relationship> graph = buildGraph();
+        assertFalse( HierUtil.applyDelta( graph, nodes( node( "jtsHierA", "jtsHierP" ),
+            node( "jtsHierB", "jtsHierA" ) ) ) );
+        assertEquals( set( "jtsHierA", "jtsHierP" ), HierUtil.getAscendants( "jtsHierB", graph ) );
+    }
+
+
+    @Test
+    public void testLoadDeltaAfterParentRemoval()
+    {
+        MemorySource source = new MemorySource();
+        source.full = delta( null, "20260101000000Z", node( "jtsHierA", "jtsHierP" ), node( "jtsHierB", "jtsHierA" ) );
+        HierLoader loader = new HierLoader( HierUtil.Type.ROLE, source );
+        SimpleDirectedGraph<String, Relationship> graph = loader.load( CONTEXT_ID, CONTEXT_ID );
+        assertEquals( set( "jtsHierA", "jtsHierP" ), HierUtil.getAscendants( "jtsHierB", graph ) );
+
+        source.changed = delta( "20260101000000Z", "20260102000000Z", node( "jtsHierA" ) );
+        SimpleDirectedGraph<String, Relationship> reloaded = loader.load( CONTEXT_ID, CONTEXT_ID );
+        assertSame( "the kept graph is updated in place", graph, reloaded );
+        assertEquals( Arrays.asList( null, "20260101000000Z" ), source.marks );
+        assertEquals( set( "jtsHierA" ), HierUtil.getAscendants( "jtsHierB", reloaded ) );
+        assertTrue( HierUtil.getDescendants( "jtsHierP", reloaded ).isEmpty() );
+
+        // the next delta is read from the mark of the last one:
+        source.changed = delta( "20260102000000Z", null );
+        loader.load( CONTEXT_ID, CONTEXT_ID );
+        assertEquals( "20260102000000Z", source.marks.get( 2 ) );
+    }
+
+
+    private static SimpleDirectedGraph<String, Relationship> buildGraph()
+    {
+        return HierUtil.buildGraph( HierUtil.loadHier( CONTEXT_ID, nodes( node( "jtsHierA", "jtsHierP" ),
+            node( "jtsHierB", "jtsHierA" ) ) ) );
+    }
+
+
+    private static Graphable node( String name, String... parents )
+    {
+        Role role = new Role( name );
+        if ( parents.length > 0 )
+        {
+            role.setParents( new HashSet<>( Arrays.asList( parents ) ) );
+        }
+        return role;
+    }
+
+
+    private static List<Graphable> nodes( Graphable... nodes )
+    {
+        return new ArrayList<>( Arrays.asList( nodes ) );
+    }
+
+
+    private static HierDelta delta( String since, String modifyTimestamp, Graphable... nodes )
+    {
+        HierDelta delta = new HierDelta( since );
+        for ( Graphable node : nodes )
+        {
+            delta.add( node, modifyTimestamp );
+        }
+        return delta;
+    }
+
+
+    private static Set<String> set( String... names )
+    {
+        Set<String> set = new HashSet<>();
+        for ( String name : names )
+        {
+            set.add( name.toUpperCase() );
+        }
+        return set;
+    }
+
+
+    /**
+     * Hands out the full hierarchy when read without a mark and the changed nodes otherwise, recording the marks.
+     */
+    private static final class MemorySource implements HierLoader.Source
+    {
+        private final List<String> marks = new ArrayList<>();
+        private HierDelta full;
+        private HierDelta changed;
+
+
+        @Override
+        public HierDelta getDescendants( String contextId, String since )
+        {
+            marks.add( since );
+            return since == null ? full : changed;
+        }
+    }
+}
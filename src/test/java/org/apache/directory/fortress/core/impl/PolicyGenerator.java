@@ -0,0 +1,913 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.directory.fortress.core.GlobalIds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Writes a synthetic RBAC policy of any size for scale testing, either as LDIF to import straight into the directory
+ * or as the xml load script consumed by {@link org.apache.directory.fortress.core.ant.FortressAntTask}.  The
+ * hand-written arrays of {@link UserTestData}, {@link RoleTestData} and {@link PermTestData} hold a few hundred entries,
+ * this produces the millions needed to reproduce a production shape, e.g. 2M users, 40k roles and an 8 level
+ * hierarchy:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=org.apache.directory.fortress.core.impl.PolicyGenerator
+ *     -Dgen.users=2000000 -Dgen.roles=40000 -Dgen.depth=8
+ * </pre>
+ * The policy of each tenant contains:
+ * <ul>
+ *   <li>User and perm org units, users are spread evenly over the user ones and objects over the perm ones.</li>
+ *   <li>A role hierarchy of {@code gen.depth} levels, each level {@code gen.fanout} times larger than the one above.
+ *   Every role below the top has one parent on the level above, {@code gen.multi.pct} percent of them have up to
+ *   {@code gen.max.parents} so the hierarchy is a DAG and not only a tree.</li>
+ *   <li>Objects of {@code gen.ops} operations, each role granted {@code gen.grants} random operations.</li>
+ *   <li>SSD and DSD sets of {@code gen.sd.size} roles taken from the bottom of the hierarchy.  No user is assigned
+ *   enough members of an SSD set to violate it.</li>
+ *   <li>Users assigned {@code gen.user.roles} random roles, {@code gen.temporal.pct} percent of the assignments limited
+ *   to office hours on weekdays.</li>
+ *   <li>{@code gen.rc.pct} percent of the roles constrained by the user's {@code locale}, the users assigned such a role
+ *   get a role constraint with a locale value.</li>
+ * </ul>
+ * Nothing is held in memory per user, every user's assignments are derived from the seed and its number, so the
+ * same {@code gen.seed} and sizes always produce the same files and any size can be written.
+ * <p>
+ * Every setting is a system property:
+ * <ul>
+ *   <li>{@code gen.format} - {@code ldif}, the default, or {@code xml}.</li>
+ *   <li>{@code gen.out} - directory written to, default {@code target/policy}.  The ldif format writes
+ *   {@code policy.ldif} for all tenants and {@code policy-config.ldif}, the changes to the config node enabling the
+ *   role constraints.  The xml format writes {@code policy-<tenant>.xml} per tenant, load each with
+ *   {@code mvn install -Dload.file=... -Dtenant=<tenant>}.</li>
+ *   <li>{@code gen.tenants} - number of tenants, default 1 which writes to the default tree.  More than one writes
+ *   tenants {@code <prefix>T1}, {@code <prefix>T2}... each under its own {@code ou=<tenant>} node.</li>
+ *   <li>{@code gen.users}, {@code gen.roles}, {@code gen.depth}, {@code gen.fanout} - default 1000, 100, 4, 4.</li>
+ *   <li>{@code gen.multi.pct}, {@code gen.max.parents} - default 20 and 3.</li>
+ *   <li>{@code gen.objs}, {@code gen.ops}, {@code gen.grants} - default 50, 5, 10.</li>
+ *   <li>{@code gen.user.roles}, {@code gen.user.ous}, {@code gen.perm.ous} - default 3, 10, 10.</li>
+ *   <li>{@code gen.ssd.sets}, {@code gen.dsd.sets}, {@code gen.sd.size} - default 5, 5, 3.</li>
+ *   <li>{@code gen.temporal.pct}, {@code gen.rc.pct} - default 10 and 5.</li>
+ *   <li>{@code gen.role.occupants} - true, the default, to write the {@code roleOccupant} values to the role entries in
+ *   the ldif, as {@code role.occupants} does on assignment.</li>
+ *   <li>{@code gen.seed}, {@code gen.prefix}, {@code gen.password} - default 1, {@code gen}, {@code secret}.</li>
+ *   <li>{@code gen.suffix}, {@code gen.config.realm}, {@code gen.delimiter} - must match the target's
+ *   {@code suffix}, {@code config.realm} and attribute delimiter, default {@code dc=example,dc=com}, {@code DEFAULT},
+ *   {@code $}.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class PolicyGenerator
+{
+    private static final Logger LOG = LoggerFactory.getLogger( PolicyGenerator.class.getName() );
+    private static final String RC_KEY = "locale";
+    private static final String[] LOCALES = { "east", "west", "north", "south" };
+    // sections of the random sequences, so changing the size of one part does not change the others:
+    private static final int HIERARCHY = 1;
+    private static final int GRANTS = 2;
+    private static final int SD_SETS = 3;
+    private static final int CONSTRAINTS = 4;
+    private static final int USERS = 5;
+    // name, parent and description of the containers of a tenant, as created by init-ldap.ldif for the default one:
+    private static final String[][] CONTAINERS =
+        {
+            { "People", null, "Fortress People" },
+            { "Policies", null, "Fortress Policies" },
+            { "RBAC", null, "Fortress RBAC Policies" },
+            { "Roles", "RBAC", "Fortress Roles" },
+            { "Permissions", "RBAC", "Fortress Permissions" },
+            { "Constraints", "RBAC", "Fortress Separation of Duty Constraints" },
+            { "ARBAC", null, "Fortress Administrative RBAC Policies" },
+            { "OS-U", "ARBAC", "Fortress User Organizational Units" },
+            { "OS-P", "ARBAC", "Fortress Perm Organizational Units" },
+            { "AdminRoles", "ARBAC", "Fortress AdminRoles" },
+            { "AdminPerms", "ARBAC", "Fortress Admin Permissions" }
+    };
+
+    private final String format = System.getProperty( "gen.format", "ldif" );
+    private final Path out = Paths.get( System.getProperty( "gen.out", "target/policy" ) );
+    private final int tenants = Integer.getInteger( "gen.tenants", 1 );
+    private final int users = Integer.getInteger( "gen.users", 1000 );
+    private final int roles = Integer.getInteger( "gen.roles", 100 );
+    private final int depth = Integer.getInteger( "gen.depth", 4 );
+    private final int fanout = Integer.getInteger( "gen.fanout", 4 );
+    private final int multiPct = Integer.getInteger( "gen.multi.pct", 20 );
+    private final int maxParents = Integer.getInteger( "gen.max.parents", 3 );
+    private final int objs = Integer.getInteger( "gen.objs", 50 );
+    private final int ops = Integer.getInteger( "gen.ops", 5 );
+    private final int grants = Integer.getInteger( "gen.grants", 10 );
+    private final int userRoles = Integer.getInteger( "gen.user.roles", 3 );
+    private final int userOus = Integer.getInteger( "gen.user.ous", 10 );
+    private final int permOus = Integer.getInteger( "gen.perm.ous", 10 );
+    private final int ssdSets = Integer.getInteger( "gen.ssd.sets", 5 );
+    private final int dsdSets = Integer.getInteger( "gen.dsd.sets", 5 );
+    private final int sdSize = Integer.getInteger( "gen.sd.size", 3 );
+    private final int temporalPct = Integer.getInteger( "gen.temporal.pct", 10 );
+    private final int rcPct = Integer.getInteger( "gen.rc.pct", 5 );
+    private final boolean occupants = Boolean.parseBoolean( System.getProperty( "gen.role.occupants", "true" ) );
+    private final long seed = Long.getLong( "gen.seed", 1L );
+    private final String prefix = System.getProperty( "gen.prefix", "gen" );
+    private final String password = System.getProperty( "gen.password", "secret" );
+    private final String suffix = System.getProperty( "gen.suffix", "dc=example,dc=com" );
+    private final String realm = System.getProperty( "gen.config.realm", "DEFAULT" );
+    private final String delimiter = System.getProperty( "gen.delimiter", "$" );
+
+
+    /**
+     * The policy of one tenant, everything but the users, which are derived one at a time by {@link #getUser(int)}.
+     */
+    private final class Tenant
+    {
+        private final int number;
+        private final String contextId;
+        private final String base;
+        private final int[] levelStarts;
+        private final String[] roleNames;
+        private final int[][] parents;
+        private final boolean[] constrained;
+        private final int[][] ssds;
+        private final int[][] dsds;
+        // ssd sets each role is a member of:
+        private final Map<Integer, List<Integer>> ssdsOf = new HashMap<>();
+        // roles granted each operation, indexed by obj * ops + op:
+        private final int[][] opRoles;
+
+
+        private Tenant( int number )
+        {
+            this.number = number;
+            this.contextId = tenants == 1 ? GlobalIds.HOME : prefix + "T" + number;
+            this.base = tenants == 1 ? suffix : "ou=" + contextId + "," + suffix;
+            this.levelStarts = getLevelStarts();
+            this.roleNames = new String[roles];
+            for ( int level = 0; level < depth; level++ )
+            {
+                for ( int role = levelStarts[level]; role < levelStarts[level + 1]; role++ )
+                {
+                    roleNames[role] = prefix + "R" + level + "_" + ( role - levelStarts[level] );
+                }
+            }
+            this.parents = getParents();
+            this.constrained = new boolean[roles];
+            Random random = random( number, CONSTRAINTS, 0 );
+            for ( int role = 0; role < roles; role++ )
+            {
+                constrained[role] = random.nextInt( 100 ) < rcPct;
+            }
+            // members come from the bottom level, no role inherits them so only direct assignments count:
+            int[] bottom = shuffle( levelStarts[depth - 1], roles, random( number, SD_SETS, 0 ) );
+            this.ssds = getSdSets( bottom, 0, ssdSets );
+            this.dsds = getSdSets( bottom, ssdSets, dsdSets );
+            for ( int set = 0; set < ssds.length; set++ )
+            {
+                for ( int member : ssds[set] )
+                {
+                    ssdsOf.computeIfAbsent( member, k -> new ArrayList<>() ).add( set );
+                }
+            }
+            this.opRoles = getGrants();
+        }
+
+
+        /**
+         * Size each level {@link #fanout} times the one above, the bottom level takes what remains.
+         */
+        private int[] getLevelStarts()
+        {
+            double total = 0;
+            for ( int level = 0; level < depth; level++ )
+            {
+                total += Math.pow( fanout, level );
+            }
+            int[] starts = new int[depth + 1];
+            int assigned = 0;
+            for ( int level = 0; level < depth; level++ )
+            {
+                starts[level] = assigned;
+                int size = level == depth - 1 ? roles - assigned
+                    : ( int ) Math.max( 1, Math.round( roles * Math.pow( fanout, level ) / total ) );
+                // leave at least one role for each level below:
+                assigned += Math.min( size, roles - assigned - ( depth - 1 - level ) );
+            }
+            starts[depth] = roles;
+            return starts;
+        }
+
+
+        private int[][] getParents()
+        {
+            int[][] result = new int[roles][];
+            Random random = random( number, HIERARCHY, 0 );
+            for ( int level = 0; level < depth; level++ )
+            {
+                for ( int role = levelStarts[level]; role < levelStarts[level + 1]; role++ )
+                {
+                    if ( level == 0 )
+                    {
+                        result[role] = new int[0];
+                        continue;
+                    }
+                    int above = levelStarts[level - 1];
+                    int aboveSize = levelStarts[level] - above;
+                    int size = levelStarts[level + 1] - levelStarts[level];
+                    // spread the children evenly over the level above, then add the extra parents:
+                    Set<Integer> chosen = new LinkedHashSet<>();
+                    chosen.add( above + ( int ) ( ( long ) ( role - levelStarts[level] ) * aboveSize / size ) );
+                    if ( maxParents > 1 && random.nextInt( 100 ) < multiPct )
+                    {
+                        int extra = Math.min( 1 + random.nextInt( maxParents - 1 ), aboveSize - 1 );
+                        while ( chosen.size() < extra + 1 )
+                        {
+                            chosen.add( above + random.nextInt( aboveSize ) );
+                        }
+                    }
+                    result[role] = chosen.stream().mapToInt( Integer::intValue ).toArray();
+                }
+            }
+            return result;
+        }
+
+
+        private int[][] getSdSets( int[] members, int first, int count )
+        {
+            int size = Math.min( sdSize, members.length );
+            int[][] sets = new int[count][size];
+            for ( int set = 0; set < count; set++ )
+            {
+                for ( int i = 0; i < size; i++ )
+                {
+                    sets[set][i] = members[( ( first + set ) * size + i ) % members.length];
+                }
+            }
+            return sets;
+        }
+
+
+        private int[][] getGrants()
+        {
+            int total = objs * ops;
+            int[][] granted = new int[roles][];
+            int[] counts = new int[total];
+            Random random = random( number, GRANTS, 0 );
+            for ( int role = 0; role < roles; role++ )
+            {
+                Set<Integer> chosen = new LinkedHashSet<>();
+                while ( chosen.size() < Math.min( grants, total ) )
+                {
+                    chosen.add( random.nextInt( total ) );
+                }
+                granted[role] = chosen.stream().mapToInt( Integer::intValue ).toArray();
+                for ( int op : granted[role] )
+                {
+                    counts[op]++;
+                }
+            }
+            int[][] result = new int[total][];
+            for ( int op = 0; op < total; op++ )
+            {
+                result[op] = new int[counts[op]];
+                counts[op] = 0;
+            }
+            for ( int role = 0; role < roles; role++ )
+            {
+                for ( int op : granted[role] )
+                {
+                    result[op][counts[op]++] = role;
+                }
+            }
+            return result;
+        }
+
+
+        /**
+         * Derive the assignments of one user from the seed and its number alone, so the users may be written in any
+         * number of passes without holding them.
+         */
+        private GeneratedUser getUser( int user )
+        {
+            Random random = random( number, USERS, user );
+            int count = Math.min( userRoles, roles );
+            Set<Integer> chosen = new LinkedHashSet<>();
+            Map<Integer, Integer> ssdCounts = new HashMap<>();
+            for ( int attempt = 0; chosen.size() < count && attempt < count * 10; attempt++ )
+            {
+                int role = random.nextInt( roles );
+                List<Integer> sets = ssdsOf.get( role );
+                if ( chosen.contains( role ) || ( sets != null && sets.stream().anyMatch(
+                    set -> ssdCounts.getOrDefault( set, 0 ) + 1 >= ssds[set].length ) ) )
+                {
+                    continue;
+                }
+                chosen.add( role );
+                if ( sets != null )
+                {
+                    sets.forEach( set -> ssdCounts.merge( set, 1, Integer::sum ) );
+                }
+            }
+            GeneratedUser result = new GeneratedUser( prefix + "U" + user, prefix + "UsrOu" + ( user % userOus ), chosen.size() );
+            int i = 0;
+            for ( int role : chosen )
+            {
+                result.roles[i] = role;
+                result.temporal[i] = random.nextInt( 100 ) < temporalPct;
+                result.locales[i] = constrained[role] ? LOCALES[random.nextInt( LOCALES.length )] : null;
+                i++;
+            }
+            return result;
+        }
+
+
+        private String getDn( String rdn, String container )
+        {
+            return rdn + "," + getContainerDn( container );
+        }
+
+
+        private String getContainerDn( String container )
+        {
+            for ( String[] entry : CONTAINERS )
+            {
+                if ( entry[0].equals( container ) )
+                {
+                    return "ou=" + container + ( entry[1] == null ? "" : ",ou=" + entry[1] ) + "," + base;
+                }
+            }
+            throw new IllegalArgumentException( "unknown container " + container );
+        }
+
+
+        private String getObjName( int obj )
+        {
+            return prefix + "Obj" + obj;
+        }
+    }
+
+
+    /**
+     * One user and its role assignments.
+     */
+    private static final class GeneratedUser
+    {
+        private final String userId;
+        private final String ou;
+        private final int[] roles;
+        private final boolean[] temporal;
+        private final String[] locales;
+
+
+        private GeneratedUser( String userId, String ou, int count )
+        {
+            this.userId = userId;
+            this.ou = ou;
+            this.roles = new int[count];
+            this.temporal = new boolean[count];
+            this.locales = new String[count];
+        }
+    }
+
+
+    /**
+     * Write the policy configured by the system properties.
+     *
+     * @param args not used.
+     * @throws IOException in the event the files cannot be written.
+     */
+    public static void main( String[] args ) throws IOException
+    {
+        new PolicyGenerator().generate();
+    }
+
+
+    /**
+     * Write the policy to {@code gen.out}.
+     *
+     * @throws IOException in the event the files cannot be written.
+     */
+    public void generate() throws IOException
+    {
+        if ( depth < 1 || roles < depth || fanout < 1 || sdSize < 2 || userOus < 1 || permOus < 1 || ops < 1 )
+        {
+            throw new IllegalArgumentException( "gen.roles must be at least gen.depth, gen.sd.size at least 2, and the "
+                + "other sizes at least 1" );
+        }
+        Files.createDirectories( out );
+        long start = System.currentTimeMillis();
+        if ( "xml".equalsIgnoreCase( format ) )
+        {
+            for ( int number = 1; number <= tenants; number++ )
+            {
+                Tenant tenant = new Tenant( number );
+                try ( Writer writer = newWriter( "policy-" + tenant.contextId + ".xml" ) )
+                {
+                    writeXml( tenant, writer );
+                }
+            }
+        }
+        else
+        {
+            try ( Writer writer = newWriter( "policy.ldif" ); Writer config = newWriter( "policy-config.ldif" ) )
+            {
+                for ( int number = 1; number <= tenants; number++ )
+                {
+                    Tenant tenant = new Tenant( number );
+                    writeLdif( tenant, writer );
+                    writeLdifConfig( tenant, config );
+                }
+            }
+        }
+        LOG.info( "generate wrote {} tenants of {} users, {} roles, {} permissions to {} in {} ms", tenants, users,
+            roles, objs * ops, out.toAbsolutePath(), System.currentTimeMillis() - start );
+    }
+
+
+    private void writeLdif( Tenant tenant, Writer writer ) throws IOException
+    {
+        if ( tenants > 1 )
+        {
+            writeContainer( writer, tenant.base, tenant.contextId, "Fortress tenant " + tenant.contextId );
+            for ( String[] container : CONTAINERS )
+            {
+                writeContainer( writer, tenant.getContainerDn( container[0] ), container[0], container[2] );
+            }
+        }
+        for ( int ou = 0; ou < userOus; ou++ )
+        {
+            writeOrgUnit( writer, tenant.getDn( "ou=" + prefix + "UsrOu" + ou, "OS-U" ), prefix + "UsrOu" + ou );
+        }
+        for ( int ou = 0; ou < permOus; ou++ )
+        {
+            writeOrgUnit( writer, tenant.getDn( "ou=" + prefix + "PrmOu" + ou, "OS-P" ), prefix + "PrmOu" + ou );
+        }
+        int[][] roleUsers = occupants ? getRoleUsers( tenant ) : null;
+        for ( int role = 0; role < roles; role++ )
+        {
+            String name = tenant.roleNames[role];
+            String dn = tenant.getDn( "cn=" + name, "Roles" );
+            writeHeader( writer, dn, "top", GlobalIds.ROLE_OBJECT_CLASS_NM, GlobalIds.PROPS_AUX_OBJECT_CLASS_NAME,
+                GlobalIds.FT_MODIFIER_AUX_OBJECT_CLASS_NAME );
+            writeAttr( writer, "ftRoleName", name );
+            writeAttr( writer, "description", "Generated role" );
+            writeAttr( writer, "cn", name );
+            writeAttr( writer, GlobalIds.CONSTRAINT, getConstraint( name, false ) );
+            for ( int parent : tenant.parents[role] )
+            {
+                writeAttr( writer, GlobalIds.PARENT_NODES, tenant.roleNames[parent] );
+            }
+            if ( roleUsers != null )
+            {
+                for ( int user : roleUsers[role] )
+                {
+                    writeAttr( writer, "roleOccupant", tenant.getDn( "uid=" + prefix + "U" + user, "People" ) );
+                }
+            }
+            writer.write( "\n" );
+        }
+        writeLdifSdSets( tenant, writer, tenant.ssds, false );
+        writeLdifSdSets( tenant, writer, tenant.dsds, true );
+        for ( int obj = 0; obj < objs; obj++ )
+        {
+            String objName = tenant.getObjName( obj );
+            String objDn = tenant.getDn( GlobalIds.POBJ_NAME + "=" + objName, "Permissions" );
+            writeHeader( writer, objDn, "top", "organizationalunit", "ftObject", GlobalIds.PROPS_AUX_OBJECT_CLASS_NAME,
+                GlobalIds.FT_MODIFIER_AUX_OBJECT_CLASS_NAME );
+            writeAttr( writer, GlobalIds.POBJ_NAME, objName );
+            writeAttr( writer, "ou", prefix + "PrmOu" + ( obj % permOus ) );
+            writeAttr( writer, "description", "Generated object" );
+            writer.write( "\n" );
+            for ( int op = 0; op < ops; op++ )
+            {
+                String opName = "op" + op;
+                writeHeader( writer, GlobalIds.POP_NAME + "=" + opName + "," + objDn, "top", "organizationalrole",
+                    "ftOperation", GlobalIds.PROPS_AUX_OBJECT_CLASS_NAME, GlobalIds.FT_MODIFIER_AUX_OBJECT_CLASS_NAME );
+                writeAttr( writer, GlobalIds.POP_NAME, opName );
+                writeAttr( writer, GlobalIds.POBJ_NAME, objName );
+                writeAttr( writer, "ftPermName", objName + "." + opName );
+                writeAttr( writer, "cn", objName + "." + opName );
+                for ( int role : tenant.opRoles[obj * ops + op] )
+                {
+                    writeAttr( writer, "ftRoles", tenant.roleNames[role] );
+                }
+                writer.write( "\n" );
+            }
+        }
+        for ( int number = 0; number < users; number++ )
+        {
+            GeneratedUser user = tenant.getUser( number );
+            writeHeader( writer, tenant.getDn( "uid=" + user.userId, "People" ), "top", "inetOrgPerson", "ftUserAttrs",
+                GlobalIds.PROPS_AUX_OBJECT_CLASS_NAME, GlobalIds.FT_MODIFIER_AUX_OBJECT_CLASS_NAME, "extensibleObject" );
+            writeAttr( writer, "uid", user.userId );
+            writeAttr( writer, "cn", user.userId );
+            writeAttr( writer, "sn", user.userId );
+            writeAttr( writer, "userPassword", password );
+            writeAttr( writer, "displayName", user.userId );
+            writeAttr( writer, "ou", user.ou );
+            writeAttr( writer, "description", "Generated user" );
+            writeAttr( writer, GlobalIds.PROPS, "init:" );
+            writeAttr( writer, GlobalIds.CONSTRAINT, getConstraint( user.userId, false ) );
+            for ( int i = 0; i < user.roles.length; i++ )
+            {
+                String name = tenant.roleNames[user.roles[i]];
+                writeAttr( writer, "ftRA", name );
+                writeAttr( writer, GlobalIds.USER_ROLE_DATA, getConstraint( name, user.temporal[i] ) );
+                if ( user.locales[i] != null )
+                {
+                    writeAttr( writer, GlobalIds.USER_ROLE_DATA, String.join( delimiter, name.toLowerCase(),
+                        "type", "USER", RC_KEY, user.locales[i], "" ) );
+                }
+            }
+            writer.write( "\n" );
+        }
+    }
+
+
+    private void writeLdifSdSets( Tenant tenant, Writer writer, int[][] sets, boolean dynamic ) throws IOException
+    {
+        String name = prefix + ( dynamic ? "Dsd" : "Ssd" );
+        for ( int set = 0; set < sets.length; set++ )
+        {
+            writeHeader( writer, tenant.getDn( "cn=" + name + set, "Constraints" ), "top",
+                dynamic ? "ftDSDSet" : "ftSSDSet",
+                GlobalIds.FT_MODIFIER_AUX_OBJECT_CLASS_NAME );
+            writeAttr( writer, "ftSetName", name + set );
+            writeAttr( writer, "description", "Generated separation of duty set" );
+            writeAttr( writer, "cn", name + set );
+            for ( int member : sets[set] )
+            {
+                writeAttr( writer, "ftRoles", tenant.roleNames[member] );
+            }
+            writeAttr( writer, "ftSetCardinality", String.valueOf( getCardinality( sets[set], dynamic ) ) );
+            writer.write( "\n" );
+        }
+    }
+
+
+    /**
+     * The constrained roles are listed on the config node, the same change {@code enableRoleConstraint} makes.
+     */
+    private void writeLdifConfig( Tenant tenant, Writer writer ) throws IOException
+    {
+        for ( int role = 0; role < roles; role++ )
+        {
+            if ( tenant.constrained[role] )
+            {
+                writer.write( "dn: cn=" + realm + ",ou=Config," + suffix + "\nchangetype: modify\nadd: "
+                    + GlobalIds.PROPS + "\n" );
+                writeAttr( writer, GlobalIds.PROPS, GlobalIds.CONSTRAINT_KEY_PREFIX + delimiter + tenant.contextId
+                    + delimiter + tenant.roleNames[role].toLowerCase() + ":" + RC_KEY );
+                writer.write( "-\n\n" );
+            }
+        }
+    }
+
+
+    /**
+     * Invert the users' assignments for the role occupants, two passes so only the result is held.
+     */
+    private int[][] getRoleUsers( Tenant tenant )
+    {
+        int[] counts = new int[roles];
+        for ( int number = 0; number < users; number++ )
+        {
+            for ( int role : tenant.getUser( number ).roles )
+            {
+                counts[role]++;
+            }
+        }
+        int[][] result = new int[roles][];
+        for ( int role = 0; role < roles; role++ )
+        {
+            result[role] = new int[counts[role]];
+            counts[role] = 0;
+        }
+        for ( int number = 0; number < users; number++ )
+        {
+            for ( int role : tenant.getUser( number ).roles )
+            {
+                result[role][counts[role]++] = number;
+            }
+        }
+        return result;
+    }
+
+
+    private void writeXml( Tenant tenant, Writer writer ) throws IOException
+    {
+        writer.write( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        writer.write( "<!-- Generated by " + PolicyGenerator.class.getName() + " seed=" + seed + " -->\n" );
+        writer.write( "<project basedir=\".\" default=\"all\" name=\"Fortress Generated Policy\">\n" );
+        writer.write( "    <taskdef classname=\"org.apache.directory.fortress.core.ant.FortressAntTask\" "
+            + "name=\"FortressAdmin\" >\n" );
+        writer.write( "        <classpath path=\"${java.class.path}\"/>\n    </taskdef>\n" );
+        writer.write( "    <target name=\"all\">\n        <FortressAdmin>\n" );
+        if ( tenants > 1 )
+        {
+            openSection( writer, "addcontext" );
+            writeElement( writer, "context", "name", tenant.contextId );
+            closeSection( writer, "addcontext" );
+            openSection( writer, "addcontainer" );
+            for ( String[] container : CONTAINERS )
+            {
+                writeElement( writer, "container", "name", container[0], "parent", container[1], "description",
+                    container[2] );
+            }
+            closeSection( writer, "addcontainer" );
+        }
+        openSection( writer, "addorgunit" );
+        for ( int ou = 0; ou < userOus; ou++ )
+        {
+            writeElement( writer, "orgunit", "name", prefix + "UsrOu" + ou, "typeName", "USER", "description",
+                "Generated user org unit" );
+        }
+        for ( int ou = 0; ou < permOus; ou++ )
+        {
+            writeElement( writer, "orgunit", "name", prefix + "PrmOu" + ou, "typeName", "PERM", "description",
+                "Generated perm org unit" );
+        }
+        closeSection( writer, "addorgunit" );
+        openSection( writer, "addrole" );
+        for ( int role = 0; role < roles; role++ )
+        {
+            writeElement( writer, "role", "name", tenant.roleNames[role], "description", "Generated role" );
+        }
+        closeSection( writer, "addrole" );
+        openSection( writer, "addroleinheritance" );
+        for ( int role = 0; role < roles; role++ )
+        {
+            for ( int parent : tenant.parents[role] )
+            {
+                writeElement( writer, "relationship", "child", tenant.roleNames[role], "parent",
+                    tenant.roleNames[parent] );
+            }
+        }
+        closeSection( writer, "addroleinheritance" );
+        openSection( writer, "addsdset" );
+        writeXmlSdSets( tenant, writer, tenant.ssds, false );
+        writeXmlSdSets( tenant, writer, tenant.dsds, true );
+        closeSection( writer, "addsdset" );
+        openSection( writer, "addpermobj" );
+        for ( int obj = 0; obj < objs; obj++ )
+        {
+            writeElement( writer, "permobj", "objName", tenant.getObjName( obj ), "description", "Generated object",
+                "ou", prefix + "PrmOu" + ( obj % permOus ) );
+        }
+        closeSection( writer, "addpermobj" );
+        openSection( writer, "addpermop" );
+        for ( int obj = 0; obj < objs; obj++ )
+        {
+            for ( int op = 0; op < ops; op++ )
+            {
+                writeElement( writer, "permop", "objName", tenant.getObjName( obj ), "opName", "op" + op );
+            }
+        }
+        closeSection( writer, "addpermop" );
+        openSection( writer, "addpermgrant" );
+        for ( int obj = 0; obj < objs; obj++ )
+        {
+            for ( int op = 0; op < ops; op++ )
+            {
+                for ( int role : tenant.opRoles[obj * ops + op] )
+                {
+                    writeElement( writer, "permgrant", "objName", tenant.getObjName( obj ), "opName", "op" + op,
+                        "roleNm", tenant.roleNames[role] );
+                }
+            }
+        }
+        closeSection( writer, "addpermgrant" );
+        openSection( writer, "adduser" );
+        for ( int number = 0; number < users; number++ )
+        {
+            GeneratedUser user = tenant.getUser( number );
+            writeElement( writer, "user", "userId", user.userId, "password", password, "description",
+                "Generated user", "ou", user.ou, "cn", user.userId, "sn", user.userId );
+        }
+        closeSection( writer, "adduser" );
+        openSection( writer, "adduserrole" );
+        for ( int number = 0; number < users; number++ )
+        {
+            GeneratedUser user = tenant.getUser( number );
+            for ( int i = 0; i < user.roles.length; i++ )
+            {
+                String name = tenant.roleNames[user.roles[i]];
+                if ( user.temporal[i] )
+                {
+                    writeElement( writer, "userrole", "userId", user.userId, "name", name, "beginTime", "0800",
+                        "endTime", "1800", "beginDate", "20200101", "endDate", "20991231", "beginLockDate", "none",
+                        "endLockDate", "none", "dayMask", "23456", "timeout", "30" );
+                }
+                else
+                {
+                    writeElement( writer, "userrole", "userId", user.userId, "name", name );
+                }
+            }
+        }
+        closeSection( writer, "adduserrole" );
+        openSection( writer, "addroleconstraint" );
+        for ( int role = 0; role < roles; role++ )
+        {
+            if ( tenant.constrained[role] )
+            {
+                writeElement( writer, "roleconstraint", "role", tenant.roleNames[role], "key", RC_KEY, "typeName",
+                    "USER" );
+            }
+        }
+        for ( int number = 0; number < users; number++ )
+        {
+            GeneratedUser user = tenant.getUser( number );
+            for ( int i = 0; i < user.roles.length; i++ )
+            {
+                if ( user.locales[i] != null )
+                {
+                    writeElement( writer, "roleconstraint", "userId", user.userId, "role",
+                        tenant.roleNames[user.roles[i]], "key", RC_KEY, "value", user.locales[i], "typeName", "USER" );
+                }
+            }
+        }
+        closeSection( writer, "addroleconstraint" );
+        writer.write( "        </FortressAdmin>\n    </target>\n</project>\n" );
+    }
+
+
+    private void writeXmlSdSets( Tenant tenant, Writer writer, int[][] sets, boolean dynamic ) throws IOException
+    {
+        String name = prefix + ( dynamic ? "Dsd" : "Ssd" );
+        for ( int set = 0; set < sets.length; set++ )
+        {
+            StringBuilder members = new StringBuilder();
+            for ( int member : sets[set] )
+            {
+                members.append( members.length() == 0 ? "" : "," ).append( tenant.roleNames[member] );
+            }
+            writeElement( writer, "sdset", "name", name + set, "setmembers", members.toString(), "cardinality",
+                String.valueOf( getCardinality( sets[set], dynamic ) ), "setType", dynamic ? "DYNAMIC" : "STATIC",
+                "description", "Generated separation of duty set" );
+        }
+    }
+
+
+    /**
+     * A user may hold all but one role of an SSD set, and activate only one role of a DSD set at a time.
+     */
+    private static int getCardinality( int[] members, boolean dynamic )
+    {
+        return dynamic ? 2 : members.length;
+    }
+
+
+    /**
+     * Format a constraint the way the entities store it, office hours on weekdays when temporal, unconstrained
+     * otherwise.
+     */
+    private String getConstraint( String name, boolean temporal )
+    {
+        return temporal ? String.join( delimiter, name, "30", "0800", "1800", "20200101", "20991231", "none", "none",
+            "23456" ) : String.join( delimiter, name, "0", "", "", "", "", "", "", "" );
+    }
+
+
+    private void writeContainer( Writer writer, String dn, String name, String description ) throws IOException
+    {
+        writer.write( "dn: " + dn + "\nobjectclass: organizationalunit\n" );
+        writeAttr( writer, "ou", name );
+        writeAttr( writer, "description", description );
+        writer.write( "\n" );
+    }
+
+
+    private void writeOrgUnit( Writer writer, String dn, String name ) throws IOException
+    {
+        writeHeader( writer, dn, "top", "ftOrgUnit", GlobalIds.FT_MODIFIER_AUX_OBJECT_CLASS_NAME );
+        writeAttr( writer, "description", "Generated org unit" );
+        writeAttr( writer, "ou", name );
+        writer.write( "\n" );
+    }
+
+
+    /**
+     * Write the dn, object classes and internal id of an entry, the id is derived from the dn so it is stable.
+     */
+    private static void writeHeader( Writer writer, String dn, String... objectClasses ) throws IOException
+    {
+        writer.write( "dn: " + dn + "\n" );
+        for ( String objectClass : objectClasses )
+        {
+            writeAttr( writer, "objectclass", objectClass );
+        }
+        writeAttr( writer, GlobalIds.FT_IID, UUID.nameUUIDFromBytes( dn.getBytes( StandardCharsets.UTF_8 ) )
+            .toString() );
+    }
+
+
+    private static void writeAttr( Writer writer, String name, String value ) throws IOException
+    {
+        writer.write( name );
+        writer.write( ": " );
+        writer.write( value );
+        writer.write( "\n" );
+    }
+
+
+    private static void openSection( Writer writer, String name ) throws IOException
+    {
+        writer.write( "            <" + name + ">\n" );
+    }
+
+
+    private static void closeSection( Writer writer, String name ) throws IOException
+    {
+        writer.write( "            </" + name + ">\n\n" );
+    }
+
+
+    /**
+     * Write an element of name and value pairs, the pairs with a null value are left out.
+     */
+    private static void writeElement( Writer writer, String name, String... attrs ) throws IOException
+    {
+        writer.write( "                <" + name );
+        for ( int i = 0; i < attrs.length; i += 2 )
+        {
+            if ( attrs[i + 1] != null )
+            {
+                writer.write( " " + attrs[i] + "=\"" + attrs[i + 1] + "\"" );
+            }
+        }
+        writer.write( "/>\n" );
+    }
+
+
+    private Writer newWriter( String name ) throws IOException
+    {
+        return new BufferedWriter( Files.newBufferedWriter( out.resolve( name ), StandardCharsets.UTF_8 ), 1 << 16 );
+    }
+
+
+    private int[] shuffle( int from, int to, Random random )
+    {
+        int[] result = new int[to - from];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = from + i;
+        }
+        for ( int i = result.length - 1; i > 0; i-- )
+        {
+            int j = random.nextInt( i + 1 );
+            int tmp = result[i];
+            result[i] = result[j];
+            result[j] = tmp;
+        }
+        return result;
+    }
+
+
+    /**
+     * Return the random sequence of one section of one tenant, or of one user, mixed from the seed so neighbouring
+     * numbers do not give correlated sequences.
+     */
+    private Random random( int tenant, int section, long number )
+    {
+        long mixed = seed;
+        for ( long value : new long[] { tenant, section, number } )
+        {
+            mixed = ( mixed ^ value ) * 0x9E3779B97F4A7C15L;
+            mixed ^= mixed >>> 32;
+        }
+        return new Random( mixed );
+    }
+}
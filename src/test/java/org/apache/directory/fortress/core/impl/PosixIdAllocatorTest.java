@@ -0,0 +1,221 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.SecurityException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Unit tests of {@link PosixIdAllocator} against an in memory sequence that behaves like the single valued
+ * ftUidNumber attribute, no directory required.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class PosixIdAllocatorTest
+{
+    @Test
+    public void testMissingValueNoSeed()
+    {
+        MemoryStore store = new MemoryStore( null );
+        PosixIdAllocator allocator = new PosixIdAllocator( "jtsUid", store, 10, null );
+        try
+        {
+            allocator.next();
+            fail( "next handed out a value with no stored sequence and no seed" );
+        }
+        catch ( SecurityException e )
+        {
+            assertEquals( GlobalErrIds.FT_CONFIG_UPDATE_FAILED, e.getErrorId() );
+        }
+        assertNull( store.value );
+    }
+
+
+    @Test
+    public void testMissingValueSeeded() throws SecurityException
+    {
+        MemoryStore store = new MemoryStore( null );
+        PosixIdAllocator allocator = new PosixIdAllocator( "jtsUid", store, 10, "1000" );
+        for ( int i = 0; i < 15; i++ )
+        {
+            assertEquals( Integer.toString( 1000 + i ), allocator.next() );
+        }
+        assertEquals( "1020", store.value );
+    }
+
+
+    @Test
+    public void testInvalidValue()
+    {
+        PosixIdAllocator allocator = new PosixIdAllocator( "jtsUid", new MemoryStore( "abc" ), 10, "1000" );
+        try
+        {
+            allocator.next();
+            fail( "next handed out a value from an invalid sequence" );
+        }
+        catch ( SecurityException e )
+        {
+            assertEquals( GlobalErrIds.FT_CONFIG_UPDATE_FAILED, e.getErrorId() );
+        }
+    }
+
+
+    /**
+     * Two processes that both read the sequence as absent race to create it, the loser must retry from the value the
+     * winner stored instead of reusing the seed.
+     */
+    @Test
+    public void testFirstWriterRace() throws SecurityException
+    {
+        MemoryStore store = new MemoryStore( null );
+        PosixIdAllocator winner = new PosixIdAllocator( "jtsUid", store, 10, "1000" );
+        // the loser reads the sequence as absent, then the winner creates it before the loser's update:
+        store.beforeAdvance = () -> {
+            store.beforeAdvance = null;
+            assertEquals( "1000", winner.next() );
+        };
+        PosixIdAllocator loser = new PosixIdAllocator( "jtsUid", store, 10, "1000" );
+        assertEquals( "1010", loser.next() );
+        assertEquals( "1020", store.value );
+        assertTrue( store.conflicts.get() > 0 );
+    }
+
+
+    /**
+     * Several processes, each with several threads, draw from the same sequence and never hand out a value twice.
+     */
+    @Test
+    public void testConcurrentProcesses() throws Exception
+    {
+        int processes = 4;
+        int threads = 8;
+        int perThread = 500;
+        MemoryStore store = new MemoryStore( "1000" );
+        List<PosixIdAllocator> allocators = new ArrayList<>();
+        for ( int p = 0; p < processes; p++ )
+        {
+            allocators.add( new PosixIdAllocator( "jtsUid", store, 7, null ) );
+        }
+        Set<String> values = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool( processes * threads );
+        try
+        {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for ( int t = 0; t < processes * threads; t++ )
+            {
+                PosixIdAllocator allocator = allocators.get( t % processes );
+                Callable<Integer> task = () -> {
+                    int duplicates = 0;
+                    for ( int i = 0; i < perThread; i++ )
+                    {
+                        if ( !values.add( allocator.next() ) )
+                        {
+                            duplicates++;
+                        }
+                    }
+                    return duplicates;
+                };
+                futures.add( executor.submit( task ) );
+            }
+            for ( Future<Integer> future : futures )
+            {
+                assertEquals( 0, future.get().intValue() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals( processes * threads * perThread, values.size() );
+        for ( String value : values )
+        {
+            long id = Long.parseLong( value );
+            assertTrue( id >= 1000 && id < Long.parseLong( store.value ) );
+        }
+    }
+
+
+    /**
+     * Behaves like a single valued attribute updated by a remove of the expected value and an add of the new one in
+     * one modify request.
+     */
+    private static final class MemoryStore implements PosixIdAllocator.Store
+    {
+        private final AtomicInteger conflicts = new AtomicInteger();
+        private volatile String value;
+        private volatile Hook beforeAdvance;
+
+
+        private MemoryStore( String value )
+        {
+            this.value = value;
+        }
+
+
+        @Override
+        public String read()
+        {
+            return value;
+        }
+
+
+        @Override
+        public boolean advance( String expected, String newValue ) throws SecurityException
+        {
+            Hook hook = beforeAdvance;
+            if ( hook != null )
+            {
+                hook.run();
+            }
+            synchronized ( this )
+            {
+                // no such attribute or, when adding the first value, a constraint violation:
+                if ( expected == null ? value != null : !expected.equals( value ) )
+                {
+                    conflicts.incrementAndGet();
+                    return false;
+                }
+                value = newValue;
+                return true;
+            }
+        }
+    }
+
+
+    private interface Hook
+    {
+        void run() throws SecurityException;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl.apacheds;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Latency histogram with buckets laid out the way HdrHistogram lays them out: values below 128 have a bucket each,
+ * larger values share a bucket with the values of the same 7 leading bits, so every value is recorded within 1% and
+ * the histogram has a fixed size whatever the range.  Recording is lock free, many threads may record at once.
+ * <p>
+ * Values are in microseconds.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    // enough buckets for any positive long:
+    private static final int BUCKETS = SUB_BUCKETS + ( 64 - SUB_BUCKET_BITS ) * HALF;
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Record one latency.
+     *
+     * @param micros contains the latency in microseconds, negative values are recorded as 0.
+     */
+    public void record( long micros )
+    {
+        long value = Math.max( 0, micros );
+        counts.incrementAndGet( index( value ) );
+        total.incrementAndGet();
+        sum.addAndGet( value );
+        max.accumulateAndGet( value, Math::max );
+    }
+
+
+    /**
+     * @return number of latencies recorded.
+     */
+    public long getCount()
+    {
+        return total.get();
+    }
+
+
+    /**
+     * @return largest latency recorded, in microseconds.
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+
+    /**
+     * @return mean of the latencies recorded, in microseconds.
+     */
+    public double getMean()
+    {
+        long count = total.get();
+        return count == 0 ? 0 : ( double ) sum.get() / count;
+    }
+
+
+    /**
+     * Return the latency at or below which the given percentage of the recorded latencies fall.
+     *
+     * @param percentile contains the percentage, i.e. 99.9.
+     * @return latency in microseconds, the highest value of its bucket, 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile( double percentile )
+    {
+        long count = total.get();
+        if ( count == 0 )
+        {
+            return 0;
+        }
+        long target = Math.max( 1, ( long ) Math.ceil( percentile / 100 * count ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += counts.get( i );
+            if ( seen >= target )
+            {
+                return Math.min( highestValue( i ), max.get() );
+            }
+        }
+        return max.get();
+    }
+
+
+    private static int index( long value )
+    {
+        if ( value < SUB_BUCKETS )
+        {
+            return ( int ) value;
+        }
+        // shift so the leading 7 bits remain, they fall in [64, 128):
+        int shift = 64 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + ( shift - 1 ) * HALF + ( int ) ( ( value >>> shift ) - HALF );
+    }
+
+
+    private static long highestValue( int index )
+    {
+        if ( index < SUB_BUCKETS )
+        {
+            return index;
+        }
+        int shift = ( index - SUB_BUCKETS ) / HALF + 1;
+        long leading = ( index - SUB_BUCKETS ) % HALF + HALF;
+        return ( ( leading + 1 ) << shift ) - 1;
+    }
+}
@@ -0,0 +1,476 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.impl.apacheds;
+
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.fortress.core.AccessMgr;
+import org.apache.directory.fortress.core.AccessMgrFactory;
+import org.apache.directory.fortress.core.AdminMgr;
+import org.apache.directory.fortress.core.AdminMgrFactory;
+import org.apache.directory.fortress.core.DelAdminMgr;
+import org.apache.directory.fortress.core.DelAdminMgrFactory;
+import org.apache.directory.fortress.core.GlobalIds;
+import org.apache.directory.fortress.core.ReviewMgr;
+import org.apache.directory.fortress.core.ReviewMgrFactory;
+import org.apache.directory.fortress.core.SecurityException;
+import org.apache.directory.fortress.core.impl.TestUtils;
+import org.apache.directory.fortress.core.model.OrgUnit;
+import org.apache.directory.fortress.core.model.PermObj;
+import org.apache.directory.fortress.core.model.Permission;
+import org.apache.directory.fortress.core.model.Role;
+import org.apache.directory.fortress.core.model.Session;
+import org.apache.directory.fortress.core.model.User;
+import org.apache.directory.fortress.core.model.UserRole;
+import org.apache.directory.fortress.core.util.Config;
+import org.apache.directory.fortress.core.util.cache.CacheMgr;
+import org.apache.directory.server.annotations.CreateLdapServer;
+import org.apache.directory.server.annotations.CreateTransport;
+import org.apache.directory.server.core.annotations.ApplyLdifFiles;
+import org.apache.directory.server.core.annotations.CreateDS;
+import org.apache.directory.server.core.annotations.CreatePartition;
+import org.apache.directory.server.core.integ.AbstractLdapTestUnit;
+import org.apache.directory.server.core.integ.ApacheDSTestExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Load test that needs no external directory.  It starts ApacheDS in process, the same way
+ * {@link FortressJUnitApachedsTest} does, seeds it with a synthetic policy, then drives a mix of runtime and admin
+ * operations from many threads and reports the throughput and p50/p99/p999 latencies of each operation.
+ * <p>
+ * To execute: {@code mvn test -Dtest=LoadApachedsTest [-Dload.threads=8] [-Dload.duration=60]}
+ * <p>
+ * Every setting is a system property:
+ * <ul>
+ *   <li>{@code load.users}, {@code load.roles}, {@code load.objs}, {@code load.ops}, {@code load.user.roles} - size of
+ *   the seeded policy, default 100 users, 20 roles, 20 objects of 5 operations, 3 roles per user.</li>
+ *   <li>{@code load.threads} - number of threads, default 4, at most {@code load.users} since each thread toggles an
+ *   assignment on a user of its own.</li>
+ *   <li>{@code load.warmup}, {@code load.duration} - seconds run before measuring and seconds measured, default 10 and
+ *   30.</li>
+ *   <li>{@code load.mix} - relative weight of each operation, default
+ *   {@code createSession=20,checkAccess=50,sessionPermissions=15,assignUser=5,findUsers=10}.</li>
+ *   <li>{@code load.seed} - seed of the random choices, the same seed gives the same policy and sequence of calls.</li>
+ *   <li>{@code load.baseline} - properties file of a previous run's results, default
+ *   {@code src/test/resources/loadtest-baseline.properties}.  When present the test fails if an operation's p50, p99
+ *   or p999 is more than {@code load.tolerance} (default 0.25) above, or its throughput that much below, the
+ *   baseline's.</li>
+ *   <li>{@code load.baseline.write} - true to store this run's results as the baseline.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+@ExtendWith( { ApacheDSTestExtension.class } )
+@CreateDS(name = "classDS", partitions =
+    { @CreatePartition(name = "example", suffix = "dc=example,dc=com") })
+@CreateLdapServer(
+    transports =
+        {
+            @CreateTransport(protocol = "LDAP", port = 10389)
+    })
+@ApplyLdifFiles(
+    { "fortress-schema.ldif", "init-ldap.ldif" })
+public class LoadApachedsTest extends AbstractLdapTestUnit
+{
+    private static final Logger LOG = LoggerFactory.getLogger( LoadApachedsTest.class.getName() );
+    private static final String PREFIX = "load";
+    private static final String PASSWORD = "secret";
+    private static final String USER_OU = PREFIX + "UsrOu";
+    private static final String PERM_OU = PREFIX + "PrmOu";
+    // toggled by assignUser, never one of the seeded assignments:
+    private static final String EXTRA_ROLE = PREFIX + "RoleExtra";
+    private static final String DEFAULT_MIX = "createSession=20,checkAccess=50,sessionPermissions=15,assignUser=5,findUsers=10";
+    private static final String[] PERCENTILES = { "p50", "p99", "p999" };
+
+    private final int users = Integer.getInteger( "load.users", 100 );
+    private final int roles = Integer.getInteger( "load.roles", 20 );
+    private final int objs = Integer.getInteger( "load.objs", 20 );
+    private final int ops = Integer.getInteger( "load.ops", 5 );
+    private final int userRoles = Integer.getInteger( "load.user.roles", 3 );
+    private final int threads = Integer.getInteger( "load.threads", 4 );
+    private final int warmup = Integer.getInteger( "load.warmup", 10 );
+    private final int duration = Integer.getInteger( "load.duration", 30 );
+    private final long seed = Long.getLong( "load.seed", 1L );
+    private final double tolerance = Double.parseDouble( System.getProperty( "load.tolerance", "0.25" ) );
+    private final Path baseline = Paths.get( System.getProperty( "load.baseline",
+        "src/test/resources/loadtest-baseline.properties" ) );
+    private final boolean writeBaseline = Boolean.getBoolean( "load.baseline.write" );
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+
+    private AccessMgr accessMgr;
+    private AdminMgr adminMgr;
+    private ReviewMgr reviewMgr;
+
+
+    @BeforeEach
+    public void init() throws SecurityException
+    {
+        CacheMgr.getInstance().clearAll();
+        // TODO: Currently cannot evaluate ADS PPolicies in this test harness:
+        Config.getInstance().setProperty( GlobalIds.SERVER_TYPE, "none" );
+        accessMgr = AccessMgrFactory.createInstance( TestUtils.getContext() );
+        adminMgr = AdminMgrFactory.createInstance( TestUtils.getContext() );
+        reviewMgr = ReviewMgrFactory.createInstance( TestUtils.getContext() );
+    }
+
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        if ( threads > users )
+        {
+            // the workers' assignUser toggles would collide on shared users:
+            fail( "load.threads [" + threads + "] must not exceed load.users [" + users + "]" );
+        }
+        seedPolicy();
+        Map<String, Integer> mix = parseMix( System.getProperty( "load.mix", DEFAULT_MIX ) );
+        LOG.info( "testLoad threads [{}] warmup [{}s] duration [{}s] mix {}", threads, warmup, duration, mix );
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        List<Future<?>> workers = new ArrayList<>();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos( warmup + duration );
+        for ( int i = 0; i < threads; i++ )
+        {
+            Worker worker = new Worker( i, mix, end );
+            workers.add( executor.submit( () -> {
+                worker.run();
+                return null;
+            } ) );
+        }
+        TimeUnit.SECONDS.sleep( warmup );
+        measuring = true;
+        long start = System.nanoTime();
+        for ( Future<?> worker : workers )
+        {
+            worker.get();
+        }
+        double seconds = ( System.nanoTime() - start ) / 1e9;
+        executor.shutdown();
+
+        Properties results = report( seconds );
+        checkErrors();
+        checkBaseline( results );
+        if ( writeBaseline )
+        {
+            Files.createDirectories( baseline.toAbsolutePath().getParent() );
+            try ( OutputStream out = new FileOutputStream( baseline.toFile() ) )
+            {
+                results.store( out, "fortress load test baseline" );
+            }
+            LOG.info( "testLoad baseline written [{}]", baseline );
+        }
+    }
+
+
+    /**
+     * Add the org units, roles, permissions, grants and users of the synthetic policy.  Role and permission picks use
+     * the seed so every run builds the same policy.
+     */
+    private void seedPolicy() throws SecurityException
+    {
+        Random random = new Random( seed );
+        DelAdminMgr delAdminMgr = DelAdminMgrFactory.createInstance( TestUtils.getContext() );
+        delAdminMgr.add( new OrgUnit( USER_OU, OrgUnit.Type.USER ) );
+        delAdminMgr.add( new OrgUnit( PERM_OU, OrgUnit.Type.PERM ) );
+        for ( int r = 0; r < roles; r++ )
+        {
+            adminMgr.addRole( new Role( roleName( r ) ) );
+        }
+        adminMgr.addRole( new Role( EXTRA_ROLE ) );
+        for ( int o = 0; o < objs; o++ )
+        {
+            adminMgr.addPermObj( new PermObj( objName( o ), PERM_OU ) );
+            for ( int p = 0; p < ops; p++ )
+            {
+                adminMgr.addPermission( new Permission( objName( o ), opName( p ) ) );
+                adminMgr.grantPermission( new Permission( objName( o ), opName( p ) ),
+                    new Role( roleName( random.nextInt( roles ) ) ) );
+            }
+        }
+        for ( int u = 0; u < users; u++ )
+        {
+            adminMgr.addUser( new User( userId( u ), PASSWORD, USER_OU ) );
+            for ( int r = 0; r < Math.min( userRoles, roles ); r++ )
+            {
+                adminMgr.assignUser( new UserRole( userId( u ), roleName( ( u + r ) % roles ) ) );
+            }
+        }
+        LOG.info( "seedPolicy users [{}] roles [{}] permissions [{}]", users, roles, objs * ops );
+    }
+
+
+    /**
+     * One load thread.  It keeps a session of its own for the session based operations, replaced by every
+     * createSession, and toggles an extra role assignment on a user of its own.
+     */
+    private final class Worker
+    {
+        private final Random random;
+        private final String[] names;
+        private final int[] weights;
+        private final int totalWeight;
+        private final long end;
+        private final String ownUserId;
+        private boolean assigned;
+        private Session session;
+
+
+        private Worker( int index, Map<String, Integer> mix, long end )
+        {
+            this.random = new Random( seed + index + 1 );
+            this.names = mix.keySet().toArray( new String[0] );
+            this.weights = new int[names.length];
+            int sum = 0;
+            for ( int i = 0; i < names.length; i++ )
+            {
+                sum += mix.get( names[i] );
+                weights[i] = sum;
+            }
+            this.totalWeight = sum;
+            this.end = end;
+            this.ownUserId = userId( index );
+        }
+
+
+        private void run() throws SecurityException
+        {
+            session = accessMgr.createSession( new User( randomUserId(), PASSWORD ), false );
+            while ( System.nanoTime() < end )
+            {
+                int pick = random.nextInt( totalWeight );
+                int i = 0;
+                while ( weights[i] <= pick )
+                {
+                    i++;
+                }
+                execute( names[i] );
+            }
+        }
+
+
+        private void execute( String op )
+        {
+            String name = op;
+            long start = System.nanoTime();
+            try
+            {
+                switch ( op )
+                {
+                    case "createSession":
+                        session = accessMgr.createSession( new User( randomUserId(), PASSWORD ), false );
+                        break;
+                    case "checkAccess":
+                        accessMgr.checkAccess( session, new Permission( objName( random.nextInt( objs ) ),
+                            opName( random.nextInt( ops ) ) ) );
+                        break;
+                    case "sessionPermissions":
+                        accessMgr.sessionPermissions( session );
+                        break;
+                    case "assignUser":
+                        UserRole uRole = new UserRole( ownUserId, EXTRA_ROLE );
+                        if ( assigned )
+                        {
+                            name = "deassignUser";
+                            adminMgr.deassignUser( uRole );
+                        }
+                        else
+                        {
+                            adminMgr.assignUser( uRole );
+                        }
+                        assigned = !assigned;
+                        break;
+                    case "findUsers":
+                        reviewMgr.findUsers( new User( userId( random.nextInt( users ) ) ) );
+                        break;
+                    default:
+                        throw new IllegalArgumentException( "unknown operation [" + op + "]" );
+                }
+                if ( measuring )
+                {
+                    histograms.computeIfAbsent( name, k -> new LatencyHistogram() ).record(
+                        TimeUnit.NANOSECONDS.toMicros( System.nanoTime() - start ) );
+                }
+            }
+            catch ( SecurityException e )
+            {
+                LOG.warn( "execute [{}] caught SecurityException rc={}, msg={}", name, e.getErrorId(), e.getMessage() );
+                errors.computeIfAbsent( name, k -> new AtomicLong() ).incrementAndGet();
+            }
+        }
+
+
+        private String randomUserId()
+        {
+            return userId( random.nextInt( users ) );
+        }
+    }
+
+
+    private Properties report( double seconds )
+    {
+        Properties results = new Properties();
+        StringBuilder sb = new StringBuilder( "\nLOAD TEST RESULTS threads [" + threads + "] seconds ["
+            + String.format( Locale.ROOT, "%.1f", seconds ) + "]\n" );
+        sb.append( String.format( Locale.ROOT, "%-20s %10s %10s %10s %10s %10s %10s %8s%n", "operation", "count",
+            "ops/sec", "p50(us)", "p99(us)", "p999(us)", "max(us)", "errors" ) );
+        for ( Map.Entry<String, LatencyHistogram> entry : histograms.entrySet() )
+        {
+            String op = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            double throughput = histogram.getCount() / seconds;
+            long p50 = histogram.getValueAtPercentile( 50 );
+            long p99 = histogram.getValueAtPercentile( 99 );
+            long p999 = histogram.getValueAtPercentile( 99.9 );
+            AtomicLong errs = errors.get( op );
+            sb.append( String.format( Locale.ROOT, "%-20s %10d %10.1f %10d %10d %10d %10d %8d%n", op,
+                histogram.getCount(), throughput, p50, p99, p999, histogram.getMax(), errs != null ? errs.get() : 0 ) );
+            results.setProperty( op + ".throughput", String.format( Locale.ROOT, "%.1f", throughput ) );
+            results.setProperty( op + ".p50", Long.toString( p50 ) );
+            results.setProperty( op + ".p99", Long.toString( p99 ) );
+            results.setProperty( op + ".p999", Long.toString( p999 ) );
+        }
+        LOG.info( "{}", sb );
+        return results;
+    }
+
+
+    private void checkErrors()
+    {
+        if ( !errors.isEmpty() )
+        {
+            fail( "load test operations failed " + errors );
+        }
+    }
+
+
+    /**
+     * Fail if an operation got slower, or its throughput lower, than the stored baseline allows.
+     */
+    private void checkBaseline( Properties results ) throws IOException
+    {
+        if ( !Files.exists( baseline ) )
+        {
+            LOG.info( "checkBaseline no baseline found [{}], nothing compared", baseline );
+            return;
+        }
+        Properties expected = new Properties();
+        try ( InputStream in = new FileInputStream( baseline.toFile() ) )
+        {
+            expected.load( in );
+        }
+        List<String> regressions = new ArrayList<>();
+        for ( String op : histograms.keySet() )
+        {
+            for ( String percentile : PERCENTILES )
+            {
+                String key = op + "." + percentile;
+                if ( expected.containsKey( key ) && Double.parseDouble( results.getProperty( key ) ) > Double
+                    .parseDouble( expected.getProperty( key ) ) * ( 1 + tolerance ) )
+                {
+                    regressions.add( key + " [" + results.getProperty( key ) + "] baseline [" + expected.getProperty(
+                        key ) + "]" );
+                }
+            }
+            String key = op + ".throughput";
+            if ( expected.containsKey( key ) && Double.parseDouble( results.getProperty( key ) ) < Double
+                .parseDouble( expected.getProperty( key ) ) * ( 1 - tolerance ) )
+            {
+                regressions.add( key + " [" + results.getProperty( key ) + "] baseline [" + expected.getProperty(
+                    key ) + "]" );
+            }
+        }
+        if ( !regressions.isEmpty() )
+        {
+            fail( "load test regressed against baseline [" + baseline + "] tolerance [" + tolerance + "] "
+                + regressions );
+        }
+    }
+
+
+    private static Map<String, Integer> parseMix( String mix )
+    {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for ( String entry : mix.split( "," ) )
+        {
+            String[] pair = entry.trim().split( "=" );
+            int weight = Integer.parseInt( pair[1].trim() );
+            if ( weight > 0 )
+            {
+                weights.put( pair[0].trim(), weight );
+            }
+        }
+        return weights;
+    }
+
+
+    private static String userId( int i )
+    {
+        return PREFIX + "User" + i;
+    }
+
+
+    private static String roleName( int i )
+    {
+        return PREFIX + "Role" + i;
+    }
+
+
+    private static String objName( int i )
+    {
+        return PREFIX + "Obj" + i;
+    }
+
+
+    private static String opName( int i )
+    {
+        return PREFIX + "Op" + i;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.fortress.core.model;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.directory.fortress.core.GlobalErrIds;
+import org.apache.directory.fortress.core.ValidationException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Unit tests of {@link SessionToken} signing, tampering and expiry, no directory required.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SessionTokenTest
+{
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] OTHER_KEY = "fedcba9876543210fedcba9876543210".getBytes( StandardCharsets.UTF_8 );
+
+
+    @Test
+    public void testRoundTrip() throws ValidationException
+    {
+        SessionToken token = SessionToken.decode( SessionToken.create( getSession( "tenant1" ), 60000 ).encode( KEY ),
+            KEY );
+        assertEquals( "jtsUser1", token.getUserId() );
+        assertEquals( "tenant1", token.getContextId() );
+        assertTrue( token.isAuthenticated() );
+        assertFalse( token.isExpired() );
+        assertEquals( 2, token.getRoleNames().size() );
+        assertTrue( token.getRoleNames().contains( "jtsRole1" ) );
+        Session session = token.toSession();
+        assertEquals( "jtsUser1", session.getUserId() );
+        assertEquals( "tenant1", session.getContextId() );
+        assertEquals( 2, session.getRoles().size() );
+    }
+
+
+    @Test
+    public void testForgedPayload() throws ValidationException
+    {
+        byte[] bytes = Base64.getUrlDecoder().decode( SessionToken.create( getSession( "tenant1" ), 60000 ).encode(
+            KEY ) );
+        // flip a bit in the userId, keeping the original signature:
+        bytes[ 20 ] ^= 1;
+        assertInvalid( Base64.getUrlEncoder().withoutPadding().encodeToString( bytes ), KEY,
+            GlobalErrIds.USER_SESS_TOKEN_INVALID );
+    }
+
+
+    @Test
+    public void testForgedKey() throws ValidationException
+    {
+        String token = SessionToken.create( getSession( "tenant1" ), 60000 ).encode( OTHER_KEY );
+        assertInvalid( token, KEY, GlobalErrIds.USER_SESS_TOKEN_INVALID );
+    }
+
+
+    @Test
+    public void testMalformed()
+    {
+        assertInvalid( "not*base64", KEY, GlobalErrIds.USER_SESS_TOKEN_INVALID );
+        assertInvalid( "AQID", KEY, GlobalErrIds.USER_SESS_TOKEN_INVALID );
+        assertInvalid( null, KEY, GlobalErrIds.USER_SESS_TOKEN_INVALID );
+    }
+
+
+    @Test
+    public void testExpired() throws ValidationException
+    {
+        String token = SessionToken.create( getSession( "tenant1" ), -1 ).encode( KEY );
+        assertInvalid( token, KEY, GlobalErrIds.USER_SESS_TOKEN_EXPIRED );
+    }
+
+
+    @Test
+    public void testShortKey()
+    {
+        try
+        {
+            SessionToken.create( getSession( "tenant1" ), 60000 ).encode( "short".getBytes( StandardCharsets.UTF_8 ) );
+            fail( "encode accepted a short key" );
+        }
+        catch ( ValidationException e )
+        {
+            assertEquals( GlobalErrIds.USER_SESS_TOKEN_INVALID, e.getErrorId() );
+        }
+    }
+
+
+    @Test
+    public void testGroupSession()
+    {
+        try
+        {
+            SessionToken.create( new Session( new Group( "jtsGroup1" ) ), 60000 );
+            fail( "create accepted a group session" );
+        }
+        catch ( ValidationException e )
+        {
+            assertEquals( GlobalErrIds.USER_SESS_TOKEN_INVALID, e.getErrorId() );
+        }
+    }
+
+
+    private static void assertInvalid( String token, byte[] key, int errorId )
+    {
+        try
+        {
+            SessionToken.decode( token, key );
+            fail( "decode accepted token [" + token + "]" );
+        }
+        catch ( ValidationException e )
+        {
+            assertEquals( errorId, e.getErrorId() );
+        }
+    }
+
+
+    private static Session getSession( String contextId )
+    {
+        User user = new User( "jtsUser1" );
+        user.setContextId( contextId );
+        user.setRoles( new RoleList<>() );
+        user.getRoles().add( new UserRole( "jtsUser1", "jtsRole1" ) );
+        user.getRoles().add( new UserRole( "jtsUser1", "jtsRole2" ) );
+        Session session = new Session( user );
+        session.setContextId( contextId );
+        session.setAuthenticated( true );
+        return session;
+    }
+}